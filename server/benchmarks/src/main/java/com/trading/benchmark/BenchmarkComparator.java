@@ -0,0 +1,104 @@
+package com.trading.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JMH结果对比工具
+ * 对比两次 -rf json 输出的结果（如两个提交），按基准方法和参数逐项列出变化；
+ * 变化超过阈值且超出两次结果误差之和时视为退化，存在退化时以退出码1结束，可直接用于CI。
+ *
+ * 运行: java -cp target/benchmarks.jar com.trading.benchmark.BenchmarkComparator base.json current.json [阈值百分比，默认10]
+ */
+public final class BenchmarkComparator {
+
+    private BenchmarkComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: BenchmarkComparator <base.json> <current.json> [阈值百分比]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, JsonNode> base = load(new File(args[0]));
+        Map<String, JsonNode> current = load(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-76s %14s %14s %9s%n", "基准", "基线", "当前", "变化");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue();
+            JsonNode before = base.get(entry.getKey());
+            JsonNode metric = now.get("primaryMetric");
+            String unit = metric.get("scoreUnit").asText();
+            if (before == null) {
+                System.out.printf("%-76s %14s %14.3f %9s  %s%n", entry.getKey(), "-", metric.get("score").asDouble(),
+                        "新增", unit);
+                continue;
+            }
+
+            JsonNode baseMetric = before.get("primaryMetric");
+            double baseScore = baseMetric.get("score").asDouble();
+            double score = metric.get("score").asDouble();
+            double change = baseScore != 0 ? (score - baseScore) / baseScore * 100 : 0;
+            // 吞吐量越高越好，其余模式（平均时间、采样、单次）越低越好
+            boolean higherIsBetter = "thrpt".equals(now.get("mode").asText());
+            double worse = higherIsBetter ? -change : change;
+            double noise = error(baseMetric) + error(metric);
+            boolean regressed = worse > threshold && Math.abs(score - baseScore) > noise;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-76s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), baseScore, score, change, unit,
+                    regressed ? "  <-- 退化" : "");
+        }
+        for (String key : base.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-76s %14.3f %14s %9s%n", key,
+                        base.get(key).get("primaryMetric").get("score").asDouble(), "-", "缺失");
+            }
+        }
+
+        System.out.printf("共 %d 项, 退化 %d 项 (阈值 %.1f%%)%n", current.size(), regressions, threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * 读取JMH JSON结果，键为 类名.方法名{参数}
+     */
+    private static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            results.put(keyOf(result), result);
+        }
+        return results;
+    }
+
+    private static String keyOf(JsonNode result) {
+        String benchmark = result.get("benchmark").asText().replace("com.trading.benchmark.", "");
+        JsonNode params = result.get("params");
+        if (params == null || params.size() == 0) {
+            return benchmark;
+        }
+        Map<String, String> sorted = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            sorted.put(field.getKey(), field.getValue().asText());
+        }
+        return benchmark + sorted;
+    }
+
+    private static double error(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
@@ -0,0 +1,65 @@
+package com.trading.benchmark;
+
+import com.trading.model.MarketDataSnapshot;
+import com.trading.service.InstrumentRegistry;
+import com.trading.service.MarketDataCacheService;
+
+import java.lang.reflect.Field;
+
+/**
+ * 基准测试公共工具
+ * 被测服务在Spring容器外创建，依赖通过反射注入
+ */
+final class BenchmarkSupport {
+
+    static final String[] EXCHANGES = {"SHFE", "DCE", "CZCE", "CFFEX", "INE"};
+
+    private BenchmarkSupport() {
+    }
+
+    static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("注入依赖失败: " + fieldName, e);
+        }
+    }
+
+    /**
+     * 创建未启动清理任务的行情缓存
+     */
+    static MarketDataCacheService newCache(InstrumentRegistry registry) {
+        MarketDataCacheService cache = new MarketDataCacheService();
+        inject(cache, "instrumentRegistry", registry);
+        return cache;
+    }
+
+    /**
+     * 注册 count 个合约，按顺序均匀分布到各交易所
+     */
+    static void registerInstruments(InstrumentRegistry registry, int count) {
+        for (int i = 0; i < count; i++) {
+            registry.register(instrumentId(i), EXCHANGES[i % EXCHANGES.length]);
+        }
+    }
+
+    static String instrumentId(int i) {
+        return String.format("c%04d", i);
+    }
+
+    static void update(MarketDataCacheService cache, int index, double p) {
+        cache.updateMarketData(index, "09:30:00", p, 1000L, p * 1000, 50000,
+                p - 1, 10, p + 1, 10, p - 2, 20, p + 2, 20, p - 3, 30, p + 3, 30,
+                p - 4, 40, p + 4, 40, p - 5, 50, p + 5, 50,
+                p + 350, p - 350, p - 50, p + 20, p + 30, p - 20);
+    }
+
+    static void update(MarketDataSnapshot snapshot, double p) {
+        snapshot.updateMarketData("09:30:00", p, 1000L, p * 1000, 50000,
+                p - 1, 10, p + 1, 10, p - 2, 20, p + 2, 20, p - 3, 30, p + 3, 30,
+                p - 4, 40, p + 4, 40, p - 5, 50, p + 5, 50,
+                p + 350, p - 350, p - 50, p + 20, p + 30, p - 20);
+    }
+}
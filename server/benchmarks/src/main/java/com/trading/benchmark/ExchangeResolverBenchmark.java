@@ -0,0 +1,63 @@
+package com.trading.benchmark;
+
+import com.trading.service.ExchangeResolver;
+import com.trading.service.InstrumentRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易所推断基准测试
+ * 对比每笔行情的交易所获取开销：旧版逐个 startsWith 推断、品种前缀树推断、注册表缓存查找（当前行情链路的做法）
+ *
+ * 运行: java -jar target/benchmarks.jar ExchangeResolverBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExchangeResolverBenchmark {
+
+    // 覆盖各交易所，含靠后匹配的郑商所和能源中心品种
+    private static final String[] INSTRUMENTS = {
+        "rb2405", "cu2409", "au2412", "IF2406", "IC2409", "T2409",
+        "m2409", "i2409", "jm2409", "pp2409", "CF409", "SR409",
+        "TA409", "MA409", "UR409", "PF409", "sc2409", "bc2409"
+    };
+
+    private ExchangeResolver resolver;
+    private InstrumentRegistry registry;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        resolver = new ExchangeResolver();
+        registry = new InstrumentRegistry();
+        for (String instrumentId : INSTRUMENTS) {
+            registry.register(instrumentId, resolver.resolve(instrumentId));
+        }
+    }
+
+    @Benchmark
+    public String legacyStartsWith() {
+        return LegacyExchangeInference.getExchangeIdFromInstrument(nextInstrument());
+    }
+
+    @Benchmark
+    public String prefixTrie() {
+        return resolver.resolve(nextInstrument());
+    }
+
+    @Benchmark
+    public String registryLookup() {
+        return registry.getExchangeId(registry.indexOf(nextInstrument()));
+    }
+
+    private String nextInstrument() {
+        int i = cursor;
+        cursor = i + 1 == INSTRUMENTS.length ? 0 : i + 1;
+        return INSTRUMENTS[i];
+    }
+}
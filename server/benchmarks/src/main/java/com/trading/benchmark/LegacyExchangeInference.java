@@ -0,0 +1,77 @@
+package com.trading.benchmark;
+
+/**
+ * 旧版交易所推断实现（逐个 startsWith 比较）
+ * 仅作为基准测试的对照组保留
+ */
+public final class LegacyExchangeInference {
+
+    private LegacyExchangeInference() {
+    }
+
+    /**
+     * 从合约代码推断交易所ID
+     */
+    public static String getExchangeIdFromInstrument(String instrumentId) {
+        if (instrumentId == null || instrumentId.isEmpty()) {
+            return "UNKNOWN";
+        }
+
+        String upperInstrument = instrumentId.toUpperCase();
+
+        // 上海期货交易所 (SHFE)
+        if (upperInstrument.startsWith("CU") || upperInstrument.startsWith("AL") ||
+            upperInstrument.startsWith("ZN") || upperInstrument.startsWith("PB") ||
+            upperInstrument.startsWith("NI") || upperInstrument.startsWith("SN") ||
+            upperInstrument.startsWith("AU") || upperInstrument.startsWith("AG") ||
+            upperInstrument.startsWith("RB") || upperInstrument.startsWith("WR") ||
+            upperInstrument.startsWith("HC") || upperInstrument.startsWith("FU") ||
+            upperInstrument.startsWith("BU") || upperInstrument.startsWith("RU")) {
+            return "SHFE";
+        }
+
+        // 中国金融期货交易所 (CFFEX)
+        if (upperInstrument.startsWith("IF") || upperInstrument.startsWith("IC") ||
+            upperInstrument.startsWith("IH") || upperInstrument.startsWith("T") ||
+            upperInstrument.startsWith("TF") || upperInstrument.startsWith("TS")) {
+            return "CFFEX";
+        }
+
+        // 大连商品交易所 (DCE)
+        if (upperInstrument.startsWith("A") || upperInstrument.startsWith("B") ||
+            upperInstrument.startsWith("C") || upperInstrument.startsWith("CS") ||
+            upperInstrument.startsWith("I") || upperInstrument.startsWith("J") ||
+            upperInstrument.startsWith("JM") || upperInstrument.startsWith("L") ||
+            upperInstrument.startsWith("M") || upperInstrument.startsWith("P") ||
+            upperInstrument.startsWith("PP") || upperInstrument.startsWith("V") ||
+            upperInstrument.startsWith("Y") || upperInstrument.startsWith("JD") ||
+            upperInstrument.startsWith("LH") || upperInstrument.startsWith("EB") ||
+            upperInstrument.startsWith("EG") || upperInstrument.startsWith("RR") ||
+            upperInstrument.startsWith("PG")) {
+            return "DCE";
+        }
+
+        // 郑州商品交易所 (CZCE)
+        if (upperInstrument.startsWith("CF") || upperInstrument.startsWith("CY") ||
+            upperInstrument.startsWith("FG") || upperInstrument.startsWith("JR") ||
+            upperInstrument.startsWith("LR") || upperInstrument.startsWith("MA") ||
+            upperInstrument.startsWith("OI") || upperInstrument.startsWith("PM") ||
+            upperInstrument.startsWith("RI") || upperInstrument.startsWith("RM") ||
+            upperInstrument.startsWith("RS") || upperInstrument.startsWith("SF") ||
+            upperInstrument.startsWith("SM") || upperInstrument.startsWith("SR") ||
+            upperInstrument.startsWith("TA") || upperInstrument.startsWith("WH") ||
+            upperInstrument.startsWith("ZC") || upperInstrument.startsWith("AP") ||
+            upperInstrument.startsWith("CJ") || upperInstrument.startsWith("UR") ||
+            upperInstrument.startsWith("SA") || upperInstrument.startsWith("PF")) {
+            return "CZCE";
+        }
+
+        // 上海国际能源交易中心 (INE)
+        if (upperInstrument.startsWith("SC") || upperInstrument.startsWith("NR") ||
+            upperInstrument.startsWith("LU") || upperInstrument.startsWith("BC")) {
+            return "INE";
+        }
+
+        return "UNKNOWN";
+    }
+}
@@ -0,0 +1,81 @@
+package com.trading.benchmark;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.DepthMarketDataEvent;
+import com.trading.service.InstrumentRegistry;
+import com.trading.service.MarketBarService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * K线生成基准测试
+ * 行情消费线程每笔行情更新五个周期K线的开销，行情时间每笔前进10毫秒，1s K线每100笔收盘一次（不推送）
+ *
+ * 运行: java -jar target/benchmarks.jar MarketBarBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarketBarBenchmark {
+
+    private static final int INSTRUMENTS = 100;
+    private static final int TIMES = 8640000 / 10;
+
+    private MarketBarService barService;
+    private DepthMarketDataEvent event;
+    private String[] updateTimes;
+    private long[] volumes;
+    private int cursor;
+    private int time;
+
+    @Setup
+    public void setup() {
+        TradingConfig config = new TradingConfig();
+        config.getBars().setPushPeriods(Collections.emptyList());
+        InstrumentRegistry registry = new InstrumentRegistry();
+        BenchmarkSupport.registerInstruments(registry, INSTRUMENTS);
+
+        barService = new MarketBarService();
+        BenchmarkSupport.inject(barService, "tradingConfig", config);
+        BenchmarkSupport.inject(barService, "instrumentRegistry", registry);
+        BenchmarkSupport.inject(barService, "meterRegistry", new SimpleMeterRegistry());
+        barService.initialize();
+
+        // 预先生成一天内每10毫秒的行情时间，测试中不格式化字符串
+        updateTimes = new String[TIMES];
+        for (int t = 0; t < TIMES; t++) {
+            int ms = t * 10;
+            updateTimes[t] = String.format("%02d:%02d:%02d.%03d",
+                    ms / 3600000, ms / 60000 % 60, ms / 1000 % 60, ms % 1000);
+        }
+        volumes = new long[INSTRUMENTS];
+        event = new DepthMarketDataEvent();
+    }
+
+    @TearDown
+    public void tearDown() {
+        barService.cleanup();
+    }
+
+    @Benchmark
+    public void onTick() {
+        int i = cursor;
+        cursor = i + 1 == INSTRUMENTS ? 0 : i + 1;
+        if (i == 0) {
+            time = time + 1 == TIMES ? 0 : time + 1;
+        }
+        double price = 3500 + (time & 63);
+        volumes[i] += 3;
+        event.set(i, updateTimes[time], price, volumes[i], volumes[i] * price, 50000,
+                price - 1, 10, price + 1, 10, price - 2, 20, price + 2, 20, price - 3, 30, price + 3, 30,
+                price - 4, 40, price + 4, 40, price - 5, 50, price + 5, 50,
+                price + 350, price - 350, price - 50, 3500, price + 30, price - 30);
+        barService.onTick(event);
+    }
+}
@@ -0,0 +1,88 @@
+package com.trading.benchmark;
+
+import com.trading.model.MarketDataSnapshot;
+import com.trading.service.InstrumentRegistry;
+import com.trading.service.MarketDataCacheService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行情缓存基准测试
+ * 单笔行情写入缓存（按合约索引 / 按合约代码）和按交易所批量读取活跃行情（复制列表 / 复用持有对象遍历）
+ *
+ * 运行: java -jar target/benchmarks.jar MarketDataCacheBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarketDataCacheBenchmark {
+
+    // 合约均匀分布在五个交易所，按交易所读取时返回其中两个交易所的合约
+    @Param({"100", "1000"})
+    public int instruments;
+
+    private final List<String> exchanges = Arrays.asList("SHFE", "DCE");
+    private final MarketDataSnapshot holder = new MarketDataSnapshot();
+
+    private MarketDataCacheService cache;
+    private String[] instrumentIds;
+    private int cursor;
+    private double price;
+
+    @Setup
+    public void setup() {
+        InstrumentRegistry registry = new InstrumentRegistry();
+        cache = BenchmarkSupport.newCache(registry);
+        BenchmarkSupport.registerInstruments(registry, instruments);
+        instrumentIds = new String[instruments];
+        for (int i = 0; i < instruments; i++) {
+            instrumentIds[i] = BenchmarkSupport.instrumentId(i);
+            BenchmarkSupport.update(cache, i, 3500.0);
+        }
+        price = 3500.0;
+    }
+
+    @Benchmark
+    public void updateByIndex() {
+        BenchmarkSupport.update(cache, nextIndex(), nextPrice());
+    }
+
+    @Benchmark
+    public void updateByInstrumentId() {
+        double p = nextPrice();
+        int i = nextIndex();
+        cache.updateMarketData(instrumentIds[i], BenchmarkSupport.EXCHANGES[i % BenchmarkSupport.EXCHANGES.length],
+                "09:30:00", p, 1000L, p * 1000, 50000,
+                p - 1, 10, p + 1, 10, p - 2, 20, p + 2, 20, p - 3, 30, p + 3, 30,
+                p - 4, 40, p + 4, 40, p - 5, 50, p + 5, 50,
+                p + 350, p - 350, p - 50, p + 20, p + 30, p - 20);
+    }
+
+    @Benchmark
+    public List<MarketDataSnapshot> getActiveMarketDataByExchanges() {
+        return cache.getActiveMarketDataByExchanges(exchanges);
+    }
+
+    @Benchmark
+    public void forEachActiveMarketData(Blackhole blackhole) {
+        cache.forEachActiveMarketData(exchanges, holder, snapshot -> blackhole.consume(snapshot.getLastPrice()));
+    }
+
+    private int nextIndex() {
+        int i = cursor;
+        cursor = i + 1 == instruments ? 0 : i + 1;
+        return i;
+    }
+
+    private double nextPrice() {
+        price = price >= 3600.0 ? 3500.0 : price + 1.0;
+        return price;
+    }
+}
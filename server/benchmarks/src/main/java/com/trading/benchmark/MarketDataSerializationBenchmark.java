@@ -0,0 +1,92 @@
+package com.trading.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.model.MarketDataSnapshot;
+import com.trading.service.MarketDataBinaryEncoder;
+import com.trading.service.MarketDataPushService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行情快照复制与推送编码基准测试
+ * 快照复制（createSnapshot / readInto）、推送服务的 convertSnapshotToMap 及其Jackson序列化、二进制编码
+ *
+ * 运行: java -jar target/benchmarks.jar MarketDataSerializationBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarketDataSerializationBenchmark {
+
+    // convertSnapshotToMap 是推送服务的私有方法，通过方法句柄调用，预热后与直接调用开销相当
+    private static final MethodHandle CONVERT_SNAPSHOT_TO_MAP;
+
+    static {
+        try {
+            Method method = MarketDataPushService.class.getDeclaredMethod("convertSnapshotToMap",
+                    MarketDataSnapshot.class);
+            method.setAccessible(true);
+            CONVERT_SNAPSHOT_TO_MAP = MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final MarketDataSnapshot holder = new MarketDataSnapshot();
+
+    private MarketDataSnapshot snapshot;
+    private MarketDataPushService pushService;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setup() {
+        snapshot = new MarketDataSnapshot(0, "rb2501", "SHFE");
+        BenchmarkSupport.update(snapshot, 3500.0);
+        pushService = new MarketDataPushService();
+        // 与 application.yml 中 spring.jackson 的配置一致
+        objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    @Benchmark
+    public MarketDataSnapshot createSnapshot() {
+        return snapshot.createSnapshot();
+    }
+
+    @Benchmark
+    public MarketDataSnapshot readInto() {
+        return snapshot.readInto(holder);
+    }
+
+    @Benchmark
+    public Map<String, Object> convertSnapshotToMap() {
+        return convert(snapshot.readInto(holder));
+    }
+
+    @Benchmark
+    public byte[] convertSnapshotToJson() throws Exception {
+        return objectMapper.writeValueAsBytes(convert(snapshot.readInto(holder)));
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryRecord() {
+        return MarketDataBinaryEncoder.encodeRecord(snapshot.readInto(holder), 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> convert(MarketDataSnapshot source) {
+        try {
+            return (Map<String, Object>) CONVERT_SNAPSHOT_TO_MAP.invokeExact(pushService, source);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.trading.benchmark;
+
+import com.trading.model.MarketDataSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行情快照读写基准测试
+ * 一个写线程模拟行情回调，三个读线程模拟推送线程，对比顺序锁实现与旧版synchronized实现
+ *
+ * 运行: java -jar target/benchmarks.jar MarketDataSnapshotBenchmark -prof gc
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarketDataSnapshotBenchmark {
+
+    private MarketDataSnapshot seqlockSnapshot;
+    private SynchronizedMarketDataSnapshot synchronizedSnapshot;
+    private double price;
+
+    @State(Scope.Thread)
+    public static class ReaderState {
+        final MarketDataSnapshot holder = new MarketDataSnapshot();
+    }
+
+    @Setup
+    public void setup() {
+        seqlockSnapshot = new MarketDataSnapshot("rb2501", "SHFE");
+        synchronizedSnapshot = new SynchronizedMarketDataSnapshot("rb2501", "SHFE");
+        price = 3500.0;
+    }
+
+    @Benchmark
+    @Group("seqlock")
+    @GroupThreads(1)
+    public void seqlockWrite() {
+        double p = nextPrice();
+        seqlockSnapshot.updateMarketData("09:30:00", p, 1000L, p * 1000, 50000,
+                p - 1, 10, p + 1, 10, p - 2, 20, p + 2, 20, p - 3, 30, p + 3, 30,
+                p - 4, 40, p + 4, 40, p - 5, 50, p + 5, 50,
+                p + 350, p - 350, p - 50, p + 20, p + 30, p - 20);
+    }
+
+    @Benchmark
+    @Group("seqlock")
+    @GroupThreads(3)
+    public double seqlockRead(ReaderState state) {
+        MarketDataSnapshot holder = seqlockSnapshot.readInto(state.holder);
+        return holder.getAskPrice1() - holder.getBidPrice1();
+    }
+
+    @Benchmark
+    @Group("synchronized")
+    @GroupThreads(1)
+    public void synchronizedWrite() {
+        double p = nextPrice();
+        synchronizedSnapshot.updateMarketData("09:30:00", p, 1000L, p * 1000, 50000,
+                p - 1, 10, p + 1, 10, p - 2, 20, p + 2, 20, p - 3, 30, p + 3, 30,
+                p - 4, 40, p + 4, 40, p - 5, 50, p + 5, 50,
+                p + 350, p - 350, p - 50, p + 20, p + 30, p - 20);
+    }
+
+    @Benchmark
+    @Group("synchronized")
+    @GroupThreads(3)
+    public double synchronizedRead() {
+        SynchronizedMarketDataSnapshot copy = synchronizedSnapshot.createSnapshot();
+        return copy.getAskPrice1() - copy.getBidPrice1();
+    }
+
+    private double nextPrice() {
+        price = price >= 3600.0 ? 3500.0 : price + 1.0;
+        return price;
+    }
+}
@@ -0,0 +1,476 @@
+package com.trading.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行情推送压测
+ * 通过REST登录指定数量的会话，按传输方式建立连接:
+ * stomp  经REST订阅，再经 /ws/websocket（SockJS的原生WebSocket传输）建立STOMP连接，订阅 /topic/market/user/{sessionId}
+ * direct 连接行情原生端点 /ws-market?sessionId={sessionId}，在连接上发送订阅请求
+ * 统计每秒收到的推送帧数、字节数、帧内时间戳到收到时的延迟、
+ * 序号不连续（帧乱序或丢失）的次数和被服务端关闭的连接数。延迟和达成率只统计正常会话。
+ * 全部连接由一个选择器线程读取，客户端本身的开销很小；可指定部分会话为慢客户端，限制其读取速率，
+ * 观察慢连接对其他会话的影响。
+ *
+ * 服务端需开启行情（压测模式），例如:
+ * java -jar target/trading-middleware-1.0.0.jar --trading.load.enabled=true --trading.load.instruments=20 \
+ *      --trading.load.rate-per-second=2000
+ * 再调用 POST /api/market/login 后运行:
+ * java -cp target/benchmarks.jar com.trading.benchmark.MarketPushLoadHarness [地址] [会话数] [秒数] [推送间隔毫秒] [慢客户端数] [stomp|direct]
+ */
+public class MarketPushLoadHarness {
+
+    private static final String[] EXCHANGES = {"SHFE", "DCE", "CZCE", "CFFEX", "INE"};
+    private static final int WARMUP_SECONDS = 5;
+    private static final int MAX_LAG_MILLIS = 60_000;
+    // 慢客户端每秒最多读取的字节数
+    private static final int SLOW_READ_BYTES_PER_SECOND = 32 * 1024;
+    private static final long SLOW_READ_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://127.0.0.1:8080";
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        long pushIntervalMs = args.length > 3 ? Long.parseLong(args[3]) : 100;
+        int slowSessions = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        boolean direct = args.length > 5 && "direct".equals(args[5]);
+
+        URL url = new URL(baseUrl);
+        InetSocketAddress address = new InetSocketAddress(url.getHost(), url.getPort() > 0 ? url.getPort() : 80);
+        System.out.printf("地址: %s, 传输: %s, 会话数: %d (慢客户端 %d), 时长: %d秒, 推送间隔: %dms%n",
+                baseUrl, direct ? "direct" : "stomp", sessions, slowSessions, seconds, pushIntervalMs);
+
+        Selector selector = Selector.open();
+        List<Connection> connections = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            String sessionId = login(baseUrl, "load-" + i + "-" + System.nanoTime());
+            if (!direct) {
+                subscribe(baseUrl, sessionId, pushIntervalMs);
+            }
+            Connection connection = new Connection(sessionId, address.getHostString(), i < slowSessions,
+                    direct, pushIntervalMs);
+            connection.connect(selector, address);
+            connections.add(connection);
+        }
+
+        Stats total = new Stats();
+        Stats interval = new Stats();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS + seconds);
+        long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+        int second = 0;
+        System.out.println("秒   帧/秒    MB/秒   延迟p50(ms) p99(ms) max(ms) 序号不连续 已关闭");
+
+        while (System.nanoTime() < end) {
+            selector.select(10);
+            long now = System.nanoTime();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Connection connection = (Connection) key.attachment();
+                try {
+                    connection.handle(key, now, interval);
+                } catch (IOException e) {
+                    connection.close(key, interval);
+                }
+            }
+            for (Connection connection : connections) {
+                connection.resumeIfDue(selector, now);
+            }
+
+            if (now >= nextReport) {
+                second++;
+                interval.print(second, connections);
+                if (second > WARMUP_SECONDS) {
+                    total.add(interval);
+                }
+                interval.reset();
+                nextReport += TimeUnit.SECONDS.toNanos(1);
+            }
+        }
+
+        int closed = 0;
+        for (Connection connection : connections) {
+            if (connection.closed) {
+                closed++;
+            }
+        }
+        long expected = (long) (sessions - slowSessions) * seconds * 1000 / pushIntervalMs;
+        System.out.printf("稳定阶段 %d秒: %.0f帧/秒 (正常会话 %.1f%% of %d), %.2fMB/秒, 延迟 p50=%dms p99=%dms max=%dms, "
+                        + "序号不连续 %d, 关闭连接 %d%n",
+                seconds, total.frames / (double) seconds, total.fastFrames * 100.0 / expected,
+                expected / seconds, total.bytes / (double) seconds / (1024 * 1024),
+                total.percentile(0.50), total.percentile(0.99), total.maxLag, total.gaps, closed);
+        selector.close();
+    }
+
+    private static String login(String baseUrl, String clientId) throws IOException {
+        Map<String, Object> request = new HashMap<>();
+        request.put("username", "trader1");
+        request.put("password", "trader123");
+        request.put("clientId", clientId);
+        return post(baseUrl + "/api/auth/login", request).path("data").path("sessionId").asText();
+    }
+
+    private static Map<String, Object> subscription(long pushIntervalMs) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("exchanges", EXCHANGES);
+        request.put("pushIntervalMs", pushIntervalMs);
+        return request;
+    }
+
+    private static void subscribe(String baseUrl, String sessionId, long pushIntervalMs) throws IOException {
+        Map<String, Object> request = subscription(pushIntervalMs);
+        request.put("sessionId", sessionId);
+        JsonNode response = post(baseUrl + "/api/auth/subscribe", request);
+        if (!response.path("success").asBoolean()) {
+            throw new IOException("订阅失败: " + response);
+        }
+    }
+
+    private static JsonNode post(String url, Object body) throws IOException {
+        HttpURLConnection http = (HttpURLConnection) new URL(url).openConnection();
+        http.setRequestMethod("POST");
+        http.setRequestProperty("Content-Type", "application/json");
+        http.setDoOutput(true);
+        try (OutputStream out = http.getOutputStream()) {
+            MAPPER.writeValue(out, body);
+        }
+        try (InputStream in = http.getInputStream()) {
+            return MAPPER.readTree(in);
+        }
+    }
+
+    /**
+     * 一个WebSocket连接（STOMP或行情原生端点），在选择器线程中完成握手、订阅和帧解析
+     */
+    private static final class Connection {
+
+        private final String sessionId;
+        private final String host;
+        private final boolean slow;
+        private final boolean direct;
+        private final long pushIntervalMs;
+
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        private boolean upgraded;
+        private boolean closed;
+        private long lastSequence = -1;
+        private long resumeAtNanos;
+
+        Connection(String sessionId, String host, boolean slow, boolean direct, long pushIntervalMs) {
+            this.sessionId = sessionId;
+            this.host = host;
+            this.slow = slow;
+            this.direct = direct;
+            this.pushIntervalMs = pushIntervalMs;
+        }
+
+        void connect(Selector selector, InetSocketAddress address) throws IOException {
+            channel = SocketChannel.open();
+            if (slow) {
+                // 接收缓冲区很小，服务端很快就会写满发送缓冲区
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            }
+            channel.connect(address);
+            channel.configureBlocking(false);
+            byte[] nonce = new byte[16];
+            ThreadLocalRandom.current().nextBytes(nonce);
+            String path = direct ? "/ws-market?sessionId=" + sessionId : "/ws/websocket";
+            write(("GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                    + "Sec-WebSocket-Key: " + Base64.getEncoder().encodeToString(nonce)
+                    + "\r\nSec-WebSocket-Version: 13\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+        }
+
+        void handle(SelectionKey key, long now, Stats stats) throws IOException {
+            if (!in.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                in.flip();
+                larger.put(in);
+                in = larger;
+            }
+            if (slow) {
+                // 每次最多读取一个时间片的配额，然后暂停读取
+                int quota = (int) (SLOW_READ_BYTES_PER_SECOND * SLOW_READ_INTERVAL_NANOS / TimeUnit.SECONDS.toNanos(1));
+                in.limit(Math.min(in.capacity(), in.position() + quota));
+                key.interestOps(0);
+                resumeAtNanos = now + SLOW_READ_INTERVAL_NANOS;
+            }
+            int read = channel.read(in);
+            in.limit(in.capacity());
+            if (read < 0) {
+                close(key, stats);
+                return;
+            }
+            in.flip();
+            if (!upgraded) {
+                if (!readHandshake()) {
+                    in.compact();
+                    return;
+                }
+            }
+            parseFrames(now, stats);
+            in.compact();
+        }
+
+        void resumeIfDue(Selector selector, long now) {
+            if (slow && !closed && resumeAtNanos != 0 && now >= resumeAtNanos && key.isValid()) {
+                resumeAtNanos = 0;
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private boolean readHandshake() throws IOException {
+            for (int i = in.position(); i + 3 < in.limit(); i++) {
+                if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+                    byte[] head = new byte[i + 4 - in.position()];
+                    in.get(head);
+                    String response = new String(head, StandardCharsets.US_ASCII);
+                    if (!response.startsWith("HTTP/1.1 101")) {
+                        throw new IOException("握手失败: " + response);
+                    }
+                    upgraded = true;
+                    if (direct) {
+                        Map<String, Object> request = subscription(pushIntervalMs);
+                        request.put("action", "subscribe");
+                        sendText(MAPPER.writeValueAsString(request));
+                    } else {
+                        sendText("CONNECT\naccept-version:1.2\nhost:" + host + "\nheart-beat:0,0\n\n\u0000");
+                        sendText("SUBSCRIBE\nid:sub-0\ndestination:/topic/market/user/" + sessionId + "\n\n\u0000");
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 解析缓冲区中完整的WebSocket帧，不完整的留到下次读取
+         */
+        private void parseFrames(long now, Stats stats) throws IOException {
+            while (in.remaining() >= 2) {
+                int start = in.position();
+                int opcode = in.get(start) & 0x0F;
+                int length = in.get(start + 1) & 0x7F;
+                int headerLength = 2;
+                if (length == 126) {
+                    if (in.remaining() < 4) {
+                        return;
+                    }
+                    length = in.getShort(start + 2) & 0xFFFF;
+                    headerLength = 4;
+                } else if (length == 127) {
+                    if (in.remaining() < 10) {
+                        return;
+                    }
+                    length = (int) in.getLong(start + 2);
+                    headerLength = 10;
+                }
+                if (in.remaining() < headerLength + length) {
+                    if (headerLength + length > in.capacity()) {
+                        ByteBuffer larger = ByteBuffer.allocate(Integer.highestOneBit(headerLength + length) * 2);
+                        larger.put(in);
+                        larger.flip();
+                        in = larger;
+                    }
+                    return;
+                }
+                int payload = start + headerLength;
+                if (opcode == 0x8) {
+                    close(key, stats);
+                    return;
+                }
+                if (opcode == 0x1 || opcode == 0x2) {
+                    onFrame(payload, length, stats);
+                }
+                stats.bytes += headerLength + length;
+                in.position(payload + length);
+            }
+        }
+
+        private void onFrame(int offset, int length, Stats stats) {
+            // STOMP的 CONNECTED、RECEIPT 或心跳不是推送帧；原生端点每条消息就是一帧JSON
+            if (length < 7 || in.get(offset) != (direct ? '{' : 'M')) {
+                return;
+            }
+            long sequence = numberAfter(offset, length, "\"seq\":", false);
+            long timestamp = numberAfter(offset, length, "\"timestamp\":", true);
+            stats.frames++;
+            if (lastSequence >= 0 && sequence != lastSequence + 1) {
+                stats.gaps++;
+            }
+            lastSequence = sequence;
+            // 延迟只统计正常会话，慢客户端自身的延迟不计入
+            if (!slow) {
+                stats.fastFrames++;
+                if (timestamp > 0) {
+                    stats.recordLag(System.currentTimeMillis() - timestamp);
+                }
+            }
+        }
+
+        /**
+         * 在帧中查找字段并解析其后的整数，fromEnd 为true时从帧尾向前查找
+         */
+        private long numberAfter(int offset, int length, String field, boolean fromEnd) {
+            int n = field.length();
+            int end = offset + length - n;
+            for (int k = 0; k <= length - n; k++) {
+                int i = fromEnd ? end - k : offset + k;
+                boolean match = true;
+                for (int j = 0; j < n; j++) {
+                    if (in.get(i + j) != field.charAt(j)) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (match) {
+                    long value = 0;
+                    for (int p = i + n; p < offset + length; p++) {
+                        byte b = in.get(p);
+                        if (b < '0' || b > '9') {
+                            break;
+                        }
+                        value = value * 10 + (b - '0');
+                    }
+                    return value;
+                }
+            }
+            return -1;
+        }
+
+        private void sendText(String text) throws IOException {
+            byte[] data = text.getBytes(StandardCharsets.UTF_8);
+            byte[] mask = new byte[4];
+            ThreadLocalRandom.current().nextBytes(mask);
+            ByteBuffer frame = ByteBuffer.allocate(data.length + 8);
+            frame.put((byte) 0x81);
+            if (data.length < 126) {
+                frame.put((byte) (0x80 | data.length));
+            } else {
+                frame.put((byte) (0x80 | 126));
+                frame.putShort((short) data.length);
+            }
+            frame.put(mask);
+            for (int i = 0; i < data.length; i++) {
+                frame.put((byte) (data[i] ^ mask[i & 3]));
+            }
+            frame.flip();
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        }
+
+        private void write(byte[] data) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        void close(SelectionKey key, Stats stats) {
+            if (!closed) {
+                closed = true;
+                stats.closed++;
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 忽略
+            }
+        }
+    }
+
+    /**
+     * 一个统计周期内的计数和延迟分布（毫秒直方图）
+     */
+    private static final class Stats {
+
+        long frames;
+        long fastFrames;
+        long bytes;
+        long gaps;
+        long closed;
+        long maxLag;
+        final long[] lagHistogram = new long[MAX_LAG_MILLIS + 1];
+        long lagCount;
+
+        void recordLag(long lagMillis) {
+            int bucket = (int) Math.max(0, Math.min(MAX_LAG_MILLIS, lagMillis));
+            lagHistogram[bucket]++;
+            lagCount++;
+            maxLag = Math.max(maxLag, lagMillis);
+        }
+
+        long percentile(double p) {
+            long target = (long) Math.ceil(lagCount * p);
+            long seen = 0;
+            for (int i = 0; i < lagHistogram.length; i++) {
+                seen += lagHistogram[i];
+                if (seen >= target && seen > 0) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+
+        void add(Stats other) {
+            frames += other.frames;
+            fastFrames += other.fastFrames;
+            bytes += other.bytes;
+            gaps += other.gaps;
+            closed += other.closed;
+            maxLag = Math.max(maxLag, other.maxLag);
+            for (int i = 0; i < lagHistogram.length; i++) {
+                lagHistogram[i] += other.lagHistogram[i];
+            }
+            lagCount += other.lagCount;
+        }
+
+        void reset() {
+            frames = fastFrames = bytes = gaps = closed = maxLag = lagCount = 0;
+            Arrays.fill(lagHistogram, 0);
+        }
+
+        void print(int second, List<Connection> connections) {
+            int closedTotal = 0;
+            for (Connection connection : connections) {
+                if (connection.closed) {
+                    closedTotal++;
+                }
+            }
+            System.out.printf("%-4d %-8d %-7.2f %-11d %-7d %-7d %-10d %d%n", second, frames,
+                    bytes / (1024.0 * 1024.0), percentile(0.50), percentile(0.99), maxLag, gaps, closedTotal);
+        }
+    }
+}
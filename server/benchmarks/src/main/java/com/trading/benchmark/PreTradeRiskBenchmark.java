@@ -0,0 +1,143 @@
+package com.trading.benchmark;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.Trade;
+import com.trading.service.InstrumentRegistry;
+import com.trading.service.MarketDataCacheService;
+import com.trading.service.OrderBookService;
+import com.trading.service.PositionService;
+import com.trading.service.PreTradeRiskService;
+import com.trading.service.risk.FatFingerCheck;
+import com.trading.service.risk.OrderRateCheck;
+import com.trading.service.risk.OrderSizeCheck;
+import com.trading.service.risk.PositionLimitCheck;
+import com.trading.service.risk.PriceBandCheck;
+import com.trading.service.risk.RiskCheck;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事前风控基准测试
+ * 下单路径上一次完整风控链（单笔上限、涨跌停、价格偏离、持仓上限、报单频率）的耗时分布，
+ * 报单全部通过，各合约已有持仓和未成交开仓报单。用 SampleTime 模式看 p99，-prof gc 确认通过路径不分配对象。
+ *
+ * 运行: java -jar target/benchmarks.jar PreTradeRiskBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreTradeRiskBenchmark {
+
+    private static final int INSTRUMENTS = 100;
+    private static final double PRICE = 3500;
+
+    private InstrumentRegistry registry;
+    private PositionService positionService;
+    private PreTradeRiskService riskService;
+    private String[] instrumentIds;
+
+    @Setup
+    public void setup() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TradingConfig config = new TradingConfig();
+        // 盯市线程不在测试期间运行；频率上限放开，避免令牌耗尽后走拒绝路径
+        config.getPosition().setMarkIntervalMs(TimeUnit.HOURS.toMillis(1));
+        config.getRisk().setMaxOrderNotional(1e9);
+        config.getRisk().setMaxOrdersPerSecond(Integer.MAX_VALUE);
+        config.getRisk().setMaxInstrumentOrdersPerSecond(Integer.MAX_VALUE);
+
+        registry = new InstrumentRegistry();
+        BenchmarkSupport.registerInstruments(registry, INSTRUMENTS);
+        MarketDataCacheService cache = BenchmarkSupport.newCache(registry);
+        instrumentIds = new String[INSTRUMENTS];
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            instrumentIds[i] = registry.getInstrumentId(i);
+            BenchmarkSupport.update(cache, i, PRICE);
+        }
+
+        positionService = new PositionService();
+        BenchmarkSupport.inject(positionService, "tradingConfig", config);
+        BenchmarkSupport.inject(positionService, "marketDataCacheService", cache);
+        BenchmarkSupport.inject(positionService, "instrumentRegistry", registry);
+        BenchmarkSupport.inject(positionService, "meterRegistry", meterRegistry);
+        positionService.initialize();
+
+        OrderBookService orderBookService = new OrderBookService();
+        BenchmarkSupport.inject(orderBookService, "meterRegistry", meterRegistry);
+        orderBookService.initialize();
+
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            positionService.onTrade(new Trade("T" + i, "R" + i, "S" + i, instrumentIds[i],
+                    '0', '0', PRICE, 10, "09:30:00"));
+            orderBookService.onOrderInsert("W" + i, instrumentIds[i], '0', '0', PRICE, 5);
+        }
+
+        OrderSizeCheck orderSizeCheck = new OrderSizeCheck();
+        BenchmarkSupport.inject(orderSizeCheck, "tradingConfig", config);
+        PriceBandCheck priceBandCheck = new PriceBandCheck();
+        FatFingerCheck fatFingerCheck = new FatFingerCheck();
+        BenchmarkSupport.inject(fatFingerCheck, "tradingConfig", config);
+        PositionLimitCheck positionLimitCheck = new PositionLimitCheck();
+        BenchmarkSupport.inject(positionLimitCheck, "tradingConfig", config);
+        BenchmarkSupport.inject(positionLimitCheck, "positionService", positionService);
+        BenchmarkSupport.inject(positionLimitCheck, "orderBookService", orderBookService);
+        OrderRateCheck orderRateCheck = new OrderRateCheck();
+        BenchmarkSupport.inject(orderRateCheck, "tradingConfig", config);
+        orderRateCheck.initialize();
+        List<RiskCheck> checks = Arrays.asList(
+                orderSizeCheck, priceBandCheck, fatFingerCheck, positionLimitCheck, orderRateCheck);
+
+        riskService = new PreTradeRiskService();
+        BenchmarkSupport.inject(riskService, "tradingConfig", config);
+        BenchmarkSupport.inject(riskService, "marketDataCacheService", cache);
+        BenchmarkSupport.inject(riskService, "instrumentRegistry", registry);
+        BenchmarkSupport.inject(riskService, "positionService", positionService);
+        BenchmarkSupport.inject(riskService, "meterRegistry", meterRegistry);
+        BenchmarkSupport.inject(riskService, "riskChecks", checks);
+        riskService.initialize();
+    }
+
+    @TearDown
+    public void tearDown() {
+        positionService.cleanup();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String nextInstrument(String[] instrumentIds) {
+            int i = next;
+            next = i + 1 == instrumentIds.length ? 0 : i + 1;
+            return instrumentIds[i];
+        }
+    }
+
+    /**
+     * 开仓报单，执行全部检查项，与下单路径一样检查后释放持仓上限的预留
+     */
+    @Benchmark
+    public String openOrder(Cursor cursor) {
+        String reason = riskService.check(cursor.nextInstrument(instrumentIds), '0', '0', PRICE + 1, 1);
+        riskService.release();
+        return reason;
+    }
+
+    /**
+     * 四个下单线程同时检查，持仓和报单簿的锁有竞争
+     */
+    @Benchmark
+    @Threads(4)
+    public String openOrderContended(Cursor cursor) {
+        String reason = riskService.check(cursor.nextInstrument(instrumentIds), '0', '0', PRICE + 1, 1);
+        riskService.release();
+        return reason;
+    }
+}
@@ -0,0 +1,48 @@
+package com.trading.benchmark;
+
+import com.trading.service.RequestTimeoutWheel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求超时时间轮基准测试
+ * 在已有N个在途超时的情况下，登记并撤销一个超时的开销（请求正常完成的路径），应与在途数量无关
+ *
+ * 运行: java -jar target/benchmarks.jar RequestTimeoutWheelBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestTimeoutWheelBenchmark {
+
+    private static final long IN_FLIGHT_TIMEOUT_MS = TimeUnit.HOURS.toMillis(1);
+    private static final Runnable NOOP = () -> { };
+
+    @Param({"1000", "100000"})
+    public int inFlight;
+
+    private RequestTimeoutWheel wheel;
+
+    @Setup
+    public void setup() {
+        wheel = new RequestTimeoutWheel(10, 512, "RequestTimeoutBenchmark");
+        wheel.start();
+        for (int i = 0; i < inFlight; i++) {
+            wheel.newTimeout(NOOP, IN_FLIGHT_TIMEOUT_MS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    @Benchmark
+    public boolean newTimeoutAndCancel() {
+        return wheel.newTimeout(NOOP, 5000).cancel();
+    }
+}
@@ -0,0 +1,117 @@
+package com.trading.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 旧版行情快照实现（synchronized写 + volatile字段 + 每次读取分配副本）
+ * 仅作为基准测试的对照组保留
+ */
+public class SynchronizedMarketDataSnapshot {
+
+    private String instrumentId;
+    private String exchangeId;
+
+    private volatile double lastPrice, preClosePrice, openPrice, highestPrice, lowestPrice;
+    private volatile double upperLimitPrice, lowerLimitPrice;
+    private volatile long volume;
+    private volatile double turnover, openInterest;
+    private volatile double bidPrice1, bidPrice2, bidPrice3, bidPrice4, bidPrice5;
+    private volatile int bidVolume1, bidVolume2, bidVolume3, bidVolume4, bidVolume5;
+    private volatile double askPrice1, askPrice2, askPrice3, askPrice4, askPrice5;
+    private volatile int askVolume1, askVolume2, askVolume3, askVolume4, askVolume5;
+    private volatile String updateTime;
+    private volatile LocalDateTime lastUpdateTime;
+    private final AtomicLong updateCount = new AtomicLong(0);
+
+    public SynchronizedMarketDataSnapshot(String instrumentId, String exchangeId) {
+        this.instrumentId = instrumentId;
+        this.exchangeId = exchangeId;
+        this.lastUpdateTime = LocalDateTime.now();
+    }
+
+    public synchronized void updateMarketData(
+            String updateTime, double lastPrice, long volume, double turnover, double openInterest,
+            double bidPrice1, int bidVolume1, double askPrice1, int askVolume1,
+            double bidPrice2, int bidVolume2, double askPrice2, int askVolume2,
+            double bidPrice3, int bidVolume3, double askPrice3, int askVolume3,
+            double bidPrice4, int bidVolume4, double askPrice4, int askVolume4,
+            double bidPrice5, int bidVolume5, double askPrice5, int askVolume5,
+            double upperLimitPrice, double lowerLimitPrice,
+            double preClosePrice, double openPrice, double highestPrice, double lowestPrice) {
+        this.updateTime = updateTime;
+        this.lastPrice = lastPrice;
+        this.volume = volume;
+        this.turnover = turnover;
+        this.openInterest = openInterest;
+        this.bidPrice1 = bidPrice1;
+        this.bidVolume1 = bidVolume1;
+        this.bidPrice2 = bidPrice2;
+        this.bidVolume2 = bidVolume2;
+        this.bidPrice3 = bidPrice3;
+        this.bidVolume3 = bidVolume3;
+        this.bidPrice4 = bidPrice4;
+        this.bidVolume4 = bidVolume4;
+        this.bidPrice5 = bidPrice5;
+        this.bidVolume5 = bidVolume5;
+        this.askPrice1 = askPrice1;
+        this.askVolume1 = askVolume1;
+        this.askPrice2 = askPrice2;
+        this.askVolume2 = askVolume2;
+        this.askPrice3 = askPrice3;
+        this.askVolume3 = askVolume3;
+        this.askPrice4 = askPrice4;
+        this.askVolume4 = askVolume4;
+        this.askPrice5 = askPrice5;
+        this.askVolume5 = askVolume5;
+        this.upperLimitPrice = upperLimitPrice;
+        this.lowerLimitPrice = lowerLimitPrice;
+        this.preClosePrice = preClosePrice;
+        this.openPrice = openPrice;
+        this.highestPrice = highestPrice;
+        this.lowestPrice = lowestPrice;
+        this.lastUpdateTime = LocalDateTime.now();
+        this.updateCount.incrementAndGet();
+    }
+
+    public SynchronizedMarketDataSnapshot createSnapshot() {
+        SynchronizedMarketDataSnapshot snapshot = new SynchronizedMarketDataSnapshot(instrumentId, exchangeId);
+        snapshot.lastPrice = this.lastPrice;
+        snapshot.preClosePrice = this.preClosePrice;
+        snapshot.openPrice = this.openPrice;
+        snapshot.highestPrice = this.highestPrice;
+        snapshot.lowestPrice = this.lowestPrice;
+        snapshot.upperLimitPrice = this.upperLimitPrice;
+        snapshot.lowerLimitPrice = this.lowerLimitPrice;
+        snapshot.volume = this.volume;
+        snapshot.turnover = this.turnover;
+        snapshot.openInterest = this.openInterest;
+        snapshot.bidPrice1 = this.bidPrice1;
+        snapshot.bidVolume1 = this.bidVolume1;
+        snapshot.bidPrice2 = this.bidPrice2;
+        snapshot.bidVolume2 = this.bidVolume2;
+        snapshot.bidPrice3 = this.bidPrice3;
+        snapshot.bidVolume3 = this.bidVolume3;
+        snapshot.bidPrice4 = this.bidPrice4;
+        snapshot.bidVolume4 = this.bidVolume4;
+        snapshot.bidPrice5 = this.bidPrice5;
+        snapshot.bidVolume5 = this.bidVolume5;
+        snapshot.askPrice1 = this.askPrice1;
+        snapshot.askVolume1 = this.askVolume1;
+        snapshot.askPrice2 = this.askPrice2;
+        snapshot.askVolume2 = this.askVolume2;
+        snapshot.askPrice3 = this.askPrice3;
+        snapshot.askVolume3 = this.askVolume3;
+        snapshot.askPrice4 = this.askPrice4;
+        snapshot.askVolume4 = this.askVolume4;
+        snapshot.askPrice5 = this.askPrice5;
+        snapshot.askVolume5 = this.askVolume5;
+        snapshot.updateTime = this.updateTime;
+        snapshot.lastUpdateTime = this.lastUpdateTime;
+        return snapshot;
+    }
+
+    public double getLastPrice() { return lastPrice; }
+    public double getBidPrice1() { return bidPrice1; }
+    public double getAskPrice1() { return askPrice1; }
+}
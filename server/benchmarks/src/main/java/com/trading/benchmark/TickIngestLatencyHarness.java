@@ -0,0 +1,266 @@
+package com.trading.benchmark;
+
+import com.trading.jni.FemasMarketApiMock;
+import com.trading.model.DepthMarketDataEvent;
+import com.trading.model.MarketDataSnapshot;
+import com.trading.service.InstrumentRegistry;
+import com.trading.service.MarketDataCacheService;
+import com.trading.service.MarketDataRingBuffer;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 行情回调耗时测试
+ * 由 FemasMarketApiMock 生成行情并回调，按固定速率驱动，统计回调线程上每笔行情的耗时分布，
+ * 对比回调线程直接写缓存（inline）与写入环形缓冲区由消费线程写缓存（ring）两种方式。
+ * 两个读线程持续读取缓存模拟推送线程；可选地每隔若干笔行情在缓存写入阶段注入1ms停顿，模拟GC或锁竞争。
+ *
+ * 运行: java -cp target/benchmarks.jar com.trading.benchmark.TickIngestLatencyHarness [每秒行情数] [秒数] [停顿间隔笔数]
+ */
+public class TickIngestLatencyHarness {
+
+    private static final String[] INSTRUMENTS = {
+        "rb2405", "rb2409", "rb2501", "cu2405", "cu2409", "cu2501",
+        "au2406", "au2408", "au2412", "ag2406", "ag2408", "ag2412",
+        "ni2405", "ni2409", "ni2501", "zn2405", "zn2409", "zn2501",
+        "al2405", "al2409", "al2501", "IF2405", "IF2406", "IF2409",
+        "IC2405", "IC2406", "IC2409", "IH2405", "IH2406", "IH2409"
+    };
+
+    private static final int READER_THREADS = 2;
+    private static final int RING_BUFFER_SIZE = 65536;
+    private static final long PARK_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public static void main(String[] args) throws Exception {
+        int ratePerSecond = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int stallEveryTicks = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        System.out.printf("速率: %d笔/秒, 时长: %d秒, 停顿间隔: %d笔%n", ratePerSecond, seconds, stallEveryTicks);
+        run(false, ratePerSecond, seconds, stallEveryTicks);
+        run(true, ratePerSecond, seconds, stallEveryTicks);
+    }
+
+    private static void run(boolean useRingBuffer, int ratePerSecond, int seconds, int stallEveryTicks)
+            throws Exception {
+        InstrumentRegistry registry = new InstrumentRegistry();
+        MarketDataCacheService cache = new MarketDataCacheService();
+        inject(cache, "instrumentRegistry", registry);
+        for (String instrumentId : INSTRUMENTS) {
+            registry.register(instrumentId, "SHFE");
+        }
+
+        CacheStage stage = new CacheStage(cache, stallEveryTicks);
+        MarketDataRingBuffer ringBuffer = null;
+        if (useRingBuffer) {
+            ringBuffer = new MarketDataRingBuffer(RING_BUFFER_SIZE, stage::apply, "HarnessIngest");
+            ringBuffer.start();
+        }
+
+        Readers readers = new Readers(cache, registry);
+        readers.start();
+
+        MockFeed feed = new MockFeed(registry, stage, ringBuffer);
+        // 预热
+        feed.drive(ratePerSecond, 2, false);
+        long[] samples = feed.drive(ratePerSecond, seconds, true);
+
+        readers.stop();
+        if (ringBuffer != null) {
+            ringBuffer.stop();
+        }
+
+        Arrays.sort(samples);
+        System.out.printf("%-6s 回调耗时(ns) p50=%d p90=%d p99=%d p99.9=%d p99.99=%d max=%d%n",
+                useRingBuffer ? "ring" : "inline",
+                percentile(samples, 0.50), percentile(samples, 0.90), percentile(samples, 0.99),
+                percentile(samples, 0.999), percentile(samples, 0.9999), samples[samples.length - 1]);
+        if (ringBuffer != null) {
+            Map<String, Object> stats = ringBuffer.getStats();
+            System.out.printf("       环形缓冲区 maxDepth=%s dropped=%s maxQueueMicros=%s%n",
+                    stats.get("maxDepth"), stats.get("droppedCount"), stats.get("maxQueueMicros"));
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * 由模拟行情API驱动的行情源，回调中记录耗时
+     */
+    private static final class MockFeed extends FemasMarketApiMock {
+
+        private final InstrumentRegistry registry;
+        private final CacheStage stage;
+        private final MarketDataRingBuffer ringBuffer;
+
+        private long[] samples;
+        private int sampleCount;
+
+        MockFeed(InstrumentRegistry registry, CacheStage stage, MarketDataRingBuffer ringBuffer) {
+            this.registry = registry;
+            this.stage = stage;
+            this.ringBuffer = ringBuffer;
+        }
+
+        long[] drive(int ratePerSecond, int seconds, boolean record) {
+            int total = ratePerSecond * seconds;
+            samples = record ? new long[total] : null;
+            sampleCount = 0;
+
+            long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+            long next = System.nanoTime();
+            for (int i = 0; i < total; i++) {
+                // 按固定速率发送，提前较多时让出CPU给消费线程和读线程
+                long ahead = next - System.nanoTime();
+                if (ahead > PARK_THRESHOLD_NANOS) {
+                    LockSupport.parkNanos(ahead);
+                }
+                while (System.nanoTime() < next) {
+                    // 自旋到发送时间
+                }
+                emitMarketData(INSTRUMENTS[i % INSTRUMENTS.length]);
+                next += intervalNanos;
+            }
+            return record ? Arrays.copyOf(samples, sampleCount) : null;
+        }
+
+        @Override
+        public void onRtnDepthMarketData(String instrumentId, String updateTime,
+                                       double lastPrice, long volume, double turnover,
+                                       double openInterest,
+                                       double bidPrice1, int bidVolume1,
+                                       double askPrice1, int askVolume1,
+                                       double bidPrice2, int bidVolume2,
+                                       double askPrice2, int askVolume2,
+                                       double bidPrice3, int bidVolume3,
+                                       double askPrice3, int askVolume3,
+                                       double bidPrice4, int bidVolume4,
+                                       double askPrice4, int askVolume4,
+                                       double bidPrice5, int bidVolume5,
+                                       double askPrice5, int askVolume5,
+                                       double upperLimitPrice, double lowerLimitPrice,
+                                       double preClosePrice, double openPrice,
+                                       double highestPrice, double lowestPrice) {
+            long start = System.nanoTime();
+
+            int index = registry.indexOf(instrumentId);
+            if (ringBuffer != null) {
+                long sequence = ringBuffer.tryNext();
+                if (sequence >= 0) {
+                    ringBuffer.get(sequence).set(index, updateTime, lastPrice, volume, turnover, openInterest,
+                            bidPrice1, bidVolume1, askPrice1, askVolume1, bidPrice2, bidVolume2, askPrice2, askVolume2,
+                            bidPrice3, bidVolume3, askPrice3, askVolume3, bidPrice4, bidVolume4, askPrice4, askVolume4,
+                            bidPrice5, bidVolume5, askPrice5, askVolume5,
+                            upperLimitPrice, lowerLimitPrice, preClosePrice, openPrice, highestPrice, lowestPrice);
+                    ringBuffer.publish(sequence);
+                }
+            } else {
+                stage.apply(index, updateTime, lastPrice, volume, turnover, openInterest,
+                        bidPrice1, bidVolume1, askPrice1, askVolume1, bidPrice2, bidVolume2, askPrice2, askVolume2,
+                        bidPrice3, bidVolume3, askPrice3, askVolume3, bidPrice4, bidVolume4, askPrice4, askVolume4,
+                        bidPrice5, bidVolume5, askPrice5, askVolume5,
+                        upperLimitPrice, lowerLimitPrice, preClosePrice, openPrice, highestPrice, lowestPrice);
+            }
+
+            if (samples != null) {
+                samples[sampleCount++] = System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * 缓存写入阶段，可周期性注入停顿
+     */
+    private static final class CacheStage {
+
+        private final MarketDataCacheService cache;
+        private final int stallEveryTicks;
+        private long ticks;
+
+        CacheStage(MarketDataCacheService cache, int stallEveryTicks) {
+            this.cache = cache;
+            this.stallEveryTicks = stallEveryTicks;
+        }
+
+        void apply(DepthMarketDataEvent e) {
+            apply(e.getInstrumentIndex(), e.getUpdateTime(), e.getLastPrice(), e.getVolume(), e.getTurnover(),
+                    e.getOpenInterest(),
+                    e.getBidPrice1(), e.getBidVolume1(), e.getAskPrice1(), e.getAskVolume1(),
+                    e.getBidPrice2(), e.getBidVolume2(), e.getAskPrice2(), e.getAskVolume2(),
+                    e.getBidPrice3(), e.getBidVolume3(), e.getAskPrice3(), e.getAskVolume3(),
+                    e.getBidPrice4(), e.getBidVolume4(), e.getAskPrice4(), e.getAskVolume4(),
+                    e.getBidPrice5(), e.getBidVolume5(), e.getAskPrice5(), e.getAskVolume5(),
+                    e.getUpperLimitPrice(), e.getLowerLimitPrice(), e.getPreClosePrice(), e.getOpenPrice(),
+                    e.getHighestPrice(), e.getLowestPrice());
+        }
+
+        void apply(int index, String updateTime, double lastPrice, long volume, double turnover,
+                   double openInterest,
+                   double bidPrice1, int bidVolume1, double askPrice1, int askVolume1,
+                   double bidPrice2, int bidVolume2, double askPrice2, int askVolume2,
+                   double bidPrice3, int bidVolume3, double askPrice3, int askVolume3,
+                   double bidPrice4, int bidVolume4, double askPrice4, int askVolume4,
+                   double bidPrice5, int bidVolume5, double askPrice5, int askVolume5,
+                   double upperLimitPrice, double lowerLimitPrice,
+                   double preClosePrice, double openPrice, double highestPrice, double lowestPrice) {
+            cache.updateMarketData(index, updateTime, lastPrice, volume, turnover, openInterest,
+                    bidPrice1, bidVolume1, askPrice1, askVolume1, bidPrice2, bidVolume2, askPrice2, askVolume2,
+                    bidPrice3, bidVolume3, askPrice3, askVolume3, bidPrice4, bidVolume4, askPrice4, askVolume4,
+                    bidPrice5, bidVolume5, askPrice5, askVolume5,
+                    upperLimitPrice, lowerLimitPrice, preClosePrice, openPrice, highestPrice, lowestPrice);
+            if (stallEveryTicks > 0 && ++ticks % stallEveryTicks == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+    }
+
+    /**
+     * 持续读取缓存的读线程，模拟推送线程
+     */
+    private static final class Readers {
+
+        private final MarketDataCacheService cache;
+        private final InstrumentRegistry registry;
+        private final Thread[] threads = new Thread[READER_THREADS];
+        private volatile boolean running = true;
+
+        Readers(MarketDataCacheService cache, InstrumentRegistry registry) {
+            this.cache = cache;
+            this.registry = registry;
+        }
+
+        void start() {
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    MarketDataSnapshot holder = new MarketDataSnapshot();
+                    while (running) {
+                        for (int index = 0; index < registry.size(); index++) {
+                            cache.readMarketData(index, holder);
+                        }
+                    }
+                }, "HarnessReader-" + i);
+                threads[i].setDaemon(true);
+                threads[i].start();
+            }
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.trading.benchmark;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.DepthMarketDataEvent;
+import com.trading.service.InstrumentRegistry;
+import com.trading.service.TickJournalReader;
+import com.trading.service.TickJournalRecord;
+import com.trading.service.TickJournalService;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 行情日志吞吐测试
+ * 单线程连续写入若干笔行情到内存映射日志，再用读取器完整读回并校验，分别统计每秒笔数。
+ *
+ * 运行: java -cp target/benchmarks.jar com.trading.benchmark.TickJournalThroughputHarness [笔数] [日志目录]
+ */
+public class TickJournalThroughputHarness {
+
+    private static final String[] INSTRUMENTS = {
+        "rb2405", "rb2409", "rb2501", "cu2405", "cu2409", "cu2501",
+        "au2406", "au2408", "au2412", "IF2405", "IF2406", "IF2409",
+        "m2409", "i2409", "TA409", "MA409", "sc2409", "bc2409"
+    };
+
+    private static final String TRADING_DAY = "20240101";
+
+    public static void main(String[] args) throws Exception {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Path directory = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("tick-journal");
+
+        InstrumentRegistry registry = new InstrumentRegistry();
+        String[] exchanges = {"SHFE", "SHFE", "SHFE", "SHFE", "SHFE", "SHFE", "SHFE", "SHFE", "SHFE",
+            "CFFEX", "CFFEX", "CFFEX", "DCE", "DCE", "CZCE", "CZCE", "INE", "INE"};
+        for (int i = 0; i < INSTRUMENTS.length; i++) {
+            registry.register(INSTRUMENTS[i], exchanges[i]);
+        }
+
+        TradingConfig config = new TradingConfig();
+        config.getJournal().setDirectory(directory.toString());
+        TickJournalService journal = new TickJournalService();
+        inject(journal, "tradingConfig", config);
+        inject(journal, "instrumentRegistry", registry);
+        journal.initialize();
+        journal.setTradingDay(TRADING_DAY);
+
+        System.out.printf("日志目录: %s, 笔数: %d%n", directory, total);
+
+        DepthMarketDataEvent event = new DepthMarketDataEvent();
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            double p = 3500.0 + (i & 63);
+            event.set(i % INSTRUMENTS.length, "09:30:00", p, i, p * 10 * i, 50000,
+                    p - 1, 10, p + 1, 10, p - 2, 20, p + 2, 20, p - 3, 30, p + 3, 30,
+                    p - 4, 40, p + 4, 40, p - 5, 50, p + 5, 50,
+                    p + 350, p - 350, p - 50, p + 20, p + 30, p - 20);
+            journal.append(event);
+        }
+        long writeNanos = System.nanoTime() - start;
+        journal.cleanup();
+        System.out.printf("写入: %.0f笔/秒, %.1fMB/秒 %s%n",
+                total * 1e9 / writeNanos,
+                total * (double) TickJournalRecord.RECORD_SIZE / (1 << 20) * 1e9 / writeNanos,
+                journal.getStats());
+
+        TickJournalRecord record = new TickJournalRecord();
+        long read = 0;
+        double checksum = 0;
+        start = System.nanoTime();
+        for (String exchangeId : new String[] {"SHFE", "CFFEX", "DCE", "CZCE", "INE"}) {
+            try (TickJournalReader reader = journal.openReader(TRADING_DAY, exchangeId)) {
+                while (reader.next(record)) {
+                    checksum += record.getLastPrice();
+                    read++;
+                }
+            }
+        }
+        long readNanos = System.nanoTime() - start;
+        System.out.printf("读取: %.0f笔/秒, 读回 %d 笔%s (checksum=%.0f)%n",
+                read * 1e9 / readNanos, read, read == total ? "" : "，与写入笔数不一致", checksum);
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,124 @@
+package com.trading.benchmark;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.DepthMarketDataEvent;
+import com.trading.service.InstrumentRegistry;
+import com.trading.service.TickStoreReader;
+import com.trading.service.TickStoreService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 列式历史行情查询基准测试
+ * 一个合约一个交易日写入一百万笔行情（约为活跃合约全天的量），测试按时间定位一笔、
+ * 扫描一分钟和扫描全天最新价与成交量列的耗时。每次调用都重新打开文件，包含映射的系统调用开销。
+ *
+ * 运行: java -jar target/benchmarks.jar TickStoreBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickStoreBenchmark {
+
+    private static final String TRADING_DAY = "20240101";
+    private static final int ROWS = 1_000_000;
+
+    private Path directory;
+    private TickStoreService store;
+    private String instrumentId;
+    private long firstNanos;
+    private long lastNanos;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("tick-store");
+        TradingConfig config = new TradingConfig();
+        config.getTickStore().setDirectory(directory.toString());
+        InstrumentRegistry registry = new InstrumentRegistry();
+        BenchmarkSupport.registerInstruments(registry, 1);
+        instrumentId = registry.getInstrumentId(0);
+
+        store = new TickStoreService();
+        BenchmarkSupport.inject(store, "tradingConfig", config);
+        BenchmarkSupport.inject(store, "instrumentRegistry", registry);
+        store.initialize();
+        store.setTradingDay(TRADING_DAY);
+
+        DepthMarketDataEvent event = new DepthMarketDataEvent();
+        for (int i = 0; i < ROWS; i++) {
+            double p = 3500.0 + (i & 63);
+            event.set(0, "09:30:00", p, i, p * 10 * i, 50000,
+                    p - 1, 10, p + 1, 10, p - 2, 20, p + 2, 20, p - 3, 30, p + 3, 30,
+                    p - 4, 40, p + 4, 40, p - 5, 50, p + 5, 50,
+                    p + 350, p - 350, p - 50, p + 20, p + 30, p - 20);
+            store.append(event);
+        }
+        store.cleanup();
+
+        try (TickStoreReader reader = store.openReader(instrumentId, TRADING_DAY)) {
+            firstNanos = reader.getFirstTimestampNanos();
+            reader.seek(0);
+            while (reader.next()) {
+                lastNanos = reader.getTimestampNanos();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * 按时间定位到随机的一笔
+     */
+    @Benchmark
+    public double seek() throws IOException {
+        long target = firstNanos + ThreadLocalRandom.current().nextLong(lastNanos - firstNanos);
+        try (TickStoreReader reader = store.openReader(instrumentId, TRADING_DAY)) {
+            reader.seek(target);
+            return reader.next() ? reader.getLastPrice() : 0;
+        }
+    }
+
+    /**
+     * 扫描随机一段（全天的1/300，约等于交易时段中的一分钟）
+     */
+    @Benchmark
+    public double scanMinute() throws IOException {
+        long span = (lastNanos - firstNanos) / 300;
+        long from = firstNanos + ThreadLocalRandom.current().nextLong(lastNanos - firstNanos - span);
+        return scan(from, from + span);
+    }
+
+    /**
+     * 扫描全天
+     */
+    @Benchmark
+    public double scanDay() throws IOException {
+        return scan(0, Long.MAX_VALUE);
+    }
+
+    private double scan(long fromNanos, long toNanos) throws IOException {
+        double sum = 0;
+        try (TickStoreReader reader = store.openReader(instrumentId, TRADING_DAY)) {
+            reader.seek(fromNanos);
+            while (reader.next() && reader.getTimestampNanos() < toNanos) {
+                sum += reader.getLastPrice() * reader.getVolume();
+            }
+        }
+        return sum;
+    }
+}
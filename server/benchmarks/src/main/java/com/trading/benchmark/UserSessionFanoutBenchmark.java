@@ -0,0 +1,94 @@
+package com.trading.benchmark;
+
+import com.trading.model.UserSession;
+import com.trading.service.ExchangeResolver;
+import com.trading.service.InstrumentRegistry;
+import com.trading.service.UserSessionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话订阅扇出基准测试
+ * 一笔行情查找订阅会话的开销：推送热路径使用的只读视图（getExchangeSubscribers / getInstrumentSubscribers）
+ * 与复制活跃会话列表的 getSessionsByExchange / getSessionsByInstrument
+ *
+ * 运行: java -jar target/benchmarks.jar UserSessionFanoutBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSessionFanoutBenchmark {
+
+    private static final int INSTRUMENTS = 100;
+    private static final int INSTRUMENTS_PER_SESSION = 5;
+
+    // 每个会话订阅一个交易所和五个合约
+    @Param({"100", "1000"})
+    public int sessions;
+
+    private UserSessionService sessionService;
+    private InstrumentRegistry registry;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        registry = new InstrumentRegistry();
+        BenchmarkSupport.registerInstruments(registry, INSTRUMENTS);
+        sessionService = new UserSessionService();
+        BenchmarkSupport.inject(sessionService, "meterRegistry", new SimpleMeterRegistry());
+        BenchmarkSupport.inject(sessionService, "exchangeResolver", new ExchangeResolver());
+        for (int s = 0; s < sessions; s++) {
+            UserSession session = sessionService.createSession("user" + s, "client" + s);
+            Set<String> instruments = new HashSet<>();
+            for (int k = 0; k < INSTRUMENTS_PER_SESSION; k++) {
+                instruments.add(BenchmarkSupport.instrumentId((s * INSTRUMENTS_PER_SESSION + k) % INSTRUMENTS));
+            }
+            sessionService.updateSubscription(session.getSessionId(),
+                    Collections.singleton(BenchmarkSupport.EXCHANGES[s % BenchmarkSupport.EXCHANGES.length]),
+                    instruments);
+        }
+    }
+
+    /**
+     * 推送分发线程对每个脏合约的做法
+     */
+    @Benchmark
+    public int subscriberViews() {
+        int index = nextIndex();
+        int count = 0;
+        for (UserSession session : sessionService.getExchangeSubscribers(registry.getExchangeId(index))) {
+            if (session.isActive()) {
+                count++;
+            }
+        }
+        for (UserSession session : sessionService.getInstrumentSubscribers(registry.getInstrumentId(index))) {
+            if (session.isActive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int activeSessionLists() {
+        int index = nextIndex();
+        List<UserSession> byExchange = sessionService.getSessionsByExchange(registry.getExchangeId(index));
+        List<UserSession> byInstrument = sessionService.getSessionsByInstrument(registry.getInstrumentId(index));
+        return byExchange.size() + byInstrument.size();
+    }
+
+    private int nextIndex() {
+        int i = cursor;
+        cursor = i + 1 == INSTRUMENTS ? 0 : i + 1;
+        return i;
+    }
+}
@@ -7,7 +7,6 @@
 
 // 全局实例管理
 std::map<jlong, std::shared_ptr<FemasTraderJNI>> g_traderInstances;
-int FemasTraderJNI::s_requestId = 1;
 
 // FemasTraderJNI 实现
 FemasTraderJNI::FemasTraderJNI()
@@ -15,7 +14,22 @@ FemasTraderJNI::FemasTraderJNI()
     , m_pTraderSpi(nullptr)
     , m_jvm(nullptr)
     , m_javaObject(nullptr)
-    , m_javaClass(nullptr) {
+    , m_javaClass(nullptr)
+    , m_onFrontConnectedMethod(nullptr)
+    , m_onFrontDisconnectedMethod(nullptr)
+    , m_onRspAuthenticateMethod(nullptr)
+    , m_onRspUserLoginMethod(nullptr)
+    , m_onRspUserLogoutMethod(nullptr)
+    , m_onRspOrderInsertMethod(nullptr)
+    , m_onRspOrderActionMethod(nullptr)
+    , m_onRspQryInvestorPositionMethod(nullptr)
+    , m_onRspQryTradingAccountMethod(nullptr)
+    , m_onRspQryInstrumentMethod(nullptr)
+    , m_onRspQryOrderMethod(nullptr)
+    , m_onRspQryTradeMethod(nullptr)
+    , m_onRspErrorMethod(nullptr)
+    , m_onRtnOrderMethod(nullptr)
+    , m_onRtnTradeMethod(nullptr) {
 }
 
 FemasTraderJNI::~FemasTraderJNI() {
@@ -79,19 +93,45 @@ void FemasTraderJNI::cleanup() {
     }
 }
 
+// 方法描述符须与 FemasTraderApi.java 中的回调签名一致
 void FemasTraderJNI::cacheMethodIDs(JNIEnv* env) {
-    m_onFrontConnectedMethod = env->GetMethodID(m_javaClass, "onFrontConnected", "()V");
-    m_onFrontDisconnectedMethod = env->GetMethodID(m_javaClass, "onFrontDisconnected", "(I)V");
-    m_onRspAuthenticateMethod = env->GetMethodID(m_javaClass, "onRspAuthenticate",
-                                                "(Ljava/lang/String;ILjava/lang/String;)V");
-    m_onRspUserLoginMethod = env->GetMethodID(m_javaClass, "onRspUserLogin",
-                                             "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;ILjava/lang/String;)V");
-    m_onRspOrderInsertMethod = env->GetMethodID(m_javaClass, "onRspOrderInsert",
-                                               "(Ljava/lang/String;ILjava/lang/String;)V");
-    m_onRtnOrderMethod = env->GetMethodID(m_javaClass, "onRtnOrder",
-                                         "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;CCDIC)V");
-    m_onRtnTradeMethod = env->GetMethodID(m_javaClass, "onRtnTrade",
-                                         "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;CCDILjava/lang/String;)V");
+    m_onFrontConnectedMethod = lookupMethod(env, "onFrontConnected", "()V");
+    m_onFrontDisconnectedMethod = lookupMethod(env, "onFrontDisconnected", "(I)V");
+    m_onRspAuthenticateMethod = lookupMethod(env, "onRspAuthenticate",
+                                             "(Ljava/lang/String;ILjava/lang/String;I)V");
+    m_onRspUserLoginMethod = lookupMethod(env, "onRspUserLogin",
+                                          "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;IILjava/lang/String;ILjava/lang/String;I)V");
+    m_onRspUserLogoutMethod = lookupMethod(env, "onRspUserLogout",
+                                           "(Ljava/lang/String;Ljava/lang/String;ILjava/lang/String;I)V");
+    m_onRspOrderInsertMethod = lookupMethod(env, "onRspOrderInsert",
+                                            "(Ljava/lang/String;ILjava/lang/String;I)V");
+    m_onRspOrderActionMethod = lookupMethod(env, "onRspOrderAction",
+                                            "(Ljava/lang/String;ILjava/lang/String;I)V");
+    m_onRspQryInvestorPositionMethod = lookupMethod(env, "onRspQryInvestorPosition",
+                                                    "(Ljava/lang/String;CIIIDILjava/lang/String;IZ)V");
+    m_onRspQryTradingAccountMethod = lookupMethod(env, "onRspQryTradingAccount",
+                                                  "(Ljava/lang/String;DDDDDDDDILjava/lang/String;IZ)V");
+    m_onRspQryInstrumentMethod = lookupMethod(env, "onRspQryInstrument",
+                                              "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;DIILjava/lang/String;IZ)V");
+    m_onRspQryOrderMethod = lookupMethod(env, "onRspQryOrder",
+                                         "(Ljava/lang/String;IILjava/lang/String;Ljava/lang/String;CCDIICILjava/lang/String;IZ)V");
+    m_onRspQryTradeMethod = lookupMethod(env, "onRspQryTrade",
+                                         "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;CCDILjava/lang/String;ILjava/lang/String;IZ)V");
+    m_onRspErrorMethod = lookupMethod(env, "onRspError", "(ILjava/lang/String;I)V");
+    m_onRtnOrderMethod = lookupMethod(env, "onRtnOrder",
+                                      "(Ljava/lang/String;IILjava/lang/String;Ljava/lang/String;CCDIC)V");
+    m_onRtnTradeMethod = lookupMethod(env, "onRtnTrade",
+                                      "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;CCDILjava/lang/String;)V");
+}
+
+jmethodID FemasTraderJNI::lookupMethod(JNIEnv* env, const char* name, const char* signature) {
+    jmethodID method = env->GetMethodID(m_javaClass, name, signature);
+    if (!method) {
+        // 签名不一致时会留下NoSuchMethodError，清除后该回调不再调用
+        env->ExceptionClear();
+        std::cerr << "Failed to find callback method: " << name << signature << std::endl;
+    }
+    return method;
 }
 
 bool FemasTraderJNI::createTraderApi(const std::string& flowPath) {
@@ -146,7 +186,8 @@ void FemasTraderJNI::release() {
 }
 
 int FemasTraderJNI::reqAuthenticate(const std::string& brokerId, const std::string& userId,
-                                   const std::string& userProductInfo, const std::string& authCode) {
+                                   const std::string& userProductInfo, const std::string& authCode,
+                                   int requestId) {
     if (!m_pTraderApi) return -1;
 
     CUstpFtdcReqAuthenticateField req = {0};
@@ -155,13 +196,11 @@ int FemasTraderJNI::reqAuthenticate(const std::string& brokerId, const std::stri
     strncpy(req.UserProductInfo, userProductInfo.c_str(), sizeof(req.UserProductInfo) - 1);
     strncpy(req.AuthCode, authCode.c_str(), sizeof(req.AuthCode) - 1);
 
-    int requestId = getNextRequestId();
-    int result = m_pTraderApi->ReqAuthenticate(&req, requestId);
-    return result == 0 ? requestId : -1;
+    return m_pTraderApi->ReqAuthenticate(&req, requestId);
 }
 
 int FemasTraderJNI::reqUserLogin(const std::string& brokerId, const std::string& userId,
-                                const std::string& password) {
+                                const std::string& password, int requestId) {
     if (!m_pTraderApi) return -1;
 
     CUstpFtdcReqUserLoginField req = {0};
@@ -169,30 +208,28 @@ int FemasTraderJNI::reqUserLogin(const std::string& brokerId, const std::string&
     strncpy(req.UserID, userId.c_str(), sizeof(req.UserID) - 1);
     strncpy(req.Password, password.c_str(), sizeof(req.Password) - 1);
 
-    int requestId = getNextRequestId();
-    int result = m_pTraderApi->ReqUserLogin(&req, requestId);
-    return result == 0 ? requestId : -1;
+    return m_pTraderApi->ReqUserLogin(&req, requestId);
 }
 
-int FemasTraderJNI::reqUserLogout(const std::string& brokerId, const std::string& userId) {
+int FemasTraderJNI::reqUserLogout(const std::string& brokerId, const std::string& userId, int requestId) {
     if (!m_pTraderApi) return -1;
 
     CUstpFtdcReqUserLogoutField req = {0};
     strncpy(req.BrokerID, brokerId.c_str(), sizeof(req.BrokerID) - 1);
     strncpy(req.UserID, userId.c_str(), sizeof(req.UserID) - 1);
 
-    int requestId = getNextRequestId();
-    int result = m_pTraderApi->ReqUserLogout(&req, requestId);
-    return result == 0 ? requestId : -1;
+    return m_pTraderApi->ReqUserLogout(&req, requestId);
 }
 
 int FemasTraderJNI::reqOrderInsert(const std::string& instrumentId, char direction, char offsetFlag,
                                   double price, int volume, char orderPriceType,
-                                  char timeCondition, char volumeCondition) {
+                                  char timeCondition, char volumeCondition,
+                                  const std::string& orderRef, int requestId) {
     if (!m_pTraderApi) return -1;
 
     CUstpFtdcInputOrderField req = {0};
     strncpy(req.InstrumentID, instrumentId.c_str(), sizeof(req.InstrumentID) - 1);
+    strncpy(req.OrderRef, orderRef.c_str(), sizeof(req.OrderRef) - 1);
     req.Direction = direction;
     req.OffsetFlag = offsetFlag;
     req.LimitPrice = price;
@@ -207,30 +244,299 @@ int FemasTraderJNI::reqOrderInsert(const std::string& instrumentId, char directi
     req.IsAutoSuspend = 0;
     req.UserForceClose = 0;
 
-    int requestId = getNextRequestId();
-    int result = m_pTraderApi->ReqOrderInsert(&req, requestId);
-    return result == 0 ? requestId : -1;
+    return m_pTraderApi->ReqOrderInsert(&req, requestId);
+}
+
+int FemasTraderJNI::reqOrderAction(const std::string& orderRef, int frontId, int sessionId,
+                                  char actionFlag, int requestId) {
+    if (!m_pTraderApi) return -1;
+
+    CUstpFtdcOrderActionField req = {0};
+    strncpy(req.OrderRef, orderRef.c_str(), sizeof(req.OrderRef) - 1);
+    req.FrontID = frontId;
+    req.SessionID = sessionId;
+    req.ActionFlag = actionFlag;
+
+    return m_pTraderApi->ReqOrderAction(&req, requestId);
+}
+
+int FemasTraderJNI::reqQryInvestorPosition(const std::string& brokerId, const std::string& investorId,
+                                          const std::string& instrumentId, int requestId) {
+    if (!m_pTraderApi) return -1;
+
+    CUstpFtdcQryInvestorPositionField req = {0};
+    strncpy(req.BrokerID, brokerId.c_str(), sizeof(req.BrokerID) - 1);
+    strncpy(req.InvestorID, investorId.c_str(), sizeof(req.InvestorID) - 1);
+    strncpy(req.InstrumentID, instrumentId.c_str(), sizeof(req.InstrumentID) - 1);
+
+    return m_pTraderApi->ReqQryInvestorPosition(&req, requestId);
+}
+
+int FemasTraderJNI::reqQryTradingAccount(const std::string& brokerId, const std::string& investorId,
+                                        int requestId) {
+    if (!m_pTraderApi) return -1;
+
+    CUstpFtdcQryTradingAccountField req = {0};
+    strncpy(req.BrokerID, brokerId.c_str(), sizeof(req.BrokerID) - 1);
+    strncpy(req.InvestorID, investorId.c_str(), sizeof(req.InvestorID) - 1);
+
+    return m_pTraderApi->ReqQryTradingAccount(&req, requestId);
+}
+
+int FemasTraderJNI::reqQryInstrument(const std::string& instrumentId, int requestId) {
+    if (!m_pTraderApi) return -1;
+
+    CUstpFtdcQryInstrumentField req = {0};
+    strncpy(req.InstrumentID, instrumentId.c_str(), sizeof(req.InstrumentID) - 1);
+
+    return m_pTraderApi->ReqQryInstrument(&req, requestId);
+}
+
+int FemasTraderJNI::reqQryOrder(const std::string& brokerId, const std::string& investorId,
+                               const std::string& instrumentId, int requestId) {
+    if (!m_pTraderApi) return -1;
+
+    CUstpFtdcQryOrderField req = {0};
+    strncpy(req.BrokerID, brokerId.c_str(), sizeof(req.BrokerID) - 1);
+    strncpy(req.InvestorID, investorId.c_str(), sizeof(req.InvestorID) - 1);
+    strncpy(req.InstrumentID, instrumentId.c_str(), sizeof(req.InstrumentID) - 1);
+
+    return m_pTraderApi->ReqQryOrder(&req, requestId);
+}
+
+int FemasTraderJNI::reqQryTrade(const std::string& brokerId, const std::string& investorId,
+                               const std::string& instrumentId, int requestId) {
+    if (!m_pTraderApi) return -1;
+
+    CUstpFtdcQryTradeField req = {0};
+    strncpy(req.BrokerID, brokerId.c_str(), sizeof(req.BrokerID) - 1);
+    strncpy(req.InvestorID, investorId.c_str(), sizeof(req.InvestorID) - 1);
+    strncpy(req.InstrumentID, instrumentId.c_str(), sizeof(req.InstrumentID) - 1);
+
+    return m_pTraderApi->ReqQryTrade(&req, requestId);
 }
 
 // 回调方法实现
 void FemasTraderJNI::onFrontConnected() {
-    if (!m_jvm || !m_javaObject) return;
+    if (!m_onFrontConnectedMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
 
-    JNIEnv* env;
-    if (m_jvm->AttachCurrentThread((void**)&env, nullptr) == JNI_OK) {
-        env->CallVoidMethod(m_javaObject, m_onFrontConnectedMethod);
-        m_jvm->DetachCurrentThread();
-    }
+    env->CallVoidMethod(m_javaObject, m_onFrontConnectedMethod);
+    detachCurrentThread(env);
 }
 
 void FemasTraderJNI::onFrontDisconnected(int reason) {
-    if (!m_jvm || !m_javaObject) return;
+    if (!m_onFrontDisconnectedMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onFrontDisconnectedMethod, (jint)reason);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspAuthenticate(const char* authCode, int errorId, const char* errorMsg, int requestId) {
+    if (!m_onRspAuthenticateMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspAuthenticateMethod,
+                        toJstring(env, authCode), (jint)errorId, toJstring(env, errorMsg), (jint)requestId);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspUserLogin(const char* tradingDay, const char* loginTime,
+                                   const char* brokerId, const char* userId,
+                                   int frontId, int sessionId, const char* maxOrderRef,
+                                   int errorId, const char* errorMsg, int requestId) {
+    if (!m_onRspUserLoginMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspUserLoginMethod,
+                        toJstring(env, tradingDay), toJstring(env, loginTime),
+                        toJstring(env, brokerId), toJstring(env, userId),
+                        (jint)frontId, (jint)sessionId, toJstring(env, maxOrderRef),
+                        (jint)errorId, toJstring(env, errorMsg), (jint)requestId);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspUserLogout(const char* brokerId, const char* userId,
+                                    int errorId, const char* errorMsg, int requestId) {
+    if (!m_onRspUserLogoutMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspUserLogoutMethod,
+                        toJstring(env, brokerId), toJstring(env, userId),
+                        (jint)errorId, toJstring(env, errorMsg), (jint)requestId);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspOrderInsert(const char* orderRef, int errorId, const char* errorMsg, int requestId) {
+    if (!m_onRspOrderInsertMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspOrderInsertMethod,
+                        toJstring(env, orderRef), (jint)errorId, toJstring(env, errorMsg), (jint)requestId);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspOrderAction(const char* orderRef, int errorId, const char* errorMsg, int requestId) {
+    if (!m_onRspOrderActionMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspOrderActionMethod,
+                        toJstring(env, orderRef), (jint)errorId, toJstring(env, errorMsg), (jint)requestId);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspQryInvestorPosition(const char* instrumentId, char posiDirection, int position,
+                                             int todayPosition, int ydPosition, double openCost,
+                                             int errorId, const char* errorMsg, int requestId, bool isLast) {
+    if (!m_onRspQryInvestorPositionMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspQryInvestorPositionMethod,
+                        toJstring(env, instrumentId), (jchar)(unsigned char)posiDirection,
+                        (jint)position, (jint)todayPosition, (jint)ydPosition, (jdouble)openCost,
+                        (jint)errorId, toJstring(env, errorMsg), (jint)requestId,
+                        isLast ? JNI_TRUE : JNI_FALSE);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspQryTradingAccount(const char* accountId, double preBalance, double available,
+                                           double margin, double frozenMargin, double fee,
+                                           double closeProfit, double positionProfit, double dynamicRights,
+                                           int errorId, const char* errorMsg, int requestId, bool isLast) {
+    if (!m_onRspQryTradingAccountMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspQryTradingAccountMethod,
+                        toJstring(env, accountId), (jdouble)preBalance, (jdouble)available,
+                        (jdouble)margin, (jdouble)frozenMargin, (jdouble)fee,
+                        (jdouble)closeProfit, (jdouble)positionProfit, (jdouble)dynamicRights,
+                        (jint)errorId, toJstring(env, errorMsg), (jint)requestId,
+                        isLast ? JNI_TRUE : JNI_FALSE);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspQryInstrument(const char* instrumentId, const char* instrumentName,
+                                       const char* exchangeId, const char* productId,
+                                       double priceTick, int volumeMultiple,
+                                       int errorId, const char* errorMsg, int requestId, bool isLast) {
+    if (!m_onRspQryInstrumentMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspQryInstrumentMethod,
+                        toJstring(env, instrumentId), toJstring(env, instrumentName),
+                        toJstring(env, exchangeId), toJstring(env, productId),
+                        (jdouble)priceTick, (jint)volumeMultiple,
+                        (jint)errorId, toJstring(env, errorMsg), (jint)requestId,
+                        isLast ? JNI_TRUE : JNI_FALSE);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspQryOrder(const char* orderSysId, int frontId, int sessionId,
+                                  const char* orderRef, const char* instrumentId,
+                                  char direction, char offsetFlag, double price,
+                                  int volume, int volumeTraded, char orderStatus,
+                                  int errorId, const char* errorMsg, int requestId, bool isLast) {
+    if (!m_onRspQryOrderMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspQryOrderMethod,
+                        toJstring(env, orderSysId), (jint)frontId, (jint)sessionId,
+                        toJstring(env, orderRef), toJstring(env, instrumentId),
+                        (jchar)(unsigned char)direction, (jchar)(unsigned char)offsetFlag, (jdouble)price,
+                        (jint)volume, (jint)volumeTraded, (jchar)(unsigned char)orderStatus,
+                        (jint)errorId, toJstring(env, errorMsg), (jint)requestId,
+                        isLast ? JNI_TRUE : JNI_FALSE);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspQryTrade(const char* tradeId, const char* orderSysId,
+                                  const char* orderRef, const char* instrumentId,
+                                  char direction, char offsetFlag, double price,
+                                  int volume, const char* tradeTime,
+                                  int errorId, const char* errorMsg, int requestId, bool isLast) {
+    if (!m_onRspQryTradeMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspQryTradeMethod,
+                        toJstring(env, tradeId), toJstring(env, orderSysId),
+                        toJstring(env, orderRef), toJstring(env, instrumentId),
+                        (jchar)(unsigned char)direction, (jchar)(unsigned char)offsetFlag, (jdouble)price,
+                        (jint)volume, toJstring(env, tradeTime),
+                        (jint)errorId, toJstring(env, errorMsg), (jint)requestId,
+                        isLast ? JNI_TRUE : JNI_FALSE);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRspError(int errorId, const char* errorMsg, int requestId) {
+    if (!m_onRspErrorMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRspErrorMethod,
+                        (jint)errorId, toJstring(env, errorMsg), (jint)requestId);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRtnOrder(const char* orderSysId, int frontId, int sessionId,
+                               const char* orderRef, const char* instrumentId, char direction, char offsetFlag,
+                               double price, int volume, char orderStatus) {
+    if (!m_onRtnOrderMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRtnOrderMethod,
+                        toJstring(env, orderSysId), (jint)frontId, (jint)sessionId,
+                        toJstring(env, orderRef), toJstring(env, instrumentId),
+                        (jchar)(unsigned char)direction, (jchar)(unsigned char)offsetFlag, (jdouble)price,
+                        (jint)volume, (jchar)(unsigned char)orderStatus);
+    detachCurrentThread(env);
+}
+
+void FemasTraderJNI::onRtnTrade(const char* tradeId, const char* orderSysId,
+                               const char* orderRef, const char* instrumentId, char direction, char offsetFlag,
+                               double price, int volume, const char* tradeTime) {
+    if (!m_onRtnTradeMethod) return;
+    JNIEnv* env = attachCurrentThread();
+    if (!env) return;
+
+    env->CallVoidMethod(m_javaObject, m_onRtnTradeMethod,
+                        toJstring(env, tradeId), toJstring(env, orderSysId),
+                        toJstring(env, orderRef), toJstring(env, instrumentId),
+                        (jchar)(unsigned char)direction, (jchar)(unsigned char)offsetFlag, (jdouble)price,
+                        (jint)volume, toJstring(env, tradeTime));
+    detachCurrentThread(env);
+}
+
+JNIEnv* FemasTraderJNI::attachCurrentThread() {
+    if (!m_jvm || !m_javaObject) return nullptr;
 
     JNIEnv* env;
-    if (m_jvm->AttachCurrentThread((void**)&env, nullptr) == JNI_OK) {
-        env->CallVoidMethod(m_javaObject, m_onFrontDisconnectedMethod, reason);
-        m_jvm->DetachCurrentThread();
+    if (m_jvm->AttachCurrentThread((void**)&env, nullptr) != JNI_OK) {
+        return nullptr;
     }
+    return env;
+}
+
+void FemasTraderJNI::detachCurrentThread(JNIEnv* env) {
+    // Java回调抛出的异常不能带回API线程
+    if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+    }
+    m_jvm->DetachCurrentThread();
 }
 
 std::string FemasTraderJNI::jstringToString(JNIEnv* env, jstring jstr) {
@@ -242,12 +548,9 @@ std::string FemasTraderJNI::jstringToString(JNIEnv* env, jstring jstr) {
     return result;
 }
 
-jstring FemasTraderJNI::stringToJstring(JNIEnv* env, const std::string& str) {
-    return env->NewStringUTF(str.c_str());
-}
-
-int FemasTraderJNI::getNextRequestId() {
-    return ++s_requestId;
+jstring FemasTraderJNI::toJstring(JNIEnv* env, const char* str) {
+    if (!str || !*str) return nullptr;
+    return env->NewStringUTF(str);
 }
 
 // TraderSpiImpl 实现
@@ -267,10 +570,12 @@ void TraderSpiImpl::OnRspAuthenticate(CUstpFtdcRspAuthenticateField* pRspAuthent
                                      CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                                      bool bIsLast) {
     if (m_pJNI && bIsLast) {
-        std::string authCode = pRspAuthenticate ? pRspAuthenticate->AuthCode : "";
-        int errorId = pRspInfo ? pRspInfo->ErrorID : 0;
-        std::string errorMsg = pRspInfo ? pRspInfo->ErrorMsg : "";
-        m_pJNI->onRspAuthenticate(authCode, errorId, errorMsg);
+        m_pJNI->onRspAuthenticate(
+            pRspAuthenticate ? pRspAuthenticate->AuthCode : nullptr,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID
+        );
     }
 }
 
@@ -278,22 +583,69 @@ void TraderSpiImpl::OnRspUserLogin(CUstpFtdcRspUserLoginField* pRspUserLogin,
                                   CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                                   bool bIsLast) {
     if (m_pJNI && bIsLast) {
-        std::string tradingDay = pRspUserLogin ? pRspUserLogin->TradingDay : "";
-        std::string loginTime = pRspUserLogin ? pRspUserLogin->LoginTime : "";
-        std::string brokerId = pRspUserLogin ? pRspUserLogin->BrokerID : "";
-        std::string userId = pRspUserLogin ? pRspUserLogin->UserID : "";
-        int errorId = pRspInfo ? pRspInfo->ErrorID : 0;
-        std::string errorMsg = pRspInfo ? pRspInfo->ErrorMsg : "";
-        m_pJNI->onRspUserLogin(tradingDay, loginTime, brokerId, userId, errorId, errorMsg);
+        m_pJNI->onRspUserLogin(
+            pRspUserLogin ? pRspUserLogin->TradingDay : nullptr,
+            pRspUserLogin ? pRspUserLogin->LoginTime : nullptr,
+            pRspUserLogin ? pRspUserLogin->BrokerID : nullptr,
+            pRspUserLogin ? pRspUserLogin->UserID : nullptr,
+            pRspUserLogin ? pRspUserLogin->FrontID : 0,
+            pRspUserLogin ? pRspUserLogin->SessionID : 0,
+            pRspUserLogin ? pRspUserLogin->MaxOrderRef : nullptr,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID
+        );
+    }
+}
+
+void TraderSpiImpl::OnRspUserLogout(CUstpFtdcRspUserLogoutField* pRspUserLogout,
+                                   CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                   bool bIsLast) {
+    if (m_pJNI && bIsLast) {
+        m_pJNI->onRspUserLogout(
+            pRspUserLogout ? pRspUserLogout->BrokerID : nullptr,
+            pRspUserLogout ? pRspUserLogout->UserID : nullptr,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID
+        );
+    }
+}
+
+void TraderSpiImpl::OnRspOrderInsert(CUstpFtdcInputOrderField* pInputOrder,
+                                    CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                    bool bIsLast) {
+    if (m_pJNI) {
+        m_pJNI->onRspOrderInsert(
+            pInputOrder ? pInputOrder->OrderRef : nullptr,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID
+        );
+    }
+}
+
+void TraderSpiImpl::OnRspOrderAction(CUstpFtdcOrderActionField* pOrderAction,
+                                    CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                    bool bIsLast) {
+    if (m_pJNI) {
+        m_pJNI->onRspOrderAction(
+            pOrderAction ? pOrderAction->OrderRef : nullptr,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID
+        );
     }
 }
 
 void TraderSpiImpl::OnRtnOrder(CUstpFtdcOrderField* pOrder) {
     if (m_pJNI && pOrder) {
         m_pJNI->onRtnOrder(
-            pOrder->OrderSysID ? pOrder->OrderSysID : "",
-            pOrder->OrderRef ? pOrder->OrderRef : "",
-            pOrder->InstrumentID ? pOrder->InstrumentID : "",
+            pOrder->OrderSysID,
+            pOrder->FrontID,
+            pOrder->SessionID,
+            pOrder->OrderRef,
+            pOrder->InstrumentID,
             pOrder->Direction,
             pOrder->OffsetFlag,
             pOrder->LimitPrice,
@@ -306,18 +658,153 @@ void TraderSpiImpl::OnRtnOrder(CUstpFtdcOrderField* pOrder) {
 void TraderSpiImpl::OnRtnTrade(CUstpFtdcTradeField* pTrade) {
     if (m_pJNI && pTrade) {
         m_pJNI->onRtnTrade(
-            pTrade->TradeID ? pTrade->TradeID : "",
-            pTrade->OrderRef ? pTrade->OrderRef : "",
-            pTrade->InstrumentID ? pTrade->InstrumentID : "",
+            pTrade->TradeID,
+            pTrade->OrderSysID,
+            pTrade->OrderRef,
+            pTrade->InstrumentID,
             pTrade->Direction,
             pTrade->OffsetFlag,
             pTrade->Price,
             pTrade->Volume,
-            pTrade->TradeTime ? pTrade->TradeTime : ""
+            pTrade->TradeTime
+        );
+    }
+}
+
+// 查询响应每笔回调一次，没有记录时只回调一次且记录字段为null
+void TraderSpiImpl::OnRspQryInvestorPosition(CUstpFtdcRspInvestorPositionField* pRspInvestorPosition,
+                                            CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                            bool bIsLast) {
+    if (m_pJNI) {
+        CUstpFtdcRspInvestorPositionField empty = {0};
+        CUstpFtdcRspInvestorPositionField* p = pRspInvestorPosition ? pRspInvestorPosition : &empty;
+        m_pJNI->onRspQryInvestorPosition(
+            p->InstrumentID,
+            p->PosiDirection,
+            p->Position,
+            p->TodayPosition,
+            p->YdPosition,
+            p->OpenCost,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID,
+            bIsLast
+        );
+    }
+}
+
+void TraderSpiImpl::OnRspQryTradingAccount(CUstpFtdcRspTradingAccountField* pRspTradingAccount,
+                                          CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                          bool bIsLast) {
+    if (m_pJNI) {
+        CUstpFtdcRspTradingAccountField empty = {0};
+        CUstpFtdcRspTradingAccountField* p = pRspTradingAccount ? pRspTradingAccount : &empty;
+        m_pJNI->onRspQryTradingAccount(
+            p->AccountID,
+            p->PreBalance,
+            p->Available,
+            p->Margin,
+            p->FrozenMargin,
+            p->Fee,
+            p->CloseProfit,
+            p->PositionProfit,
+            p->DynamicRights,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID,
+            bIsLast
         );
     }
 }
 
+void TraderSpiImpl::OnRspQryInstrument(CUstpFtdcRspInstrumentField* pRspInstrument,
+                                      CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                      bool bIsLast) {
+    if (m_pJNI) {
+        CUstpFtdcRspInstrumentField empty = {0};
+        CUstpFtdcRspInstrumentField* p = pRspInstrument ? pRspInstrument : &empty;
+        m_pJNI->onRspQryInstrument(
+            p->InstrumentID,
+            p->InstrumentName,
+            p->ExchangeID,
+            p->ProductID,
+            p->PriceTick,
+            p->VolumeMultiple,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID,
+            bIsLast
+        );
+    }
+}
+
+void TraderSpiImpl::OnRspQryOrder(CUstpFtdcOrderField* pOrder,
+                                 CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                 bool bIsLast) {
+    if (m_pJNI) {
+        CUstpFtdcOrderField empty = {0};
+        CUstpFtdcOrderField* p = pOrder ? pOrder : &empty;
+        m_pJNI->onRspQryOrder(
+            p->OrderSysID,
+            p->FrontID,
+            p->SessionID,
+            p->OrderRef,
+            p->InstrumentID,
+            p->Direction,
+            p->OffsetFlag,
+            p->LimitPrice,
+            p->Volume,
+            p->VolumeTraded,
+            p->OrderStatus,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID,
+            bIsLast
+        );
+    }
+}
+
+void TraderSpiImpl::OnRspQryTrade(CUstpFtdcTradeField* pTrade,
+                                 CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                 bool bIsLast) {
+    if (m_pJNI) {
+        CUstpFtdcTradeField empty = {0};
+        CUstpFtdcTradeField* p = pTrade ? pTrade : &empty;
+        m_pJNI->onRspQryTrade(
+            p->TradeID,
+            p->OrderSysID,
+            p->OrderRef,
+            p->InstrumentID,
+            p->Direction,
+            p->OffsetFlag,
+            p->Price,
+            p->Volume,
+            p->TradeTime,
+            pRspInfo ? pRspInfo->ErrorID : 0,
+            pRspInfo ? pRspInfo->ErrorMsg : nullptr,
+            nRequestID,
+            bIsLast
+        );
+    }
+}
+
+void TraderSpiImpl::OnRspError(CUstpFtdcRspInfoField* pRspInfo, int nRequestID, bool bIsLast) {
+    if (m_pJNI && pRspInfo) {
+        m_pJNI->onRspError(pRspInfo->ErrorID, pRspInfo->ErrorMsg, nRequestID);
+    }
+}
+
+// 按Java对象的nativePtr字段查找实例
+static std::shared_ptr<FemasTraderJNI> findInstance(JNIEnv* env, jobject obj) {
+    jclass clazz = env->GetObjectClass(obj);
+    jfieldID fieldId = env->GetFieldID(clazz, "nativePtr", "J");
+    jlong ptr = env->GetLongField(obj, fieldId);
+    env->DeleteLocalRef(clazz);
+
+    auto it = g_traderInstances.find(ptr);
+    return it != g_traderInstances.end() ? it->second : nullptr;
+}
+
 // JNI接口实现
 extern "C" {
 
@@ -402,64 +889,128 @@ JNIEXPORT void JNICALL Java_com_trading_jni_FemasTraderApi_release
 }
 
 JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqAuthenticate
-  (JNIEnv *env, jobject obj, jstring brokerId, jstring userId, jstring userProductInfo, jstring authCode) {
-    jclass clazz = env->GetObjectClass(obj);
-    jfieldID fieldId = env->GetFieldID(clazz, "nativePtr", "J");
-    jlong ptr = env->GetLongField(obj, fieldId);
-
-    auto it = g_traderInstances.find(ptr);
-    if (it != g_traderInstances.end()) {
-        auto jni = it->second;
-        return jni->reqAuthenticate(
-            jni->jstringToString(env, brokerId),
-            jni->jstringToString(env, userId),
-            jni->jstringToString(env, userProductInfo),
-            jni->jstringToString(env, authCode)
-        );
-    }
-    return -1;
+  (JNIEnv *env, jobject obj, jstring brokerId, jstring userId, jstring userProductInfo, jstring authCode,
+   jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqAuthenticate(
+        jni->jstringToString(env, brokerId),
+        jni->jstringToString(env, userId),
+        jni->jstringToString(env, userProductInfo),
+        jni->jstringToString(env, authCode),
+        requestId
+    );
 }
 
 JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqUserLogin
-  (JNIEnv *env, jobject obj, jstring brokerId, jstring userId, jstring password) {
-    jclass clazz = env->GetObjectClass(obj);
-    jfieldID fieldId = env->GetFieldID(clazz, "nativePtr", "J");
-    jlong ptr = env->GetLongField(obj, fieldId);
-
-    auto it = g_traderInstances.find(ptr);
-    if (it != g_traderInstances.end()) {
-        auto jni = it->second;
-        return jni->reqUserLogin(
-            jni->jstringToString(env, brokerId),
-            jni->jstringToString(env, userId),
-            jni->jstringToString(env, password)
-        );
-    }
-    return -1;
+  (JNIEnv *env, jobject obj, jstring brokerId, jstring userId, jstring password, jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqUserLogin(
+        jni->jstringToString(env, brokerId),
+        jni->jstringToString(env, userId),
+        jni->jstringToString(env, password),
+        requestId
+    );
+}
+
+JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqUserLogout
+  (JNIEnv *env, jobject obj, jstring brokerId, jstring userId, jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqUserLogout(
+        jni->jstringToString(env, brokerId),
+        jni->jstringToString(env, userId),
+        requestId
+    );
 }
 
 JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqOrderInsert
   (JNIEnv *env, jobject obj, jstring instrumentId, jchar direction, jchar offsetFlag,
-   jdouble price, jint volume, jchar orderPriceType, jchar timeCondition, jchar volumeCondition) {
-    jclass clazz = env->GetObjectClass(obj);
-    jfieldID fieldId = env->GetFieldID(clazz, "nativePtr", "J");
-    jlong ptr = env->GetLongField(obj, fieldId);
-
-    auto it = g_traderInstances.find(ptr);
-    if (it != g_traderInstances.end()) {
-        auto jni = it->second;
-        return jni->reqOrderInsert(
-            jni->jstringToString(env, instrumentId),
-            (char)direction,
-            (char)offsetFlag,
-            price,
-            volume,
-            (char)orderPriceType,
-            (char)timeCondition,
-            (char)volumeCondition
-        );
-    }
-    return -1;
+   jdouble price, jint volume, jchar orderPriceType, jchar timeCondition, jchar volumeCondition,
+   jstring orderRef, jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqOrderInsert(
+        jni->jstringToString(env, instrumentId),
+        (char)direction,
+        (char)offsetFlag,
+        price,
+        volume,
+        (char)orderPriceType,
+        (char)timeCondition,
+        (char)volumeCondition,
+        jni->jstringToString(env, orderRef),
+        requestId
+    );
+}
+
+JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqOrderAction
+  (JNIEnv *env, jobject obj, jstring orderRef, jint frontId, jint sessionId, jchar actionFlag,
+   jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqOrderAction(
+        jni->jstringToString(env, orderRef),
+        frontId,
+        sessionId,
+        (char)actionFlag,
+        requestId
+    );
+}
+
+JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqQryInvestorPosition
+  (JNIEnv *env, jobject obj, jstring brokerId, jstring investorId, jstring instrumentId, jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqQryInvestorPosition(
+        jni->jstringToString(env, brokerId),
+        jni->jstringToString(env, investorId),
+        jni->jstringToString(env, instrumentId),
+        requestId
+    );
+}
+
+JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqQryTradingAccount
+  (JNIEnv *env, jobject obj, jstring brokerId, jstring investorId, jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqQryTradingAccount(
+        jni->jstringToString(env, brokerId),
+        jni->jstringToString(env, investorId),
+        requestId
+    );
+}
+
+JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqQryInstrument
+  (JNIEnv *env, jobject obj, jstring instrumentId, jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqQryInstrument(jni->jstringToString(env, instrumentId), requestId);
+}
+
+JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqQryOrder
+  (JNIEnv *env, jobject obj, jstring brokerId, jstring investorId, jstring instrumentId, jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqQryOrder(
+        jni->jstringToString(env, brokerId),
+        jni->jstringToString(env, investorId),
+        jni->jstringToString(env, instrumentId),
+        requestId
+    );
+}
+
+JNIEXPORT jint JNICALL Java_com_trading_jni_FemasTraderApi_reqQryTrade
+  (JNIEnv *env, jobject obj, jstring brokerId, jstring investorId, jstring instrumentId, jint requestId) {
+    auto jni = findInstance(env, obj);
+    if (!jni) return -1;
+    return jni->reqQryTrade(
+        jni->jstringToString(env, brokerId),
+        jni->jstringToString(env, investorId),
+        jni->jstringToString(env, instrumentId),
+        requestId
+    );
 }
 
 } // extern "C"
@@ -10,6 +10,8 @@
 /**
  * 飞马交易API的JNI包装类
  * 实现Java与C++交易API的桥接
+ * 请求ID和报单引用由Java层生成，随请求发出，并从响应、通知回调原样带回Java层；
+ * 请求方法返回交易API的发送结果（0表示发送成功，负数表示发送失败）
  */
 class FemasTraderJNI {
 private:
@@ -18,76 +20,112 @@ private:
     JavaVM* m_jvm;
     jobject m_javaObject;
     jclass m_javaClass;
-    
+
     // 回调方法ID缓存
     jmethodID m_onFrontConnectedMethod;
     jmethodID m_onFrontDisconnectedMethod;
     jmethodID m_onRspAuthenticateMethod;
     jmethodID m_onRspUserLoginMethod;
+    jmethodID m_onRspUserLogoutMethod;
     jmethodID m_onRspOrderInsertMethod;
+    jmethodID m_onRspOrderActionMethod;
+    jmethodID m_onRspQryInvestorPositionMethod;
+    jmethodID m_onRspQryTradingAccountMethod;
+    jmethodID m_onRspQryInstrumentMethod;
+    jmethodID m_onRspQryOrderMethod;
+    jmethodID m_onRspQryTradeMethod;
+    jmethodID m_onRspErrorMethod;
     jmethodID m_onRtnOrderMethod;
     jmethodID m_onRtnTradeMethod;
-    
-    // 请求ID生成器
-    static int s_requestId;
-    
+
 public:
     FemasTraderJNI();
     ~FemasTraderJNI();
-    
+
     // 初始化和清理
     bool initialize(JNIEnv* env, jobject javaObject);
     void cleanup();
-    
+
     // API操作方法
     bool createTraderApi(const std::string& flowPath);
     void registerFront(const std::string& frontAddress);
     void init();
     void join();
     void release();
-    
+
     // 交易请求方法
     int reqAuthenticate(const std::string& brokerId, const std::string& userId,
-                       const std::string& userProductInfo, const std::string& authCode);
-    int reqUserLogin(const std::string& brokerId, const std::string& userId, 
-                    const std::string& password);
-    int reqUserLogout(const std::string& brokerId, const std::string& userId);
+                       const std::string& userProductInfo, const std::string& authCode,
+                       int requestId);
+    int reqUserLogin(const std::string& brokerId, const std::string& userId,
+                    const std::string& password, int requestId);
+    int reqUserLogout(const std::string& brokerId, const std::string& userId, int requestId);
     int reqOrderInsert(const std::string& instrumentId, char direction, char offsetFlag,
-                      double price, int volume, char orderPriceType, 
-                      char timeCondition, char volumeCondition);
-    int reqOrderAction(const std::string& orderRef, int frontId, int sessionId, 
-                      char actionFlag);
+                      double price, int volume, char orderPriceType,
+                      char timeCondition, char volumeCondition,
+                      const std::string& orderRef, int requestId);
+    int reqOrderAction(const std::string& orderRef, int frontId, int sessionId,
+                      char actionFlag, int requestId);
     int reqQryInvestorPosition(const std::string& brokerId, const std::string& investorId,
-                              const std::string& instrumentId);
-    int reqQryTradingAccount(const std::string& brokerId, const std::string& investorId);
-    int reqQryInstrument(const std::string& instrumentId);
+                              const std::string& instrumentId, int requestId);
+    int reqQryTradingAccount(const std::string& brokerId, const std::string& investorId,
+                            int requestId);
+    int reqQryInstrument(const std::string& instrumentId, int requestId);
     int reqQryOrder(const std::string& brokerId, const std::string& investorId,
-                   const std::string& instrumentId);
+                   const std::string& instrumentId, int requestId);
     int reqQryTrade(const std::string& brokerId, const std::string& investorId,
-                   const std::string& instrumentId);
-    
-    // 回调方法
+                   const std::string& instrumentId, int requestId);
+
+    // 回调方法，字符串参数为nullptr或空串时Java层收到null
     void onFrontConnected();
     void onFrontDisconnected(int reason);
-    void onRspAuthenticate(const std::string& authCode, int errorId, const std::string& errorMsg);
-    void onRspUserLogin(const std::string& tradingDay, const std::string& loginTime,
-                       const std::string& brokerId, const std::string& userId,
-                       int errorId, const std::string& errorMsg);
-    void onRspOrderInsert(const std::string& orderRef, int errorId, const std::string& errorMsg);
-    void onRtnOrder(const std::string& orderSysId, const std::string& orderRef,
-                   const std::string& instrumentId, char direction, char offsetFlag,
+    void onRspAuthenticate(const char* authCode, int errorId, const char* errorMsg, int requestId);
+    void onRspUserLogin(const char* tradingDay, const char* loginTime,
+                       const char* brokerId, const char* userId,
+                       int frontId, int sessionId, const char* maxOrderRef,
+                       int errorId, const char* errorMsg, int requestId);
+    void onRspUserLogout(const char* brokerId, const char* userId,
+                        int errorId, const char* errorMsg, int requestId);
+    void onRspOrderInsert(const char* orderRef, int errorId, const char* errorMsg, int requestId);
+    void onRspOrderAction(const char* orderRef, int errorId, const char* errorMsg, int requestId);
+    void onRspQryInvestorPosition(const char* instrumentId, char posiDirection, int position,
+                                 int todayPosition, int ydPosition, double openCost,
+                                 int errorId, const char* errorMsg, int requestId, bool isLast);
+    void onRspQryTradingAccount(const char* accountId, double preBalance, double available,
+                               double margin, double frozenMargin, double fee,
+                               double closeProfit, double positionProfit, double dynamicRights,
+                               int errorId, const char* errorMsg, int requestId, bool isLast);
+    void onRspQryInstrument(const char* instrumentId, const char* instrumentName,
+                           const char* exchangeId, const char* productId,
+                           double priceTick, int volumeMultiple,
+                           int errorId, const char* errorMsg, int requestId, bool isLast);
+    void onRspQryOrder(const char* orderSysId, int frontId, int sessionId,
+                      const char* orderRef, const char* instrumentId,
+                      char direction, char offsetFlag, double price,
+                      int volume, int volumeTraded, char orderStatus,
+                      int errorId, const char* errorMsg, int requestId, bool isLast);
+    void onRspQryTrade(const char* tradeId, const char* orderSysId,
+                      const char* orderRef, const char* instrumentId,
+                      char direction, char offsetFlag, double price,
+                      int volume, const char* tradeTime,
+                      int errorId, const char* errorMsg, int requestId, bool isLast);
+    void onRspError(int errorId, const char* errorMsg, int requestId);
+    void onRtnOrder(const char* orderSysId, int frontId, int sessionId,
+                   const char* orderRef, const char* instrumentId, char direction, char offsetFlag,
                    double price, int volume, char orderStatus);
-    void onRtnTrade(const std::string& tradeId, const std::string& orderRef,
-                   const std::string& instrumentId, char direction, char offsetFlag,
-                   double price, int volume, const std::string& tradeTime);
-    
+    void onRtnTrade(const char* tradeId, const char* orderSysId,
+                   const char* orderRef, const char* instrumentId, char direction, char offsetFlag,
+                   double price, int volume, const char* tradeTime);
+
+    std::string jstringToString(JNIEnv* env, jstring jstr);
+
 private:
     // 辅助方法
     void cacheMethodIDs(JNIEnv* env);
-    void callJavaMethod(const char* methodName, const char* signature, ...);
-    std::string jstringToString(JNIEnv* env, jstring jstr);
-    jstring stringToJstring(JNIEnv* env, const std::string& str);
-    static int getNextRequestId();
+    jmethodID lookupMethod(JNIEnv* env, const char* name, const char* signature);
+    JNIEnv* attachCurrentThread();
+    void detachCurrentThread(JNIEnv* env);
+    jstring toJstring(JNIEnv* env, const char* str);
 };
 
 /**
@@ -96,39 +134,47 @@ private:
 class TraderSpiImpl : public CUstpFtdcTraderSpi {
 private:
     FemasTraderJNI* m_pJNI;
-    
+
 public:
     TraderSpiImpl(FemasTraderJNI* jni) : m_pJNI(jni) {}
-    
+
     // 重写回调方法
     virtual void OnFrontConnected() override;
     virtual void OnFrontDisconnected(int nReason) override;
     virtual void OnRspAuthenticate(CUstpFtdcRspAuthenticateField* pRspAuthenticate,
-                                  CUstpFtdcRspInfoField* pRspInfo, int nRequestID, 
+                                  CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                                   bool bIsLast) override;
     virtual void OnRspUserLogin(CUstpFtdcRspUserLoginField* pRspUserLogin,
-                               CUstpFtdcRspInfoField* pRspInfo, int nRequestID, 
+                               CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                                bool bIsLast) override;
+    virtual void OnRspUserLogout(CUstpFtdcRspUserLogoutField* pRspUserLogout,
+                                CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                bool bIsLast) override;
     virtual void OnRspOrderInsert(CUstpFtdcInputOrderField* pInputOrder,
-                                 CUstpFtdcRspInfoField* pRspInfo, int nRequestID, 
+                                 CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                                 bool bIsLast) override;
+    virtual void OnRspOrderAction(CUstpFtdcOrderActionField* pOrderAction,
+                                 CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                                  bool bIsLast) override;
     virtual void OnRtnOrder(CUstpFtdcOrderField* pOrder) override;
     virtual void OnRtnTrade(CUstpFtdcTradeField* pTrade) override;
     virtual void OnRspQryInvestorPosition(CUstpFtdcRspInvestorPositionField* pRspInvestorPosition,
-                                         CUstpFtdcRspInfoField* pRspInfo, int nRequestID, 
+                                         CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                                          bool bIsLast) override;
     virtual void OnRspQryTradingAccount(CUstpFtdcRspTradingAccountField* pRspTradingAccount,
-                                       CUstpFtdcRspInfoField* pRspInfo, int nRequestID, 
+                                       CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                                        bool bIsLast) override;
     virtual void OnRspQryInstrument(CUstpFtdcRspInstrumentField* pRspInstrument,
-                                   CUstpFtdcRspInfoField* pRspInfo, int nRequestID, 
+                                   CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                                    bool bIsLast) override;
     virtual void OnRspQryOrder(CUstpFtdcOrderField* pOrder,
-                              CUstpFtdcRspInfoField* pRspInfo, int nRequestID, 
+                              CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                               bool bIsLast) override;
     virtual void OnRspQryTrade(CUstpFtdcTradeField* pTrade,
-                              CUstpFtdcRspInfoField* pRspInfo, int nRequestID, 
+                              CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
                               bool bIsLast) override;
+    virtual void OnRspError(CUstpFtdcRspInfoField* pRspInfo, int nRequestID,
+                           bool bIsLast) override;
 };
 
 // 全局实例管理
@@ -0,0 +1,35 @@
+package com.trading.config;
+
+import com.trading.controller.MarketDataWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * 行情原生WebSocket端点配置
+ * 与 {@link WebSocketConfig} 的STOMP端点分开：行情处理器依赖推送服务，推送服务依赖STOMP配置创建的消息模板，
+ * 放在STOMP配置类中会形成循环依赖
+ */
+@Configuration
+@EnableWebSocket
+public class MarketWebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private MarketDataWebSocketHandler marketDataWebSocketHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        String path = tradingConfig.getWebsocket().getMarketEndpoint();
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+        registry.addHandler(marketDataWebSocketHandler, path)
+                .addInterceptors(marketDataWebSocketHandler.sessionInterceptor())
+                .setAllowedOriginPatterns("*");
+    }
+}
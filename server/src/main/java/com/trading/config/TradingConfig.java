@@ -4,6 +4,12 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 交易配置类
  * 管理C++交易API的连接参数
@@ -63,6 +69,66 @@ public class TradingConfig {
      */
     private String flowPath;
 
+    /**
+     * 行情推送配置
+     */
+    private Push push = new Push();
+
+    /**
+     * 行情接入配置
+     */
+    private Ingest ingest = new Ingest();
+
+    /**
+     * 行情日志配置
+     */
+    private Journal journal = new Journal();
+
+    /**
+     * 行情回放配置
+     */
+    private Replay replay = new Replay();
+
+    /**
+     * 行情压测配置
+     */
+    private Load load = new Load();
+
+    /**
+     * 请求超时配置
+     */
+    private RequestTimeout requestTimeout = new RequestTimeout();
+
+    /**
+     * 持仓盈亏配置
+     */
+    private Position position = new Position();
+
+    /**
+     * 事前风控配置
+     */
+    private Risk risk = new Risk();
+
+    /**
+     * K线配置
+     */
+    private Bars bars = new Bars();
+
+    /**
+     * 列式历史行情配置
+     */
+    private TickStore tickStore = new TickStore();
+
+    /**
+     * STOMP/WebSocket通道与传输配置
+     */
+    private WebSocket websocket = new WebSocket();
+
+    /**
+     * 交易所品种表，键为交易所代码，值为品种代码列表，用于补充或覆盖内置的品种表
+     */
+    private Map<String, List<String>> exchangeProducts = new HashMap<>();
+
     // Getters and Setters
     public String getFrontAddress() {
         return frontAddress;
@@ -143,4 +209,959 @@ public class TradingConfig {
     public void setFlowPath(String flowPath) {
         this.flowPath = flowPath;
     }
+
+    public Push getPush() {
+        return push;
+    }
+
+    public void setPush(Push push) {
+        this.push = push;
+    }
+
+    public Ingest getIngest() {
+        return ingest;
+    }
+
+    public void setIngest(Ingest ingest) {
+        this.ingest = ingest;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    public void setReplay(Replay replay) {
+        this.replay = replay;
+    }
+
+    public Load getLoad() {
+        return load;
+    }
+
+    public void setLoad(Load load) {
+        this.load = load;
+    }
+
+    public RequestTimeout getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(RequestTimeout requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public void setPosition(Position position) {
+        this.position = position;
+    }
+
+    public Risk getRisk() {
+        return risk;
+    }
+
+    public void setRisk(Risk risk) {
+        this.risk = risk;
+    }
+
+    public Bars getBars() {
+        return bars;
+    }
+
+    public void setBars(Bars bars) {
+        this.bars = bars;
+    }
+
+    public TickStore getTickStore() {
+        return tickStore;
+    }
+
+    public void setTickStore(TickStore tickStore) {
+        this.tickStore = tickStore;
+    }
+
+    public WebSocket getWebsocket() {
+        return websocket;
+    }
+
+    public void setWebsocket(WebSocket websocket) {
+        this.websocket = websocket;
+    }
+
+    public Map<String, List<String>> getExchangeProducts() {
+        return exchangeProducts;
+    }
+
+    public void setExchangeProducts(Map<String, List<String>> exchangeProducts) {
+        this.exchangeProducts = exchangeProducts;
+    }
+
+    /**
+     * 行情推送配置
+     * 每个会话可在订阅时指定推送间隔，取值限制在 [minIntervalMs, maxIntervalMs] 之间
+     */
+    public static class Push {
+
+        /**
+         * 默认推送间隔（毫秒）
+         */
+        private long defaultIntervalMs = 100;
+
+        /**
+         * 最小推送间隔（毫秒）
+         */
+        private long minIntervalMs = 20;
+
+        /**
+         * 最大推送间隔（毫秒）
+         */
+        private long maxIntervalMs = 5000;
+
+        /**
+         * 全量快照间隔（毫秒）
+         */
+        private long fullSnapshotIntervalMs = 60000;
+
+        /**
+         * 单个会话出站通道和发送缓冲中尚未写入连接的推送帧数上限，超过后暂停向该会话推送
+         */
+        private int maxSessionQueuedFrames = 16;
+
+        /**
+         * 单个会话出站通道和发送缓冲中尚未写入连接的推送字节数上限，超过后暂停向该会话推送；
+         * 应明显低于 websocket.send-buffer-size-limit，发送缓冲中还有其他消息和STOMP帧头
+         */
+        private long maxSessionQueuedBytes = 256 * 1024;
+
+        /**
+         * 连续多少次因积压暂停推送后把会话推送间隔加倍（不超过最大推送间隔），
+         * 积压消除后连续同样次数推送正常时逐步恢复；0表示不调整推送间隔
+         */
+        private int slowSessionDowngradeAfter = 3;
+
+        public long getDefaultIntervalMs() {
+            return defaultIntervalMs;
+        }
+
+        public void setDefaultIntervalMs(long defaultIntervalMs) {
+            this.defaultIntervalMs = defaultIntervalMs;
+        }
+
+        public long getMinIntervalMs() {
+            return minIntervalMs;
+        }
+
+        public void setMinIntervalMs(long minIntervalMs) {
+            this.minIntervalMs = minIntervalMs;
+        }
+
+        public long getMaxIntervalMs() {
+            return maxIntervalMs;
+        }
+
+        public void setMaxIntervalMs(long maxIntervalMs) {
+            this.maxIntervalMs = maxIntervalMs;
+        }
+
+        public long getFullSnapshotIntervalMs() {
+            return fullSnapshotIntervalMs;
+        }
+
+        public void setFullSnapshotIntervalMs(long fullSnapshotIntervalMs) {
+            this.fullSnapshotIntervalMs = fullSnapshotIntervalMs;
+        }
+
+        public int getMaxSessionQueuedFrames() {
+            return maxSessionQueuedFrames;
+        }
+
+        public void setMaxSessionQueuedFrames(int maxSessionQueuedFrames) {
+            this.maxSessionQueuedFrames = maxSessionQueuedFrames;
+        }
+
+        public long getMaxSessionQueuedBytes() {
+            return maxSessionQueuedBytes;
+        }
+
+        public void setMaxSessionQueuedBytes(long maxSessionQueuedBytes) {
+            this.maxSessionQueuedBytes = maxSessionQueuedBytes;
+        }
+
+        public int getSlowSessionDowngradeAfter() {
+            return slowSessionDowngradeAfter;
+        }
+
+        public void setSlowSessionDowngradeAfter(int slowSessionDowngradeAfter) {
+            this.slowSessionDowngradeAfter = slowSessionDowngradeAfter;
+        }
+    }
+
+    /**
+     * 行情接入配置
+     */
+    public static class Ingest {
+
+        /**
+         * 行情回调与行情缓存之间环形缓冲区的槽位数量，必须为2的幂
+         */
+        private int ringBufferSize = 65536;
+
+        public int getRingBufferSize() {
+            return ringBufferSize;
+        }
+
+        public void setRingBufferSize(int ringBufferSize) {
+            this.ringBufferSize = ringBufferSize;
+        }
+    }
+
+    /**
+     * 行情日志配置
+     */
+    public static class Journal {
+
+        /**
+         * 是否记录行情日志
+         */
+        private boolean enabled = true;
+
+        /**
+         * 日志根目录，按交易日分子目录
+         */
+        private String directory = "./journal/";
+
+        /**
+         * 分段文件大小（MB），写满后切换到下一个分段
+         */
+        private int segmentSizeMb = 256;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSegmentSizeMb() {
+            return segmentSizeMb;
+        }
+
+        public void setSegmentSizeMb(int segmentSizeMb) {
+            this.segmentSizeMb = segmentSizeMb;
+        }
+    }
+
+    /**
+     * 行情回放配置
+     * 启用后行情API不再生成随机行情，改为回放历史行情
+     */
+    public static class Replay {
+
+        /**
+         * 是否启用回放
+         */
+        private boolean enabled = false;
+
+        /**
+         * 回放源：行情日志交易日目录或CSV文件
+         */
+        private String source;
+
+        /**
+         * 回放倍速，小于等于0时不等待、尽快发送
+         */
+        private double speed = 1.0;
+
+        /**
+         * 回放结束后是否从头开始
+         */
+        private boolean loop = false;
+
+        /**
+         * 从该行情更新时间（HH:mm:ss）开始回放，为空时从头开始
+         */
+        private String startTime;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public void setSource(String source) {
+            this.source = source;
+        }
+
+        public double getSpeed() {
+            return speed;
+        }
+
+        public void setSpeed(double speed) {
+            this.speed = speed;
+        }
+
+        public boolean isLoop() {
+            return loop;
+        }
+
+        public void setLoop(boolean loop) {
+            this.loop = loop;
+        }
+
+        public String getStartTime() {
+            return startTime;
+        }
+
+        public void setStartTime(String startTime) {
+            this.startTime = startTime;
+        }
+    }
+
+    /**
+     * 行情压测配置
+     * 启用后由单独的生产线程按目标速率生成合成行情，用于发布前测量行情链路容量
+     */
+    public static class Load {
+
+        /**
+         * 是否启用压测模式
+         */
+        private boolean enabled = false;
+
+        /**
+         * 合成合约数量
+         */
+        private int instruments = 100;
+
+        /**
+         * 目标速率（笔/秒）
+         */
+        private int ratePerSecond = 10000;
+
+        /**
+         * 突发倍数，突发期间速率为目标速率乘以该值，1表示无突发
+         */
+        private int burstMultiplier = 5;
+
+        /**
+         * 突发周期（毫秒），每个周期开始时进入突发
+         */
+        private long burstPeriodMs = 10000;
+
+        /**
+         * 每次突发持续时间（毫秒）
+         */
+        private long burstDurationMs = 1000;
+
+        /**
+         * 价格模型：random-walk（随机游走）或 gaussian（围绕基准价正态分布）
+         */
+        private String priceModel = "random-walk";
+
+        /**
+         * 价格波动，单位为最小变动价位
+         */
+        private double volatility = 1.0;
+
+        /**
+         * 最小变动价位
+         */
+        private double tickSize = 1.0;
+
+        /**
+         * 压测时长（秒），0表示一直运行
+         */
+        private long durationSeconds = 0;
+
+        /**
+         * 统计输出间隔（秒）
+         */
+        private long reportIntervalSeconds = 5;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInstruments() {
+            return instruments;
+        }
+
+        public void setInstruments(int instruments) {
+            this.instruments = instruments;
+        }
+
+        public int getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        public void setRatePerSecond(int ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        public int getBurstMultiplier() {
+            return burstMultiplier;
+        }
+
+        public void setBurstMultiplier(int burstMultiplier) {
+            this.burstMultiplier = burstMultiplier;
+        }
+
+        public long getBurstPeriodMs() {
+            return burstPeriodMs;
+        }
+
+        public void setBurstPeriodMs(long burstPeriodMs) {
+            this.burstPeriodMs = burstPeriodMs;
+        }
+
+        public long getBurstDurationMs() {
+            return burstDurationMs;
+        }
+
+        public void setBurstDurationMs(long burstDurationMs) {
+            this.burstDurationMs = burstDurationMs;
+        }
+
+        public String getPriceModel() {
+            return priceModel;
+        }
+
+        public void setPriceModel(String priceModel) {
+            this.priceModel = priceModel;
+        }
+
+        public double getVolatility() {
+            return volatility;
+        }
+
+        public void setVolatility(double volatility) {
+            this.volatility = volatility;
+        }
+
+        public double getTickSize() {
+            return tickSize;
+        }
+
+        public void setTickSize(double tickSize) {
+            this.tickSize = tickSize;
+        }
+
+        public long getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        public void setDurationSeconds(long durationSeconds) {
+            this.durationSeconds = durationSeconds;
+        }
+
+        public long getReportIntervalSeconds() {
+            return reportIntervalSeconds;
+        }
+
+        public void setReportIntervalSeconds(long reportIntervalSeconds) {
+            this.reportIntervalSeconds = reportIntervalSeconds;
+        }
+    }
+
+    /**
+     * 请求超时配置
+     * 等待API响应的请求到期后以超时错误完成，由时间轮统一管理
+     */
+    public static class RequestTimeout {
+
+        /**
+         * 时间轮每格时长（毫秒），即超时精度
+         */
+        private long tickMs = 100;
+
+        /**
+         * 时间轮槽数量，必须为2的幂
+         */
+        private int wheelSize = 512;
+
+        /**
+         * 默认超时（毫秒）
+         */
+        private long defaultMs = 10000;
+
+        /**
+         * 按请求类型的超时（毫秒），键为请求类型，如 order_insert、qry_position
+         */
+        private Map<String, Long> types = new HashMap<>();
+
+        public long getTickMs() {
+            return tickMs;
+        }
+
+        public void setTickMs(long tickMs) {
+            this.tickMs = tickMs;
+        }
+
+        public int getWheelSize() {
+            return wheelSize;
+        }
+
+        public void setWheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+        }
+
+        public long getDefaultMs() {
+            return defaultMs;
+        }
+
+        public void setDefaultMs(long defaultMs) {
+            this.defaultMs = defaultMs;
+        }
+
+        public Map<String, Long> getTypes() {
+            return types;
+        }
+
+        public void setTypes(Map<String, Long> types) {
+            this.types = types;
+        }
+    }
+
+    /**
+     * 持仓盈亏配置
+     */
+    public static class Position {
+
+        /**
+         * 盯市间隔（毫秒），每个间隔按最新价重算浮动盈亏并推送有变化的持仓
+         */
+        private long markIntervalMs = 500;
+
+        /**
+         * 品种合约乘数，补充或覆盖内置值；合约查询响应中的合约乘数优先
+         */
+        private Map<String, Integer> volumeMultiples = new HashMap<>();
+
+        public long getMarkIntervalMs() {
+            return markIntervalMs;
+        }
+
+        public void setMarkIntervalMs(long markIntervalMs) {
+            this.markIntervalMs = markIntervalMs;
+        }
+
+        public Map<String, Integer> getVolumeMultiples() {
+            return volumeMultiples;
+        }
+
+        public void setVolumeMultiples(Map<String, Integer> volumeMultiples) {
+            this.volumeMultiples = volumeMultiples;
+        }
+    }
+
+    /**
+     * 事前风控配置
+     */
+    public static class Risk {
+
+        /**
+         * 是否启用事前风控
+         */
+        private boolean enabled = true;
+
+        /**
+         * 单笔报单最大数量，0表示不限制
+         */
+        private int maxOrderVolume = 100;
+
+        /**
+         * 单笔报单最大金额（价格 × 数量 × 合约乘数），0表示不限制
+         */
+        private double maxOrderNotional = 0;
+
+        /**
+         * 报单价格偏离最新价的最大比例，超过视为误操作，0表示不检查
+         */
+        private double maxPriceDeviation = 0.05;
+
+        /**
+         * 单合约单方向最大持仓（含未成交的开仓报单），0表示不限制
+         */
+        private int maxPosition = 500;
+
+        /**
+         * 每秒最大报单数，0表示不限制
+         */
+        private int maxOrdersPerSecond = 50;
+
+        /**
+         * 单合约每秒最大报单数，0表示不限制
+         */
+        private int maxInstrumentOrdersPerSecond = 10;
+
+        /**
+         * 没有行情的合约是否拒绝报单；不拒绝时跳过价格类检查
+         */
+        private boolean requireMarketData = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxOrderVolume() {
+            return maxOrderVolume;
+        }
+
+        public void setMaxOrderVolume(int maxOrderVolume) {
+            this.maxOrderVolume = maxOrderVolume;
+        }
+
+        public double getMaxOrderNotional() {
+            return maxOrderNotional;
+        }
+
+        public void setMaxOrderNotional(double maxOrderNotional) {
+            this.maxOrderNotional = maxOrderNotional;
+        }
+
+        public double getMaxPriceDeviation() {
+            return maxPriceDeviation;
+        }
+
+        public void setMaxPriceDeviation(double maxPriceDeviation) {
+            this.maxPriceDeviation = maxPriceDeviation;
+        }
+
+        public int getMaxPosition() {
+            return maxPosition;
+        }
+
+        public void setMaxPosition(int maxPosition) {
+            this.maxPosition = maxPosition;
+        }
+
+        public int getMaxOrdersPerSecond() {
+            return maxOrdersPerSecond;
+        }
+
+        public void setMaxOrdersPerSecond(int maxOrdersPerSecond) {
+            this.maxOrdersPerSecond = maxOrdersPerSecond;
+        }
+
+        public int getMaxInstrumentOrdersPerSecond() {
+            return maxInstrumentOrdersPerSecond;
+        }
+
+        public void setMaxInstrumentOrdersPerSecond(int maxInstrumentOrdersPerSecond) {
+            this.maxInstrumentOrdersPerSecond = maxInstrumentOrdersPerSecond;
+        }
+
+        public boolean isRequireMarketData() {
+            return requireMarketData;
+        }
+
+        public void setRequireMarketData(boolean requireMarketData) {
+            this.requireMarketData = requireMarketData;
+        }
+    }
+
+    /**
+     * K线配置
+     */
+    public static class Bars {
+
+        /**
+         * 是否由行情生成K线
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每个合约每个周期保留的K线数量，键为周期（1s、1m、5m、15m、1d），未配置的周期使用默认值
+         */
+        private Map<String, Integer> capacities = new HashMap<>();
+
+        /**
+         * 收盘时推送到 /topic/market/bars/{instrumentId} 的周期
+         */
+        private List<String> pushPeriods = new ArrayList<>(Arrays.asList("1m", "5m", "15m", "1d"));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<String, Integer> getCapacities() {
+            return capacities;
+        }
+
+        public void setCapacities(Map<String, Integer> capacities) {
+            this.capacities = capacities;
+        }
+
+        public List<String> getPushPeriods() {
+            return pushPeriods;
+        }
+
+        public void setPushPeriods(List<String> pushPeriods) {
+            this.pushPeriods = pushPeriods;
+        }
+    }
+
+    /**
+     * 列式历史行情配置
+     */
+    public static class TickStore {
+
+        /**
+         * 是否按合约写入列式历史行情
+         */
+        private boolean enabled = true;
+
+        /**
+         * 存储根目录，按交易日分子目录
+         */
+        private String directory = "./ticks/";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * STOMP/WebSocket通道与传输配置
+     * 客户端入站、出站通道默认各只有 CPU核数×2 个线程，出站线程在写慢连接时会阻塞，
+     * 几百个会话同时推送时出站通道积压，因此按推送量单独配置
+     */
+    public static class WebSocket {
+
+        /**
+         * 客户端入站通道线程池（处理客户端发来的STOMP帧）
+         */
+        private ChannelExecutor inbound = new ChannelExecutor(4, 16, 10000);
+
+        /**
+         * 客户端出站通道线程池（把消息写入WebSocket连接）。
+         * 队列不设上限，积压由行情推送的会话背压（trading.push.max-session-queued-*）限制
+         */
+        private ChannelExecutor outbound = new ChannelExecutor(16, 16, Integer.MAX_VALUE);
+
+        /**
+         * 简单代理的心跳间隔（毫秒），服务端按此间隔发送心跳并要求客户端同样发送，
+         * 连续三个间隔收不到客户端数据时关闭连接；0表示不启用心跳
+         */
+        private long heartbeatIntervalMs = 10000;
+
+        /**
+         * 心跳调度线程数
+         */
+        private int heartbeatPoolSize = 1;
+
+        /**
+         * 单次写入连接的时间上限（毫秒），超过后关闭连接，避免卡住的连接长期占用出站线程
+         */
+        private int sendTimeLimitMs = 5000;
+
+        /**
+         * 连接正在写入时其他消息的缓冲字节数上限，超过后关闭连接
+         */
+        private int sendBufferSizeLimit = 1024 * 1024;
+
+        /**
+         * 客户端发来的单个STOMP消息字节数上限
+         */
+        private int messageSizeLimit = 128 * 1024;
+
+        /**
+         * 建立连接后等待第一个STOMP帧的时间（毫秒），超时关闭连接
+         */
+        private int timeToFirstMessageMs = 30000;
+
+        /**
+         * 行情专用原生WebSocket端点路径，不经过STOMP和SockJS；为空表示不注册
+         */
+        private String marketEndpoint = "/ws-market";
+
+        public ChannelExecutor getInbound() {
+            return inbound;
+        }
+
+        public void setInbound(ChannelExecutor inbound) {
+            this.inbound = inbound;
+        }
+
+        public ChannelExecutor getOutbound() {
+            return outbound;
+        }
+
+        public void setOutbound(ChannelExecutor outbound) {
+            this.outbound = outbound;
+        }
+
+        public long getHeartbeatIntervalMs() {
+            return heartbeatIntervalMs;
+        }
+
+        public void setHeartbeatIntervalMs(long heartbeatIntervalMs) {
+            this.heartbeatIntervalMs = heartbeatIntervalMs;
+        }
+
+        public int getHeartbeatPoolSize() {
+            return heartbeatPoolSize;
+        }
+
+        public void setHeartbeatPoolSize(int heartbeatPoolSize) {
+            this.heartbeatPoolSize = heartbeatPoolSize;
+        }
+
+        public int getSendTimeLimitMs() {
+            return sendTimeLimitMs;
+        }
+
+        public void setSendTimeLimitMs(int sendTimeLimitMs) {
+            this.sendTimeLimitMs = sendTimeLimitMs;
+        }
+
+        public int getSendBufferSizeLimit() {
+            return sendBufferSizeLimit;
+        }
+
+        public void setSendBufferSizeLimit(int sendBufferSizeLimit) {
+            this.sendBufferSizeLimit = sendBufferSizeLimit;
+        }
+
+        public int getMessageSizeLimit() {
+            return messageSizeLimit;
+        }
+
+        public void setMessageSizeLimit(int messageSizeLimit) {
+            this.messageSizeLimit = messageSizeLimit;
+        }
+
+        public int getTimeToFirstMessageMs() {
+            return timeToFirstMessageMs;
+        }
+
+        public void setTimeToFirstMessageMs(int timeToFirstMessageMs) {
+            this.timeToFirstMessageMs = timeToFirstMessageMs;
+        }
+
+        public String getMarketEndpoint() {
+            return marketEndpoint;
+        }
+
+        public void setMarketEndpoint(String marketEndpoint) {
+            this.marketEndpoint = marketEndpoint;
+        }
+    }
+
+    /**
+     * STOMP通道线程池配置
+     * 任务队列满且线程数达到最大值后拒绝消息
+     */
+    public static class ChannelExecutor {
+
+        /**
+         * 核心线程数
+         */
+        private int corePoolSize;
+
+        /**
+         * 最大线程数，队列满后才会创建核心线程之外的线程
+         */
+        private int maxPoolSize;
+
+        /**
+         * 任务队列容量
+         */
+        private int queueCapacity;
+
+        /**
+         * 核心线程之外的线程空闲多久后回收（秒）
+         */
+        private int keepAliveSeconds = 60;
+
+        public ChannelExecutor() {
+        }
+
+        public ChannelExecutor(int corePoolSize, int maxPoolSize, int queueCapacity) {
+            this.corePoolSize = corePoolSize;
+            this.maxPoolSize = maxPoolSize;
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getCorePoolSize() {
+            return corePoolSize;
+        }
+
+        public void setCorePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+        }
+
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getKeepAliveSeconds() {
+            return keepAliveSeconds;
+        }
+
+        public void setKeepAliveSeconds(int keepAliveSeconds) {
+            this.keepAliveSeconds = keepAliveSeconds;
+        }
+    }
 }
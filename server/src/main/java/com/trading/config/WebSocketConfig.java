@@ -1,23 +1,86 @@
 package com.trading.config;
 
+import com.trading.service.MarketDataLatencyService;
+import com.trading.service.MarketDataPushService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.config.TaskExecutorRegistration;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * WebSocket配置类
  * 用于与前端建立实时通信连接
+ * 通道线程池、代理心跳和传输限制由 trading.websocket 配置
  */
 @Configuration
 @EnableWebSocketMessageBroker
-public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    // Tomcat 阻塞写入超时的会话属性，默认20秒
+    private static final String BLOCKING_SEND_TIMEOUT_PROPERTY = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    @Autowired
+    private MarketDataLatencyService marketDataLatencyService;
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    // 代理心跳调度器，不注册为Bean，避免影响 @Scheduled 任务对调度器的选择
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+
+    // WebSocket会话ID（即STOMP消息头中的 simpSessionId） -> 写入跟踪
+    private final ConcurrentHashMap<String, WriteTrackingSession> trackedSessions = new ConcurrentHashMap<>();
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // 启用简单消息代理，用于向客户端发送消息
-        config.enableSimpleBroker("/topic", "/queue");
+        TradingConfig.WebSocket websocket = tradingConfig.getWebsocket();
+        long heartbeat = websocket.getHeartbeatIntervalMs();
+
+        // 启用简单消息代理，用于向客户端发送消息。
+        // 不启用 preservePublishOrder：它在进入出站通道之前按会话排队，行情推送的会话背压统计不到这部分积压
+        if (heartbeat > 0) {
+            heartbeatScheduler = new ThreadPoolTaskScheduler();
+            heartbeatScheduler.setPoolSize(websocket.getHeartbeatPoolSize());
+            heartbeatScheduler.setThreadNamePrefix("stomp-heartbeat-");
+            heartbeatScheduler.setDaemon(true);
+            heartbeatScheduler.initialize();
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[] {heartbeat, heartbeat})
+                    .setTaskScheduler(heartbeatScheduler);
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
         // 设置应用程序目标前缀
         config.setApplicationDestinationPrefixes("/app");
         // 设置用户目标前缀
@@ -31,4 +94,192 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        TradingConfig.WebSocket websocket = tradingConfig.getWebsocket();
+        registration.setSendTimeLimit(websocket.getSendTimeLimitMs())
+                .setSendBufferSizeLimit(websocket.getSendBufferSizeLimit())
+                .setMessageSizeLimit(websocket.getMessageSizeLimit())
+                .setTimeToFirstMessage(websocket.getTimeToFirstMessageMs())
+                .addDecoratorFactory(this::decorateHandler);
+        logger.info("WebSocket传输限制: sendTimeLimit={}ms, sendBufferSizeLimit={}, messageSizeLimit={}, heartbeat={}ms",
+                websocket.getSendTimeLimitMs(), websocket.getSendBufferSizeLimit(),
+                websocket.getMessageSizeLimit(), websocket.getHeartbeatIntervalMs());
+        if (tradingConfig.getPush().getMaxSessionQueuedBytes() * 2 > websocket.getSendBufferSizeLimit()) {
+            logger.warn("trading.push.max-session-queued-bytes={} 未明显低于 send-buffer-size-limit={}，"
+                    + "慢连接可能在行情推送暂停之前因发送缓冲超限被关闭",
+                    tradingConfig.getPush().getMaxSessionQueuedBytes(), websocket.getSendBufferSizeLimit());
+        }
+    }
+
+    /**
+     * 发送时间上限只在另一个线程等待写入时才检查，正在阻塞写入的线程本身要等容器的写入超时，
+     * 因此把原生会话的阻塞写入超时也设为发送时间上限，卡住的连接不会长期占用出站线程。
+     *
+     * 交给STOMP处理器的会话包装为 {@link WriteTrackingSession}，位于Spring的并发发送装饰器之下，
+     * 只有真正写入连接的消息才会经过它；另一个线程正在写入时，消息只是进入装饰器的缓冲区。
+     */
+    private WebSocketHandler decorateHandler(WebSocketHandler handler) {
+        long timeout = tradingConfig.getWebsocket().getSendTimeLimitMs();
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                if (session instanceof NativeWebSocketSession) {
+                    Session nativeSession = ((NativeWebSocketSession) session).getNativeSession(Session.class);
+                    if (nativeSession != null) {
+                        nativeSession.getUserProperties().put(BLOCKING_SEND_TIMEOUT_PROPERTY, timeout);
+                    }
+                }
+                WriteTrackingSession tracked = new WriteTrackingSession(session);
+                trackedSessions.put(session.getId(), tracked);
+                super.afterConnectionEstablished(tracked);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                try {
+                    super.afterConnectionClosed(session, closeStatus);
+                } finally {
+                    WriteTrackingSession tracked = trackedSessions.remove(session.getId());
+                    if (tracked != null) {
+                        tracked.discard();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * 容器的消息缓冲区与 STOMP 消息大小上限一致，超过容器缓冲区的消息会被容器直接拒绝；
+     * 异步写入（行情原生端点使用）的超时与发送时间上限一致
+     */
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(tradingConfig.getWebsocket().getMessageSizeLimit());
+        container.setMaxBinaryMessageBufferSize(tradingConfig.getWebsocket().getMessageSizeLimit());
+        container.setAsyncSendTimeout((long) tradingConfig.getWebsocket().getSendTimeLimitMs());
+        return container;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        configureExecutor(registration.taskExecutor(), tradingConfig.getWebsocket().getInbound());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        configureExecutor(registration.taskExecutor(), tradingConfig.getWebsocket().getOutbound());
+        // 按会话统计出站通道和发送缓冲中排队的行情推送帧：帧进入出站通道时计入，
+        // 由 WriteTrackingSession 在写入连接后扣除并统计行情推送延迟
+        registration.interceptors(new ExecutorChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                Object outbound = message.getHeaders().get(MarketDataPushService.OUTBOUND_HEADER);
+                if (outbound instanceof MarketDataPushService.OutboundFrame) {
+                    ((MarketDataPushService.OutboundFrame) outbound).enqueued();
+                }
+                return message;
+            }
+
+            @Override
+            public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent,
+                                            Exception ex) {
+                Object outbound = message.getHeaders().get(MarketDataPushService.OUTBOUND_HEADER);
+                if ((!sent || ex != null) && outbound instanceof MarketDataPushService.OutboundFrame) {
+                    ((MarketDataPushService.OutboundFrame) outbound).dequeued(false);
+                }
+            }
+
+            @Override
+            public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+                // 交给发送装饰器之前登记，处理线程自己完成写入时写入发生在 afterMessageHandled 之前
+                WriteTrackingSession tracked = trackedSession(message);
+                if (tracked != null) {
+                    tracked.handed.add(message);
+                }
+                return message;
+            }
+
+            @Override
+            public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+                                            Exception ex) {
+                // 连接已关闭、不会再写入的推送帧在这里扣除，已登记的帧由写入或关闭扣除，重复扣除无效
+                Object outbound = message.getHeaders().get(MarketDataPushService.OUTBOUND_HEADER);
+                if (outbound instanceof MarketDataPushService.OutboundFrame && trackedSession(message) == null) {
+                    ((MarketDataPushService.OutboundFrame) outbound).dequeued(false);
+                }
+            }
+        });
+    }
+
+    private WriteTrackingSession trackedSession(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? trackedSessions.get(sessionId) : null;
+    }
+
+    /**
+     * 记录交给发送装饰器、尚未写入连接的出站消息
+     * 每条出站消息对应一次写入，写入按进入装饰器的顺序进行，写入返回后按登记顺序取出一条消息：
+     * 推送帧从会话积压中扣除并统计写入延迟。同一会话的消息被多个出站线程同时处理时，
+     * 登记顺序与写入顺序可能互换，积压的帧数仍然准确，单帧的延迟只是近似值。
+     */
+    private final class WriteTrackingSession extends WebSocketSessionDecorator {
+
+        private final Queue<Message<?>> handed = new ConcurrentLinkedQueue<>();
+
+        WriteTrackingSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            boolean written = false;
+            try {
+                super.sendMessage(message);
+                written = true;
+            } finally {
+                Message<?> handedMessage = handed.poll();
+                if (handedMessage != null) {
+                    written(handedMessage, written);
+                }
+            }
+        }
+
+        /**
+         * 连接已关闭，未写入的推送帧从会话积压中扣除
+         */
+        void discard() {
+            Message<?> message;
+            while ((message = handed.poll()) != null) {
+                written(message, false);
+            }
+        }
+
+        private void written(Message<?> message, boolean written) {
+            Object outbound = message.getHeaders().get(MarketDataPushService.OUTBOUND_HEADER);
+            if (outbound instanceof MarketDataPushService.OutboundFrame) {
+                ((MarketDataPushService.OutboundFrame) outbound).dequeued(written);
+            }
+            Object trace = message.getHeaders().get(MarketDataLatencyService.TRACE_HEADER);
+            if (written && trace instanceof MarketDataLatencyService.Trace) {
+                marketDataLatencyService.recordWritten((MarketDataLatencyService.Trace) trace);
+            }
+        }
+    }
+
+    private static void configureExecutor(TaskExecutorRegistration registration, TradingConfig.ChannelExecutor executor) {
+        registration.corePoolSize(executor.getCorePoolSize())
+                .maxPoolSize(Math.max(executor.getCorePoolSize(), executor.getMaxPoolSize()))
+                .queueCapacity(executor.getQueueCapacity())
+                .keepAliveSeconds(executor.getKeepAliveSeconds());
+    }
+
+    @Override
+    public void destroy() {
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.shutdown();
+        }
+    }
 }
@@ -179,6 +179,22 @@ public class AuthController {
             Set<String> exchangeSet = exchanges != null ? new HashSet<>(exchanges) : new HashSet<>();
             Set<String> instrumentSet = instruments != null ? new HashSet<>(instruments) : new HashSet<>();
 
+            // 推送格式，默认JSON；二进制格式需要通过原生WebSocket（/ws/websocket 或行情原生端点 /ws-market）连接
+            String format = (String) request.get("format");
+            if (format == null || format.trim().isEmpty()) {
+                format = MarketDataPushService.PUSH_FORMAT_JSON;
+            }
+            if (!MarketDataPushService.PUSH_FORMAT_JSON.equals(format)
+                    && !MarketDataPushService.PUSH_FORMAT_BINARY.equals(format)) {
+                return ApiResponse.error("不支持的推送格式: " + format);
+            }
+
+            // 推送间隔（毫秒），未指定时使用配置的默认值
+            Object pushInterval = request.get("pushIntervalMs");
+            if (pushInterval != null && !(pushInterval instanceof Number)) {
+                return ApiResponse.error("pushIntervalMs必须为数字");
+            }
+
             // 更新订阅
             boolean success = userSessionService.updateSubscription(sessionId, exchangeSet, instrumentSet);
             if (!success) {
@@ -186,10 +202,14 @@ public class AuthController {
             }
 
             // 立即推送全量数据给该会话
+            marketDataPushService.setPushFormat(sessionId, format);
+            if (pushInterval != null) {
+                marketDataPushService.setPushInterval(sessionId, ((Number) pushInterval).longValue());
+            }
             marketDataPushService.pushFullDataToSession(sessionId);
 
-            logger.info("更新用户订阅: sessionId={}, exchanges={}, instruments={}", 
-                       sessionId, exchangeSet, instrumentSet);
+            logger.info("更新用户订阅: sessionId={}, exchanges={}, instruments={}, format={}, pushIntervalMs={}", 
+                       sessionId, exchangeSet, instrumentSet, format, pushInterval);
 
             return ApiResponse.success("订阅更新成功", "已开始推送行情数据");
 
@@ -199,6 +219,34 @@ public class AuthController {
         }
     }
 
+    /**
+     * 行情重同步
+     * 客户端发现推送序号不连续或本地数据异常时调用，服务端立即推送一次全量快照
+     */
+    @PostMapping("/resync")
+    public ApiResponse<String> resync(@RequestBody Map<String, String> request) {
+        try {
+            String sessionId = request.get("sessionId");
+            if (sessionId == null || sessionId.trim().isEmpty()) {
+                return ApiResponse.error("sessionId不能为空");
+            }
+
+            if (!userSessionService.isValidSession(sessionId)) {
+                return ApiResponse.error("会话无效或已过期");
+            }
+
+            marketDataPushService.pushFullDataToSession(sessionId);
+
+            logger.info("行情重同步: sessionId={}", sessionId);
+
+            return ApiResponse.success("重同步成功", "已推送全量行情数据");
+
+        } catch (Exception e) {
+            logger.error("行情重同步失败", e);
+            return ApiResponse.error("重同步失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取会话信息
      */
@@ -220,6 +268,8 @@ public class AuthController {
             sessionInfo.put("subscribedExchanges", session.getSubscribedExchanges());
             sessionInfo.put("subscribedInstruments", session.getSubscribedInstruments());
             sessionInfo.put("permissions", session.getPermissions());
+            // 推送间隔、出站积压和写入延迟
+            sessionInfo.put("push", marketDataPushService.getSessionPushStats(sessionId));
 
             return ApiResponse.success("获取会话信息成功", sessionInfo);
 
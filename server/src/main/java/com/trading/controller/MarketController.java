@@ -1,13 +1,29 @@
 package com.trading.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.trading.model.ApiResponse;
+import com.trading.model.Bar;
+import com.trading.service.InstrumentRegistry;
+import com.trading.service.MarketBarService;
+import com.trading.service.MarketDataLatencyService;
 import com.trading.service.MarketService;
+import com.trading.service.TickJournalService;
+import com.trading.service.TickStoreReader;
+import com.trading.service.TickStoreService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -25,6 +41,24 @@ public class MarketController {
     @Autowired
     private MarketService marketService;
 
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    @Autowired
+    private TickJournalService tickJournalService;
+
+    @Autowired
+    private MarketDataLatencyService marketDataLatencyService;
+
+    @Autowired
+    private MarketBarService marketBarService;
+
+    @Autowired
+    private TickStoreService tickStoreService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 获取行情连接状态
      */
@@ -34,6 +68,12 @@ public class MarketController {
         status.put("connected", marketService.isConnected());
         status.put("loggedIn", marketService.isLoggedIn());
         status.put("subscribedInstruments", marketService.getSubscribedInstruments());
+        status.put("ingest", marketService.getIngestStats());
+        status.put("journal", tickJournalService.getStats());
+        status.put("replay", marketService.getReplayStats());
+        status.put("load", marketService.getLoadStats());
+        status.put("bars", marketBarService.getStats());
+        status.put("tickStore", tickStoreService.getStats());
         status.put("timestamp", System.currentTimeMillis());
 
         return ApiResponse.success("获取行情状态成功", status);
@@ -190,6 +230,203 @@ public class MarketController {
         return ApiResponse.success("获取订阅列表成功", marketService.getSubscribedInstruments());
     }
 
+    /**
+     * 获取合约索引字典
+     * 二进制行情推送只携带合约索引，客户端据此还原合约代码；遇到未知索引时以 from 参数增量获取
+     */
+    @GetMapping("/instrument-index")
+    public ApiResponse<List<Map<String, Object>>> getInstrumentIndex(@RequestParam(defaultValue = "0") int from) {
+        int size = instrumentRegistry.size();
+        int start = Math.max(from, 0);
+        List<Map<String, Object>> instruments = new ArrayList<>(Math.max(size - start, 0));
+        for (int index = start; index < size; index++) {
+            Map<String, Object> instrument = new HashMap<>();
+            instrument.put("index", index);
+            instrument.put("instrumentId", instrumentRegistry.getInstrumentId(index));
+            instrument.put("exchangeId", instrumentRegistry.getExchangeId(index));
+            instruments.add(instrument);
+        }
+        return ApiResponse.success("获取合约索引成功", instruments);
+    }
+
+    /**
+     * 查询K线，按时间升序，最后一根为未收盘的当前K线
+     * @param period 周期：1s、1m、5m、15m、1d
+     * @param from 开始时间（纪元毫秒），0表示不限制
+     * @param limit 最多返回最近的K线数量
+     */
+    @GetMapping("/bars/{instrumentId}")
+    public ApiResponse<List<Bar>> getBars(@PathVariable String instrumentId,
+                                          @RequestParam(defaultValue = "1m") String period,
+                                          @RequestParam(defaultValue = "0") long from,
+                                          @RequestParam(defaultValue = "500") int limit) {
+        List<Bar> bars = marketBarService.getBars(instrumentId, period, from, limit);
+        if (bars == null) {
+            return ApiResponse.error(400, "不支持的K线周期: " + period + "，可选: " + MarketBarService.PERIODS);
+        }
+        return ApiResponse.success("查询K线成功", bars);
+    }
+
+    /**
+     * 查询历史逐笔行情，按接收时间升序
+     * 结果边读边写入响应（格式与 ApiResponse 相同，data 为行情数组），不在内存中组装整个结果集；
+     * 只读取请求的档位对应的列。
+     * @param tradingDay 交易日 yyyyMMdd，默认当前交易日
+     * @param from 开始时间（含），纪元毫秒或 HH:mm[:ss[.SSS]]，默认交易日开始
+     * @param to 结束时间（不含），格式同 from，默认交易日结束
+     * @param depth 返回的盘口档位数，0~5
+     * @param limit 最多返回的行情数量，0表示不限制
+     */
+    @GetMapping("/ticks/{instrumentId}")
+    public ResponseEntity<StreamingResponseBody> getTicks(@PathVariable String instrumentId,
+                                                          @RequestParam(required = false) String tradingDay,
+                                                          @RequestParam(required = false) String from,
+                                                          @RequestParam(required = false) String to,
+                                                          @RequestParam(defaultValue = "5") int depth,
+                                                          @RequestParam(defaultValue = "0") long limit) {
+        String day = tradingDay != null ? tradingDay : tickStoreService.getTradingDay();
+        if (!day.matches("\\d{8}")) {
+            return errorResponse(ApiResponse.error(400, "交易日格式错误，应为yyyyMMdd: " + day));
+        }
+        if (depth < 0 || depth > 5) {
+            return errorResponse(ApiResponse.error(400, "盘口档位数应为0~5: " + depth));
+        }
+
+        TickStoreReader reader;
+        try {
+            reader = tickStoreService.openReader(instrumentId, day);
+        } catch (IOException e) {
+            logger.error("打开历史行情失败: {} {}", instrumentId, day, e);
+            return errorResponse(ApiResponse.error("打开历史行情失败: " + e.getMessage()));
+        }
+        if (reader == null) {
+            return errorResponse(ApiResponse.error(404, "没有历史行情: " + instrumentId + " " + day));
+        }
+
+        long fromNanos = from != null ? tickStoreService.parseTime(from, reader) : 0;
+        long toNanos = to != null ? tickStoreService.parseTime(to, reader) : Long.MAX_VALUE;
+        if (fromNanos < 0 || toNanos < 0) {
+            reader.close();
+            return errorResponse(ApiResponse.error(400, "时间格式错误，应为纪元毫秒或HH:mm[:ss[.SSS]]"));
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                writeTicks(out, reader, fromNanos, toNanos, depth, limit > 0 ? limit : Long.MAX_VALUE);
+            } finally {
+                reader.close();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private void writeTicks(OutputStream out, TickStoreReader reader, long fromNanos, long toNanos,
+                            int depth, long limit) throws IOException {
+        char[] updateTime = new char[12];
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeBooleanField("success", true);
+            generator.writeNumberField("code", 200);
+            generator.writeStringField("message", "查询历史行情成功");
+            generator.writeArrayFieldStart("data");
+
+            long count = 0;
+            reader.seek(fromNanos);
+            while (count < limit && reader.next()) {
+                long timestampNanos = reader.getTimestampNanos();
+                if (timestampNanos >= toNanos) {
+                    break;
+                }
+                generator.writeStartObject();
+                generator.writeNumberField("timestamp", timestampNanos / 1_000_000L);
+                int updateTimeMillis = reader.getUpdateTimeMillis();
+                if (updateTimeMillis >= 0) {
+                    generator.writeFieldName("updateTime");
+                    generator.writeString(updateTime, 0, formatTimeOfDay(updateTimeMillis, updateTime));
+                }
+                generator.writeNumberField("lastPrice", reader.getLastPrice());
+                generator.writeNumberField("volume", reader.getVolume());
+                generator.writeNumberField("turnover", reader.getTurnover());
+                generator.writeNumberField("openInterest", reader.getOpenInterest());
+                if (depth > 0) {
+                    generator.writeArrayFieldStart("bidPrice");
+                    for (int level = 1; level <= depth; level++) {
+                        generator.writeNumber(reader.getBidPrice(level));
+                    }
+                    generator.writeEndArray();
+                    generator.writeArrayFieldStart("bidVolume");
+                    for (int level = 1; level <= depth; level++) {
+                        generator.writeNumber(reader.getBidVolume(level));
+                    }
+                    generator.writeEndArray();
+                    generator.writeArrayFieldStart("askPrice");
+                    for (int level = 1; level <= depth; level++) {
+                        generator.writeNumber(reader.getAskPrice(level));
+                    }
+                    generator.writeEndArray();
+                    generator.writeArrayFieldStart("askVolume");
+                    for (int level = 1; level <= depth; level++) {
+                        generator.writeNumber(reader.getAskVolume(level));
+                    }
+                    generator.writeEndArray();
+                }
+                generator.writeEndObject();
+                count++;
+            }
+
+            generator.writeEndArray();
+            generator.writeNumberField("timestamp", System.currentTimeMillis());
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * 把当日毫秒格式化为 HH:mm:ss.SSS
+     * @return 字符数
+     */
+    private static int formatTimeOfDay(int millis, char[] chars) {
+        int seconds = millis / 1000;
+        putTwoDigits(chars, 0, seconds / 3600);
+        chars[2] = ':';
+        putTwoDigits(chars, 3, seconds / 60 % 60);
+        chars[5] = ':';
+        putTwoDigits(chars, 6, seconds % 60);
+        chars[8] = '.';
+        int ms = millis % 1000;
+        chars[9] = (char) ('0' + ms / 100);
+        chars[10] = (char) ('0' + ms / 10 % 10);
+        chars[11] = (char) ('0' + ms % 10);
+        return 12;
+    }
+
+    private static void putTwoDigits(char[] chars, int offset, int value) {
+        chars[offset] = (char) ('0' + value / 10);
+        chars[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private ResponseEntity<StreamingResponseBody> errorResponse(ApiResponse<Object> response) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, response));
+    }
+
+    /**
+     * 获取行情链路延迟统计
+     * 各阶段（ingest、dispatch、serialize、outbound、endToEnd）及各交易所的分位数，单位微秒
+     */
+    @GetMapping("/latency")
+    public ApiResponse<Map<String, Object>> getLatency() {
+        return ApiResponse.success("获取行情延迟统计成功", marketDataLatencyService.getStats());
+    }
+
+    /**
+     * 清空行情链路延迟统计
+     */
+    @PostMapping("/latency/reset")
+    public ApiResponse<Object> resetLatency() {
+        marketDataLatencyService.reset();
+        return ApiResponse.success("行情延迟统计已清空", null);
+    }
+
     /**
      * 行情健康检查
      */
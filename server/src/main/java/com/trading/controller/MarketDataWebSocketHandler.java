@@ -0,0 +1,188 @@
+package com.trading.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.service.MarketDataPushService;
+import com.trading.service.UserSessionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 行情原生WebSocket端点
+ * 只用于行情推送，不经过STOMP代理和SockJS，推送帧由推送线程直接写入连接；报单和其他消息仍走 /ws 的STOMP。
+ *
+ * 协议:
+ * <pre>
+ * 连接   ws://host:port/ws-market?sessionId={前端登录返回的sessionId}，会话无效时握手返回403
+ * 订阅   {"action":"subscribe","exchanges":["SHFE"],"instruments":["rb2405"],"format":"binary","pushIntervalMs":100}
+ *        字段含义与 /api/auth/subscribe 相同，替换会话的全部订阅，空列表即取消订阅
+ * 重同步 {"action":"resync"}
+ * 推送   每帧一条二进制WebSocket消息：format 为 json 时是UTF-8编码的JSON（与STOMP推送的消息体相同），
+ *        为 binary 时是 MarketDataBinaryEncoder 格式；连接建立和每次订阅后先推送一次全量快照
+ * </pre>
+ * 请求格式错误时以 1003 关闭连接，原因见关闭帧。
+ */
+@Component
+public class MarketDataWebSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataWebSocketHandler.class);
+
+    private static final String SESSION_ID_ATTRIBUTE = "marketSessionId";
+
+    @Autowired
+    private UserSessionService userSessionService;
+
+    @Autowired
+    private MarketDataPushService marketDataPushService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 握手时校验 sessionId 参数对应有效的前端会话
+     */
+    public HandshakeInterceptor sessionInterceptor() {
+        return new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                String sessionId = UriComponentsBuilder.fromUri(request.getURI()).build()
+                        .getQueryParams().getFirst("sessionId");
+                if (sessionId == null || !userSessionService.isValidSession(sessionId)) {
+                    response.setStatusCode(HttpStatus.FORBIDDEN);
+                    return false;
+                }
+                attributes.put(SESSION_ID_ATTRIBUTE, sessionId);
+                return true;
+            }
+
+            @Override
+            public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Exception exception) {
+            }
+        };
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession connection) throws Exception {
+        String sessionId = sessionId(connection);
+        if (!marketDataPushService.attachDirectConnection(sessionId, connection)) {
+            connection.close(CloseStatus.POLICY_VIOLATION.withReason("会话无效或已过期"));
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession connection, TextMessage message) throws Exception {
+        String sessionId = sessionId(connection);
+        Map<?, ?> request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), Map.class);
+        } catch (IOException e) {
+            reject(connection, "请求不是JSON对象");
+            return;
+        }
+
+        Object action = request.get("action");
+        if ("subscribe".equals(action)) {
+            subscribe(connection, sessionId, request);
+        } else if ("resync".equals(action)) {
+            marketDataPushService.pushFullDataToSession(sessionId);
+        } else {
+            reject(connection, "不支持的操作: " + action);
+        }
+    }
+
+    private void subscribe(WebSocketSession connection, String sessionId, Map<?, ?> request) throws IOException {
+        Set<String> exchanges = toSet(request.get("exchanges"));
+        Set<String> instruments = toSet(request.get("instruments"));
+        if (exchanges == null || instruments == null) {
+            reject(connection, "exchanges和instruments必须为字符串列表");
+            return;
+        }
+
+        Object format = request.get("format");
+        if (format == null) {
+            format = MarketDataPushService.PUSH_FORMAT_JSON;
+        }
+        if (!MarketDataPushService.PUSH_FORMAT_JSON.equals(format)
+                && !MarketDataPushService.PUSH_FORMAT_BINARY.equals(format)) {
+            reject(connection, "不支持的推送格式: " + format);
+            return;
+        }
+
+        Object pushInterval = request.get("pushIntervalMs");
+        if (pushInterval != null && !(pushInterval instanceof Number)) {
+            reject(connection, "pushIntervalMs必须为数字");
+            return;
+        }
+
+        if (!userSessionService.updateSubscription(sessionId, exchanges, instruments)) {
+            connection.close(CloseStatus.POLICY_VIOLATION.withReason("会话无效或已过期"));
+            return;
+        }
+        marketDataPushService.setPushFormat(sessionId, (String) format);
+        if (pushInterval != null) {
+            marketDataPushService.setPushInterval(sessionId, ((Number) pushInterval).longValue());
+        }
+        marketDataPushService.pushFullDataToSession(sessionId);
+
+        logger.info("行情原生端点更新订阅: sessionId={}, exchanges={}, instruments={}, format={}, pushIntervalMs={}",
+                sessionId, exchanges, instruments, format, pushInterval);
+    }
+
+    /**
+     * @return 不是字符串列表时返回null，未指定时返回空集合
+     */
+    private static Set<String> toSet(Object value) {
+        Set<String> result = new HashSet<>();
+        if (value == null) {
+            return result;
+        }
+        if (!(value instanceof Collection)) {
+            return null;
+        }
+        for (Object item : (Collection<?>) value) {
+            if (!(item instanceof String)) {
+                return null;
+            }
+            result.add((String) item);
+        }
+        return result;
+    }
+
+    private void reject(WebSocketSession connection, String reason) throws IOException {
+        logger.warn("行情原生端点请求无效，关闭连接: sessionId={}, reason={}", sessionId(connection), reason);
+        connection.close(CloseStatus.NOT_ACCEPTABLE.withReason(reason));
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession connection, Throwable exception) {
+        logger.debug("行情原生端点连接异常: sessionId={}, error={}", sessionId(connection), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession connection, CloseStatus status) {
+        marketDataPushService.detachDirectConnection(sessionId(connection), connection);
+    }
+
+    private static String sessionId(WebSocketSession connection) {
+        return (String) connection.getAttributes().get(SESSION_ID_ATTRIBUTE);
+    }
+}
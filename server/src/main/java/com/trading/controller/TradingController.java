@@ -1,6 +1,10 @@
 package com.trading.controller;
 
 import com.trading.model.ApiResponse;
+import com.trading.model.Order;
+import com.trading.service.OrderBookService;
+import com.trading.service.PositionService;
+import com.trading.service.PreTradeRiskService;
 import com.trading.service.TradingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +29,15 @@ public class TradingController {
     @Autowired
     private TradingService tradingService;
 
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private PreTradeRiskService preTradeRiskService;
+
     /**
      * 获取连接状态
      */
@@ -33,6 +46,8 @@ public class TradingController {
         Map<String, Object> status = new HashMap<>();
         status.put("connected", tradingService.isConnected());
         status.put("loggedIn", tradingService.isLoggedIn());
+        status.put("orderBook", orderBookService.getStats());
+        status.put("risk", preTradeRiskService.getStats());
         status.put("timestamp", System.currentTimeMillis());
 
         return ApiResponse.success("获取状态成功", status);
@@ -154,12 +169,21 @@ public class TradingController {
     }
 
     /**
-     * 查询持仓
+     * 查询持仓，从本地持仓返回，reconcile=true 时先向柜台对账
      */
     @GetMapping("/position")
-    public CompletableFuture<ApiResponse<Object>> queryPosition(@RequestParam(required = false) String instrumentId) {
-        logger.info("收到查询持仓请求: {}", instrumentId);
-        return tradingService.queryPosition(instrumentId);
+    public CompletableFuture<ApiResponse<Object>> queryPosition(@RequestParam(required = false) String instrumentId,
+                                                            @RequestParam(defaultValue = "false") boolean reconcile) {
+        logger.info("收到查询持仓请求: {}, 对账: {}", instrumentId, reconcile);
+        return tradingService.queryPosition(instrumentId, reconcile);
+    }
+
+    /**
+     * 查询账户盈亏汇总
+     */
+    @GetMapping("/pnl")
+    public ApiResponse<Object> getPnl() {
+        return ApiResponse.success("查询盈亏成功", positionService.getAccountSummary());
     }
 
     /**
@@ -172,21 +196,42 @@ public class TradingController {
     }
 
     /**
-     * 查询报单
+     * 查询报单，从本地报单簿返回，reconcile=true 时先向柜台对账
      */
     @GetMapping("/orders")
-    public CompletableFuture<ApiResponse<Object>> queryOrders(@RequestParam(required = false) String instrumentId) {
-        logger.info("收到查询报单请求: {}", instrumentId);
-        return tradingService.queryOrders(instrumentId);
+    public CompletableFuture<ApiResponse<Object>> queryOrders(@RequestParam(required = false) String instrumentId,
+                                                          @RequestParam(defaultValue = "false") boolean reconcile) {
+        logger.info("收到查询报单请求: {}, 对账: {}", instrumentId, reconcile);
+        return tradingService.queryOrders(instrumentId, reconcile);
+    }
+
+    /**
+     * 按报单引用查询报单及其成交，未指定前置编号和会话编号时查询当前会话的报单
+     */
+    @GetMapping("/orders/{orderRef}")
+    public ApiResponse<Object> getOrder(@PathVariable String orderRef,
+                                        @RequestParam(required = false) Integer frontId,
+                                        @RequestParam(required = false) Integer sessionId) {
+        int front = frontId != null ? frontId : tradingService.getFrontId();
+        int session = sessionId != null ? sessionId : tradingService.getSessionId();
+        Order order = orderBookService.getOrder(front, session, orderRef);
+        if (order == null) {
+            return ApiResponse.error(404, "报单不存在: " + orderRef);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("order", order);
+        result.put("trades", orderBookService.getOrderTrades(front, session, orderRef));
+        return ApiResponse.success("查询报单成功", result);
     }
 
     /**
-     * 查询成交
+     * 查询成交，从本地报单簿返回，reconcile=true 时先向柜台对账
      */
     @GetMapping("/trades")
-    public CompletableFuture<ApiResponse<Object>> queryTrades(@RequestParam(required = false) String instrumentId) {
-        logger.info("收到查询成交请求: {}", instrumentId);
-        return tradingService.queryTrades(instrumentId);
+    public CompletableFuture<ApiResponse<Object>> queryTrades(@RequestParam(required = false) String instrumentId,
+                                                          @RequestParam(defaultValue = "false") boolean reconcile) {
+        logger.info("收到查询成交请求: {}, 对账: {}", instrumentId, reconcile);
+        return tradingService.queryTrades(instrumentId, reconcile);
     }
 
     /**
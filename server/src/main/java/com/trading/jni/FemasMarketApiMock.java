@@ -1,8 +1,11 @@
 package com.trading.jni;
 
+import com.trading.config.TradingConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -24,6 +27,9 @@ public class FemasMarketApiMock {
     private ScheduledExecutorService marketDataExecutor;
     private Random random = new Random();
 
+    // 压测模式的行情生成器，配置后不再按合约每秒生成行情
+    private volatile MarketDataLoadGenerator loadGenerator;
+
     /**
      * 创建行情API实例
      * @param flowPath 流文件路径
@@ -36,6 +42,22 @@ public class FemasMarketApiMock {
         return true;
     }
 
+    /**
+     * 启用压测模式，在首次订阅后由单独的生产线程按目标速率生成合成行情
+     */
+    public void configureLoad(TradingConfig.Load load) {
+        loadGenerator = new MarketDataLoadGenerator(this, load);
+        logger.info("行情压测模式已配置 - 合约数: {}, 目标速率: {}笔/秒", load.getInstruments(), load.getRatePerSecond());
+    }
+
+    /**
+     * 获取压测统计，未启用压测模式时返回空
+     */
+    public Map<String, Object> getLoadStats() {
+        MarketDataLoadGenerator generator = loadGenerator;
+        return generator != null ? generator.getStats() : Collections.emptyMap();
+    }
+
     /**
      * 注册行情前置机地址
      * @param frontAddress 前置机地址
@@ -76,6 +98,9 @@ public class FemasMarketApiMock {
         logger.info("模拟释放行情API实例");
         isApiCreated = false;
         isInitialized = false;
+        if (loadGenerator != null) {
+            loadGenerator.stop();
+        }
         if (marketDataExecutor != null) {
             marketDataExecutor.shutdown();
         }
@@ -97,7 +122,7 @@ public class FemasMarketApiMock {
             }
         }).start();
         
-        return 1;
+        return 0;
     }
 
     /**
@@ -116,7 +141,7 @@ public class FemasMarketApiMock {
             }
         }).start();
         
-        return 2;
+        return 0;
     }
 
     /**
@@ -139,8 +164,12 @@ public class FemasMarketApiMock {
                 }
             }).start();
         }
+
+        if (loadGenerator != null) {
+            loadGenerator.start();
+        }
         
-        return 3;
+        return 0;
     }
 
     /**
@@ -160,7 +189,7 @@ public class FemasMarketApiMock {
             }).start();
         }
         
-        return 4;
+        return 0;
     }
 
     /**
@@ -180,54 +209,61 @@ public class FemasMarketApiMock {
             }
         }).start();
         
-        return 5;
+        return 0;
     }
 
     /**
      * 开始推送模拟行情数据
      */
-    private void startMarketDataPush(String instrumentId) {
-        if (marketDataExecutor == null || marketDataExecutor.isShutdown()) {
+    protected void startMarketDataPush(String instrumentId) {
+        if (loadGenerator != null || marketDataExecutor == null || marketDataExecutor.isShutdown()) {
             return;
         }
         
         // 每秒推送一次行情数据
         marketDataExecutor.scheduleAtFixedRate(() -> {
             try {
-                // 生成模拟行情数据
-                double basePrice = getBasePrice(instrumentId);
-                double lastPrice = basePrice + (random.nextGaussian() * 10);
-                
-                onRtnDepthMarketData(
-                    instrumentId,
-                    "09:30:00",
-                    lastPrice,
-                    random.nextInt(10000) + 1000,
-                    lastPrice * (random.nextInt(1000) + 100),
-                    random.nextInt(50000) + 10000,
-                    // 买盘
-                    lastPrice - 1, random.nextInt(100) + 10,
-                    lastPrice - 2, random.nextInt(100) + 10,
-                    lastPrice - 3, random.nextInt(100) + 10,
-                    lastPrice - 4, random.nextInt(100) + 10,
-                    lastPrice - 5, random.nextInt(100) + 10,
-                    // 卖盘
-                    lastPrice + 1, random.nextInt(100) + 10,
-                    lastPrice + 2, random.nextInt(100) + 10,
-                    lastPrice + 3, random.nextInt(100) + 10,
-                    lastPrice + 4, random.nextInt(100) + 10,
-                    lastPrice + 5, random.nextInt(100) + 10,
-                    // 其他价格
-                    lastPrice + 350, lastPrice - 350,
-                    lastPrice - 50, lastPrice + 20,
-                    lastPrice + 30, lastPrice - 20
-                );
+                emitMarketData(instrumentId);
             } catch (Exception e) {
                 logger.error("推送模拟行情数据失败", e);
             }
         }, 1, 1, TimeUnit.SECONDS);
     }
 
+    /**
+     * 生成一笔模拟行情并回调 onRtnDepthMarketData
+     * @param instrumentId 合约代码
+     */
+    protected void emitMarketData(String instrumentId) {
+        double basePrice = getBasePrice(instrumentId);
+        double lastPrice = basePrice + (random.nextGaussian() * 10);
+
+        onRtnDepthMarketData(
+            instrumentId,
+            "09:30:00",
+            lastPrice,
+            random.nextInt(10000) + 1000,
+            lastPrice * (random.nextInt(1000) + 100),
+            random.nextInt(50000) + 10000,
+            // 买盘
+            lastPrice - 1, random.nextInt(100) + 10,
+            lastPrice - 2, random.nextInt(100) + 10,
+            lastPrice - 3, random.nextInt(100) + 10,
+            lastPrice - 4, random.nextInt(100) + 10,
+            lastPrice - 5, random.nextInt(100) + 10,
+            // 卖盘
+            lastPrice + 1, random.nextInt(100) + 10,
+            lastPrice + 2, random.nextInt(100) + 10,
+            lastPrice + 3, random.nextInt(100) + 10,
+            lastPrice + 4, random.nextInt(100) + 10,
+            lastPrice + 5, random.nextInt(100) + 10,
+            // 其他价格
+            lastPrice + 350, lastPrice - 350,
+            lastPrice - 50, lastPrice + 20,
+            lastPrice + 30, lastPrice - 20
+        );
+    }
+
     /**
      * 获取合约基础价格
      */
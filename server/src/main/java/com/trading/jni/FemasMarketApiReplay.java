@@ -0,0 +1,417 @@
+package com.trading.jni;
+
+import com.trading.service.TickJournalReader;
+import com.trading.service.TickJournalRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 飞马行情API的历史行情回放实现 - 用于压力测试和问题复现
+ * 连接、登录、订阅等流程沿用模拟实现；配置回放源后，不再生成随机行情，
+ * 而是在首次订阅后由回放线程按原始时间间隔（可按倍速缩放，或不等待尽快发送）回调 onRtnDepthMarketData。
+ * 未配置回放源时与 {@link FemasMarketApiMock} 行为一致。
+ *
+ * 回放源:
+ * <ul>
+ *   <li>行情日志交易日目录（如 ./journal/20240101），多个交易所的日志按接收时间归并</li>
+ *   <li>CSV文件，首行为列名，列名与 onRtnDepthMarketData 的参数名一致；
+ *       可选 timestamp 列（纪元毫秒）作为时间基准，缺省时使用 updateTime（HH:mm:ss[.SSS]）</li>
+ * </ul>
+ */
+public class FemasMarketApiReplay extends FemasMarketApiMock {
+
+    private static final Logger logger = LoggerFactory.getLogger(FemasMarketApiReplay.class);
+
+    // 提前量超过该值时休眠，否则直接发送
+    private static final long PARK_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    // 回放配置，在 init 之前设置
+    private volatile Path replaySource;
+    private volatile double replaySpeed = 1.0;
+    private volatile boolean replayLoop;
+    private volatile String replayStartTime;
+
+    private volatile Thread replayThread;
+    private volatile boolean replayRunning;
+
+    // 统计
+    private final AtomicLong replayedCount = new AtomicLong(0);
+    private volatile long replayRounds;
+    private volatile long maxLagNanos;
+    private volatile boolean replayFinished;
+
+    /**
+     * 配置回放源
+     * @param source 行情日志交易日目录或CSV文件
+     * @param speed 回放倍速，小于等于0时不等待、尽快发送
+     * @param loop 回放结束后是否从头开始
+     * @param startTime 从该行情更新时间（HH:mm:ss）开始回放，为空时从头开始
+     */
+    public void configureReplay(String source, double speed, boolean loop, String startTime) {
+        this.replaySource = Paths.get(source);
+        this.replaySpeed = speed;
+        this.replayLoop = loop;
+        this.replayStartTime = startTime != null && !startTime.isEmpty() ? startTime : null;
+        logger.info("行情回放已配置 - 源: {}, 倍速: {}, 循环: {}, 起始时间: {}",
+                replaySource.toAbsolutePath(), speed > 0 ? speed : "尽快", loop, replayStartTime);
+    }
+
+    public boolean isReplayEnabled() {
+        return replaySource != null;
+    }
+
+    @Override
+    public int subscribeMarketData(String[] instrumentIds) {
+        int result = super.subscribeMarketData(instrumentIds);
+        if (replaySource != null) {
+            startReplay();
+        }
+        return result;
+    }
+
+    /**
+     * 回放模式下不生成随机行情
+     */
+    @Override
+    protected void startMarketDataPush(String instrumentId) {
+        if (replaySource == null) {
+            super.startMarketDataPush(instrumentId);
+        }
+    }
+
+    @Override
+    public void release() {
+        stopReplay();
+        super.release();
+    }
+
+    private synchronized void startReplay() {
+        if (replayThread != null) {
+            return;
+        }
+        replayRunning = true;
+        Thread thread = new Thread(this::runReplay, "MarketDataReplay");
+        thread.setDaemon(true);
+        replayThread = thread;
+        thread.start();
+    }
+
+    private synchronized void stopReplay() {
+        replayRunning = false;
+        Thread thread = replayThread;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runReplay() {
+        logger.info("开始回放行情: {}", replaySource);
+        try {
+            do {
+                long start = System.nanoTime();
+                long count = replayOnce();
+                replayRounds++;
+                logger.info("行情回放完成一轮 - 笔数: {}, 耗时: {}ms, 最大滞后: {}us",
+                        count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        TimeUnit.NANOSECONDS.toMicros(maxLagNanos));
+                if (count == 0) {
+                    break;
+                }
+            } while (replayLoop && replayRunning);
+        } catch (IOException e) {
+            logger.error("行情回放失败: {}", replaySource, e);
+        } finally {
+            replayFinished = true;
+        }
+    }
+
+    /**
+     * 完整回放一遍回放源
+     * @return 回放的笔数
+     */
+    private long replayOnce() throws IOException {
+        double speed = replaySpeed;
+        String startTime = replayStartTime;
+        long count = 0;
+        long firstTickNanos = 0;
+        long wallStart = 0;
+        boolean started = false;
+
+        try (ReplayCursor cursor = Files.isDirectory(replaySource)
+                ? new JournalCursor(replaySource) : new CsvCursor(replaySource)) {
+            while (replayRunning && cursor.next()) {
+                if (!started) {
+                    // 跳过起始时间之前的行情，找到起点后不再比较，以支持跨午夜的夜盘
+                    if (startTime != null && cursor.updateTime.compareTo(startTime) < 0) {
+                        continue;
+                    }
+                    started = true;
+                    firstTickNanos = cursor.timestampNanos;
+                    wallStart = System.nanoTime();
+                }
+
+                if (speed > 0) {
+                    long due = wallStart + (long) ((cursor.timestampNanos - firstTickNanos) / speed);
+                    long ahead = due - System.nanoTime();
+                    if (ahead > PARK_THRESHOLD_NANOS) {
+                        LockSupport.parkNanos(ahead);
+                    } else if (-ahead > maxLagNanos) {
+                        maxLagNanos = -ahead;
+                    }
+                }
+
+                emit(cursor);
+                count++;
+                replayedCount.incrementAndGet();
+            }
+        }
+        return count;
+    }
+
+    private void emit(ReplayCursor c) {
+        double[] v = c.values;
+        onRtnDepthMarketData(c.instrumentId, c.updateTime,
+            v[0], (long) v[1], v[2], v[3],
+            v[4], (int) v[5], v[6], (int) v[7],
+            v[8], (int) v[9], v[10], (int) v[11],
+            v[12], (int) v[13], v[14], (int) v[15],
+            v[16], (int) v[17], v[18], (int) v[19],
+            v[20], (int) v[21], v[22], (int) v[23],
+            v[24], v[25], v[26], v[27], v[28], v[29]);
+    }
+
+    /**
+     * 获取回放统计
+     */
+    public Map<String, Object> getReplayStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", replaySource != null);
+        if (replaySource != null) {
+            stats.put("source", replaySource.toAbsolutePath().toString());
+            stats.put("speed", replaySpeed);
+            stats.put("loop", replayLoop);
+            stats.put("replayedCount", replayedCount.get());
+            stats.put("rounds", replayRounds);
+            stats.put("maxLagMicros", TimeUnit.NANOSECONDS.toMicros(maxLagNanos));
+            stats.put("finished", replayFinished);
+        }
+        return stats;
+    }
+
+    /**
+     * 回放游标，字段顺序与 onRtnDepthMarketData 的数值参数一致
+     */
+    private abstract static class ReplayCursor implements Closeable {
+
+        // 数值字段名，与 onRtnDepthMarketData 中 updateTime 之后的参数一一对应
+        static final String[] VALUE_FIELDS = {
+            "lastPrice", "volume", "turnover", "openInterest",
+            "bidPrice1", "bidVolume1", "askPrice1", "askVolume1",
+            "bidPrice2", "bidVolume2", "askPrice2", "askVolume2",
+            "bidPrice3", "bidVolume3", "askPrice3", "askVolume3",
+            "bidPrice4", "bidVolume4", "askPrice4", "askVolume4",
+            "bidPrice5", "bidVolume5", "askPrice5", "askVolume5",
+            "upperLimitPrice", "lowerLimitPrice", "preClosePrice", "openPrice",
+            "highestPrice", "lowestPrice"
+        };
+
+        String instrumentId;
+        String updateTime;
+        long timestampNanos;
+        final double[] values = new double[VALUE_FIELDS.length];
+
+        /**
+         * 移动到下一笔行情
+         * @return 没有更多行情时返回false
+         */
+        abstract boolean next() throws IOException;
+    }
+
+    /**
+     * 行情日志游标，按接收时间归并多个交易所的日志
+     */
+    private static final class JournalCursor extends ReplayCursor {
+
+        private final List<TickJournalReader> readers = new ArrayList<>();
+        private final List<TickJournalRecord> heads = new ArrayList<>();
+
+        JournalCursor(Path directory) throws IOException {
+            for (String exchangeId : TickJournalReader.listExchanges(directory)) {
+                TickJournalReader reader = new TickJournalReader(directory, exchangeId);
+                TickJournalRecord record = new TickJournalRecord();
+                readers.add(reader);
+                heads.add(reader.next(record) ? record : null);
+            }
+            if (readers.isEmpty()) {
+                throw new IOException("回放目录中没有行情日志: " + directory);
+            }
+        }
+
+        @Override
+        boolean next() throws IOException {
+            int selected = -1;
+            for (int i = 0; i < heads.size(); i++) {
+                TickJournalRecord head = heads.get(i);
+                if (head != null && (selected < 0
+                        || head.getTimestampNanos() < heads.get(selected).getTimestampNanos())) {
+                    selected = i;
+                }
+            }
+            if (selected < 0) {
+                return false;
+            }
+
+            TickJournalRecord r = heads.get(selected);
+            instrumentId = r.getInstrumentId();
+            updateTime = r.getUpdateTime();
+            timestampNanos = r.getTimestampNanos();
+            values[0] = r.getLastPrice();
+            values[1] = r.getVolume();
+            values[2] = r.getTurnover();
+            values[3] = r.getOpenInterest();
+            for (int level = 1; level <= 5; level++) {
+                int base = level * 4;
+                values[base] = r.getBidPrice(level);
+                values[base + 1] = r.getBidVolume(level);
+                values[base + 2] = r.getAskPrice(level);
+                values[base + 3] = r.getAskVolume(level);
+            }
+            values[24] = r.getUpperLimitPrice();
+            values[25] = r.getLowerLimitPrice();
+            values[26] = r.getPreClosePrice();
+            values[27] = r.getOpenPrice();
+            values[28] = r.getHighestPrice();
+            values[29] = r.getLowestPrice();
+
+            if (!readers.get(selected).next(r)) {
+                heads.set(selected, null);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (TickJournalReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * CSV游标，按列名取值，缺少的数值列取0
+     */
+    private static final class CsvCursor extends ReplayCursor {
+
+        private static final long NANOS_PER_DAY = TimeUnit.DAYS.toNanos(1);
+
+        private final Path path;
+        private final BufferedReader reader;
+        private final int instrumentColumn;
+        private final int updateTimeColumn;
+        private final int timestampColumn;
+        private final int[] valueColumns = new int[VALUE_FIELDS.length];
+
+        // 使用 updateTime 计时时跨午夜的累计偏移
+        private long dayOffsetNanos;
+        private long lastTimeOfDayNanos = -1;
+        private long lineNumber = 1;
+
+        CsvCursor(Path path) throws IOException {
+            this.path = path;
+            this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+            String header = reader.readLine();
+            if (header == null) {
+                reader.close();
+                throw new IOException("回放文件为空: " + path);
+            }
+
+            Map<String, Integer> columns = new HashMap<>();
+            String[] names = header.split(",");
+            for (int i = 0; i < names.length; i++) {
+                columns.put(names[i].trim(), i);
+            }
+            instrumentColumn = columns.getOrDefault("instrumentId", -1);
+            updateTimeColumn = columns.getOrDefault("updateTime", -1);
+            timestampColumn = columns.getOrDefault("timestamp", -1);
+            if (instrumentColumn < 0 || (updateTimeColumn < 0 && timestampColumn < 0)) {
+                reader.close();
+                throw new IOException("回放文件缺少 instrumentId 或 updateTime/timestamp 列: " + path);
+            }
+            for (int i = 0; i < VALUE_FIELDS.length; i++) {
+                valueColumns[i] = columns.getOrDefault(VALUE_FIELDS[i], -1);
+            }
+        }
+
+        @Override
+        boolean next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    return false;
+                }
+            } while (line.trim().isEmpty());
+
+            String[] cells = line.split(",", -1);
+            try {
+                instrumentId = cells[instrumentColumn].trim();
+                updateTime = updateTimeColumn >= 0 ? cells[updateTimeColumn].trim() : "";
+                for (int i = 0; i < valueColumns.length; i++) {
+                    int column = valueColumns[i];
+                    values[i] = column >= 0 && column < cells.length && !cells[column].isEmpty()
+                            ? Double.parseDouble(cells[column]) : 0;
+                }
+                timestampNanos = timestampColumn >= 0
+                        ? TimeUnit.MILLISECONDS.toNanos(Long.parseLong(cells[timestampColumn].trim()))
+                        : timeOfDayNanos(updateTime);
+            } catch (RuntimeException e) {
+                throw new IOException("回放文件格式错误: " + path + " 第" + lineNumber + "行", e);
+            }
+            return true;
+        }
+
+        /**
+         * 把 HH:mm:ss[.SSS] 换算为单调递增的纳秒数，时间回退超过12小时视为跨午夜
+         */
+        private long timeOfDayNanos(String time) {
+            long nanos = TimeUnit.HOURS.toNanos(Integer.parseInt(time.substring(0, 2)))
+                    + TimeUnit.MINUTES.toNanos(Integer.parseInt(time.substring(3, 5)))
+                    + TimeUnit.SECONDS.toNanos(Integer.parseInt(time.substring(6, 8)));
+            if (time.length() > 9) {
+                String fraction = (time.substring(9) + "00").substring(0, 3);
+                nanos += TimeUnit.MILLISECONDS.toNanos(Integer.parseInt(fraction));
+            }
+            if (lastTimeOfDayNanos >= 0 && lastTimeOfDayNanos - nanos > NANOS_PER_DAY / 2) {
+                dayOffsetNanos += NANOS_PER_DAY;
+            }
+            lastTimeOfDayNanos = nanos;
+            return dayOffsetNanos + nanos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
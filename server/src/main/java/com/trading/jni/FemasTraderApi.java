@@ -54,27 +54,30 @@ public class FemasTraderApi {
      * @param userId 用户代码
      * @param userProductInfo 用户产品信息
      * @param authCode 认证码
-     * @return 请求ID
+     * @param requestId 请求ID，原样带回对应的响应回调
+     * @return 0表示发送成功，负数表示发送失败
      */
     public native int reqAuthenticate(String brokerId, String userId, 
-                                     String userProductInfo, String authCode);
+                                     String userProductInfo, String authCode, int requestId);
 
     /**
      * 用户登录请求
      * @param brokerId 经纪商代码
      * @param userId 用户代码
      * @param password 密码
-     * @return 请求ID
+     * @param requestId 请求ID，原样带回对应的响应回调
+     * @return 0表示发送成功，负数表示发送失败
      */
-    public native int reqUserLogin(String brokerId, String userId, String password);
+    public native int reqUserLogin(String brokerId, String userId, String password, int requestId);
 
     /**
      * 用户登出请求
      * @param brokerId 经纪商代码
      * @param userId 用户代码
-     * @return 请求ID
+     * @param requestId 请求ID，原样带回对应的响应回调
+     * @return 0表示发送成功，负数表示发送失败
      */
-    public native int reqUserLogout(String brokerId, String userId);
+    public native int reqUserLogout(String brokerId, String userId, int requestId);
 
     /**
      * 报单录入请求
@@ -86,12 +89,14 @@ public class FemasTraderApi {
      * @param orderPriceType 报单价格条件
      * @param timeCondition 有效期类型
      * @param volumeCondition 成交量类型
-     * @return 请求ID
+     * @param orderRef 报单引用，由调用方生成，原样带回报单响应和报单、成交通知
+     * @param requestId 请求ID，原样带回报单录入响应
+     * @return 0表示发送成功，负数表示发送失败
      */
     public native int reqOrderInsert(String instrumentId, char direction, 
                                    char offsetFlag, double price, int volume,
                                    char orderPriceType, char timeCondition, 
-                                   char volumeCondition);
+                                   char volumeCondition, String orderRef, int requestId);
 
     /**
      * 报单操作请求
@@ -99,55 +104,61 @@ public class FemasTraderApi {
      * @param frontId 前置编号
      * @param sessionId 会话编号
      * @param actionFlag 操作标志
-     * @return 请求ID
+     * @param requestId 请求ID，原样带回对应的响应回调
+     * @return 0表示发送成功，负数表示发送失败
      */
     public native int reqOrderAction(String orderRef, int frontId, 
-                                   int sessionId, char actionFlag);
+                                   int sessionId, char actionFlag, int requestId);
 
     /**
      * 查询投资者持仓
      * @param brokerId 经纪商代码
      * @param investorId 投资者代码
      * @param instrumentId 合约代码
-     * @return 请求ID
+     * @param requestId 请求ID，原样带回对应的响应回调
+     * @return 0表示发送成功，负数表示发送失败
      */
     public native int reqQryInvestorPosition(String brokerId, String investorId, 
-                                           String instrumentId);
+                                           String instrumentId, int requestId);
 
     /**
      * 查询资金账户
      * @param brokerId 经纪商代码
      * @param investorId 投资者代码
-     * @return 请求ID
+     * @param requestId 请求ID，原样带回对应的响应回调
+     * @return 0表示发送成功，负数表示发送失败
      */
-    public native int reqQryTradingAccount(String brokerId, String investorId);
+    public native int reqQryTradingAccount(String brokerId, String investorId, int requestId);
 
     /**
      * 查询合约
      * @param instrumentId 合约代码
-     * @return 请求ID
+     * @param requestId 请求ID，原样带回对应的响应回调
+     * @return 0表示发送成功，负数表示发送失败
      */
-    public native int reqQryInstrument(String instrumentId);
+    public native int reqQryInstrument(String instrumentId, int requestId);
 
     /**
      * 查询报单
      * @param brokerId 经纪商代码
      * @param investorId 投资者代码
      * @param instrumentId 合约代码
-     * @return 请求ID
+     * @param requestId 请求ID，原样带回对应的响应回调
+     * @return 0表示发送成功，负数表示发送失败
      */
     public native int reqQryOrder(String brokerId, String investorId, 
-                                String instrumentId);
+                                String instrumentId, int requestId);
 
     /**
      * 查询成交
      * @param brokerId 经纪商代码
      * @param investorId 投资者代码
      * @param instrumentId 合约代码
-     * @return 请求ID
+     * @param requestId 请求ID，原样带回对应的响应回调
+     * @return 0表示发送成功，负数表示发送失败
      */
     public native int reqQryTrade(String brokerId, String investorId, 
-                                String instrumentId);
+                                String instrumentId, int requestId);
 
     // 回调方法 - 由C++调用
     /**
@@ -170,8 +181,9 @@ public class FemasTraderApi {
      * @param authCode 认证码
      * @param errorId 错误代码
      * @param errorMsg 错误信息
+     * @param requestId 请求ID
      */
-    public void onRspAuthenticate(String authCode, int errorId, String errorMsg) {
+    public void onRspAuthenticate(String authCode, int errorId, String errorMsg, int requestId) {
         // 由子类实现
     }
 
@@ -181,12 +193,30 @@ public class FemasTraderApi {
      * @param loginTime 登录时间
      * @param brokerId 经纪商代码
      * @param userId 用户代码
+     * @param frontId 前置编号
+     * @param sessionId 会话编号，与前置编号一起区分不同会话的报单引用
+     * @param maxOrderRef 当日已使用的最大报单引用，新报单引用须大于该值
      * @param errorId 错误代码
      * @param errorMsg 错误信息
+     * @param requestId 请求ID
      */
     public void onRspUserLogin(String tradingDay, String loginTime, 
-                              String brokerId, String userId, 
-                              int errorId, String errorMsg) {
+                              String brokerId, String userId,
+                              int frontId, int sessionId, String maxOrderRef,
+                              int errorId, String errorMsg, int requestId) {
+        // 由子类实现
+    }
+
+    /**
+     * 登出响应回调
+     * @param brokerId 经纪商代码
+     * @param userId 用户代码
+     * @param errorId 错误代码
+     * @param errorMsg 错误信息
+     * @param requestId 请求ID
+     */
+    public void onRspUserLogout(String brokerId, String userId, 
+                               int errorId, String errorMsg, int requestId) {
         // 由子类实现
     }
 
@@ -195,14 +225,147 @@ public class FemasTraderApi {
      * @param orderRef 报单引用
      * @param errorId 错误代码
      * @param errorMsg 错误信息
+     * @param requestId 请求ID
+     */
+    public void onRspOrderInsert(String orderRef, int errorId, String errorMsg, int requestId) {
+        // 由子类实现
+    }
+
+    /**
+     * 报单操作响应回调
+     * @param orderRef 报单引用
+     * @param errorId 错误代码
+     * @param errorMsg 错误信息
+     * @param requestId 请求ID
+     */
+    public void onRspOrderAction(String orderRef, int errorId, String errorMsg, int requestId) {
+        // 由子类实现
+    }
+
+    /**
+     * 持仓查询响应回调，每笔持仓回调一次，没有持仓时只回调一次且 instrumentId 为null
+     * @param instrumentId 合约代码
+     * @param posiDirection 持仓多空方向
+     * @param position 总持仓
+     * @param todayPosition 今仓
+     * @param ydPosition 昨仓
+     * @param openCost 开仓成本
+     * @param errorId 错误代码
+     * @param errorMsg 错误信息
+     * @param requestId 请求ID
+     * @param isLast 是否最后一笔
+     */
+    public void onRspQryInvestorPosition(String instrumentId, char posiDirection, int position,
+                                        int todayPosition, int ydPosition, double openCost,
+                                        int errorId, String errorMsg, int requestId, boolean isLast) {
+        // 由子类实现
+    }
+
+    /**
+     * 资金账户查询响应回调
+     * @param accountId 资金账号
+     * @param preBalance 上次结算准备金
+     * @param available 可用资金
+     * @param margin 占用保证金
+     * @param frozenMargin 冻结保证金
+     * @param fee 手续费
+     * @param closeProfit 平仓盈亏
+     * @param positionProfit 持仓盈亏
+     * @param dynamicRights 动态权益
+     * @param errorId 错误代码
+     * @param errorMsg 错误信息
+     * @param requestId 请求ID
+     * @param isLast 是否最后一笔
+     */
+    public void onRspQryTradingAccount(String accountId, double preBalance, double available,
+                                      double margin, double frozenMargin, double fee,
+                                      double closeProfit, double positionProfit, double dynamicRights,
+                                      int errorId, String errorMsg, int requestId, boolean isLast) {
+        // 由子类实现
+    }
+
+    /**
+     * 合约查询响应回调，每个合约回调一次，没有合约时只回调一次且 instrumentId 为null
+     * @param instrumentId 合约代码
+     * @param instrumentName 合约名称
+     * @param exchangeId 交易所代码
+     * @param productId 品种代码
+     * @param priceTick 最小变动价位
+     * @param volumeMultiple 合约乘数
+     * @param errorId 错误代码
+     * @param errorMsg 错误信息
+     * @param requestId 请求ID
+     * @param isLast 是否最后一笔
+     */
+    public void onRspQryInstrument(String instrumentId, String instrumentName, String exchangeId,
+                                  String productId, double priceTick, int volumeMultiple,
+                                  int errorId, String errorMsg, int requestId, boolean isLast) {
+        // 由子类实现
+    }
+
+    /**
+     * 报单查询响应回调，每笔报单回调一次，没有报单时只回调一次且 orderRef 为null
+     * @param orderSysId 报单编号
+     * @param frontId 报单所属会话的前置编号
+     * @param sessionId 报单所属会话的会话编号
+     * @param orderRef 报单引用
+     * @param instrumentId 合约代码
+     * @param direction 买卖方向
+     * @param offsetFlag 开平标志
+     * @param price 价格
+     * @param volume 数量
+     * @param volumeTraded 已成交数量
+     * @param orderStatus 报单状态
+     * @param errorId 错误代码
+     * @param errorMsg 错误信息
+     * @param requestId 请求ID
+     * @param isLast 是否最后一笔
+     */
+    public void onRspQryOrder(String orderSysId, int frontId, int sessionId, String orderRef, String instrumentId,
+                             char direction, char offsetFlag, double price,
+                             int volume, int volumeTraded, char orderStatus,
+                             int errorId, String errorMsg, int requestId, boolean isLast) {
+        // 由子类实现
+    }
+
+    /**
+     * 成交查询响应回调，每笔成交回调一次，没有成交时只回调一次且 tradeId 为null
+     * @param tradeId 成交编号
+     * @param orderSysId 报单编号
+     * @param orderRef 报单引用
+     * @param instrumentId 合约代码
+     * @param direction 买卖方向
+     * @param offsetFlag 开平标志
+     * @param price 成交价格
+     * @param volume 成交数量
+     * @param tradeTime 成交时间
+     * @param errorId 错误代码
+     * @param errorMsg 错误信息
+     * @param requestId 请求ID
+     * @param isLast 是否最后一笔
+     */
+    public void onRspQryTrade(String tradeId, String orderSysId, String orderRef, String instrumentId,
+                             char direction, char offsetFlag, double price,
+                             int volume, String tradeTime,
+                             int errorId, String errorMsg, int requestId, boolean isLast) {
+        // 由子类实现
+    }
+
+    /**
+     * 错误响应回调，请求无法处理时返回
+     * @param errorId 错误代码
+     * @param errorMsg 错误信息
+     * @param requestId 请求ID
      */
-    public void onRspOrderInsert(String orderRef, int errorId, String errorMsg) {
+    public void onRspError(int errorId, String errorMsg, int requestId) {
         // 由子类实现
     }
 
     /**
      * 报单通知回调
      * @param orderSysId 报单编号
+     * @param frontId 报单所属会话的前置编号
+     * @param sessionId 报单所属会话的会话编号
      * @param orderRef 报单引用
      * @param instrumentId 合约代码
      * @param direction 买卖方向
@@ -211,7 +374,7 @@ public class FemasTraderApi {
      * @param volume 数量
      * @param orderStatus 报单状态
      */
-    public void onRtnOrder(String orderSysId, String orderRef, String instrumentId,
+    public void onRtnOrder(String orderSysId, int frontId, int sessionId, String orderRef, String instrumentId,
                           char direction, char offsetFlag, double price, 
                           int volume, char orderStatus) {
         // 由子类实现
@@ -220,6 +383,7 @@ public class FemasTraderApi {
     /**
      * 成交通知回调
      * @param tradeId 成交编号
+     * @param orderSysId 报单编号
      * @param orderRef 报单引用
      * @param instrumentId 合约代码
      * @param direction 买卖方向
@@ -228,7 +392,7 @@ public class FemasTraderApi {
      * @param volume 成交数量
      * @param tradeTime 成交时间
      */
-    public void onRtnTrade(String tradeId, String orderRef, String instrumentId,
+    public void onRtnTrade(String tradeId, String orderSysId, String orderRef, String instrumentId,
                           char direction, char offsetFlag, double price, 
                           int volume, String tradeTime) {
         // 由子类实现
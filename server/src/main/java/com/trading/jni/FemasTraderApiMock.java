@@ -3,9 +3,13 @@ package com.trading.jni;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * 飞马交易API的模拟实现 - 用于开发和测试
  * 不依赖JNI库，可以正常启动服务
+ * 与真实API一样，请求ID原样带回响应回调，报单引用原样带回报单响应和报单、成交通知
  */
 public class FemasTraderApiMock {
 
@@ -15,6 +19,16 @@ public class FemasTraderApiMock {
     private boolean isApiCreated = false;
     private boolean isInitialized = false;
 
+    // 模拟报单编号和成交编号
+    private final AtomicLong orderSysIdGenerator = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong tradeIdGenerator = new AtomicLong(System.currentTimeMillis());
+
+    // 模拟前置编号、会话编号（每次登录分配新会话）和已使用的最大报单引用
+    private static final int MOCK_FRONT_ID = 1;
+    private final AtomicInteger sessionIdGenerator = new AtomicInteger((int) (System.currentTimeMillis() / 1000));
+    private volatile int sessionId;
+    private final AtomicLong maxOrderRef = new AtomicLong();
+
     /**
      * 创建交易API实例
      * @param flowPath 流文件路径
@@ -72,47 +86,60 @@ public class FemasTraderApiMock {
      * 客户端认证请求
      */
     public int reqAuthenticate(String brokerId, String userId, 
-                              String userProductInfo, String authCode) {
+                              String userProductInfo, String authCode, int requestId) {
         logger.info("模拟认证请求 - 经纪商: {}, 用户: {}", brokerId, userId);
         
         // 模拟认证成功
         new Thread(() -> {
             try {
                 Thread.sleep(500);
-                onRspAuthenticate(authCode, 0, "认证成功");
+                onRspAuthenticate(authCode, 0, "认证成功", requestId);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }).start();
         
-        return 1;
+        return 0;
     }
 
     /**
      * 用户登录请求
      */
-    public int reqUserLogin(String brokerId, String userId, String password) {
+    public int reqUserLogin(String brokerId, String userId, String password, int requestId) {
         logger.info("模拟登录请求 - 经纪商: {}, 用户: {}", brokerId, userId);
         
         // 模拟登录成功
         new Thread(() -> {
             try {
                 Thread.sleep(500);
-                onRspUserLogin("20240101", "09:00:00", brokerId, userId, 0, "登录成功");
+                sessionId = sessionIdGenerator.incrementAndGet();
+                onRspUserLogin("20240101", "09:00:00", brokerId, userId,
+                        MOCK_FRONT_ID, sessionId, String.format("%012d", maxOrderRef.get()), 0, "登录成功", requestId);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }).start();
         
-        return 2;
+        return 0;
     }
 
     /**
      * 用户登出请求
      */
-    public int reqUserLogout(String brokerId, String userId) {
+    public int reqUserLogout(String brokerId, String userId, int requestId) {
         logger.info("模拟登出请求 - 经纪商: {}, 用户: {}", brokerId, userId);
-        return 3;
+        
+        // 模拟登出成功
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                onRspUserLogout(brokerId, userId, 0, "登出成功", requestId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+        
+        return 0;
     }
 
     /**
@@ -121,82 +148,160 @@ public class FemasTraderApiMock {
     public int reqOrderInsert(String instrumentId, char direction, 
                              char offsetFlag, double price, int volume,
                              char orderPriceType, char timeCondition, 
-                             char volumeCondition) {
-        logger.info("模拟下单请求 - 合约: {}, 方向: {}, 价格: {}, 数量: {}", 
-                   instrumentId, direction, price, volume);
+                             char volumeCondition, String orderRef, int requestId) {
+        logger.info("模拟下单请求 - 报单引用: {}, 合约: {}, 方向: {}, 价格: {}, 数量: {}", 
+                   orderRef, instrumentId, direction, price, volume);
         
+        try {
+            maxOrderRef.accumulateAndGet(Long.parseLong(orderRef), Math::max);
+        } catch (NumberFormatException e) {
+            logger.warn("模拟报单引用不是数字: {}", orderRef);
+        }
+        int orderSessionId = sessionId;
+
         // 模拟报单回报
         new Thread(() -> {
             try {
                 Thread.sleep(200);
-                String orderSysId = "SIM" + System.currentTimeMillis();
-                String orderRef = String.valueOf(System.currentTimeMillis() % 1000000);
-                onRtnOrder(orderSysId, orderRef, instrumentId, direction, offsetFlag, 
+                if (price <= 0 || volume <= 0) {
+                    // 与真实API一样，报单被拒绝时只返回报单录入响应
+                    onRspOrderInsert(orderRef, 15, "报单字段有误", requestId);
+                    return;
+                }
+                String orderSysId = "SIM" + orderSysIdGenerator.incrementAndGet();
+                onRtnOrder(orderSysId, MOCK_FRONT_ID, orderSessionId, orderRef, instrumentId, direction, offsetFlag, 
                           price, volume, '0'); // 0-全部成交
                 
                 // 模拟成交回报
                 Thread.sleep(100);
-                String tradeId = "T" + System.currentTimeMillis();
-                onRtnTrade(tradeId, orderRef, instrumentId, direction, offsetFlag, 
+                String tradeId = "T" + tradeIdGenerator.incrementAndGet();
+                onRtnTrade(tradeId, orderSysId, orderRef, instrumentId, direction, offsetFlag, 
                           price, volume, "09:30:00");
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }).start();
         
-        return 4;
+        return 0;
     }
 
     /**
      * 报单操作请求
      */
     public int reqOrderAction(String orderRef, int frontId, 
-                             int sessionId, char actionFlag) {
+                             int sessionId, char actionFlag, int requestId) {
         logger.info("模拟撤单请求 - 报单引用: {}", orderRef);
-        return 5;
+        
+        // 模拟报单都已全部成交，撤单被拒绝
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                onRspOrderAction(orderRef, 26, "报单已全部成交或撤销", requestId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+        
+        return 0;
     }
 
     /**
      * 查询投资者持仓
      */
     public int reqQryInvestorPosition(String brokerId, String investorId, 
-                                     String instrumentId) {
+                                     String instrumentId, int requestId) {
         logger.info("模拟查询持仓 - 投资者: {}, 合约: {}", investorId, instrumentId);
-        return 6;
+        
+        // 模拟柜台没有持仓
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                onRspQryInvestorPosition(null, '\0', 0, 0, 0, 0, 0, "查询成功", requestId, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+        
+        return 0;
     }
 
     /**
      * 查询资金账户
      */
-    public int reqQryTradingAccount(String brokerId, String investorId) {
+    public int reqQryTradingAccount(String brokerId, String investorId, int requestId) {
         logger.info("模拟查询资金账户 - 投资者: {}", investorId);
-        return 7;
+        
+        // 模拟一个空仓账户，资金全部可用
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                onRspQryTradingAccount(investorId, 1000000.0, 1000000.0, 0, 0, 0, 0, 0, 1000000.0,
+                        0, "查询成功", requestId, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+        
+        return 0;
     }
 
     /**
      * 查询合约
      */
-    public int reqQryInstrument(String instrumentId) {
+    public int reqQryInstrument(String instrumentId, int requestId) {
         logger.info("模拟查询合约 - 合约: {}", instrumentId);
-        return 8;
+        
+        // 模拟柜台没有合约信息，合约乘数仍以行情端查询结果为准
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                onRspQryInstrument(null, null, null, null, 0, 0, 0, "查询成功", requestId, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+        
+        return 0;
     }
 
     /**
      * 查询报单
      */
     public int reqQryOrder(String brokerId, String investorId, 
-                          String instrumentId) {
+                          String instrumentId, int requestId) {
         logger.info("模拟查询报单 - 投资者: {}, 合约: {}", investorId, instrumentId);
-        return 9;
+        
+        // 模拟柜台没有报单
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                onRspQryOrder(null, 0, 0, null, null, '\0', '\0', 0, 0, 0, '\0', 0, "查询成功", requestId, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+        
+        return 0;
     }
 
     /**
      * 查询成交
      */
     public int reqQryTrade(String brokerId, String investorId, 
-                          String instrumentId) {
+                          String instrumentId, int requestId) {
         logger.info("模拟查询成交 - 投资者: {}, 合约: {}", investorId, instrumentId);
-        return 10;
+        
+        // 模拟柜台没有成交
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                onRspQryTrade(null, null, null, null, '\0', '\0', 0, 0, null, 0, "查询成功", requestId, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+        
+        return 0;
     }
 
     // 回调方法 - 由子类实现
@@ -208,27 +313,75 @@ public class FemasTraderApiMock {
         logger.info("模拟前置机连接断开回调，原因: {}", reason);
     }
 
-    public void onRspAuthenticate(String authCode, int errorId, String errorMsg) {
+    public void onRspAuthenticate(String authCode, int errorId, String errorMsg, int requestId) {
         logger.info("模拟认证响应回调 - 错误码: {}, 消息: {}", errorId, errorMsg);
     }
 
     public void onRspUserLogin(String tradingDay, String loginTime, 
-                              String brokerId, String userId, 
-                              int errorId, String errorMsg) {
+                              String brokerId, String userId,
+                              int frontId, int sessionId, String maxOrderRef,
+                              int errorId, String errorMsg, int requestId) {
         logger.info("模拟登录响应回调 - 交易日: {}, 错误码: {}", tradingDay, errorId);
     }
 
-    public void onRspOrderInsert(String orderRef, int errorId, String errorMsg) {
+    public void onRspUserLogout(String brokerId, String userId, 
+                               int errorId, String errorMsg, int requestId) {
+        logger.info("模拟登出响应回调 - 用户: {}, 错误码: {}", userId, errorId);
+    }
+
+    public void onRspOrderInsert(String orderRef, int errorId, String errorMsg, int requestId) {
         logger.info("模拟报单录入响应回调 - 报单引用: {}, 错误码: {}", orderRef, errorId);
     }
 
-    public void onRtnOrder(String orderSysId, String orderRef, String instrumentId,
+    public void onRspOrderAction(String orderRef, int errorId, String errorMsg, int requestId) {
+        logger.info("模拟报单操作响应回调 - 报单引用: {}, 错误码: {}", orderRef, errorId);
+    }
+
+    public void onRspQryInvestorPosition(String instrumentId, char posiDirection, int position,
+                                        int todayPosition, int ydPosition, double openCost,
+                                        int errorId, String errorMsg, int requestId, boolean isLast) {
+        logger.info("模拟持仓查询响应回调 - 合约: {}, 方向: {}, 持仓: {}, 最后一笔: {}",
+                instrumentId, posiDirection, position, isLast);
+    }
+
+    public void onRspQryTradingAccount(String accountId, double preBalance, double available,
+                                      double margin, double frozenMargin, double fee,
+                                      double closeProfit, double positionProfit, double dynamicRights,
+                                      int errorId, String errorMsg, int requestId, boolean isLast) {
+        logger.info("模拟资金账户查询响应回调 - 账号: {}, 可用: {}, 最后一笔: {}", accountId, available, isLast);
+    }
+
+    public void onRspQryInstrument(String instrumentId, String instrumentName, String exchangeId,
+                                  String productId, double priceTick, int volumeMultiple,
+                                  int errorId, String errorMsg, int requestId, boolean isLast) {
+        logger.info("模拟合约查询响应回调 - 合约: {}, 交易所: {}, 最后一笔: {}", instrumentId, exchangeId, isLast);
+    }
+
+    public void onRspQryOrder(String orderSysId, int frontId, int sessionId, String orderRef, String instrumentId,
+                             char direction, char offsetFlag, double price,
+                             int volume, int volumeTraded, char orderStatus,
+                             int errorId, String errorMsg, int requestId, boolean isLast) {
+        logger.info("模拟报单查询响应回调 - 报单引用: {}, 状态: {}, 最后一笔: {}", orderRef, orderStatus, isLast);
+    }
+
+    public void onRspQryTrade(String tradeId, String orderSysId, String orderRef, String instrumentId,
+                             char direction, char offsetFlag, double price,
+                             int volume, String tradeTime,
+                             int errorId, String errorMsg, int requestId, boolean isLast) {
+        logger.info("模拟成交查询响应回调 - 成交号: {}, 最后一笔: {}", tradeId, isLast);
+    }
+
+    public void onRspError(int errorId, String errorMsg, int requestId) {
+        logger.info("模拟错误响应回调 - 请求: {}, 错误码: {}, 消息: {}", requestId, errorId, errorMsg);
+    }
+
+    public void onRtnOrder(String orderSysId, int frontId, int sessionId, String orderRef, String instrumentId,
                           char direction, char offsetFlag, double price, 
                           int volume, char orderStatus) {
         logger.info("模拟报单通知回调 - 报单号: {}, 合约: {}, 状态: {}", orderSysId, instrumentId, orderStatus);
     }
 
-    public void onRtnTrade(String tradeId, String orderRef, String instrumentId,
+    public void onRtnTrade(String tradeId, String orderSysId, String orderRef, String instrumentId,
                           char direction, char offsetFlag, double price, 
                           int volume, String tradeTime) {
         logger.info("模拟成交通知回调 - 成交号: {}, 合约: {}, 价格: {}, 数量: {}", 
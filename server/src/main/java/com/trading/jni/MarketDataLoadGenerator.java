@@ -0,0 +1,281 @@
+package com.trading.jni;
+
+import com.trading.config.TradingConfig;
+import com.trading.service.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 合成行情压测生成器
+ * 在单独的生产线程中按目标速率（含周期性突发）为N个合成合约生成行情并回调 onRtnDepthMarketData，
+ * 统计实际达到的速率和回调耗时分布，用于发布前测量行情链路容量。
+ */
+public class MarketDataLoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataLoadGenerator.class);
+
+    public static final String PRICE_MODEL_RANDOM_WALK = "random-walk";
+    public static final String PRICE_MODEL_GAUSSIAN = "gaussian";
+
+    // 提前量超过该值时休眠，否则直接发送
+    private static final long PARK_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    // 落后超过该值时放弃追赶，避免恢复后集中补发
+    private static final long MAX_BACKLOG_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // 合成合约使用的品种及基准价
+    private static final String[] PRODUCTS = {
+        "rb", "cu", "al", "zn", "au", "ag", "ni", "IF", "IC", "IH", "m", "i", "y", "p", "TA", "MA", "SR", "CF", "sc"
+    };
+    private static final double[] BASE_PRICES = {
+        3500, 70000, 19000, 21000, 450, 5800, 130000, 3500, 5500, 2500, 3000, 800, 7500, 7000, 5800, 2500, 6000,
+        15000, 550
+    };
+
+    private final FemasMarketApiMock api;
+    private final TradingConfig.Load config;
+    private final boolean randomWalk;
+    private final Random random = new Random();
+
+    // 合约状态，只在生产线程中访问
+    private final String[] instrumentIds;
+    private final double[] basePrices;
+    private final double[] prices;
+    private final double[] highs;
+    private final double[] lows;
+    private final long[] volumes;
+    private final double[] turnovers;
+
+    // 行情更新时间按毫秒缓存
+    private final long timeZoneOffsetMillis = TimeZone.getDefault().getRawOffset();
+    private final char[] updateTimeChars = "00:00:00.000".toCharArray();
+    private long updateTimeMillis = -1;
+    private String updateTime;
+
+    private volatile Thread thread;
+    private volatile boolean running;
+
+    // 统计
+    private final LatencyHistogram callbackLatency = new LatencyHistogram();
+    private final LatencyHistogram windowLatency = new LatencyHistogram();
+    private volatile long emittedCount;
+    private volatile long startNanos;
+    private volatile long stopNanos;
+    private volatile double lastWindowRate;
+    private volatile long backlogResets;
+
+    public MarketDataLoadGenerator(FemasMarketApiMock api, TradingConfig.Load config) {
+        if (config.getInstruments() <= 0 || config.getRatePerSecond() <= 0) {
+            throw new IllegalArgumentException("压测合约数量和目标速率必须大于0");
+        }
+        if (!PRICE_MODEL_RANDOM_WALK.equals(config.getPriceModel())
+                && !PRICE_MODEL_GAUSSIAN.equals(config.getPriceModel())) {
+            throw new IllegalArgumentException("不支持的价格模型: " + config.getPriceModel());
+        }
+        this.api = api;
+        this.config = config;
+        this.randomWalk = !PRICE_MODEL_GAUSSIAN.equals(config.getPriceModel());
+
+        int count = config.getInstruments();
+        instrumentIds = new String[count];
+        basePrices = new double[count];
+        prices = new double[count];
+        highs = new double[count];
+        lows = new double[count];
+        volumes = new long[count];
+        turnovers = new double[count];
+        for (int i = 0; i < count; i++) {
+            int product = i % PRODUCTS.length;
+            int series = i / PRODUCTS.length;
+            instrumentIds[i] = String.format("%s%02d%02d", PRODUCTS[product], 24 + series / 12, series % 12 + 1);
+            basePrices[i] = BASE_PRICES[product];
+            prices[i] = basePrices[i];
+            highs[i] = basePrices[i];
+            lows[i] = basePrices[i];
+        }
+    }
+
+    public String[] getInstrumentIds() {
+        return instrumentIds.clone();
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        Thread producer = new Thread(this::run, "MarketDataLoad");
+        producer.setDaemon(true);
+        thread = producer;
+        producer.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        Thread producer = thread;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+            try {
+                producer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        logger.info("开始行情压测 - 合约数: {}, 目标速率: {}笔/秒, 突发: {}倍/每{}ms持续{}ms, 价格模型: {}",
+                instrumentIds.length, config.getRatePerSecond(), config.getBurstMultiplier(),
+                config.getBurstPeriodMs(), config.getBurstDurationMs(),
+                randomWalk ? PRICE_MODEL_RANDOM_WALK : PRICE_MODEL_GAUSSIAN);
+
+        long start = System.nanoTime();
+        startNanos = start;
+        long end = config.getDurationSeconds() > 0
+                ? start + TimeUnit.SECONDS.toNanos(config.getDurationSeconds()) : Long.MAX_VALUE;
+        long reportInterval = TimeUnit.SECONDS.toNanos(Math.max(1, config.getReportIntervalSeconds()));
+        long nextReport = start + reportInterval;
+        long lastReportCount = 0;
+        long lastReportNanos = start;
+
+        long next = start;
+        int instrument = 0;
+        long emitted = 0;
+        while (running) {
+            long now = System.nanoTime();
+            if (now >= end) {
+                break;
+            }
+            long ahead = next - now;
+            if (ahead > PARK_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(Math.min(ahead, nextReport - now));
+            } else {
+                if (-ahead > MAX_BACKLOG_NANOS) {
+                    next = now;
+                    backlogResets++;
+                }
+                emit(instrument);
+                emitted++;
+                emittedCount = emitted;
+                instrument = instrument + 1 == instrumentIds.length ? 0 : instrument + 1;
+                next += intervalNanos(next - start);
+            }
+
+            if (now >= nextReport) {
+                lastWindowRate = (emitted - lastReportCount) * 1e9 / (now - lastReportNanos);
+                logger.info("行情压测 - 实际: {}笔/秒, 累计: {}, 落后: {}ms, 放弃追赶: {}次, 回调耗时: {}",
+                        Math.round(lastWindowRate), emitted, TimeUnit.NANOSECONDS.toMillis(Math.max(0, now - next)),
+                        backlogResets, windowLatency.toMap());
+                windowLatency.reset();
+                lastReportCount = emitted;
+                lastReportNanos = now;
+                nextReport = now + reportInterval;
+            }
+        }
+
+        stopNanos = System.nanoTime();
+        logger.info("行情压测结束 - 共 {} 笔, 平均 {}笔/秒, 回调耗时: {}",
+                emitted, Math.round(emitted * 1e9 / (stopNanos - start)), callbackLatency.toMap());
+    }
+
+    /**
+     * 当前时刻的目标速率，突发周期开始的一段时间内乘以突发倍数
+     */
+    private long targetRate(long elapsedNanos) {
+        long rate = config.getRatePerSecond();
+        if (config.getBurstMultiplier() > 1 && config.getBurstPeriodMs() > 0
+                && TimeUnit.NANOSECONDS.toMillis(elapsedNanos) % config.getBurstPeriodMs()
+                        < config.getBurstDurationMs()) {
+            rate *= config.getBurstMultiplier();
+        }
+        return rate;
+    }
+
+    private long intervalNanos(long elapsedNanos) {
+        return Math.max(1, TimeUnit.SECONDS.toNanos(1) / targetRate(elapsedNanos));
+    }
+
+    private void emit(int i) {
+        double tick = config.getTickSize();
+        double price;
+        if (randomWalk) {
+            price = prices[i] + Math.round(random.nextGaussian() * config.getVolatility()) * tick;
+            price = Math.max(basePrices[i] * 0.9, Math.min(basePrices[i] * 1.1, price));
+        } else {
+            price = basePrices[i] + Math.round(random.nextGaussian() * config.getVolatility()) * tick;
+        }
+        prices[i] = price;
+        highs[i] = Math.max(highs[i], price);
+        lows[i] = Math.min(lows[i], price);
+        int lastVolume = random.nextInt(20) + 1;
+        volumes[i] += lastVolume;
+        turnovers[i] += price * lastVolume;
+
+        String time = currentUpdateTime();
+        long begin = System.nanoTime();
+        api.onRtnDepthMarketData(instrumentIds[i], time, price, volumes[i], turnovers[i], 50000,
+            price - tick, random.nextInt(100) + 1, price + tick, random.nextInt(100) + 1,
+            price - 2 * tick, random.nextInt(100) + 1, price + 2 * tick, random.nextInt(100) + 1,
+            price - 3 * tick, random.nextInt(100) + 1, price + 3 * tick, random.nextInt(100) + 1,
+            price - 4 * tick, random.nextInt(100) + 1, price + 4 * tick, random.nextInt(100) + 1,
+            price - 5 * tick, random.nextInt(100) + 1, price + 5 * tick, random.nextInt(100) + 1,
+            basePrices[i] * 1.1, basePrices[i] * 0.9, basePrices[i], basePrices[i], highs[i], lows[i]);
+        long elapsed = System.nanoTime() - begin;
+        callbackLatency.record(elapsed);
+        windowLatency.record(elapsed);
+    }
+
+    /**
+     * 当前本地时间 HH:mm:ss.SSS，同一毫秒内复用
+     */
+    private String currentUpdateTime() {
+        long millis = System.currentTimeMillis();
+        if (millis != updateTimeMillis) {
+            updateTimeMillis = millis;
+            long ofDay = (millis + timeZoneOffsetMillis) % TimeUnit.DAYS.toMillis(1);
+            setDigits(0, (int) (ofDay / 3_600_000));
+            setDigits(3, (int) (ofDay / 60_000 % 60));
+            setDigits(6, (int) (ofDay / 1000 % 60));
+            int ms = (int) (ofDay % 1000);
+            updateTimeChars[9] = (char) ('0' + ms / 100);
+            updateTimeChars[10] = (char) ('0' + ms / 10 % 10);
+            updateTimeChars[11] = (char) ('0' + ms % 10);
+            updateTime = new String(updateTimeChars);
+        }
+        return updateTime;
+    }
+
+    private void setDigits(int offset, int value) {
+        updateTimeChars[offset] = (char) ('0' + value / 10);
+        updateTimeChars[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * 获取压测统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long begin = startNanos;
+        long finish = stopNanos > 0 ? stopNanos : System.nanoTime();
+        double seconds = begin > 0 ? (finish - begin) / 1e9 : 0;
+        stats.put("running", running && stopNanos == 0);
+        stats.put("instruments", instrumentIds.length);
+        stats.put("targetRatePerSecond", config.getRatePerSecond());
+        stats.put("burstMultiplier", config.getBurstMultiplier());
+        stats.put("priceModel", randomWalk ? PRICE_MODEL_RANDOM_WALK : PRICE_MODEL_GAUSSIAN);
+        stats.put("emittedCount", emittedCount);
+        stats.put("elapsedSeconds", Math.round(seconds * 10) / 10.0);
+        stats.put("achievedRatePerSecond", seconds > 0 ? Math.round(emittedCount / seconds) : 0);
+        stats.put("lastWindowRatePerSecond", Math.round(lastWindowRate));
+        stats.put("backlogResets", backlogResets);
+        stats.put("callbackLatency", callbackLatency.toMap());
+        return stats;
+    }
+}
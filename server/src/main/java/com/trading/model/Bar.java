@@ -0,0 +1,79 @@
+package com.trading.model;
+
+/**
+ * K线
+ * 由 MarketBarService 从环形数组中读出的副本，读出后不再变化
+ */
+public class Bar {
+
+    private final String instrumentId; // 合约代码
+    private final String period;       // 周期：1s、1m、5m、15m、1d
+    private final long startTime;      // 开始时间（纪元毫秒，按行情更新时间）
+    private final double open;         // 开盘价
+    private final double high;         // 最高价
+    private final double low;          // 最低价
+    private final double close;        // 收盘价
+    private final long volume;         // 成交量
+    private final double turnover;     // 成交金额
+    private final double openInterest; // 持仓量（收盘时）
+    private final boolean closed;      // 是否已收盘，当前未完成的K线为false
+
+    public Bar(String instrumentId, String period, long startTime, double open, double high, double low,
+               double close, long volume, double turnover, double openInterest, boolean closed) {
+        this.instrumentId = instrumentId;
+        this.period = period;
+        this.startTime = startTime;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.turnover = turnover;
+        this.openInterest = openInterest;
+        this.closed = closed;
+    }
+
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public double getOpen() {
+        return open;
+    }
+
+    public double getHigh() {
+        return high;
+    }
+
+    public double getLow() {
+        return low;
+    }
+
+    public double getClose() {
+        return close;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    public double getTurnover() {
+        return turnover;
+    }
+
+    public double getOpenInterest() {
+        return openInterest;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,134 @@
+package com.trading.model;
+
+/**
+ * 深度行情事件
+ * 行情环形缓冲区中预分配的可变槽位，行情回调线程写入字段后发布，消费线程读取后写入行情缓存。
+ * 槽位会被循环复用，消费方不能在处理结束后继续持有引用。
+ */
+public class DepthMarketDataEvent {
+
+    private int instrumentIndex;
+    private String updateTime;
+
+    private double lastPrice;
+    private long volume;
+    private double turnover;
+    private double openInterest;
+
+    private double bidPrice1, bidPrice2, bidPrice3, bidPrice4, bidPrice5;
+    private int bidVolume1, bidVolume2, bidVolume3, bidVolume4, bidVolume5;
+    private double askPrice1, askPrice2, askPrice3, askPrice4, askPrice5;
+    private int askVolume1, askVolume2, askVolume3, askVolume4, askVolume5;
+
+    private double upperLimitPrice;
+    private double lowerLimitPrice;
+    private double preClosePrice;
+    private double openPrice;
+    private double highestPrice;
+    private double lowestPrice;
+
+    // 回调线程收到行情的时间（纳秒），用于统计排队延迟
+    private long receiveNanos;
+
+    /**
+     * 填充槽位，参数顺序与 onRtnDepthMarketData 一致
+     */
+    public void set(int instrumentIndex, String updateTime,
+                    double lastPrice, long volume, double turnover,
+                    double openInterest,
+                    double bidPrice1, int bidVolume1,
+                    double askPrice1, int askVolume1,
+                    double bidPrice2, int bidVolume2,
+                    double askPrice2, int askVolume2,
+                    double bidPrice3, int bidVolume3,
+                    double askPrice3, int askVolume3,
+                    double bidPrice4, int bidVolume4,
+                    double askPrice4, int askVolume4,
+                    double bidPrice5, int bidVolume5,
+                    double askPrice5, int askVolume5,
+                    double upperLimitPrice, double lowerLimitPrice,
+                    double preClosePrice, double openPrice,
+                    double highestPrice, double lowestPrice) {
+        this.instrumentIndex = instrumentIndex;
+        this.updateTime = updateTime;
+        this.lastPrice = lastPrice;
+        this.volume = volume;
+        this.turnover = turnover;
+        this.openInterest = openInterest;
+        this.bidPrice1 = bidPrice1;
+        this.bidVolume1 = bidVolume1;
+        this.askPrice1 = askPrice1;
+        this.askVolume1 = askVolume1;
+        this.bidPrice2 = bidPrice2;
+        this.bidVolume2 = bidVolume2;
+        this.askPrice2 = askPrice2;
+        this.askVolume2 = askVolume2;
+        this.bidPrice3 = bidPrice3;
+        this.bidVolume3 = bidVolume3;
+        this.askPrice3 = askPrice3;
+        this.askVolume3 = askVolume3;
+        this.bidPrice4 = bidPrice4;
+        this.bidVolume4 = bidVolume4;
+        this.askPrice4 = askPrice4;
+        this.askVolume4 = askVolume4;
+        this.bidPrice5 = bidPrice5;
+        this.bidVolume5 = bidVolume5;
+        this.askPrice5 = askPrice5;
+        this.askVolume5 = askVolume5;
+        this.upperLimitPrice = upperLimitPrice;
+        this.lowerLimitPrice = lowerLimitPrice;
+        this.preClosePrice = preClosePrice;
+        this.openPrice = openPrice;
+        this.highestPrice = highestPrice;
+        this.lowestPrice = lowestPrice;
+        this.receiveNanos = System.nanoTime();
+    }
+
+    /**
+     * 释放对象引用，避免槽位长期持有已处理的字符串
+     */
+    public void clear() {
+        this.updateTime = null;
+    }
+
+    // Getters
+    public int getInstrumentIndex() { return instrumentIndex; }
+    public String getUpdateTime() { return updateTime; }
+    public double getLastPrice() { return lastPrice; }
+    public long getVolume() { return volume; }
+    public double getTurnover() { return turnover; }
+    public double getOpenInterest() { return openInterest; }
+
+    public double getBidPrice1() { return bidPrice1; }
+    public double getBidPrice2() { return bidPrice2; }
+    public double getBidPrice3() { return bidPrice3; }
+    public double getBidPrice4() { return bidPrice4; }
+    public double getBidPrice5() { return bidPrice5; }
+
+    public int getBidVolume1() { return bidVolume1; }
+    public int getBidVolume2() { return bidVolume2; }
+    public int getBidVolume3() { return bidVolume3; }
+    public int getBidVolume4() { return bidVolume4; }
+    public int getBidVolume5() { return bidVolume5; }
+
+    public double getAskPrice1() { return askPrice1; }
+    public double getAskPrice2() { return askPrice2; }
+    public double getAskPrice3() { return askPrice3; }
+    public double getAskPrice4() { return askPrice4; }
+    public double getAskPrice5() { return askPrice5; }
+
+    public int getAskVolume1() { return askVolume1; }
+    public int getAskVolume2() { return askVolume2; }
+    public int getAskVolume3() { return askVolume3; }
+    public int getAskVolume4() { return askVolume4; }
+    public int getAskVolume5() { return askVolume5; }
+
+    public double getUpperLimitPrice() { return upperLimitPrice; }
+    public double getLowerLimitPrice() { return lowerLimitPrice; }
+    public double getPreClosePrice() { return preClosePrice; }
+    public double getOpenPrice() { return openPrice; }
+    public double getHighestPrice() { return highestPrice; }
+    public double getLowestPrice() { return lowestPrice; }
+
+    public long getReceiveNanos() { return receiveNanos; }
+}
@@ -1,50 +1,92 @@
 package com.trading.model;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.concurrent.atomic.AtomicLong;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * 行情数据快照
  * 用于缓存和推送行情数据
+ *
+ * 并发模型：单写多读的顺序锁（seqlock）。写线程（行情回调线程）持有StampedLock写戳更新字段，
+ * 读线程通过乐观读戳把全部字段拷贝到调用方复用的持有对象中，校验失败时重试，
+ * 连续失败多次后每次重试前让出CPU，始终不获取读锁。读操作不阻塞写线程，也不产生垃圾对象。
+ * 缓存中的实时对象请通过 {@link #readInto(MarketDataSnapshot)} 或 {@link #createSnapshot()} 读取，
+ * 直接调用单字段getter无法保证字段之间的一致性。
+ *
+ * 每个行情字段记录最后一次发生变化时的 updateCount（字段版本），
+ * 推送服务据此计算任意历史版本之后变化过的字段，实现按字段的增量推送。
  */
 public class MarketDataSnapshot {
-    
+
+    // 乐观读连续失败的次数超过该值后，每次重试前让出CPU（Java 8 没有 Thread.onSpinWait）
+    private static final int OPTIMISTIC_READ_SPINS = 4;
+
+    // 字段编号，用于字段版本
+    public static final int FIELD_UPDATE_TIME = 0;
+    public static final int FIELD_LAST_PRICE = 1;
+    public static final int FIELD_VOLUME = 2;
+    public static final int FIELD_TURNOVER = 3;
+    public static final int FIELD_OPEN_INTEREST = 4;
+    public static final int FIELD_BID_PRICE_1 = 5;     // 买一至买五价: 5 - 9
+    public static final int FIELD_BID_VOLUME_1 = 10;   // 买一至买五量: 10 - 14
+    public static final int FIELD_ASK_PRICE_1 = 15;    // 卖一至卖五价: 15 - 19
+    public static final int FIELD_ASK_VOLUME_1 = 20;   // 卖一至卖五量: 20 - 24
+    public static final int FIELD_UPPER_LIMIT_PRICE = 25;
+    public static final int FIELD_LOWER_LIMIT_PRICE = 26;
+    public static final int FIELD_PRE_CLOSE_PRICE = 27;
+    public static final int FIELD_OPEN_PRICE = 28;
+    public static final int FIELD_HIGHEST_PRICE = 29;
+    public static final int FIELD_LOWEST_PRICE = 30;
+    public static final int FIELD_COUNT = 31;
+
+    // 顺序锁，只用于缓存中的实时对象
+    private final transient StampedLock lock = new StampedLock();
+
+    private int instrumentIndex = -1;   // 合约索引
     private String instrumentId;        // 合约代码
     private String exchangeId;          // 交易所代码
     private String instrumentName;      // 合约名称
     
     // 价格信息
-    private volatile double lastPrice;          // 最新价
-    private volatile double preClosePrice;      // 昨收价
-    private volatile double openPrice;          // 开盘价
-    private volatile double highestPrice;       // 最高价
-    private volatile double lowestPrice;        // 最低价
-    private volatile double upperLimitPrice;    // 涨停价
-    private volatile double lowerLimitPrice;    // 跌停价
+    private double lastPrice;          // 最新价
+    private double preClosePrice;      // 昨收价
+    private double openPrice;          // 开盘价
+    private double highestPrice;       // 最高价
+    private double lowestPrice;        // 最低价
+    private double upperLimitPrice;    // 涨停价
+    private double lowerLimitPrice;    // 跌停价
     
     // 成交信息
-    private volatile long volume;               // 成交量
-    private volatile double turnover;           // 成交金额
-    private volatile double openInterest;       // 持仓量
+    private long volume;               // 成交量
+    private double turnover;           // 成交金额
+    private double openInterest;       // 持仓量
     
     // 五档买盘
-    private volatile double bidPrice1, bidPrice2, bidPrice3, bidPrice4, bidPrice5;
-    private volatile int bidVolume1, bidVolume2, bidVolume3, bidVolume4, bidVolume5;
+    private double bidPrice1, bidPrice2, bidPrice3, bidPrice4, bidPrice5;
+    private int bidVolume1, bidVolume2, bidVolume3, bidVolume4, bidVolume5;
     
     // 五档卖盘
-    private volatile double askPrice1, askPrice2, askPrice3, askPrice4, askPrice5;
-    private volatile int askVolume1, askVolume2, askVolume3, askVolume4, askVolume5;
+    private double askPrice1, askPrice2, askPrice3, askPrice4, askPrice5;
+    private int askVolume1, askVolume2, askVolume3, askVolume4, askVolume5;
     
     // 时间信息
-    private volatile String updateTime;         // 更新时间
+    private String updateTime;                  // 更新时间
     private volatile String tradingDay;         // 交易日
-    private volatile LocalDateTime lastUpdateTime; // 最后更新时间戳
+    private volatile long lastUpdateMillis;     // 最后更新时间戳（毫秒）
+    private long receiveNanos;                  // 最新一笔行情进入行情回调的时间（System.nanoTime）
+    private long applyNanos;                    // 最新一笔行情写入缓存的时间（System.nanoTime）
     
     // 统计信息
-    private final AtomicLong updateCount = new AtomicLong(0);  // 更新次数
+    private volatile long updateCount;          // 更新次数，只由持有写戳的线程修改
+    
+    // 字段版本 - 字段编号 -> 最后变化时的 updateCount
+    private final long[] fieldVersions = new long[FIELD_COUNT];
     
     public MarketDataSnapshot() {
-        this.lastUpdateTime = LocalDateTime.now();
+        this.lastUpdateMillis = System.currentTimeMillis();
     }
     
     public MarketDataSnapshot(String instrumentId, String exchangeId) {
@@ -53,10 +95,38 @@ public class MarketDataSnapshot {
         this.exchangeId = exchangeId;
     }
     
+    public MarketDataSnapshot(int instrumentIndex, String instrumentId, String exchangeId) {
+        this(instrumentId, exchangeId);
+        this.instrumentIndex = instrumentIndex;
+    }
+    
+    /**
+     * 更新行情数据，以当前时间作为行情回调时间
+     */
+    public void updateMarketData(
+            String updateTime, double lastPrice, long volume, double turnover, double openInterest,
+            double bidPrice1, int bidVolume1, double askPrice1, int askVolume1,
+            double bidPrice2, int bidVolume2, double askPrice2, int askVolume2,
+            double bidPrice3, int bidVolume3, double askPrice3, int askVolume3,
+            double bidPrice4, int bidVolume4, double askPrice4, int askVolume4,
+            double bidPrice5, int bidVolume5, double askPrice5, int askVolume5,
+            double upperLimitPrice, double lowerLimitPrice,
+            double preClosePrice, double openPrice, double highestPrice, double lowestPrice) {
+        updateMarketData(System.nanoTime(), updateTime, lastPrice, volume, turnover, openInterest,
+                bidPrice1, bidVolume1, askPrice1, askVolume1,
+                bidPrice2, bidVolume2, askPrice2, askVolume2,
+                bidPrice3, bidVolume3, askPrice3, askVolume3,
+                bidPrice4, bidVolume4, askPrice4, askVolume4,
+                bidPrice5, bidVolume5, askPrice5, askVolume5,
+                upperLimitPrice, lowerLimitPrice,
+                preClosePrice, openPrice, highestPrice, lowestPrice);
+    }
+    
     /**
      * 更新行情数据
+     * @param receiveNanos 行情进入行情回调的时间（System.nanoTime），用于链路延迟统计
      */
-    public synchronized void updateMarketData(
+    public void updateMarketData(long receiveNanos,
             String updateTime, double lastPrice, long volume, double turnover, double openInterest,
             double bidPrice1, int bidVolume1, double askPrice1, int askVolume1,
             double bidPrice2, int bidVolume2, double askPrice2, int askVolume2,
@@ -66,47 +136,85 @@ public class MarketDataSnapshot {
             double upperLimitPrice, double lowerLimitPrice,
             double preClosePrice, double openPrice, double highestPrice, double lowestPrice) {
         
-        this.updateTime = updateTime;
-        this.lastPrice = lastPrice;
-        this.volume = volume;
-        this.turnover = turnover;
-        this.openInterest = openInterest;
-        
-        // 更新五档买盘
-        this.bidPrice1 = bidPrice1;
-        this.bidVolume1 = bidVolume1;
-        this.bidPrice2 = bidPrice2;
-        this.bidVolume2 = bidVolume2;
-        this.bidPrice3 = bidPrice3;
-        this.bidVolume3 = bidVolume3;
-        this.bidPrice4 = bidPrice4;
-        this.bidVolume4 = bidVolume4;
-        this.bidPrice5 = bidPrice5;
-        this.bidVolume5 = bidVolume5;
-        
-        // 更新五档卖盘
-        this.askPrice1 = askPrice1;
-        this.askVolume1 = askVolume1;
-        this.askPrice2 = askPrice2;
-        this.askVolume2 = askVolume2;
-        this.askPrice3 = askPrice3;
-        this.askVolume3 = askVolume3;
-        this.askPrice4 = askPrice4;
-        this.askVolume4 = askVolume4;
-        this.askPrice5 = askPrice5;
-        this.askVolume5 = askVolume5;
-        
-        // 更新价格信息
-        this.upperLimitPrice = upperLimitPrice;
-        this.lowerLimitPrice = lowerLimitPrice;
-        this.preClosePrice = preClosePrice;
-        this.openPrice = openPrice;
-        this.highestPrice = highestPrice;
-        this.lowestPrice = lowestPrice;
-        
-        // 更新时间戳和计数
-        this.lastUpdateTime = LocalDateTime.now();
-        this.updateCount.incrementAndGet();
+        long stamp = lock.writeLock();
+        try {
+            long version = this.updateCount + 1;
+            
+            this.updateTime = track(FIELD_UPDATE_TIME, this.updateTime, updateTime, version);
+            this.lastPrice = track(FIELD_LAST_PRICE, this.lastPrice, lastPrice, version);
+            this.volume = track(FIELD_VOLUME, this.volume, volume, version);
+            this.turnover = track(FIELD_TURNOVER, this.turnover, turnover, version);
+            this.openInterest = track(FIELD_OPEN_INTEREST, this.openInterest, openInterest, version);
+            
+            // 更新五档买盘
+            this.bidPrice1 = track(FIELD_BID_PRICE_1, this.bidPrice1, bidPrice1, version);
+            this.bidVolume1 = track(FIELD_BID_VOLUME_1, this.bidVolume1, bidVolume1, version);
+            this.bidPrice2 = track(FIELD_BID_PRICE_1 + 1, this.bidPrice2, bidPrice2, version);
+            this.bidVolume2 = track(FIELD_BID_VOLUME_1 + 1, this.bidVolume2, bidVolume2, version);
+            this.bidPrice3 = track(FIELD_BID_PRICE_1 + 2, this.bidPrice3, bidPrice3, version);
+            this.bidVolume3 = track(FIELD_BID_VOLUME_1 + 2, this.bidVolume3, bidVolume3, version);
+            this.bidPrice4 = track(FIELD_BID_PRICE_1 + 3, this.bidPrice4, bidPrice4, version);
+            this.bidVolume4 = track(FIELD_BID_VOLUME_1 + 3, this.bidVolume4, bidVolume4, version);
+            this.bidPrice5 = track(FIELD_BID_PRICE_1 + 4, this.bidPrice5, bidPrice5, version);
+            this.bidVolume5 = track(FIELD_BID_VOLUME_1 + 4, this.bidVolume5, bidVolume5, version);
+            
+            // 更新五档卖盘
+            this.askPrice1 = track(FIELD_ASK_PRICE_1, this.askPrice1, askPrice1, version);
+            this.askVolume1 = track(FIELD_ASK_VOLUME_1, this.askVolume1, askVolume1, version);
+            this.askPrice2 = track(FIELD_ASK_PRICE_1 + 1, this.askPrice2, askPrice2, version);
+            this.askVolume2 = track(FIELD_ASK_VOLUME_1 + 1, this.askVolume2, askVolume2, version);
+            this.askPrice3 = track(FIELD_ASK_PRICE_1 + 2, this.askPrice3, askPrice3, version);
+            this.askVolume3 = track(FIELD_ASK_VOLUME_1 + 2, this.askVolume3, askVolume3, version);
+            this.askPrice4 = track(FIELD_ASK_PRICE_1 + 3, this.askPrice4, askPrice4, version);
+            this.askVolume4 = track(FIELD_ASK_VOLUME_1 + 3, this.askVolume4, askVolume4, version);
+            this.askPrice5 = track(FIELD_ASK_PRICE_1 + 4, this.askPrice5, askPrice5, version);
+            this.askVolume5 = track(FIELD_ASK_VOLUME_1 + 4, this.askVolume5, askVolume5, version);
+            
+            // 更新价格信息
+            this.upperLimitPrice = track(FIELD_UPPER_LIMIT_PRICE, this.upperLimitPrice, upperLimitPrice, version);
+            this.lowerLimitPrice = track(FIELD_LOWER_LIMIT_PRICE, this.lowerLimitPrice, lowerLimitPrice, version);
+            this.preClosePrice = track(FIELD_PRE_CLOSE_PRICE, this.preClosePrice, preClosePrice, version);
+            this.openPrice = track(FIELD_OPEN_PRICE, this.openPrice, openPrice, version);
+            this.highestPrice = track(FIELD_HIGHEST_PRICE, this.highestPrice, highestPrice, version);
+            this.lowestPrice = track(FIELD_LOWEST_PRICE, this.lowestPrice, lowestPrice, version);
+            
+            // 更新时间戳和计数
+            this.lastUpdateMillis = System.currentTimeMillis();
+            this.receiveNanos = receiveNanos;
+            this.applyNanos = System.nanoTime();
+            this.updateCount = version;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    // 字段变化时记录字段版本，返回新值
+    private double track(int field, double oldValue, double newValue, long version) {
+        if (oldValue != newValue) {
+            fieldVersions[field] = version;
+        }
+        return newValue;
+    }
+    
+    private long track(int field, long oldValue, long newValue, long version) {
+        if (oldValue != newValue) {
+            fieldVersions[field] = version;
+        }
+        return newValue;
+    }
+    
+    private int track(int field, int oldValue, int newValue, long version) {
+        if (oldValue != newValue) {
+            fieldVersions[field] = version;
+        }
+        return newValue;
+    }
+    
+    private String track(int field, String oldValue, String newValue, long version) {
+        if (!Objects.equals(oldValue, newValue)) {
+            fieldVersions[field] = version;
+        }
+        return newValue;
     }
     
     /**
@@ -128,16 +236,46 @@ public class MarketDataSnapshot {
      * 检查数据是否过期
      */
     public boolean isStale(int staleSeconds) {
-        return lastUpdateTime.isBefore(LocalDateTime.now().minusSeconds(staleSeconds));
+        return System.currentTimeMillis() - lastUpdateMillis > staleSeconds * 1000L;
+    }
+    
+    /**
+     * 把一致的数据视图拷贝到调用方提供的持有对象中
+     * 持有对象可以在同一线程内反复复用，读取过程不分配内存
+     *
+     * @param target 持有对象，不能是当前对象
+     * @return 传入的持有对象
+     */
+    public MarketDataSnapshot readInto(MarketDataSnapshot target) {
+        // 不获取读锁：读锁会阻塞行情写线程，写线程一次更新很短，重试总能在两次写入之间完成
+        for (int attempts = 1; ; attempts++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                copyFields(target);
+                if (lock.validate(stamp)) {
+                    return target;
+                }
+            }
+            if (attempts >= OPTIMISTIC_READ_SPINS) {
+                Thread.yield();
+            }
+        }
     }
     
     /**
      * 创建数据副本用于推送
      */
     public MarketDataSnapshot createSnapshot() {
-        MarketDataSnapshot snapshot = new MarketDataSnapshot(this.instrumentId, this.exchangeId);
-        
-        // 复制所有字段
+        return readInto(new MarketDataSnapshot());
+    }
+    
+    /**
+     * 复制所有字段，调用方负责一致性校验
+     */
+    private void copyFields(MarketDataSnapshot snapshot) {
+        snapshot.instrumentIndex = this.instrumentIndex;
+        snapshot.instrumentId = this.instrumentId;
+        snapshot.exchangeId = this.exchangeId;
         snapshot.instrumentName = this.instrumentName;
         snapshot.lastPrice = this.lastPrice;
         snapshot.preClosePrice = this.preClosePrice;
@@ -175,12 +313,25 @@ public class MarketDataSnapshot {
         
         snapshot.updateTime = this.updateTime;
         snapshot.tradingDay = this.tradingDay;
-        snapshot.lastUpdateTime = this.lastUpdateTime;
-        
-        return snapshot;
+        snapshot.lastUpdateMillis = this.lastUpdateMillis;
+        snapshot.receiveNanos = this.receiveNanos;
+        snapshot.applyNanos = this.applyNanos;
+        snapshot.updateCount = this.updateCount;
+        System.arraycopy(this.fieldVersions, 0, snapshot.fieldVersions, 0, FIELD_COUNT);
+    }
+    
+    /**
+     * 检查字段在指定版本之后是否发生过变化
+     * @param field 字段编号
+     * @param sinceVersion 基准版本（updateCount）
+     */
+    public boolean isFieldChangedSince(int field, long sinceVersion) {
+        return fieldVersions[field] > sinceVersion;
     }
     
     // Getters and Setters
+    public int getInstrumentIndex() { return instrumentIndex; }
+    
     public String getInstrumentId() { return instrumentId; }
     public void setInstrumentId(String instrumentId) { this.instrumentId = instrumentId; }
     
@@ -224,10 +375,63 @@ public class MarketDataSnapshot {
     public double getAskPrice5() { return askPrice5; }
     public int getAskVolume5() { return askVolume5; }
     
+    /**
+     * 按档位获取买卖盘数据
+     * @param level 档位，1-5
+     */
+    public double getBidPrice(int level) {
+        switch (level) {
+            case 1: return bidPrice1;
+            case 2: return bidPrice2;
+            case 3: return bidPrice3;
+            case 4: return bidPrice4;
+            case 5: return bidPrice5;
+            default: throw new IllegalArgumentException("无效的档位: " + level);
+        }
+    }
+    
+    public int getBidVolume(int level) {
+        switch (level) {
+            case 1: return bidVolume1;
+            case 2: return bidVolume2;
+            case 3: return bidVolume3;
+            case 4: return bidVolume4;
+            case 5: return bidVolume5;
+            default: throw new IllegalArgumentException("无效的档位: " + level);
+        }
+    }
+    
+    public double getAskPrice(int level) {
+        switch (level) {
+            case 1: return askPrice1;
+            case 2: return askPrice2;
+            case 3: return askPrice3;
+            case 4: return askPrice4;
+            case 5: return askPrice5;
+            default: throw new IllegalArgumentException("无效的档位: " + level);
+        }
+    }
+    
+    public int getAskVolume(int level) {
+        switch (level) {
+            case 1: return askVolume1;
+            case 2: return askVolume2;
+            case 3: return askVolume3;
+            case 4: return askVolume4;
+            case 5: return askVolume5;
+            default: throw new IllegalArgumentException("无效的档位: " + level);
+        }
+    }
+    
     public String getUpdateTime() { return updateTime; }
     public String getTradingDay() { return tradingDay; }
     public void setTradingDay(String tradingDay) { this.tradingDay = tradingDay; }
     
-    public LocalDateTime getLastUpdateTime() { return lastUpdateTime; }
-    public long getUpdateCount() { return updateCount.get(); }
+    public LocalDateTime getLastUpdateTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(lastUpdateMillis), ZoneId.systemDefault());
+    }
+    public long getLastUpdateMillis() { return lastUpdateMillis; }
+    public long getReceiveNanos() { return receiveNanos; }
+    public long getApplyNanos() { return applyNanos; }
+    public long getUpdateCount() { return updateCount; }
 }
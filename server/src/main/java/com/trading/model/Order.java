@@ -0,0 +1,197 @@
+package com.trading.model;
+
+/**
+ * 报单
+ * 本地报单簿中的报单状态，由 OrderBookService 在持锁时修改，对外只返回副本
+ */
+public class Order {
+
+    // 报单状态，与飞马API的报单状态取值一致
+    public static final char STATUS_ALL_TRADED = '0';               // 全部成交
+    public static final char STATUS_PART_TRADED_QUEUEING = '1';     // 部分成交还在队列中
+    public static final char STATUS_PART_TRADED_NOT_QUEUEING = '2'; // 部分成交不在队列中
+    public static final char STATUS_NO_TRADE_QUEUEING = '3';        // 未成交还在队列中
+    public static final char STATUS_NO_TRADE_NOT_QUEUEING = '4';    // 未成交不在队列中
+    public static final char STATUS_CANCELED = '5';                 // 撤单
+    public static final char STATUS_UNKNOWN = 'a';                  // 未知，已发出尚未收到回报
+
+    private int frontId;              // 前置编号
+    private int sessionId;            // 会话编号，报单引用只在同一前置、会话内唯一
+    private String orderRef;          // 报单引用
+    private String orderSysId;        // 报单编号，交易所受理后才有
+    private String instrumentId;      // 合约代码
+    private char direction;           // 买卖方向
+    private char offsetFlag;          // 开平标志
+    private double price;             // 价格
+    private int volume;               // 报单数量
+    private int volumeTraded;         // 已成交数量
+    private char orderStatus;         // 报单状态
+    private String statusMsg;         // 状态信息，如拒单原因
+    private long insertTime;          // 录入时间（毫秒）
+    private long updateTime;          // 最后更新时间（毫秒）
+
+    public Order() {
+    }
+
+    public Order(int frontId, int sessionId, String orderRef, String instrumentId, char direction, char offsetFlag,
+                 double price, int volume, char orderStatus) {
+        this.frontId = frontId;
+        this.sessionId = sessionId;
+        this.orderRef = orderRef;
+        this.instrumentId = instrumentId;
+        this.direction = direction;
+        this.offsetFlag = offsetFlag;
+        this.price = price;
+        this.volume = volume;
+        this.orderStatus = orderStatus;
+        this.insertTime = System.currentTimeMillis();
+        this.updateTime = insertTime;
+    }
+
+    /**
+     * 复制构造，用于对外返回副本
+     */
+    public Order(Order other) {
+        this.frontId = other.frontId;
+        this.sessionId = other.sessionId;
+        this.orderRef = other.orderRef;
+        this.orderSysId = other.orderSysId;
+        this.instrumentId = other.instrumentId;
+        this.direction = other.direction;
+        this.offsetFlag = other.offsetFlag;
+        this.price = other.price;
+        this.volume = other.volume;
+        this.volumeTraded = other.volumeTraded;
+        this.orderStatus = other.orderStatus;
+        this.statusMsg = other.statusMsg;
+        this.insertTime = other.insertTime;
+        this.updateTime = other.updateTime;
+    }
+
+    /**
+     * 报单状态是否为终态（全部成交、不在队列中、撤单），终态不再变化
+     */
+    public static boolean isTerminal(char orderStatus) {
+        return orderStatus == STATUS_ALL_TRADED
+                || orderStatus == STATUS_PART_TRADED_NOT_QUEUEING
+                || orderStatus == STATUS_NO_TRADE_NOT_QUEUEING
+                || orderStatus == STATUS_CANCELED;
+    }
+
+    public boolean isTerminal() {
+        return isTerminal(orderStatus);
+    }
+
+    // Getters and Setters
+    public int getFrontId() {
+        return frontId;
+    }
+
+    public void setFrontId(int frontId) {
+        this.frontId = frontId;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(int sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getOrderRef() {
+        return orderRef;
+    }
+
+    public void setOrderRef(String orderRef) {
+        this.orderRef = orderRef;
+    }
+
+    public String getOrderSysId() {
+        return orderSysId;
+    }
+
+    public void setOrderSysId(String orderSysId) {
+        this.orderSysId = orderSysId;
+    }
+
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    public void setInstrumentId(String instrumentId) {
+        this.instrumentId = instrumentId;
+    }
+
+    public char getDirection() {
+        return direction;
+    }
+
+    public void setDirection(char direction) {
+        this.direction = direction;
+    }
+
+    public char getOffsetFlag() {
+        return offsetFlag;
+    }
+
+    public void setOffsetFlag(char offsetFlag) {
+        this.offsetFlag = offsetFlag;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public int getVolume() {
+        return volume;
+    }
+
+    public void setVolume(int volume) {
+        this.volume = volume;
+    }
+
+    public int getVolumeTraded() {
+        return volumeTraded;
+    }
+
+    public void setVolumeTraded(int volumeTraded) {
+        this.volumeTraded = volumeTraded;
+    }
+
+    public char getOrderStatus() {
+        return orderStatus;
+    }
+
+    public void setOrderStatus(char orderStatus) {
+        this.orderStatus = orderStatus;
+    }
+
+    public String getStatusMsg() {
+        return statusMsg;
+    }
+
+    public void setStatusMsg(String statusMsg) {
+        this.statusMsg = statusMsg;
+    }
+
+    public long getInsertTime() {
+        return insertTime;
+    }
+
+    public void setInsertTime(long insertTime) {
+        this.insertTime = insertTime;
+    }
+
+    public long getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(long updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -0,0 +1,168 @@
+package com.trading.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * 持仓
+ * 按合约和持仓方向区分，由 PositionService 在持锁时修改，对外只返回副本
+ */
+public class Position {
+
+    // 持仓方向，与飞马API的持仓多空方向取值一致
+    public static final char DIRECTION_LONG = '2';   // 多头
+    public static final char DIRECTION_SHORT = '3';  // 空头
+
+    private String instrumentId;      // 合约代码
+    private char posiDirection;       // 持仓方向
+    private int position;             // 总持仓
+    private int todayPosition;        // 今仓
+    private int ydPosition;           // 昨仓
+    private double openCost;          // 开仓成本（开仓价 × 数量 × 合约乘数）
+    private int volumeMultiple;       // 合约乘数
+    private double lastPrice;         // 最新价，无行情时为最近成交价
+    private double positionProfit;    // 浮动盈亏（按开仓均价）
+    private double closeProfit;       // 平仓盈亏（按开仓均价）
+    private long updateTime;          // 最后更新时间（毫秒）
+
+    // 最近一次盯市时的行情版本，只在盯市线程中使用
+    @JsonIgnore
+    private transient long markedVersion;
+
+    public Position() {
+    }
+
+    public Position(String instrumentId, char posiDirection, int volumeMultiple) {
+        this.instrumentId = instrumentId;
+        this.posiDirection = posiDirection;
+        this.volumeMultiple = volumeMultiple;
+    }
+
+    /**
+     * 复制构造，用于对外返回副本
+     */
+    public Position(Position other) {
+        this.instrumentId = other.instrumentId;
+        this.posiDirection = other.posiDirection;
+        this.position = other.position;
+        this.todayPosition = other.todayPosition;
+        this.ydPosition = other.ydPosition;
+        this.openCost = other.openCost;
+        this.volumeMultiple = other.volumeMultiple;
+        this.lastPrice = other.lastPrice;
+        this.positionProfit = other.positionProfit;
+        this.closeProfit = other.closeProfit;
+        this.updateTime = other.updateTime;
+    }
+
+    /**
+     * 开仓均价
+     */
+    public double getAvgOpenPrice() {
+        return position > 0 && volumeMultiple > 0 ? openCost / ((double) position * volumeMultiple) : 0;
+    }
+
+    /**
+     * 按最新价重算浮动盈亏
+     */
+    public void markToMarket() {
+        double marketValue = lastPrice * position * volumeMultiple;
+        positionProfit = posiDirection == DIRECTION_LONG ? marketValue - openCost : openCost - marketValue;
+    }
+
+    // Getters and Setters
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    public void setInstrumentId(String instrumentId) {
+        this.instrumentId = instrumentId;
+    }
+
+    public char getPosiDirection() {
+        return posiDirection;
+    }
+
+    public void setPosiDirection(char posiDirection) {
+        this.posiDirection = posiDirection;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public int getTodayPosition() {
+        return todayPosition;
+    }
+
+    public void setTodayPosition(int todayPosition) {
+        this.todayPosition = todayPosition;
+    }
+
+    public int getYdPosition() {
+        return ydPosition;
+    }
+
+    public void setYdPosition(int ydPosition) {
+        this.ydPosition = ydPosition;
+    }
+
+    public double getOpenCost() {
+        return openCost;
+    }
+
+    public void setOpenCost(double openCost) {
+        this.openCost = openCost;
+    }
+
+    public int getVolumeMultiple() {
+        return volumeMultiple;
+    }
+
+    public void setVolumeMultiple(int volumeMultiple) {
+        this.volumeMultiple = volumeMultiple;
+    }
+
+    public double getLastPrice() {
+        return lastPrice;
+    }
+
+    public void setLastPrice(double lastPrice) {
+        this.lastPrice = lastPrice;
+    }
+
+    public double getPositionProfit() {
+        return positionProfit;
+    }
+
+    public void setPositionProfit(double positionProfit) {
+        this.positionProfit = positionProfit;
+    }
+
+    public double getCloseProfit() {
+        return closeProfit;
+    }
+
+    public void setCloseProfit(double closeProfit) {
+        this.closeProfit = closeProfit;
+    }
+
+    public long getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(long updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    public long getMarkedVersion() {
+        return markedVersion;
+    }
+
+    public void setMarkedVersion(long markedVersion) {
+        this.markedVersion = markedVersion;
+    }
+}
@@ -0,0 +1,67 @@
+package com.trading.model;
+
+/**
+ * 成交
+ * 成交一经产生不再变化
+ */
+public class Trade {
+
+    private final String tradeId;         // 成交编号
+    private final String orderRef;        // 报单引用
+    private final String orderSysId;      // 报单编号，成交早于报单回报到达时为空
+    private final String instrumentId;    // 合约代码
+    private final char direction;         // 买卖方向
+    private final char offsetFlag;        // 开平标志
+    private final double price;           // 成交价格
+    private final int volume;             // 成交数量
+    private final String tradeTime;       // 成交时间
+
+    public Trade(String tradeId, String orderRef, String orderSysId, String instrumentId,
+                 char direction, char offsetFlag, double price, int volume, String tradeTime) {
+        this.tradeId = tradeId;
+        this.orderRef = orderRef;
+        this.orderSysId = orderSysId;
+        this.instrumentId = instrumentId;
+        this.direction = direction;
+        this.offsetFlag = offsetFlag;
+        this.price = price;
+        this.volume = volume;
+        this.tradeTime = tradeTime;
+    }
+
+    public String getTradeId() {
+        return tradeId;
+    }
+
+    public String getOrderRef() {
+        return orderRef;
+    }
+
+    public String getOrderSysId() {
+        return orderSysId;
+    }
+
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    public char getDirection() {
+        return direction;
+    }
+
+    public char getOffsetFlag() {
+        return offsetFlag;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public int getVolume() {
+        return volume;
+    }
+
+    public String getTradeTime() {
+        return tradeTime;
+    }
+}
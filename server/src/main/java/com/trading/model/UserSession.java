@@ -96,6 +96,13 @@ public class UserSession {
         return subscribedInstruments.contains(instrument);
     }
     
+    /**
+     * 是否有任何订阅
+     */
+    public boolean hasSubscriptions() {
+        return !subscribedExchanges.isEmpty() || !subscribedInstruments.isEmpty();
+    }
+    
     /**
      * 添加权限
      */
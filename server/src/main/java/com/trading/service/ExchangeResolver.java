@@ -0,0 +1,170 @@
+package com.trading.service;
+
+import com.trading.config.TradingConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 交易所推断
+ * 取合约代码开头的全部字母作为品种代码，在前缀树中精确查找所属交易所，与品种的登记顺序无关
+ * （如 T2406 属于中金所，TA405 属于郑商所）。未登记的品种返回 {@link #UNKNOWN_EXCHANGE}，
+ * 不按较短的已登记品种推断（如 AO 不会被当作大商所的 A）。
+ *
+ * 品种表由内置默认值、配置项 trading.exchange-products 和合约查询响应（onRspQryInstrument）组成。
+ * 只在合约注册时调用一次，结果缓存在 {@link InstrumentRegistry} 中，行情处理链路不再推断交易所；
+ * 合约查询响应给出的交易所与注册时的推断不一致时，以查询结果更新注册表。
+ */
+@Service
+public class ExchangeResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExchangeResolver.class);
+
+    public static final String UNKNOWN_EXCHANGE = "UNKNOWN";
+
+    // 内置品种表
+    private static final String[][] DEFAULT_PRODUCTS = {
+        {"SHFE", "CU", "AL", "ZN", "PB", "NI", "SN", "AU", "AG", "RB", "WR", "HC", "FU", "BU", "RU", "SS", "SP"},
+        {"CFFEX", "IF", "IC", "IH", "IM", "T", "TF", "TS", "TL"},
+        {"DCE", "A", "B", "C", "CS", "I", "J", "JM", "L", "M", "P", "PP", "V", "Y", "JD", "LH", "EB", "EG",
+            "RR", "PG"},
+        {"CZCE", "CF", "CY", "FG", "JR", "LR", "MA", "OI", "PM", "RI", "RM", "RS", "SF", "SM", "SR", "TA",
+            "WH", "ZC", "AP", "CJ", "UR", "SA", "PF", "PK"},
+        {"INE", "SC", "NR", "LU", "BC", "EC"}
+    };
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    private final Node root = new Node();
+
+    // 品种表中出现过的交易所代码
+    private final Set<String> exchangeIds = ConcurrentHashMap.newKeySet();
+
+    public ExchangeResolver() {
+        for (String[] exchange : DEFAULT_PRODUCTS) {
+            for (int i = 1; i < exchange.length; i++) {
+                register(exchange[i], exchange[0]);
+            }
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        Map<String, List<String>> configured = tradingConfig.getExchangeProducts();
+        int count = 0;
+        for (Map.Entry<String, List<String>> entry : configured.entrySet()) {
+            for (String productId : entry.getValue()) {
+                if (register(productId, entry.getKey())) {
+                    count++;
+                }
+            }
+        }
+        logger.info("交易所品种表加载完成，配置品种数: {}", count);
+    }
+
+    /**
+     * 是否为品种表中登记过的交易所
+     */
+    public boolean isKnownExchange(String exchangeId) {
+        return exchangeId != null && exchangeIds.contains(exchangeId);
+    }
+
+    /**
+     * 登记品种所属交易所，已登记的品种会被覆盖
+     * @param productId 品种代码，只使用其中的字母，不区分大小写
+     * @return 是否登记成功
+     */
+    public synchronized boolean register(String productId, String exchangeId) {
+        if (productId == null || exchangeId == null || exchangeId.isEmpty()) {
+            return false;
+        }
+
+        Node node = root;
+        int length = 0;
+        for (int i = 0; i < productId.length(); i++) {
+            int slot = letterSlot(productId.charAt(i));
+            if (slot < 0) {
+                break;
+            }
+            Node child = node.children[slot];
+            if (child == null) {
+                child = new Node();
+                node.children[slot] = child;
+            }
+            node = child;
+            length++;
+        }
+        if (length == 0) {
+            return false;
+        }
+
+        String previous = node.exchangeId;
+        node.exchangeId = exchangeId;
+        exchangeIds.add(exchangeId);
+        if (previous != null && !previous.equals(exchangeId)) {
+            logger.warn("品种所属交易所变更: {} {} -> {}", productId, previous, exchangeId);
+        }
+        return true;
+    }
+
+    /**
+     * 推断合约所属交易所，只匹配完整的品种代码
+     * @return 交易所代码，品种未登记时返回 {@link #UNKNOWN_EXCHANGE}
+     */
+    public String resolve(String instrumentId) {
+        if (instrumentId == null) {
+            return UNKNOWN_EXCHANGE;
+        }
+
+        Node node = root;
+        for (int i = 0; i < instrumentId.length(); i++) {
+            int slot = letterSlot(instrumentId.charAt(i));
+            if (slot < 0) {
+                break;
+            }
+            node = node.children[slot];
+            if (node == null) {
+                return UNKNOWN_EXCHANGE;
+            }
+        }
+        String exchangeId = node.exchangeId;
+        return exchangeId != null ? exchangeId : UNKNOWN_EXCHANGE;
+    }
+
+    /**
+     * 合约代码的品种部分（开头的字母，大写）
+     */
+    public static String productOf(String instrumentId) {
+        int end = 0;
+        while (end < instrumentId.length() && letterSlot(instrumentId.charAt(end)) >= 0) {
+            end++;
+        }
+        return instrumentId.substring(0, end).toUpperCase();
+    }
+
+    private static int letterSlot(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        return -1;
+    }
+
+    /**
+     * 前缀树节点，子节点数组下标为字母序号
+     */
+    private static final class Node {
+        private final Node[] children = new Node[26];
+        private volatile String exchangeId;
+    }
+}
@@ -0,0 +1,122 @@
+package com.trading.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 合约注册表
+ * 在订阅时为每个合约分配一个稠密的整数索引，行情处理链路之后只使用索引访问数组，
+ * 不再在每个tick上对合约代码做哈希查找。索引一经分配不会回收，交易所可以被合约查询响应更正。
+ */
+@Service
+public class InstrumentRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstrumentRegistry.class);
+
+    // 未注册合约的索引
+    public static final int NOT_REGISTERED = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // 合约代码 -> 索引，只在注册时写入
+    private final ConcurrentHashMap<String, Integer> indexes = new ConcurrentHashMap<>();
+
+    // 索引 -> 合约代码 / 交易所代码，扩容时整体替换
+    private volatile String[] instrumentIds = new String[INITIAL_CAPACITY];
+    private volatile String[] exchangeIds = new String[INITIAL_CAPACITY];
+
+    // 已分配的索引数量
+    private volatile int size;
+
+    /**
+     * 注册合约，已注册的合约直接返回原索引
+     * @param instrumentId 合约代码
+     * @param exchangeId 交易所代码
+     * @return 合约索引
+     */
+    public int register(String instrumentId, String exchangeId) {
+        Integer index = indexes.get(instrumentId);
+        if (index != null) {
+            return index;
+        }
+        return registerSlow(instrumentId, exchangeId);
+    }
+
+    private synchronized int registerSlow(String instrumentId, String exchangeId) {
+        Integer existing = indexes.get(instrumentId);
+        if (existing != null) {
+            return existing;
+        }
+
+        int index = size;
+        if (index == instrumentIds.length) {
+            int newCapacity = index << 1;
+            String[] newInstrumentIds = Arrays.copyOf(instrumentIds, newCapacity);
+            String[] newExchangeIds = Arrays.copyOf(exchangeIds, newCapacity);
+            newInstrumentIds[index] = instrumentId;
+            newExchangeIds[index] = exchangeId;
+            instrumentIds = newInstrumentIds;
+            exchangeIds = newExchangeIds;
+        } else {
+            instrumentIds[index] = instrumentId;
+            exchangeIds[index] = exchangeId;
+        }
+        size = index + 1;
+        indexes.put(instrumentId, index);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("注册合约: {} -> {} ({})", instrumentId, index, exchangeId);
+        }
+        return index;
+    }
+
+    /**
+     * 更正已注册合约的交易所，数组写时复制，读线程看到的要么是旧值要么是新值
+     * 应通过 {@link MarketDataCacheService#updateExchange} 调用，以便同步修改交易所成员关系
+     * @return 原交易所代码，合约未注册时返回null
+     */
+    synchronized String updateExchange(int index, String exchangeId) {
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        String previous = exchangeIds[index];
+        String[] updated = exchangeIds.clone();
+        updated[index] = exchangeId;
+        exchangeIds = updated;
+        return previous;
+    }
+
+    /**
+     * 获取合约索引
+     * @return 合约索引，未注册时返回 {@link #NOT_REGISTERED}
+     */
+    public int indexOf(String instrumentId) {
+        Integer index = indexes.get(instrumentId);
+        return index != null ? index : NOT_REGISTERED;
+    }
+
+    /**
+     * 根据索引获取合约代码
+     */
+    public String getInstrumentId(int index) {
+        return index >= 0 && index < size ? instrumentIds[index] : null;
+    }
+
+    /**
+     * 根据索引获取交易所代码
+     */
+    public String getExchangeId(int index) {
+        return index >= 0 && index < size ? exchangeIds[index] : null;
+    }
+
+    /**
+     * 已注册的合约数量，索引范围为 [0, size)
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,122 @@
+package com.trading.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延迟直方图
+ * 对数-线性分桶：小于32ns的值精确记录，其余按2的幂分段，每段16个子桶，相对误差不超过1/16。
+ * 记录只是一次数组原子自增，不分配对象，可在行情链路上多线程并发调用。
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + 59 * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * 记录一个延迟值（纳秒），负值按0记录
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * 获取分位数（纳秒），返回所在桶的上界，不超过最大值
+     * @param percentile 0至1之间
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= target) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * 清空，与并发记录之间不保证原子性，只用于统计周期切换
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+    /**
+     * 常用分位数，单位微秒
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", getCount());
+        stats.put("p50Micros", toMicros(getPercentileNanos(0.50)));
+        stats.put("p90Micros", toMicros(getPercentileNanos(0.90)));
+        stats.put("p99Micros", toMicros(getPercentileNanos(0.99)));
+        stats.put("p999Micros", toMicros(getPercentileNanos(0.999)));
+        stats.put("p9999Micros", toMicros(getPercentileNanos(0.9999)));
+        stats.put("maxMicros", toMicros(getMaxNanos()));
+        return stats;
+    }
+
+    private static double toMicros(long nanos) {
+        return Math.round(nanos / (double) TimeUnit.MICROSECONDS.toNanos(1) * 100) / 100.0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+        int top = (int) (value >>> shift);
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int k = index - LINEAR_BUCKETS;
+        int shift = k / SUB_BUCKETS + 1;
+        long top = k % SUB_BUCKETS + SUB_BUCKETS;
+        if (shift + 5 >= 63) {
+            return Long.MAX_VALUE;
+        }
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,461 @@
+package com.trading.service;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.ApiResponse;
+import com.trading.model.Bar;
+import com.trading.model.DepthMarketDataEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * K线服务
+ * 行情消费线程写入缓存后把每笔行情交给本服务，增量更新合约的 1s、1m、5m、15m 和交易日K线。
+ * 每个合约每个周期的K线保存在定长环形数组中（开高低收、成交量等各一个基本类型数组），超出容量的旧K线被覆盖，
+ * 更新K线不分配对象。分钟级K线的成交量、成交金额由相邻两笔行情的累计值相减得到；
+ * 日K线直接取行情中的开盘价、最高价、最低价和累计成交量，不受服务启动前的行情影响。
+ *
+ * K线时间按行情更新时间（HH:mm:ss[.SSS]）计算，时间回退超过12小时视为跨午夜；交易日变化时日K线收盘。
+ * 一根K线在该合约下一笔落入新周期的行情到达时收盘，收盘事件交给推送线程发送，不阻塞行情消费线程。
+ * 只有行情消费线程写入，查询时按合约加锁复制。
+ */
+@Service
+public class MarketBarService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketBarService.class);
+
+    // K线周期
+    public static final List<String> PERIODS = Collections.unmodifiableList(Arrays.asList("1s", "1m", "5m", "15m", "1d"));
+
+    private static final long[] PERIOD_MILLIS = {1000L, 60000L, 300000L, 900000L, 0L};
+    private static final int[] DEFAULT_CAPACITIES = {600, 480, 288, 96, 60};
+    private static final int DAILY = 4;
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private boolean enabled;
+    private int[] capacities;
+    private boolean[] pushEnabled;
+
+    // 合约索引 -> K线，只由行情消费线程扩容和赋值
+    private volatile InstrumentBars[] bars = new InstrumentBars[INITIAL_CAPACITY];
+
+    private ExecutorService pushExecutor;
+
+    // 本地零点（纪元毫秒），K线开始时间按它对齐；以下两项只在行情消费线程中访问
+    private long dayBaseMillis;
+    private long lastTimeOfDayMillis = -1;
+
+    // 交易日切换次数，日K线据此收盘
+    private volatile int tradingDayGeneration;
+    private volatile String tradingDay;
+
+    // 统计，只由行情消费线程写入
+    private volatile int instrumentCount;
+    private volatile long closedBarCount;
+
+    @PostConstruct
+    public void initialize() {
+        TradingConfig.Bars config = tradingConfig.getBars();
+        enabled = config.isEnabled();
+        capacities = new int[PERIODS.size()];
+        pushEnabled = new boolean[PERIODS.size()];
+        for (int p = 0; p < capacities.length; p++) {
+            Integer capacity = config.getCapacities().get(PERIODS.get(p));
+            capacities[p] = capacity != null && capacity > 0 ? capacity : DEFAULT_CAPACITIES[p];
+            pushEnabled[p] = config.getPushPeriods().contains(PERIODS.get(p));
+        }
+        dayBaseMillis = LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        pushExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "BarPush");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Gauge.builder("market.bars.instruments", this, MarketBarService::getInstrumentCount)
+                .description("生成K线的合约数").register(meterRegistry);
+        FunctionCounter.builder("market.bars.closed", this, MarketBarService::getClosedBarCount)
+                .description("已收盘的K线数").register(meterRegistry);
+
+        logger.info("K线服务初始化完成 - 启用: {}, 周期: {}, 容量: {}, 推送周期: {}",
+                enabled, PERIODS, Arrays.toString(capacities), config.getPushPeriods());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (pushExecutor != null) {
+            pushExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 设置交易日，交易日变化后每个合约的下一笔行情使日K线收盘
+     */
+    public void setTradingDay(String tradingDay) {
+        if (tradingDay == null || tradingDay.equals(this.tradingDay)) {
+            return;
+        }
+        if (this.tradingDay != null) {
+            logger.info("交易日切换 {} -> {}，日K线收盘", this.tradingDay, tradingDay);
+        }
+        this.tradingDay = tradingDay;
+        tradingDayGeneration++;
+    }
+
+    /**
+     * 用一笔行情更新K线，在行情消费线程中调用
+     */
+    public void onTick(DepthMarketDataEvent event) {
+        double price = event.getLastPrice();
+        if (!enabled || price <= 0) {
+            return;
+        }
+        long time = tickTime(event.getUpdateTime());
+        InstrumentBars instrument = getOrCreate(event.getInstrumentIndex());
+
+        synchronized (instrument) {
+            long volume = event.getVolume();
+            double turnover = event.getTurnover();
+            long volumeDelta = 0;
+            double turnoverDelta = 0;
+            if (instrument.lastVolume >= 0) {
+                // 累计值变小说明交易日已切换，累计值从0重新开始
+                volumeDelta = volume >= instrument.lastVolume ? volume - instrument.lastVolume : volume;
+                turnoverDelta = turnover >= instrument.lastTurnover ? turnover - instrument.lastTurnover : turnover;
+            }
+            instrument.lastVolume = volume;
+            instrument.lastTurnover = turnover;
+
+            for (int p = 0; p < DAILY; p++) {
+                long start = time - Math.floorMod(time - dayBaseMillis, PERIOD_MILLIS[p]);
+                if (instrument.series[p].update(start, price, volumeDelta, turnoverDelta, event.getOpenInterest())) {
+                    onBarClosed(instrument, p);
+                }
+            }
+
+            BarSeries daily = instrument.series[DAILY];
+            int generation = tradingDayGeneration;
+            boolean newDay = daily.isEmpty() || instrument.tradingDayGeneration != generation;
+            if (newDay && !daily.isEmpty()) {
+                onBarClosed(instrument, DAILY);
+            }
+            instrument.tradingDayGeneration = generation;
+            daily.updateDaily(newDay, time, price, event.getOpenPrice(), event.getHighestPrice(),
+                    event.getLowestPrice(), volume, turnover, event.getOpenInterest());
+        }
+    }
+
+    /**
+     * K线收盘，收盘事件交给推送线程
+     */
+    private void onBarClosed(InstrumentBars instrument, int period) {
+        closedBarCount++;
+        if (pushEnabled[period]) {
+            Bar bar = instrument.series[period].read(instrument.instrumentId, PERIODS.get(period), 1);
+            pushExecutor.execute(() -> messagingTemplate.convertAndSend(
+                    "/topic/market/bars/" + bar.getInstrumentId(), ApiResponse.success("K线收盘", bar)));
+        }
+    }
+
+    private InstrumentBars getOrCreate(int index) {
+        InstrumentBars[] current = bars;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length << 1, index + 1));
+        }
+        InstrumentBars instrument = new InstrumentBars(instrumentRegistry.getInstrumentId(index), capacities);
+        current[index] = instrument;
+        bars = current;
+        instrumentCount++;
+        return instrument;
+    }
+
+    /**
+     * 行情更新时间换算为纪元毫秒，无法解析时使用本地时间
+     */
+    private long tickTime(String updateTime) {
+        long timeOfDay = parseTimeOfDay(updateTime);
+        if (timeOfDay < 0) {
+            return System.currentTimeMillis();
+        }
+        if (lastTimeOfDayMillis >= 0) {
+            long back = lastTimeOfDayMillis - timeOfDay;
+            if (back > MILLIS_PER_DAY / 2) {
+                // 跨午夜
+                dayBaseMillis += MILLIS_PER_DAY;
+            } else if (back < -MILLIS_PER_DAY / 2) {
+                // 跨午夜后迟到的前一天的行情
+                return dayBaseMillis - MILLIS_PER_DAY + timeOfDay;
+            }
+        }
+        lastTimeOfDayMillis = timeOfDay;
+        return dayBaseMillis + timeOfDay;
+    }
+
+    /**
+     * 解析 HH:mm:ss[.SSS]，格式不符时返回-1
+     */
+    static long parseTimeOfDay(String time) {
+        if (time == null || time.length() < 8 || time.charAt(2) != ':' || time.charAt(5) != ':') {
+            return -1;
+        }
+        int hours = twoDigits(time, 0);
+        int minutes = twoDigits(time, 3);
+        int seconds = twoDigits(time, 6);
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return -1;
+        }
+        long millis = ((hours * 60L + minutes) * 60L + seconds) * 1000L;
+        if (time.length() > 9 && time.charAt(8) == '.') {
+            int scale = 100;
+            for (int i = 9; i < time.length() && scale > 0; i++, scale /= 10) {
+                int digit = time.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                millis += digit * scale;
+            }
+        }
+        return millis;
+    }
+
+    private static int twoDigits(String s, int offset) {
+        int high = s.charAt(offset) - '0';
+        int low = s.charAt(offset + 1) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9) {
+            return -1;
+        }
+        return high * 10 + low;
+    }
+
+    /**
+     * 查询K线，按时间升序，最后一根为未收盘的当前K线
+     * @param period 周期，见 {@link #PERIODS}
+     * @param from 开始时间（纪元毫秒），不早于该时间的K线才返回，0表示不限制
+     * @param limit 最多返回最近的K线数量
+     * @return 周期不支持时返回null
+     */
+    public List<Bar> getBars(String instrumentId, String period, long from, int limit) {
+        int p = PERIODS.indexOf(period);
+        if (p < 0) {
+            return null;
+        }
+        int index = instrumentRegistry.indexOf(instrumentId);
+        InstrumentBars[] current = bars;
+        if (index == InstrumentRegistry.NOT_REGISTERED || index >= current.length || current[index] == null) {
+            return new ArrayList<>();
+        }
+        InstrumentBars instrument = current[index];
+        synchronized (instrument) {
+            return instrument.series[p].readRange(instrumentId, period, from, limit);
+        }
+    }
+
+    public int getInstrumentCount() {
+        return instrumentCount;
+    }
+
+    public long getClosedBarCount() {
+        return closedBarCount;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Integer> capacityByPeriod = new HashMap<>();
+        for (int p = 0; p < capacities.length; p++) {
+            capacityByPeriod.put(PERIODS.get(p), capacities[p]);
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("tradingDay", tradingDay);
+        stats.put("instruments", instrumentCount);
+        stats.put("closedBars", closedBarCount);
+        stats.put("capacities", capacityByPeriod);
+        stats.put("pushPeriods", tradingConfig.getBars().getPushPeriods());
+        return stats;
+    }
+
+    /**
+     * 一个合约各周期的K线，修改和读取都在该对象的锁内
+     */
+    private static final class InstrumentBars {
+
+        final String instrumentId;
+        final BarSeries[] series;
+
+        // 上一笔行情的累计成交量和成交金额，-1表示还没有行情
+        long lastVolume = -1;
+        double lastTurnover;
+
+        int tradingDayGeneration;
+
+        InstrumentBars(String instrumentId, int[] capacities) {
+            this.instrumentId = instrumentId;
+            this.series = new BarSeries[capacities.length];
+            for (int p = 0; p < capacities.length; p++) {
+                series[p] = new BarSeries(capacities[p]);
+            }
+        }
+    }
+
+    /**
+     * 一个周期的K线环形数组，第 count-1 根为当前K线
+     */
+    private static final class BarSeries {
+
+        final int capacity;
+        final long[] startTimes;
+        final double[] opens;
+        final double[] highs;
+        final double[] lows;
+        final double[] closes;
+        final long[] volumes;
+        final double[] turnovers;
+        final double[] openInterests;
+
+        // 开始过的K线总数
+        long count;
+
+        BarSeries(int capacity) {
+            this.capacity = capacity;
+            this.startTimes = new long[capacity];
+            this.opens = new double[capacity];
+            this.highs = new double[capacity];
+            this.lows = new double[capacity];
+            this.closes = new double[capacity];
+            this.volumes = new long[capacity];
+            this.turnovers = new double[capacity];
+            this.openInterests = new double[capacity];
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * 用一笔行情更新K线，早于当前K线的行情并入当前K线
+         * @return 是否使上一根K线收盘
+         */
+        boolean update(long start, double price, long volumeDelta, double turnoverDelta, double openInterest) {
+            if (count == 0 || start > startTimes[slot(count - 1)]) {
+                int i = slot(count++);
+                startTimes[i] = start;
+                opens[i] = price;
+                highs[i] = price;
+                lows[i] = price;
+                closes[i] = price;
+                volumes[i] = volumeDelta;
+                turnovers[i] = turnoverDelta;
+                openInterests[i] = openInterest;
+                return count > 1;
+            }
+            int i = slot(count - 1);
+            if (price > highs[i]) {
+                highs[i] = price;
+            }
+            if (price < lows[i]) {
+                lows[i] = price;
+            }
+            closes[i] = price;
+            volumes[i] += volumeDelta;
+            turnovers[i] += turnoverDelta;
+            openInterests[i] = openInterest;
+            return false;
+        }
+
+        /**
+         * 更新日K线，交易所提供的开盘价、最高价、最低价有效时优先使用
+         */
+        void updateDaily(boolean newDay, long time, double price, double openPrice, double highestPrice,
+                         double lowestPrice, long volume, double turnover, double openInterest) {
+            int i;
+            if (newDay) {
+                i = slot(count++);
+                startTimes[i] = time;
+                opens[i] = price;
+                highs[i] = price;
+                lows[i] = price;
+            } else {
+                i = slot(count - 1);
+                highs[i] = Math.max(highs[i], price);
+                lows[i] = Math.min(lows[i], price);
+            }
+            if (openPrice > 0) {
+                opens[i] = openPrice;
+            }
+            if (highestPrice > 0) {
+                highs[i] = Math.max(highs[i], highestPrice);
+            }
+            if (lowestPrice > 0) {
+                lows[i] = Math.min(lows[i], lowestPrice);
+            }
+            closes[i] = price;
+            volumes[i] = volume;
+            turnovers[i] = turnover;
+            openInterests[i] = openInterest;
+        }
+
+        private int slot(long n) {
+            return (int) (n % capacity);
+        }
+
+        /**
+         * 读取倒数第 back 根K线，0为当前K线
+         */
+        Bar read(String instrumentId, String period, int back) {
+            long n = count - 1 - back;
+            int i = slot(n);
+            return new Bar(instrumentId, period, startTimes[i], opens[i], highs[i], lows[i], closes[i],
+                    volumes[i], turnovers[i], openInterests[i], back > 0);
+        }
+
+        List<Bar> readRange(String instrumentId, String period, long from, int limit) {
+            int available = (int) Math.min(count, capacity);
+            int n = Math.min(available, Math.max(limit, 0));
+            List<Bar> result = new ArrayList<>(n);
+            for (int back = n - 1; back >= 0; back--) {
+                if (startTimes[slot(count - 1 - back)] >= from) {
+                    result.add(read(instrumentId, period, back));
+                }
+            }
+            return result;
+        }
+    }
+}
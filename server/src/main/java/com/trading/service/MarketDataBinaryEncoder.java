@@ -0,0 +1,158 @@
+package com.trading.service;
+
+import com.trading.model.MarketDataSnapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 行情二进制编码
+ * 定长小端格式，供选择二进制推送的会话使用，客户端可直接用 DataView 解码。
+ *
+ * 帧头（{@link #HEADER_SIZE} 字节）:
+ * <pre>
+ *  0  uint16  魔数 0x444D（"MD"）
+ *  2  uint8   格式版本 {@link #FORMAT_VERSION}
+ *  3  uint8   帧类型 0=全量 1=增量
+ *  4  int32   记录数量
+ *  8  int64   会话内推送序号 seq
+ * 16  int64   推送时间戳（毫秒）
+ * </pre>
+ *
+ * 合约记录（{@link #RECORD_SIZE} 字节，紧跟帧头依次排列）:
+ * <pre>
+ *   0  int32   合约索引（对应 /api/market/instrument-index 字典）
+ *   4  int32   变化字段掩码，第 n 位对应 MarketDataSnapshot.FIELD_* 编号 n，全量记录全部置位
+ *   8  int64   版本 updateCount
+ *  16  int64   成交量
+ *  24  float64 成交金额
+ *  32  int64   持仓量
+ *  40  int32   更新时间 HHmmss
+ *  44  int32   最新价
+ *  48  int32   昨收价
+ *  52  int32   开盘价
+ *  56  int32   最高价
+ *  60  int32   最低价
+ *  64  int32   涨停价
+ *  68  int32   跌停价
+ *  72  int32[5] 买一至买五价
+ *  92  int32[5] 买一至买五量
+ * 112  int32[5] 卖一至卖五价
+ * 132  int32[5] 卖一至卖五量
+ * </pre>
+ * 价格为实际价格乘以 {@link #PRICE_SCALE} 后取整，无效价格（未设置、非有限值或超出范围）编码为 {@link #NO_PRICE}。
+ */
+public final class MarketDataBinaryEncoder {
+
+    public static final int MAGIC = 0x444D;
+    public static final int FORMAT_VERSION = 1;
+    public static final int FRAME_TYPE_FULL = 0;
+    public static final int FRAME_TYPE_DELTA = 1;
+
+    public static final int HEADER_SIZE = 24;
+    public static final int RECORD_SIZE = 152;
+
+    public static final int PRICE_SCALE = 1000;
+    public static final int NO_PRICE = Integer.MIN_VALUE;
+
+    // 全量记录的字段掩码
+    public static final int ALL_FIELDS_MASK = (1 << MarketDataSnapshot.FIELD_COUNT) - 1;
+
+    private static final double MAX_PRICE = (double) Integer.MAX_VALUE / PRICE_SCALE;
+
+    private MarketDataBinaryEncoder() {
+    }
+
+    /**
+     * 编码单个合约记录
+     * @param snapshot 一致的行情副本（readInto 的持有对象）
+     * @param baseVersion 基准版本，0表示全量记录
+     */
+    public static byte[] encodeRecord(MarketDataSnapshot snapshot, long baseVersion) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(snapshot.getInstrumentIndex());
+        buffer.putInt(baseVersion == 0 ? ALL_FIELDS_MASK : changedFieldsMask(snapshot, baseVersion));
+        buffer.putLong(snapshot.getUpdateCount());
+        buffer.putLong(snapshot.getVolume());
+        buffer.putDouble(snapshot.getTurnover());
+        buffer.putLong(Math.round(snapshot.getOpenInterest()));
+        buffer.putInt(encodeTime(snapshot.getUpdateTime()));
+        buffer.putInt(encodePrice(snapshot.getLastPrice()));
+        buffer.putInt(encodePrice(snapshot.getPreClosePrice()));
+        buffer.putInt(encodePrice(snapshot.getOpenPrice()));
+        buffer.putInt(encodePrice(snapshot.getHighestPrice()));
+        buffer.putInt(encodePrice(snapshot.getLowestPrice()));
+        buffer.putInt(encodePrice(snapshot.getUpperLimitPrice()));
+        buffer.putInt(encodePrice(snapshot.getLowerLimitPrice()));
+        for (int level = 1; level <= 5; level++) {
+            buffer.putInt(encodePrice(snapshot.getBidPrice(level)));
+        }
+        for (int level = 1; level <= 5; level++) {
+            buffer.putInt(snapshot.getBidVolume(level));
+        }
+        for (int level = 1; level <= 5; level++) {
+            buffer.putInt(encodePrice(snapshot.getAskPrice(level)));
+        }
+        for (int level = 1; level <= 5; level++) {
+            buffer.putInt(snapshot.getAskVolume(level));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 写入帧头
+     */
+    public static void writeHeader(ByteBuffer buffer, boolean full, int count, long sequence, long timestamp) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putShort((short) MAGIC);
+        buffer.put((byte) FORMAT_VERSION);
+        buffer.put((byte) (full ? FRAME_TYPE_FULL : FRAME_TYPE_DELTA));
+        buffer.putInt(count);
+        buffer.putLong(sequence);
+        buffer.putLong(timestamp);
+    }
+
+    /**
+     * 基准版本之后变化过的字段掩码
+     */
+    public static int changedFieldsMask(MarketDataSnapshot snapshot, long baseVersion) {
+        int mask = 0;
+        for (int field = 0; field < MarketDataSnapshot.FIELD_COUNT; field++) {
+            if (snapshot.isFieldChangedSince(field, baseVersion)) {
+                mask |= 1 << field;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 价格转换为定点整数
+     */
+    public static int encodePrice(double price) {
+        if (Double.isNaN(price) || Math.abs(price) >= MAX_PRICE) {
+            return NO_PRICE;
+        }
+        return (int) Math.round(price * PRICE_SCALE);
+    }
+
+    /**
+     * 时间字符串 HH:mm:ss 转换为整数 HHmmss，格式不符时返回0
+     */
+    public static int encodeTime(String updateTime) {
+        if (updateTime == null || updateTime.length() < 8) {
+            return 0;
+        }
+        int value = 0;
+        for (int i = 0; i < 8; i++) {
+            char c = updateTime.charAt(i);
+            if (i == 2 || i == 5) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
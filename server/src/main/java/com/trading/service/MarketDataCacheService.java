@@ -1,72 +1,102 @@
 package com.trading.service;
 
+import com.trading.model.DepthMarketDataEvent;
 import com.trading.model.MarketDataSnapshot;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
 /**
  * 行情数据缓存服务
  * 缓存完整的行情数据，提供快速查询和推送
+ *
+ * 行情快照按 {@link InstrumentRegistry} 分配的合约索引存放在数组中，交易所成员关系用BitSet表示。
+ * tick链路、按交易所遍历和过期扫描都只做数组访问，不做字符串哈希和装箱。
+ * 槽位的创建、删除和BitSet的修改都在 {@code slotLock} 下进行，BitSet采用写时复制，读线程无锁遍历。
  */
 @Service
 public class MarketDataCacheService {
 
     private static final Logger logger = LoggerFactory.getLogger(MarketDataCacheService.class);
 
-    // 行情数据缓存 - instrumentId -> MarketDataSnapshot
-    private final ConcurrentHashMap<String, MarketDataSnapshot> marketDataCache = new ConcurrentHashMap<>();
-    
-    // 交易所到合约的映射 - exchangeId -> Set<instrumentId>
-    private final ConcurrentHashMap<String, Set<String>> exchangeInstruments = new ConcurrentHashMap<>();
-    
-    // 合约到交易所的映射 - instrumentId -> exchangeId
-    private final ConcurrentHashMap<String, String> instrumentExchanges = new ConcurrentHashMap<>();
-    
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 行情数据缓存 - 合约索引 -> MarketDataSnapshot，扩容时整体替换
+    private volatile AtomicReferenceArray<MarketDataSnapshot> slots =
+            new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    // 交易所到合约的映射 - exchangeId -> 合约索引集合（写时复制，不可修改）
+    private final ConcurrentHashMap<String, BitSet> exchangeMembers = new ConcurrentHashMap<>();
+
+    // 槽位和交易所映射的修改锁
+    private final Object slotLock = new Object();
+
     // 统计信息
     private final AtomicLong totalUpdates = new AtomicLong(0);
     private final AtomicLong cacheHits = new AtomicLong(0);
     private final AtomicLong cacheMisses = new AtomicLong(0);
-    
+
+    // 活跃（未过期）合约数，由后台任务定期刷新，读取统计时不扫描缓存
+    private volatile long activeInstruments;
+
     // 数据清理任务
     private ScheduledExecutorService cleanupExecutor;
-    
+
     // 配置参数
+    private static final int INITIAL_CAPACITY = 1024;
     private static final int STALE_DATA_SECONDS = 300;  // 数据过期时间（5分钟）
     private static final int CLEANUP_INTERVAL_MINUTES = 10;  // 清理任务间隔
-    
+    private static final int ACTIVE_COUNT_INTERVAL_SECONDS = 5;  // 活跃合约数刷新间隔
+
     @PostConstruct
     public void initialize() {
         logger.info("初始化行情数据缓存服务...");
-        
+
         // 启动数据清理任务
         cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "MarketDataCleanup");
             t.setDaemon(true);
             return t;
         });
-        
+
         cleanupExecutor.scheduleAtFixedRate(
             this::cleanupStaleData,
             CLEANUP_INTERVAL_MINUTES,
             CLEANUP_INTERVAL_MINUTES,
             TimeUnit.MINUTES
         );
-        
+
+        cleanupExecutor.scheduleAtFixedRate(
+            this::refreshActiveCount,
+            ACTIVE_COUNT_INTERVAL_SECONDS,
+            ACTIVE_COUNT_INTERVAL_SECONDS,
+            TimeUnit.SECONDS
+        );
+
+        bindMetrics();
+
         logger.info("行情数据缓存服务初始化完成");
     }
-    
+
     @PreDestroy
     public void cleanup() {
         logger.info("清理行情数据缓存服务...");
@@ -74,9 +104,10 @@ public class MarketDataCacheService {
             cleanupExecutor.shutdown();
         }
     }
-    
+
     /**
      * 更新行情数据
+     * 合约未注册时先注册，已订阅合约应使用按索引更新的重载方法
      */
     public void updateMarketData(String instrumentId, String exchangeId,
                                 String updateTime, double lastPrice, long volume, double turnover, double openInterest,
@@ -87,11 +118,65 @@ public class MarketDataCacheService {
                                 double bidPrice5, int bidVolume5, double askPrice5, int askVolume5,
                                 double upperLimitPrice, double lowerLimitPrice,
                                 double preClosePrice, double openPrice, double highestPrice, double lowestPrice) {
-        
+
+        int index = instrumentRegistry.register(instrumentId, exchangeId);
+        updateMarketData(index, updateTime, lastPrice, volume, turnover, openInterest,
+                bidPrice1, bidVolume1, askPrice1, askVolume1,
+                bidPrice2, bidVolume2, askPrice2, askVolume2,
+                bidPrice3, bidVolume3, askPrice3, askVolume3,
+                bidPrice4, bidVolume4, askPrice4, askVolume4,
+                bidPrice5, bidVolume5, askPrice5, askVolume5,
+                upperLimitPrice, lowerLimitPrice,
+                preClosePrice, openPrice, highestPrice, lowestPrice);
+    }
+
+    /**
+     * 按环形缓冲区中的行情事件更新行情数据，保留事件的行情回调时间用于链路延迟统计
+     */
+    public void updateMarketData(DepthMarketDataEvent event) {
+        int index = event.getInstrumentIndex();
+        MarketDataSnapshot snapshot = getSlot(index);
+        if (snapshot == null) {
+            snapshot = createSlot(index);
+        }
+
+        snapshot.updateMarketData(event.getReceiveNanos(), event.getUpdateTime(), event.getLastPrice(),
+                event.getVolume(), event.getTurnover(), event.getOpenInterest(),
+                event.getBidPrice1(), event.getBidVolume1(), event.getAskPrice1(), event.getAskVolume1(),
+                event.getBidPrice2(), event.getBidVolume2(), event.getAskPrice2(), event.getAskVolume2(),
+                event.getBidPrice3(), event.getBidVolume3(), event.getAskPrice3(), event.getAskVolume3(),
+                event.getBidPrice4(), event.getBidVolume4(), event.getAskPrice4(), event.getAskVolume4(),
+                event.getBidPrice5(), event.getBidVolume5(), event.getAskPrice5(), event.getAskVolume5(),
+                event.getUpperLimitPrice(), event.getLowerLimitPrice(),
+                event.getPreClosePrice(), event.getOpenPrice(), event.getHighestPrice(), event.getLowestPrice());
+
+        totalUpdates.incrementAndGet();
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("更新行情数据: {} - {}", snapshot.getInstrumentId(), event.getLastPrice());
+        }
+    }
+
+    /**
+     * 按合约索引更新行情数据
+     * @param index {@link InstrumentRegistry} 分配的合约索引
+     */
+    public void updateMarketData(int index,
+                                String updateTime, double lastPrice, long volume, double turnover, double openInterest,
+                                double bidPrice1, int bidVolume1, double askPrice1, int askVolume1,
+                                double bidPrice2, int bidVolume2, double askPrice2, int askVolume2,
+                                double bidPrice3, int bidVolume3, double askPrice3, int askVolume3,
+                                double bidPrice4, int bidVolume4, double askPrice4, int askVolume4,
+                                double bidPrice5, int bidVolume5, double askPrice5, int askVolume5,
+                                double upperLimitPrice, double lowerLimitPrice,
+                                double preClosePrice, double openPrice, double highestPrice, double lowestPrice) {
+
         // 获取或创建行情快照
-        MarketDataSnapshot snapshot = marketDataCache.computeIfAbsent(instrumentId, 
-            k -> new MarketDataSnapshot(instrumentId, exchangeId));
-        
+        MarketDataSnapshot snapshot = getSlot(index);
+        if (snapshot == null) {
+            snapshot = createSlot(index);
+        }
+
         // 更新数据
         snapshot.updateMarketData(updateTime, lastPrice, volume, turnover, openInterest,
                                 bidPrice1, bidVolume1, askPrice1, askVolume1,
@@ -101,23 +186,20 @@ public class MarketDataCacheService {
                                 bidPrice5, bidVolume5, askPrice5, askVolume5,
                                 upperLimitPrice, lowerLimitPrice,
                                 preClosePrice, openPrice, highestPrice, lowestPrice);
-        
-        // 更新交易所映射
-        updateExchangeMapping(instrumentId, exchangeId);
-        
+
         // 更新统计
         totalUpdates.incrementAndGet();
-        
+
         if (logger.isDebugEnabled()) {
-            logger.debug("更新行情数据: {} - {}", instrumentId, lastPrice);
+            logger.debug("更新行情数据: {} - {}", snapshot.getInstrumentId(), lastPrice);
         }
     }
-    
+
     /**
      * 获取行情数据
      */
     public MarketDataSnapshot getMarketData(String instrumentId) {
-        MarketDataSnapshot snapshot = marketDataCache.get(instrumentId);
+        MarketDataSnapshot snapshot = getSlot(instrumentRegistry.indexOf(instrumentId));
         if (snapshot != null) {
             cacheHits.incrementAndGet();
             return snapshot.createSnapshot(); // 返回副本
@@ -126,207 +208,426 @@ public class MarketDataCacheService {
             return null;
         }
     }
-    
+
+    /**
+     * 读取行情数据到调用方复用的持有对象中
+     * @return 合约存在时返回true
+     */
+    public boolean readMarketData(String instrumentId, MarketDataSnapshot holder) {
+        return readMarketData(instrumentRegistry.indexOf(instrumentId), holder);
+    }
+
+    /**
+     * 按合约索引读取行情数据到调用方复用的持有对象中
+     * @return 合约存在时返回true
+     */
+    public boolean readMarketData(int index, MarketDataSnapshot holder) {
+        MarketDataSnapshot snapshot = getSlot(index);
+        if (snapshot != null) {
+            cacheHits.incrementAndGet();
+            snapshot.readInto(holder);
+            return true;
+        } else {
+            cacheMisses.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * 获取合约当前的更新版本（updateCount）
+     * @return 合约不在缓存中时返回0
+     */
+    public long getUpdateCount(int index) {
+        MarketDataSnapshot snapshot = getSlot(index);
+        return snapshot != null ? snapshot.getUpdateCount() : 0L;
+    }
+
+    /**
+     * 检查合约行情是否活跃（在缓存中且未过期）
+     */
+    public boolean isActive(int index) {
+        MarketDataSnapshot snapshot = getSlot(index);
+        return snapshot != null && !snapshot.isStale(STALE_DATA_SECONDS);
+    }
+
+    /**
+     * 获取交易所的合约索引集合
+     * 返回的BitSet是只读视图，调用方不能修改
+     * @return 交易所没有合约时返回null
+     */
+    public BitSet getExchangeMembers(String exchangeId) {
+        return exchangeMembers.get(exchangeId);
+    }
+
+    /**
+     * 遍历多个合约的行情数据
+     * 每条数据先拷贝到持有对象再回调，回调中不能保留持有对象的引用
+     */
+    public void forEachMarketData(Collection<String> instrumentIds, MarketDataSnapshot holder,
+                                  Consumer<MarketDataSnapshot> consumer) {
+        for (String instrumentId : instrumentIds) {
+            if (readMarketData(instrumentId, holder)) {
+                consumer.accept(holder);
+            }
+        }
+    }
+
+    /**
+     * 遍历指定交易所列表的活跃行情数据
+     * 每条数据先拷贝到持有对象再回调，回调中不能保留持有对象的引用
+     */
+    public void forEachActiveMarketData(Collection<String> exchangeIds, MarketDataSnapshot holder,
+                                        Consumer<MarketDataSnapshot> consumer) {
+        for (String exchangeId : exchangeIds) {
+            BitSet members = exchangeMembers.get(exchangeId);
+            if (members == null) {
+                continue;
+            }
+            for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+                MarketDataSnapshot snapshot = getSlot(i);
+                if (snapshot != null && !snapshot.isStale(STALE_DATA_SECONDS)) {
+                    consumer.accept(snapshot.readInto(holder));
+                }
+            }
+        }
+    }
+
     /**
      * 获取指定交易所的所有行情数据
      */
     public List<MarketDataSnapshot> getMarketDataByExchange(String exchangeId) {
-        Set<String> instruments = exchangeInstruments.get(exchangeId);
-        if (instruments == null) {
-            return Collections.emptyList();
-        }
-        
-        return instruments.stream()
-                .map(this::getMarketData)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        return collect(exchangeMembers.get(exchangeId), false);
     }
-    
+
     /**
      * 获取多个合约的行情数据
      */
     public List<MarketDataSnapshot> getMarketDataByInstruments(Collection<String> instrumentIds) {
-        return instrumentIds.stream()
-                .map(this::getMarketData)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        List<MarketDataSnapshot> result = new ArrayList<>(instrumentIds.size());
+        for (String instrumentId : instrumentIds) {
+            MarketDataSnapshot snapshot = getMarketData(instrumentId);
+            if (snapshot != null) {
+                result.add(snapshot);
+            }
+        }
+        return result;
     }
-    
+
     /**
      * 获取指定交易所列表的行情数据
      */
     public List<MarketDataSnapshot> getMarketDataByExchanges(Collection<String> exchangeIds) {
-        return exchangeIds.stream()
-                .flatMap(exchangeId -> getMarketDataByExchange(exchangeId).stream())
-                .collect(Collectors.toList());
+        List<MarketDataSnapshot> result = new ArrayList<>();
+        for (String exchangeId : exchangeIds) {
+            result.addAll(getMarketDataByExchange(exchangeId));
+        }
+        return result;
     }
-    
+
     /**
      * 获取所有行情数据
      */
     public List<MarketDataSnapshot> getAllMarketData() {
-        return marketDataCache.values().stream()
-                .map(MarketDataSnapshot::createSnapshot)
-                .collect(Collectors.toList());
+        AtomicReferenceArray<MarketDataSnapshot> current = slots;
+        List<MarketDataSnapshot> result = new ArrayList<>();
+        for (int i = 0; i < current.length(); i++) {
+            MarketDataSnapshot snapshot = current.get(i);
+            if (snapshot != null) {
+                result.add(snapshot.createSnapshot());
+            }
+        }
+        return result;
     }
-    
+
     /**
      * 获取活跃的行情数据（非过期）
      */
     public List<MarketDataSnapshot> getActiveMarketData() {
-        return marketDataCache.values().stream()
-                .filter(snapshot -> !snapshot.isStale(STALE_DATA_SECONDS))
-                .map(MarketDataSnapshot::createSnapshot)
-                .collect(Collectors.toList());
+        AtomicReferenceArray<MarketDataSnapshot> current = slots;
+        List<MarketDataSnapshot> result = new ArrayList<>();
+        for (int i = 0; i < current.length(); i++) {
+            MarketDataSnapshot snapshot = current.get(i);
+            if (snapshot != null && !snapshot.isStale(STALE_DATA_SECONDS)) {
+                result.add(snapshot.createSnapshot());
+            }
+        }
+        return result;
     }
-    
+
     /**
      * 获取指定交易所的活跃行情数据
      */
     public List<MarketDataSnapshot> getActiveMarketDataByExchange(String exchangeId) {
-        Set<String> instruments = exchangeInstruments.get(exchangeId);
-        if (instruments == null) {
-            return Collections.emptyList();
-        }
-        
-        return instruments.stream()
-                .map(marketDataCache::get)
-                .filter(Objects::nonNull)
-                .filter(snapshot -> !snapshot.isStale(STALE_DATA_SECONDS))
-                .map(MarketDataSnapshot::createSnapshot)
-                .collect(Collectors.toList());
-    }
-    
+        return collect(exchangeMembers.get(exchangeId), true);
+    }
+
     /**
      * 获取指定交易所列表的活跃行情数据
      */
     public List<MarketDataSnapshot> getActiveMarketDataByExchanges(Collection<String> exchangeIds) {
-        return exchangeIds.stream()
-                .flatMap(exchangeId -> getActiveMarketDataByExchange(exchangeId).stream())
-                .collect(Collectors.toList());
+        List<MarketDataSnapshot> result = new ArrayList<>();
+        for (String exchangeId : exchangeIds) {
+            result.addAll(getActiveMarketDataByExchange(exchangeId));
+        }
+        return result;
     }
-    
+
     /**
      * 检查合约是否存在
      */
     public boolean hasInstrument(String instrumentId) {
-        return marketDataCache.containsKey(instrumentId);
+        return getSlot(instrumentRegistry.indexOf(instrumentId)) != null;
     }
-    
+
     /**
      * 获取交易所列表
      */
     public Set<String> getExchanges() {
-        return new HashSet<>(exchangeInstruments.keySet());
+        return new HashSet<>(exchangeMembers.keySet());
     }
-    
+
     /**
      * 获取指定交易所的合约列表
      */
     public Set<String> getInstrumentsByExchange(String exchangeId) {
-        Set<String> instruments = exchangeInstruments.get(exchangeId);
-        return instruments != null ? new HashSet<>(instruments) : Collections.emptySet();
+        BitSet members = exchangeMembers.get(exchangeId);
+        if (members == null) {
+            return Collections.emptySet();
+        }
+        Set<String> instruments = new HashSet<>();
+        for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+            instruments.add(instrumentRegistry.getInstrumentId(i));
+        }
+        return instruments;
     }
-    
+
     /**
      * 获取合约所属的交易所
      */
     public String getExchangeByInstrument(String instrumentId) {
-        return instrumentExchanges.get(instrumentId);
+        int index = instrumentRegistry.indexOf(instrumentId);
+        return getSlot(index) != null ? instrumentRegistry.getExchangeId(index) : null;
     }
-    
+
     /**
      * 获取缓存统计信息
      */
     public Map<String, Object> getCacheStats() {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalInstruments", marketDataCache.size());
-        stats.put("totalExchanges", exchangeInstruments.size());
+
+        // 按交易所统计合约数量
+        Map<String, Integer> exchangeStats = new HashMap<>();
+        int totalInstruments = 0;
+        for (Map.Entry<String, BitSet> entry : exchangeMembers.entrySet()) {
+            int count = entry.getValue().cardinality();
+            exchangeStats.put(entry.getKey(), count);
+            totalInstruments += count;
+        }
+
+        stats.put("totalInstruments", totalInstruments);
+        stats.put("registeredInstruments", instrumentRegistry.size());
+        stats.put("totalExchanges", exchangeMembers.size());
         stats.put("totalUpdates", totalUpdates.get());
         stats.put("cacheHits", cacheHits.get());
         stats.put("cacheMisses", cacheMisses.get());
-        
+
         // 计算缓存命中率
         long totalRequests = cacheHits.get() + cacheMisses.get();
         double hitRate = totalRequests > 0 ? (double) cacheHits.get() / totalRequests * 100 : 0;
         stats.put("hitRate", String.format("%.2f%%", hitRate));
-        
-        // 按交易所统计合约数量
-        Map<String, Integer> exchangeStats = exchangeInstruments.entrySet().stream()
-                .collect(Collectors.toMap(
-                    Map.Entry::getKey,
-                    entry -> entry.getValue().size()
-                ));
         stats.put("instrumentsByExchange", exchangeStats);
-        
-        // 活跃数据统计
-        long activeCount = marketDataCache.values().stream()
-                .mapToLong(snapshot -> snapshot.isStale(STALE_DATA_SECONDS) ? 0 : 1)
-                .sum();
-        stats.put("activeInstruments", activeCount);
-        
+
+        // 活跃数据统计，由后台任务定期刷新
+        stats.put("activeInstruments", activeInstruments);
+
         return stats;
     }
-    
+
     /**
      * 清空缓存
+     * 合约索引由注册表持有，不随缓存清空
      */
     public void clearCache() {
         logger.info("清空行情数据缓存");
-        marketDataCache.clear();
-        exchangeInstruments.clear();
-        instrumentExchanges.clear();
+        synchronized (slotLock) {
+            slots = new AtomicReferenceArray<>(slots.length());
+            exchangeMembers.clear();
+        }
         totalUpdates.set(0);
         cacheHits.set(0);
         cacheMisses.set(0);
     }
-    
+
     /**
-     * 更新交易所映射关系
+     * 更正合约所属交易所：修改注册表，已有行情的合约同时从原交易所的成员集合移到新交易所
+     * @return 交易所是否有变化
      */
-    private void updateExchangeMapping(String instrumentId, String exchangeId) {
-        // 更新交易所到合约的映射
-        exchangeInstruments.computeIfAbsent(exchangeId, k -> ConcurrentHashMap.newKeySet())
-                           .add(instrumentId);
-        
-        // 更新合约到交易所的映射
-        instrumentExchanges.put(instrumentId, exchangeId);
-    }
-    
+    public boolean updateExchange(int index, String exchangeId) {
+        synchronized (slotLock) {
+            String previous = instrumentRegistry.getExchangeId(index);
+            if (previous == null || previous.equals(exchangeId)) {
+                return false;
+            }
+            instrumentRegistry.updateExchange(index, exchangeId);
+
+            MarketDataSnapshot snapshot = getSlot(index);
+            if (snapshot != null) {
+                BitSet members = exchangeMembers.get(previous);
+                if (members != null) {
+                    BitSet updated = (BitSet) members.clone();
+                    updated.clear(index);
+                    if (updated.isEmpty()) {
+                        exchangeMembers.remove(previous);
+                    } else {
+                        exchangeMembers.put(previous, updated);
+                    }
+                }
+                members = exchangeMembers.get(exchangeId);
+                BitSet updated = members != null ? (BitSet) members.clone() : new BitSet();
+                updated.set(index);
+                exchangeMembers.put(exchangeId, updated);
+                snapshot.setExchangeId(exchangeId);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 获取指定索引的实时快照
+     */
+    private MarketDataSnapshot getSlot(int index) {
+        if (index < 0) {
+            return null;
+        }
+        AtomicReferenceArray<MarketDataSnapshot> current = slots;
+        return index < current.length() ? current.get(index) : null;
+    }
+
+    /**
+     * 创建快照槽位并加入交易所映射
+     */
+    private MarketDataSnapshot createSlot(int index) {
+        synchronized (slotLock) {
+            AtomicReferenceArray<MarketDataSnapshot> current = slots;
+            if (index >= current.length()) {
+                int newCapacity = current.length();
+                while (newCapacity <= index) {
+                    newCapacity <<= 1;
+                }
+                AtomicReferenceArray<MarketDataSnapshot> grown = new AtomicReferenceArray<>(newCapacity);
+                for (int i = 0; i < current.length(); i++) {
+                    grown.lazySet(i, current.get(i));
+                }
+                slots = grown;
+                current = grown;
+            }
+
+            MarketDataSnapshot snapshot = current.get(index);
+            if (snapshot == null) {
+                String exchangeId = instrumentRegistry.getExchangeId(index);
+                snapshot = new MarketDataSnapshot(index, instrumentRegistry.getInstrumentId(index), exchangeId);
+                current.set(index, snapshot);
+
+                // 更新交易所映射
+                BitSet members = exchangeMembers.get(exchangeId);
+                BitSet updated = members != null ? (BitSet) members.clone() : new BitSet();
+                updated.set(index);
+                exchangeMembers.put(exchangeId, updated);
+            }
+            return snapshot;
+        }
+    }
+
     /**
      * 清理过期数据
      */
     private void cleanupStaleData() {
         try {
-            List<String> staleInstruments = marketDataCache.entrySet().stream()
-                    .filter(entry -> entry.getValue().isStale(STALE_DATA_SECONDS))
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList());
-            
-            if (!staleInstruments.isEmpty()) {
-                logger.info("清理过期行情数据: {} 个合约", staleInstruments.size());
-                
-                for (String instrumentId : staleInstruments) {
-                    MarketDataSnapshot removed = marketDataCache.remove(instrumentId);
-                    if (removed != null) {
-                        String exchangeId = removed.getExchangeId();
-                        
-                        // 从交易所映射中移除
-                        Set<String> instruments = exchangeInstruments.get(exchangeId);
-                        if (instruments != null) {
-                            instruments.remove(instrumentId);
-                            if (instruments.isEmpty()) {
-                                exchangeInstruments.remove(exchangeId);
-                            }
-                        }
-                        
-                        // 从合约映射中移除
-                        instrumentExchanges.remove(instrumentId);
+            int removedCount = 0;
+            synchronized (slotLock) {
+                AtomicReferenceArray<MarketDataSnapshot> current = slots;
+                Map<String, BitSet> updatedMembers = new HashMap<>();
+                for (int i = 0; i < current.length(); i++) {
+                    MarketDataSnapshot snapshot = current.get(i);
+                    if (snapshot == null || !snapshot.isStale(STALE_DATA_SECONDS)) {
+                        continue;
+                    }
+                    current.set(i, null);
+                    removedCount++;
+
+                    // 从交易所映射中移除
+                    String exchangeId = snapshot.getExchangeId();
+                    BitSet members = updatedMembers.get(exchangeId);
+                    if (members == null) {
+                        BitSet existing = exchangeMembers.get(exchangeId);
+                        members = existing != null ? (BitSet) existing.clone() : new BitSet();
+                        updatedMembers.put(exchangeId, members);
                     }
+                    members.clear(i);
                 }
+
+                for (Map.Entry<String, BitSet> entry : updatedMembers.entrySet()) {
+                    if (entry.getValue().isEmpty()) {
+                        exchangeMembers.remove(entry.getKey());
+                    } else {
+                        exchangeMembers.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+
+            if (removedCount > 0) {
+                logger.info("清理过期行情数据: {} 个合约", removedCount);
             }
         } catch (Exception e) {
             logger.error("清理过期行情数据失败", e);
         }
     }
+
+    /**
+     * 刷新活跃合约数，在后台任务线程中调用
+     */
+    private void refreshActiveCount() {
+        AtomicReferenceArray<MarketDataSnapshot> current = slots;
+        long activeCount = 0;
+        for (int i = 0; i < current.length(); i++) {
+            MarketDataSnapshot snapshot = current.get(i);
+            if (snapshot != null && !snapshot.isStale(STALE_DATA_SECONDS)) {
+                activeCount++;
+            }
+        }
+        activeInstruments = activeCount;
+    }
+
+    /**
+     * 注册缓存指标，指标读取已有计数器，不扫描缓存
+     */
+    private void bindMetrics() {
+        Gauge.builder("market.cache.instruments", instrumentRegistry, InstrumentRegistry::size)
+                .description("已注册合约数").register(meterRegistry);
+        Gauge.builder("market.cache.active.instruments", this, service -> service.activeInstruments)
+                .description("未过期合约数，每" + ACTIVE_COUNT_INTERVAL_SECONDS + "秒刷新").register(meterRegistry);
+        FunctionCounter.builder("market.cache.updates", totalUpdates, AtomicLong::get)
+                .description("缓存更新次数").register(meterRegistry);
+        FunctionCounter.builder("market.cache.reads", cacheHits, AtomicLong::get)
+                .tag("result", "hit").description("缓存读取次数").register(meterRegistry);
+        FunctionCounter.builder("market.cache.reads", cacheMisses, AtomicLong::get)
+                .tag("result", "miss").description("缓存读取次数").register(meterRegistry);
+    }
+
+    /**
+     * 把BitSet中的合约拷贝为快照列表
+     */
+    private List<MarketDataSnapshot> collect(BitSet members, boolean activeOnly) {
+        if (members == null) {
+            return Collections.emptyList();
+        }
+        List<MarketDataSnapshot> result = new ArrayList<>(members.cardinality());
+        for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+            MarketDataSnapshot snapshot = getSlot(i);
+            if (snapshot != null && (!activeOnly || !snapshot.isStale(STALE_DATA_SECONDS))) {
+                result.add(snapshot.createSnapshot());
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,186 @@
+package com.trading.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 行情链路延迟统计服务
+ * 一笔行情从行情API回调到写入客户端WebSocket连接经过以下阶段，各时间点都取 System.nanoTime：
+ * <pre>
+ * 回调进入 --ingest--> 写入缓存 --dispatch--> 推送线程取出 --serialize--> 推送帧编码完成 --outbound--> 写入WebSocket
+ * |&lt;------------------------------------------ endToEnd -------------------------------------------&gt;|
+ * </pre>
+ * ingest 按每笔收到的行情记录；其余阶段按每个会话每条增量推送的合约记录，dispatch 包含会话推送间隔内的合并等待。
+ * 全量快照推送的是缓存中的已有数据，不计入。
+ * 各阶段同时按交易所分别统计，记录只是直方图数组的原子自增，可在行情链路各线程上调用。
+ */
+@Service
+public class MarketDataLatencyService {
+
+    public static final int STAGE_INGEST = 0;
+    public static final int STAGE_DISPATCH = 1;
+    public static final int STAGE_SERIALIZE = 2;
+    public static final int STAGE_OUTBOUND = 3;
+    public static final int STAGE_END_TO_END = 4;
+
+    private static final String[] STAGE_NAMES = {"ingest", "dispatch", "serialize", "outbound", "endToEnd"};
+
+    // 以指标形式导出的分位数
+    private static final double[] METRIC_PERCENTILES = {0.5, 0.99, 0.999};
+
+    // 推送消息头，携带推送帧内各合约记录的时间点，由客户端出站通道拦截器在写入连接后读取
+    public static final String TRACE_HEADER = "marketDataLatencyTrace";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final LatencyHistogram[] stages = newStageHistograms();
+
+    // 交易所 -> 各阶段直方图
+    private final ConcurrentHashMap<String, LatencyHistogram[]> exchangeStages = new ConcurrentHashMap<>();
+
+    private volatile long sinceMillis = System.currentTimeMillis();
+
+    /**
+     * 注册各阶段的分位数和计数指标，单位秒，分位数在读取指标时由直方图计算
+     */
+    @PostConstruct
+    public void initialize() {
+        for (int i = 0; i < STAGE_NAMES.length; i++) {
+            LatencyHistogram histogram = stages[i];
+            for (double percentile : METRIC_PERCENTILES) {
+                Gauge.builder("market.latency", histogram, h -> h.getPercentileNanos(percentile) / 1e9)
+                        .tag("stage", STAGE_NAMES[i]).tag("quantile", String.valueOf(percentile))
+                        .baseUnit("seconds").description("行情链路各阶段延迟分位数").register(meterRegistry);
+            }
+            Gauge.builder("market.latency.max", histogram, h -> h.getMaxNanos() / 1e9)
+                    .tag("stage", STAGE_NAMES[i]).baseUnit("seconds").description("行情链路各阶段最大延迟")
+                    .register(meterRegistry);
+            FunctionCounter.builder("market.latency.samples", histogram, LatencyHistogram::getCount)
+                    .tag("stage", STAGE_NAMES[i]).description("行情链路各阶段采样数").register(meterRegistry);
+        }
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     */
+    public void record(int stage, String exchangeId, long nanos) {
+        stages[stage].record(nanos);
+        exchangeStagesOf(exchangeId)[stage].record(nanos);
+    }
+
+    /**
+     * 推送帧写入WebSocket连接后调用，记录 outbound 和 endToEnd 阶段
+     */
+    public void recordWritten(Trace trace) {
+        long now = System.nanoTime();
+        long outbound = now - trace.serializedNanos;
+        for (int i = 0; i < trace.count; i++) {
+            record(STAGE_OUTBOUND, trace.exchangeIds[i], outbound);
+            record(STAGE_END_TO_END, trace.exchangeIds[i], now - trace.receiveNanos[i]);
+        }
+    }
+
+    private LatencyHistogram[] exchangeStagesOf(String exchangeId) {
+        String key = exchangeId != null ? exchangeId : ExchangeResolver.UNKNOWN_EXCHANGE;
+        LatencyHistogram[] histograms = exchangeStages.get(key);
+        if (histograms == null) {
+            histograms = exchangeStages.computeIfAbsent(key, k -> newStageHistograms());
+        }
+        return histograms;
+    }
+
+    private static LatencyHistogram[] newStageHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[STAGE_NAMES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    /**
+     * 获取某阶段的汇总直方图
+     */
+    public LatencyHistogram getStage(int stage) {
+        return stages[stage];
+    }
+
+    public static String getStageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    public static int getStageCount() {
+        return STAGE_NAMES.length;
+    }
+
+    /**
+     * 清空统计，开始新的统计周期
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : stages) {
+            histogram.reset();
+        }
+        exchangeStages.clear();
+        sinceMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 获取统计信息：各阶段及各交易所各阶段的分位数（微秒）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> exchanges = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram[]> entry : exchangeStages.entrySet()) {
+            exchanges.put(entry.getKey(), toMap(entry.getValue()));
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sinceMillis", sinceMillis);
+        stats.put("stages", toMap(stages));
+        stats.put("exchanges", exchanges);
+        return stats;
+    }
+
+    private static Map<String, Object> toMap(LatencyHistogram[] histograms) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < histograms.length; i++) {
+            result.put(STAGE_NAMES[i], histograms[i].toMap());
+        }
+        return result;
+    }
+
+    /**
+     * 一个推送帧的时间点记录
+     */
+    public static final class Trace {
+
+        private final long[] receiveNanos;
+        private final String[] exchangeIds;
+        private int count;
+        private long serializedNanos;
+
+        public Trace(int capacity) {
+            this.receiveNanos = new long[capacity];
+            this.exchangeIds = new String[capacity];
+        }
+
+        public void add(long receiveNanos, String exchangeId) {
+            this.receiveNanos[count] = receiveNanos;
+            this.exchangeIds[count] = exchangeId;
+            count++;
+        }
+
+        public void setSerializedNanos(long serializedNanos) {
+            this.serializedNanos = serializedNanos;
+        }
+    }
+}
@@ -1,26 +1,70 @@
 package com.trading.service;
 
-import com.trading.model.ApiResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.config.TradingConfig;
 import com.trading.model.MarketDataSnapshot;
 import com.trading.model.UserSession;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAccumulator;
 
 /**
  * 行情数据推送服务
- * 按500ms频率向前端推送订阅的行情数据
+ * 事件驱动推送：行情回调通过 {@link #markDirty(int)} 把合约标记为脏，推送线程被唤醒后把脏合约
+ * 分发到订阅了它的会话，每个会话按自己的推送间隔（限速）推送脏合约的最新值，同一合约在间隔内的多次更新被合并。
+ * 没有行情时推送线程只在全量快照到期时醒来。
+ *
+ * 推送采用增量模式：每个会话记录已成功推送的每个合约的版本（MarketDataSnapshot.updateCount），
+ * 每次只推送该版本之后有变化的合约，且合约内只包含变化过的字段。
+ * 每条推送带有会话内递增的序号 seq，客户端发现序号不连续时可调用重同步接口获取全量快照；
+ * 服务端也会按配置的全量快照间隔周期性推送全量快照。
+ *
+ * 每条合约记录在一个推送周期内只做一次JSON序列化，各会话的推送帧由预先编码好的记录字节拼接而成，
+ * 序列化开销与不同记录的数量相关，而与会话数量无关。会话的推送时间对齐到推送间隔的整数倍，
+ * 间隔相同的会话无论何时订阅都在同一轮到期，基准版本相同，共享同一推送周期中编码的记录。
+ *
+ * 慢客户端背压：每个会话记录已进入出站通道、尚未写入WebSocket连接的推送帧数和字节数（{@link OutboundQueue}），
+ * 包括在出站通道排队、在Spring发送装饰器缓冲区中等待和正在写入的帧，
+ * 超过配置的上限时暂停向该会话推送，期间合约的新行情留在待推送集合中，积压消除后只推送最新值，
+ * 旧值不会再进入出站通道；连续积压的会话推送间隔逐步加倍，恢复后再逐步缩短到会话设置的间隔。
+ *
+ * 会话可在订阅时选择二进制格式（{@link MarketDataBinaryEncoder}），以 application/octet-stream
+ * 内容类型推送；只有原生WebSocket连接（/ws/websocket）会以二进制WebSocket消息发送，SockJS连接应使用JSON格式。
+ *
+ * 会话连接了行情原生端点（{@link #attachDirectConnection}）后，推送帧不再经过STOMP代理和出站通道，
+ * 由推送线程直接以二进制WebSocket消息异步写入该连接，每个连接同时只有一帧在写入，写入期间的新行情合并到下一帧。
  */
 @Service
 public class MarketDataPushService {
@@ -36,196 +80,589 @@ public class MarketDataPushService {
     @Autowired
     private MarketDataCacheService marketDataCacheService;
 
-    // 推送任务执行器
-    private ScheduledExecutorService pushExecutor;
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private MarketDataLatencyService marketDataLatencyService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 推送线程
+    private Thread dispatcherThread;
+    private volatile boolean running;
+
+    // 待分发的脏合约，由 dirtyLock 保护；推送线程取走时与 spareDirty 交换
+    private final Object dirtyLock = new Object();
+    private BitSet dirty = new BitSet();
+    private BitSet spareDirty = new BitSet();
+    private volatile int dirtyCount;
+
+    // 各会话待推送集合中的合约总数
+    private final AtomicLong pendingRecords = new AtomicLong(0);
+
+    // 每个推送线程复用的行情读取对象，避免每个周期为每个合约分配副本
+    private final ThreadLocal<MarketDataSnapshot> readHolder = ThreadLocal.withInitial(MarketDataSnapshot::new);
+
+    // 会话推送状态 - sessionId -> SessionPushState
+    private final ConcurrentHashMap<String, SessionPushState> pushStates = new ConcurrentHashMap<>();
 
     // 推送统计
     private final AtomicLong totalPushCount = new AtomicLong(0);
     private final AtomicLong successPushCount = new AtomicLong(0);
     private final AtomicLong failedPushCount = new AtomicLong(0);
+    private final AtomicLong fullRecordCount = new AtomicLong(0);
+    private final AtomicLong deltaRecordCount = new AtomicLong(0);
+    private final AtomicLong encodedRecordCount = new AtomicLong(0);
+    private final AtomicLong pushedBytes = new AtomicLong(0);
+    private final AtomicLong dispatchRounds = new AtomicLong(0);
+
+    // 背压统计：各会话出站通道中的帧数和字节数合计，因积压跳过的推送次数，推送间隔调整次数
+    private final AtomicLong queuedFrames = new AtomicLong(0);
+    private final AtomicLong queuedBytes = new AtomicLong(0);
+    private final AtomicLong skippedPushCount = new AtomicLong(0);
+    private final AtomicLong downgradeCount = new AtomicLong(0);
+    private final AtomicLong recoverCount = new AtomicLong(0);
+    private final AtomicInteger directConnections = new AtomicInteger(0);
+    private Timer outboundLagTimer;
+
+    /**
+     * 推送帧消息头，值为 {@link OutboundFrame}，由出站通道拦截器在入队和写入连接时回调。
+     * 不是STOMP原生头，不会发送给客户端
+     */
+    public static final String OUTBOUND_HEADER = "marketPushOutbound";
 
-    // 配置参数
-    private static final int PUSH_INTERVAL_MS = 500;  // 推送间隔500ms
-    private static final int PUSH_THREAD_POOL_SIZE = 2;  // 推送线程池大小
+    // 推送类型
+    private static final String PUSH_TYPE_FULL = "full";
+    private static final String PUSH_TYPE_DELTA = "delta";
+
+    // 推送格式
+    public static final String PUSH_FORMAT_JSON = "json";
+    public static final String PUSH_FORMAT_BINARY = "binary";
+
+    // 推送帧固定部分，与 ApiResponse.success("行情数据推送", data) 的JSON结构一致
+    private static final byte[] FRAME_PREFIX =
+            "{\"success\":true,\"code\":200,\"message\":\"行情数据推送\",\"data\":{\"timestamp\":"
+                    .getBytes(StandardCharsets.UTF_8);
 
     @PostConstruct
     public void initialize() {
         logger.info("初始化行情数据推送服务...");
 
-        // 创建推送任务执行器
-        pushExecutor = Executors.newScheduledThreadPool(PUSH_THREAD_POOL_SIZE, r -> {
-            Thread t = new Thread(r, "MarketDataPush");
-            t.setDaemon(true);
-            return t;
-        });
-
-        // 启动定时推送任务
-        pushExecutor.scheduleAtFixedRate(
-            this::pushMarketDataToClients,
-            1000,  // 延迟1秒启动
-            PUSH_INTERVAL_MS,
-            TimeUnit.MILLISECONDS
-        );
+        running = true;
+        dispatcherThread = new Thread(this::runDispatcher, "MarketDataPush");
+        dispatcherThread.setDaemon(true);
+        outboundLagTimer = Timer.builder("market.push.outbound.lag")
+                .description("推送帧从进入出站通道到写入WebSocket连接的耗时").register(meterRegistry);
+        dispatcherThread.start();
+        bindMetrics();
 
-        logger.info("行情数据推送服务初始化完成，推送间隔: {}ms", PUSH_INTERVAL_MS);
+        TradingConfig.Push push = tradingConfig.getPush();
+        logger.info("行情数据推送服务初始化完成，默认推送间隔: {}ms，允许范围: {}-{}ms，全量快照间隔: {}ms，" +
+                   "会话积压上限: {}帧/{}字节",
+                   push.getDefaultIntervalMs(), push.getMinIntervalMs(), push.getMaxIntervalMs(),
+                   push.getFullSnapshotIntervalMs(), push.getMaxSessionQueuedFrames(), push.getMaxSessionQueuedBytes());
     }
 
     @PreDestroy
     public void cleanup() {
         logger.info("清理行情数据推送服务...");
-        if (pushExecutor != null) {
-            pushExecutor.shutdown();
+        running = false;
+        if (dispatcherThread != null) {
+            synchronized (dirtyLock) {
+                dirtyLock.notifyAll();
+            }
             try {
-                if (!pushExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    pushExecutor.shutdownNow();
-                }
+                dispatcherThread.join(TimeUnit.SECONDS.toMillis(5));
             } catch (InterruptedException e) {
-                pushExecutor.shutdownNow();
                 Thread.currentThread().interrupt();
             }
         }
     }
 
     /**
-     * 向所有客户端推送行情数据
+     * 标记合约有新行情，由行情回调线程调用
+     * 只设置一个位，推送在推送线程中进行，不阻塞行情回调
      */
-    private void pushMarketDataToClients() {
-        try {
-            List<UserSession> activeSessions = userSessionService.getActiveSessions();
-            if (activeSessions.isEmpty()) {
+    public void markDirty(int index) {
+        synchronized (dirtyLock) {
+            if (dirty.get(index)) {
                 return;
             }
+            boolean wasEmpty = dirty.isEmpty();
+            dirty.set(index);
+            dirtyCount++;
+            if (wasEmpty) {
+                dirtyLock.notify();
+            }
+        }
+    }
 
-            // 按订阅的交易所分组会话
-            Map<Set<String>, List<UserSession>> sessionsByExchanges = activeSessions.stream()
-                    .filter(session -> !session.getSubscribedExchanges().isEmpty())
-                    .collect(Collectors.groupingBy(UserSession::getSubscribedExchanges));
-
-            // 为每组会话推送对应的行情数据
-            for (Map.Entry<Set<String>, List<UserSession>> entry : sessionsByExchanges.entrySet()) {
-                Set<String> exchanges = entry.getKey();
-                List<UserSession> sessions = entry.getValue();
+    /**
+     * 推送线程主循环
+     * 等待脏合约或最近一个会话到期，然后分发脏合约并推送到期的会话
+     */
+    private void runDispatcher() {
+        long nextDeadline = System.currentTimeMillis();
+        while (running) {
+            BitSet ticks;
+            try {
+                synchronized (dirtyLock) {
+                    long waitMs = nextDeadline - System.currentTimeMillis();
+                    while (running && dirty.isEmpty() && waitMs > 0) {
+                        dirtyLock.wait(waitMs);
+                        waitMs = nextDeadline - System.currentTimeMillis();
+                    }
+                    ticks = dirty;
+                    dirty = spareDirty;
+                    spareDirty = ticks;
+                    dirtyCount = 0;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
 
-                // 获取这些交易所的行情数据
-                List<MarketDataSnapshot> marketData = marketDataCacheService.getActiveMarketDataByExchanges(exchanges);
-                if (!marketData.isEmpty()) {
-                    pushToSessions(sessions, marketData);
+            try {
+                if (!ticks.isEmpty()) {
+                    distributeDirty(ticks);
                 }
+                nextDeadline = pushDueSessions(System.currentTimeMillis());
+            } catch (Exception e) {
+                logger.error("推送行情数据失败", e);
+                failedPushCount.incrementAndGet();
+                nextDeadline = System.currentTimeMillis() + tradingConfig.getPush().getMinIntervalMs();
+            } finally {
+                // 交换回来的集合下一轮作为新的脏集合使用，必须在推送线程内清空
+                ticks.clear();
             }
+        }
+    }
 
-            // 处理订阅了特定合约的会话
-            pushToInstrumentSubscribers(activeSessions);
+    /**
+     * 把脏合约分发到订阅了它的会话的待推送集合
+     */
+    private void distributeDirty(BitSet ticks) {
+        for (int i = ticks.nextSetBit(0); i >= 0; i = ticks.nextSetBit(i + 1)) {
+            for (UserSession session : userSessionService.getExchangeSubscribers(instrumentRegistry.getExchangeId(i))) {
+                markPending(session, i);
+            }
+            for (UserSession session : userSessionService.getInstrumentSubscribers(instrumentRegistry.getInstrumentId(i))) {
+                markPending(session, i);
+            }
+        }
+    }
 
-        } catch (Exception e) {
-            logger.error("推送行情数据失败", e);
-            failedPushCount.incrementAndGet();
+    private void markPending(UserSession session, int index) {
+        if (!session.isActive()) {
+            return;
+        }
+        SessionPushState state = getPushState(session);
+        synchronized (state) {
+            if (!state.pending.get(index)) {
+                state.pending.set(index);
+                pendingRecords.incrementAndGet();
+            }
         }
     }
 
     /**
-     * 向订阅了特定合约的会话推送数据
+     * 推送所有到期的会话
+     * @return 下一个会话到期的时间
      */
-    private void pushToInstrumentSubscribers(List<UserSession> activeSessions) {
-        // 按订阅的合约分组会话
-        Map<Set<String>, List<UserSession>> sessionsByInstruments = activeSessions.stream()
-                .filter(session -> !session.getSubscribedInstruments().isEmpty())
-                .collect(Collectors.groupingBy(UserSession::getSubscribedInstruments));
+    private long pushDueSessions(long now) throws JsonProcessingException {
+        dispatchRounds.incrementAndGet();
+
+        // 同一轮内各会话共享增量记录，相同合约、相同基准版本只编码一次
+        PushCycle cycle = new PushCycle(readHolder.get());
+        long fullInterval = tradingConfig.getPush().getFullSnapshotIntervalMs();
+        long nextDeadline = Long.MAX_VALUE;
+
+        for (Map.Entry<String, SessionPushState> entry : pushStates.entrySet()) {
+            // 丢弃已结束会话的推送状态
+            SessionPushState state = entry.getValue();
+            UserSession session = state.session;
+            if (!session.isActive()) {
+                synchronized (state) {
+                    pushStates.remove(entry.getKey(), state);
+                    clearPending(state);
+                    if (state.direct != null) {
+                        state.direct.close(CloseStatus.GOING_AWAY.withReason("会话已结束"));
+                        // 推送状态已移除，连接关闭回调找不到它，在这里扣除连接数
+                        clearDirectConnection(state);
+                    }
+                }
+                continue;
+            }
 
-        for (Map.Entry<Set<String>, List<UserSession>> entry : sessionsByInstruments.entrySet()) {
-            Set<String> instruments = entry.getKey();
-            List<UserSession> sessions = entry.getValue();
+            synchronized (state) {
+                if (!session.hasSubscriptions()) {
+                    clearPending(state);
+                    continue;
+                }
+
+                boolean fullDue = now - state.lastFullPushMillis >= fullInterval;
+                boolean deltaDue = !state.pending.isEmpty() && now - state.lastPushMillis >= state.intervalMs;
+                if ((fullDue || deltaDue) && isBackedUp(state)) {
+                    skipBackedUpSession(state, now);
+                } else if (fullDue) {
+                    pushChangesToSession(session, state, cycle, true, now);
+                    adjustRecoveredSession(state);
+                } else if (deltaDue) {
+                    pushChangesToSession(session, state, cycle, false, now);
+                    adjustRecoveredSession(state);
+                }
 
-            // 获取这些合约的行情数据
-            List<MarketDataSnapshot> marketData = marketDataCacheService.getMarketDataByInstruments(instruments);
-            if (!marketData.isEmpty()) {
-                pushToSessions(sessions, marketData);
+                long deadline = state.lastFullPushMillis + fullInterval;
+                if (!state.pending.isEmpty()) {
+                    deadline = Math.min(deadline, state.lastPushMillis + state.intervalMs);
+                }
+                if (deadline <= now) {
+                    // 积压中的会话到期后仍未推送，下一个推送间隔再检查
+                    deadline = state.lastPushMillis + state.intervalMs;
+                }
+                nextDeadline = Math.min(nextDeadline, deadline);
             }
         }
+        return nextDeadline;
+    }
+
+    /**
+     * 会话出站通道中积压的帧数或字节数是否超过上限，直连会话上一帧是否仍在写入；调用方持有会话推送状态的锁
+     */
+    private boolean isBackedUp(SessionPushState state) {
+        TradingConfig.Push push = tradingConfig.getPush();
+        return state.outbound.frames.get() >= push.getMaxSessionQueuedFrames()
+                || state.outbound.bytes.get() >= push.getMaxSessionQueuedBytes()
+                || (state.direct != null && state.direct.isSending());
+    }
+
+    /**
+     * 积压的会话本次不推送，待推送集合保留，积压消除后推送各合约的最新值；
+     * 连续积压达到配置次数时推送间隔加倍
+     */
+    private void skipBackedUpSession(SessionPushState state, long now) {
+        state.lastPushMillis = alignToInterval(now, state.intervalMs);
+        state.skippedPushes++;
+        state.healthyPushes = 0;
+        skippedPushCount.incrementAndGet();
+
+        TradingConfig.Push push = tradingConfig.getPush();
+        int downgradeAfter = push.getSlowSessionDowngradeAfter();
+        if (downgradeAfter > 0 && ++state.backedUpPushes >= downgradeAfter
+                && state.intervalMs < push.getMaxIntervalMs()) {
+            long previous = state.intervalMs;
+            state.intervalMs = Math.min(push.getMaxIntervalMs(), state.intervalMs * 2);
+            state.backedUpPushes = 0;
+            state.downgrades++;
+            downgradeCount.incrementAndGet();
+            logger.warn("会话推送积压，降低推送频率: sessionId={}, 积压帧数={}, 积压字节数={}, 推送间隔 {}ms -> {}ms",
+                    state.session.getSessionId(), state.outbound.frames.get(), state.outbound.bytes.get(),
+                    previous, state.intervalMs);
+        }
     }
 
     /**
-     * 向指定会话推送行情数据
+     * 推送后出站通道已清空的会话，连续达到配置次数时推送间隔减半，直到恢复为会话设置的间隔
      */
-    private void pushToSessions(List<UserSession> sessions, List<MarketDataSnapshot> marketData) {
-        if (sessions.isEmpty() || marketData.isEmpty()) {
+    private void adjustRecoveredSession(SessionPushState state) {
+        state.backedUpPushes = 0;
+        if (state.intervalMs <= state.requestedIntervalMs || state.outbound.frames.get() > 1) {
+            state.healthyPushes = 0;
             return;
         }
+        int downgradeAfter = tradingConfig.getPush().getSlowSessionDowngradeAfter();
+        if (++state.healthyPushes >= downgradeAfter) {
+            long previous = state.intervalMs;
+            state.intervalMs = Math.max(state.requestedIntervalMs, state.intervalMs / 2);
+            state.healthyPushes = 0;
+            recoverCount.incrementAndGet();
+            logger.info("会话推送积压消除，恢复推送频率: sessionId={}, 推送间隔 {}ms -> {}ms",
+                    state.session.getSessionId(), previous, state.intervalMs);
+        }
+    }
 
-        // 构造推送消息
-        Map<String, Object> pushData = new HashMap<>();
-        pushData.put("timestamp", System.currentTimeMillis());
-        pushData.put("count", marketData.size());
-        pushData.put("data", convertToClientFormat(marketData));
+    /**
+     * 向会话推送变化
+     * 全量快照扫描会话的全部订阅，增量推送只处理会话待推送集合中的合约
+     * @param full 是否推送全量快照
+     * @param now 本轮推送的时间，同一轮推送的会话按同一时间对齐
+     * @return 实际推送的合约数量
+     */
+    private int pushChangesToSession(UserSession session, SessionPushState state, PushCycle cycle, boolean full,
+                                     long now) throws JsonProcessingException {
+        synchronized (state) {
+            PushFrame frame = new PushFrame();
+            long dequeuedNanos = System.nanoTime();
 
-        ApiResponse<Object> response = ApiResponse.success("行情数据推送", pushData);
+            if (full) {
+                // 订阅的交易所数据
+                for (String exchangeId : session.getSubscribedExchanges()) {
+                    BitSet members = marketDataCacheService.getExchangeMembers(exchangeId);
+                    if (members == null) {
+                        continue;
+                    }
+                    for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+                        collectRecord(state, cycle, frame, i, true, true);
+                    }
+                }
 
-        // 向每个会话推送
-        for (UserSession session : sessions) {
-            try {
-                // 推送到用户专用主题
-                String userTopic = "/topic/market/user/" + session.getSessionId();
-                messagingTemplate.convertAndSend(userTopic, response);
+                // 订阅的合约数据
+                for (String instrumentId : session.getSubscribedInstruments()) {
+                    int index = instrumentRegistry.indexOf(instrumentId);
+                    if (index != InstrumentRegistry.NOT_REGISTERED) {
+                        collectRecord(state, cycle, frame, index, false, true);
+                    }
+                }
+                state.lastFullPushMillis = alignToInterval(now, tradingConfig.getPush().getFullSnapshotIntervalMs());
+            } else {
+                // 刚收到行情的合约，无需再检查是否活跃
+                for (int i = state.pending.nextSetBit(0); i >= 0; i = state.pending.nextSetBit(i + 1)) {
+                    collectRecord(state, cycle, frame, i, false, false);
+                }
+            }
+            clearPending(state);
+            state.lastPushMillis = alignToInterval(now, state.intervalMs);
 
-                totalPushCount.incrementAndGet();
-                successPushCount.incrementAndGet();
+            if (frame.records.isEmpty()) {
+                return 0;
+            }
 
-                if (logger.isDebugEnabled()) {
-                    logger.debug("推送行情数据到会话: sessionId={}, count={}", 
-                               session.getSessionId(), marketData.size());
+            if (sendFrame(session, state, frame, full, dequeuedNanos)) {
+                // 推送成功后才推进会话版本
+                for (int i = 0; i < frame.records.size(); i++) {
+                    state.setSentVersion(frame.indexes[i], frame.records.get(i).version);
                 }
+                state.sequence++;
+            } else {
+                // 推送失败的合约放回待推送集合（此时集合为空），下个间隔重新推送；
+                // 全量快照失败时下一轮重新推送全量快照
+                state.pending.or(frame.included);
+                pendingRecords.addAndGet(state.pending.cardinality());
+                if (full) {
+                    state.lastFullPushMillis = 0;
+                }
+            }
+            return frame.records.size();
+        }
+    }
 
-            } catch (Exception e) {
-                logger.warn("推送行情数据到会话失败: sessionId={}, error={}", 
-                           session.getSessionId(), e.getMessage());
-                failedPushCount.incrementAndGet();
+    /**
+     * 把推送时间对齐到间隔的边界，下次到期时间即下一个边界，间隔相同的会话在同一轮推送
+     */
+    private static long alignToInterval(long millis, long intervalMs) {
+        return intervalMs > 0 ? millis - millis % intervalMs : millis;
+    }
+
+    /**
+     * 清空会话的待推送集合，调用方持有会话推送状态的锁
+     */
+    private void clearPending(SessionPushState state) {
+        pendingRecords.addAndGet(-state.pending.cardinality());
+        state.pending.clear();
+    }
+
+    /**
+     * 把合约的变化加入推送帧
+     */
+    private void collectRecord(SessionPushState state, PushCycle cycle, PushFrame frame,
+                               int index, boolean activeOnly, boolean full) throws JsonProcessingException {
+        if (frame.included.get(index)) {
+            return;
+        }
+
+        long version = marketDataCacheService.getUpdateCount(index);
+        if (version == 0) {
+            return;
+        }
+        if (activeOnly && !marketDataCacheService.isActive(index)) {
+            return;
+        }
+
+        long sentVersion = state.getSentVersion(index);
+        if (!full && version == sentVersion) {
+            return;
+        }
+
+        // 首次推送、全量快照或快照被重建（版本回退）时推送完整数据
+        long baseVersion = full || version < sentVersion ? 0 : sentVersion;
+        PushRecord record = cycle.getRecord(index, baseVersion, state.binary);
+        if (record != null) {
+            frame.add(index, record);
+            if (baseVersion == 0) {
+                fullRecordCount.incrementAndGet();
+            } else {
+                deltaRecordCount.incrementAndGet();
             }
         }
     }
 
     /**
-     * 立即推送指定交易所的行情数据
+     * 发送推送帧
+     * 增量推送帧附带各合约记录的时间点，写入WebSocket连接后统计 outbound 和 endToEnd 延迟
+     * @param dequeuedNanos 推送线程开始处理该会话的时间（System.nanoTime）
+     * @return 是否推送成功
      */
-    public void pushExchangeData(String exchangeId) {
-        try {
-            List<UserSession> sessions = userSessionService.getSessionsByExchange(exchangeId);
-            if (sessions.isEmpty()) {
-                return;
+    private boolean sendFrame(UserSession session, SessionPushState state, PushFrame frame, boolean full,
+                              long dequeuedNanos) {
+        byte[] payload = state.binary
+                ? encodeBinaryFrame(state.sequence + 1, full, frame)
+                : encodeFrame(state.sequence + 1, full, frame);
+
+        MarketDataLatencyService.Trace trace = null;
+        if (!full) {
+            long serializedNanos = System.nanoTime();
+            trace = new MarketDataLatencyService.Trace(frame.records.size());
+            for (PushRecord record : frame.records) {
+                marketDataLatencyService.record(MarketDataLatencyService.STAGE_DISPATCH, record.exchangeId,
+                        dequeuedNanos - record.applyNanos);
+                marketDataLatencyService.record(MarketDataLatencyService.STAGE_SERIALIZE, record.exchangeId,
+                        serializedNanos - dequeuedNanos);
+                trace.add(record.receiveNanos, record.exchangeId);
             }
+            trace.setSerializedNanos(serializedNanos);
+        }
 
-            List<MarketDataSnapshot> marketData = marketDataCacheService.getActiveMarketDataByExchange(exchangeId);
-            if (!marketData.isEmpty()) {
-                pushToSessions(sessions, marketData);
-                logger.info("立即推送交易所行情数据: exchangeId={}, sessions={}, instruments={}", 
-                           exchangeId, sessions.size(), marketData.size());
+        totalPushCount.incrementAndGet();
+        if (state.direct != null) {
+            if (!state.direct.send(payload, new OutboundFrame(state.outbound, payload.length), trace)) {
+                failedPushCount.incrementAndGet();
+                return false;
             }
+            successPushCount.incrementAndGet();
+            pushedBytes.addAndGet(payload.length);
+            return true;
+        }
+        try {
+            // 推送到用户专用主题，负载已编码为字节，消息转换器不会再次序列化
+            String userTopic = "/topic/market/user/" + session.getSessionId();
+            messagingTemplate.send(userTopic, MessageBuilder.createMessage(payload,
+                    createHeaders(state.binary ? MimeTypeUtils.APPLICATION_OCTET_STREAM : MimeTypeUtils.APPLICATION_JSON,
+                            trace, new OutboundFrame(state.outbound, payload.length)).getMessageHeaders()));
+
+            successPushCount.incrementAndGet();
+            pushedBytes.addAndGet(payload.length);
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("推送行情数据到会话: sessionId={}, type={}, count={}, bytes={}",
+                           session.getSessionId(), full ? PUSH_TYPE_FULL : PUSH_TYPE_DELTA,
+                           frame.records.size(), payload.length);
+            }
+            return true;
+
         } catch (Exception e) {
-            logger.error("立即推送交易所行情数据失败: exchangeId={}", exchangeId, e);
+            logger.warn("推送行情数据到会话失败: sessionId={}, error={}",
+                       session.getSessionId(), e.getMessage());
+            failedPushCount.incrementAndGet();
+            return false;
         }
     }
 
     /**
-     * 立即推送指定合约的行情数据
+     * 拼接推送帧
+     * 只写入本帧的序号、类型等少量字段，合约记录直接复制预先编码的字节
      */
-    public void pushInstrumentData(String instrumentId) {
-        try {
-            List<UserSession> sessions = userSessionService.getSessionsByInstrument(instrumentId);
-            if (sessions.isEmpty()) {
-                return;
-            }
+    private byte[] encodeFrame(long sequence, boolean full, PushFrame frame) {
+        int size = FRAME_PREFIX.length + 128;
+        for (PushRecord record : frame.records) {
+            size += record.encoded.length + 1;
+        }
 
-            MarketDataSnapshot marketData = marketDataCacheService.getMarketData(instrumentId);
-            if (marketData != null) {
-                pushToSessions(sessions, Collections.singletonList(marketData));
-                logger.info("立即推送合约行情数据: instrumentId={}, sessions={}", 
-                           instrumentId, sessions.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        long timestamp = System.currentTimeMillis();
+        out.write(FRAME_PREFIX, 0, FRAME_PREFIX.length);
+        writeAscii(out, Long.toString(timestamp));
+        writeAscii(out, ",\"seq\":");
+        writeAscii(out, Long.toString(sequence));
+        writeAscii(out, full ? ",\"type\":\"full\",\"count\":" : ",\"type\":\"delta\",\"count\":");
+        writeAscii(out, Integer.toString(frame.records.size()));
+        writeAscii(out, ",\"data\":[");
+        for (int i = 0; i < frame.records.size(); i++) {
+            if (i > 0) {
+                out.write(',');
             }
-        } catch (Exception e) {
-            logger.error("立即推送合约行情数据失败: instrumentId={}", instrumentId, e);
+            byte[] encoded = frame.records.get(i).encoded;
+            out.write(encoded, 0, encoded.length);
+        }
+        writeAscii(out, "]},\"timestamp\":");
+        writeAscii(out, Long.toString(timestamp));
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    /**
+     * 拼接二进制推送帧
+     */
+    private byte[] encodeBinaryFrame(long sequence, boolean full, PushFrame frame) {
+        int count = frame.records.size();
+        ByteBuffer buffer = ByteBuffer.allocate(MarketDataBinaryEncoder.HEADER_SIZE
+                + count * MarketDataBinaryEncoder.RECORD_SIZE);
+        MarketDataBinaryEncoder.writeHeader(buffer, full, count, sequence, System.currentTimeMillis());
+        for (PushRecord record : frame.records) {
+            buffer.put(record.encoded);
+        }
+        return buffer.array();
+    }
+
+    private static void writeAscii(ByteArrayOutputStream out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            out.write(value.charAt(i));
+        }
+    }
+
+    /**
+     * 创建消息头
+     * @param trace 延迟统计的时间点，不是STOMP原生头，不会发送给客户端
+     * @param outbound 会话出站队列统计，不会发送给客户端
+     */
+    private static SimpMessageHeaderAccessor createHeaders(MimeType contentType, MarketDataLatencyService.Trace trace,
+                                                           OutboundFrame outbound) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(contentType);
+        if (trace != null) {
+            accessor.setHeader(MarketDataLatencyService.TRACE_HEADER, trace);
+        }
+        accessor.setHeader(OUTBOUND_HEADER, outbound);
+        accessor.setLeaveMutable(true);
+        return accessor;
+    }
+
+    /**
+     * 立即推送指定交易所的行情数据
+     * 把交易所的全部合约标记为脏，由推送线程按各会话的推送间隔推送
+     */
+    public void pushExchangeData(String exchangeId) {
+        BitSet members = marketDataCacheService.getExchangeMembers(exchangeId);
+        if (members == null) {
+            return;
+        }
+        for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+            markDirty(i);
+        }
+        logger.info("立即推送交易所行情数据: exchangeId={}, instruments={}", exchangeId, members.cardinality());
+    }
+
+    /**
+     * 立即推送指定合约的行情数据
+     */
+    public void pushInstrumentData(String instrumentId) {
+        int index = instrumentRegistry.indexOf(instrumentId);
+        if (index != InstrumentRegistry.NOT_REGISTERED) {
+            markDirty(index);
+            logger.info("立即推送合约行情数据: instrumentId={}", instrumentId);
         }
     }
 
     /**
      * 向指定会话推送全量行情数据
+     * 订阅变更和客户端重同步时调用，推送后会话的增量基准重置为本次全量快照
      */
     public void pushFullDataToSession(String sessionId) {
         try {
@@ -234,46 +671,119 @@ public class MarketDataPushService {
                 return;
             }
 
-            // 获取用户订阅的行情数据
-            List<MarketDataSnapshot> marketData = new ArrayList<>();
-
-            // 添加订阅的交易所数据
-            if (!session.getSubscribedExchanges().isEmpty()) {
-                marketData.addAll(marketDataCacheService.getActiveMarketDataByExchanges(
-                    session.getSubscribedExchanges()));
+            SessionPushState state = getPushState(session);
+            int count = pushChangesToSession(session, state, new PushCycle(readHolder.get()), true,
+                    System.currentTimeMillis());
+            if (count > 0) {
+                logger.info("推送全量行情数据到会话: sessionId={}, count={}", sessionId, count);
             }
 
-            // 添加订阅的合约数据
-            if (!session.getSubscribedInstruments().isEmpty()) {
-                marketData.addAll(marketDataCacheService.getMarketDataByInstruments(
-                    session.getSubscribedInstruments()));
-            }
+        } catch (Exception e) {
+            logger.error("推送全量行情数据到会话失败: sessionId={}", sessionId, e);
+        }
+    }
+
+    /**
+     * 设置会话的推送格式
+     * @param format {@link #PUSH_FORMAT_JSON} 或 {@link #PUSH_FORMAT_BINARY}
+     */
+    public void setPushFormat(String sessionId, String format) {
+        if (!PUSH_FORMAT_JSON.equals(format) && !PUSH_FORMAT_BINARY.equals(format)) {
+            throw new IllegalArgumentException("不支持的推送格式: " + format);
+        }
+        UserSession session = userSessionService.getSession(sessionId);
+        if (session == null) {
+            return;
+        }
+        SessionPushState state = getPushState(session);
+        synchronized (state) {
+            state.binary = PUSH_FORMAT_BINARY.equals(format);
+        }
+    }
 
-            // 去重
-            Map<String, MarketDataSnapshot> uniqueData = marketData.stream()
-                    .collect(Collectors.toMap(
-                        MarketDataSnapshot::getInstrumentId,
-                        snapshot -> snapshot,
-                        (existing, replacement) -> replacement
-                    ));
+    /**
+     * 设置会话的推送间隔
+     * @param intervalMs 推送间隔（毫秒），超出配置范围时取边界值
+     * @return 实际生效的推送间隔
+     */
+    public long setPushInterval(String sessionId, long intervalMs) {
+        TradingConfig.Push push = tradingConfig.getPush();
+        long interval = Math.max(push.getMinIntervalMs(), Math.min(push.getMaxIntervalMs(), intervalMs));
+        UserSession session = userSessionService.getSession(sessionId);
+        if (session == null) {
+            return interval;
+        }
+        SessionPushState state = getPushState(session);
+        synchronized (state) {
+            state.requestedIntervalMs = interval;
+            state.intervalMs = interval;
+            state.backedUpPushes = 0;
+            state.healthyPushes = 0;
+        }
+        return interval;
+    }
 
-            if (!uniqueData.isEmpty()) {
-                pushToSessions(Collections.singletonList(session), 
-                             new ArrayList<>(uniqueData.values()));
-                logger.info("推送全量行情数据到会话: sessionId={}, count={}", 
-                           sessionId, uniqueData.size());
+    /**
+     * 获取会话的推送格式
+     */
+    public String getPushFormat(String sessionId) {
+        SessionPushState state = pushStates.get(sessionId);
+        if (state == null) {
+            return PUSH_FORMAT_JSON;
+        }
+        synchronized (state) {
+            return state.binary ? PUSH_FORMAT_BINARY : PUSH_FORMAT_JSON;
+        }
+    }
+
+    /**
+     * 把会话的推送切换到行情原生端点的连接，之后推送帧直接写入该连接。
+     * 同一会话再次连接时替换并关闭之前的连接；连接后立即推送一次全量快照，作为该连接上的增量基准
+     * @return 会话无效时返回false
+     */
+    public boolean attachDirectConnection(String sessionId, WebSocketSession connection) {
+        UserSession session = userSessionService.getSession(sessionId);
+        if (session == null || !session.isActive()) {
+            return false;
+        }
+        SessionPushState state = getPushState(session);
+        synchronized (state) {
+            if (state.direct != null) {
+                state.direct.close(CloseStatus.POLICY_VIOLATION.withReason("会话已在其他连接上接收行情"));
+            } else {
+                directConnections.incrementAndGet();
             }
+            state.direct = new DirectConnection(connection);
+        }
+        logger.info("会话连接行情原生端点: sessionId={}, remote={}", sessionId, connection.getRemoteAddress());
+        pushFullDataToSession(sessionId);
+        return true;
+    }
 
-        } catch (Exception e) {
-            logger.error("推送全量行情数据到会话失败: sessionId={}", sessionId, e);
+    /**
+     * 行情原生端点的连接关闭，会话的推送回到STOMP
+     */
+    public void detachDirectConnection(String sessionId, WebSocketSession connection) {
+        SessionPushState state = pushStates.get(sessionId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.direct != null && state.direct.session == connection) {
+                clearDirectConnection(state);
+                logger.info("会话断开行情原生端点: sessionId={}", sessionId);
+            }
         }
     }
 
     /**
-     * 转换为客户端格式
+     * 会话的推送回到STOMP并扣除原生端点连接数，调用方持有会话推送状态的锁
      */
-    private List<Map<String, Object>> convertToClientFormat(List<MarketDataSnapshot> marketData) {
-        return marketData.stream().map(this::convertSnapshotToMap).collect(Collectors.toList());
+    private void clearDirectConnection(SessionPushState state) {
+        if (state.direct != null) {
+            state.direct = null;
+            directConnections.decrementAndGet();
+        }
     }
 
     /**
@@ -284,6 +794,7 @@ public class MarketDataPushService {
         data.put("instrumentId", snapshot.getInstrumentId());
         data.put("exchangeId", snapshot.getExchangeId());
         data.put("instrumentName", snapshot.getInstrumentName());
+        data.put("version", snapshot.getUpdateCount());
         data.put("updateTime", snapshot.getUpdateTime());
         data.put("lastPrice", snapshot.getLastPrice());
         data.put("preClosePrice", snapshot.getPreClosePrice());
@@ -329,6 +840,130 @@ public class MarketDataPushService {
         return data;
     }
 
+    /**
+     * 转换行情快照中基准版本之后变化的字段为Map格式
+     * 客户端按 instrumentId 把增量字段合并到本地已有数据上
+     */
+    private Map<String, Object> convertDeltaToMap(MarketDataSnapshot snapshot, long baseVersion) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("instrumentId", snapshot.getInstrumentId());
+        data.put("version", snapshot.getUpdateCount());
+
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_UPDATE_TIME, baseVersion)) {
+            data.put("updateTime", snapshot.getUpdateTime());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_LAST_PRICE, baseVersion)) {
+            data.put("lastPrice", snapshot.getLastPrice());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_PRE_CLOSE_PRICE, baseVersion)) {
+            data.put("preClosePrice", snapshot.getPreClosePrice());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_OPEN_PRICE, baseVersion)) {
+            data.put("openPrice", snapshot.getOpenPrice());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_HIGHEST_PRICE, baseVersion)) {
+            data.put("highestPrice", snapshot.getHighestPrice());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_LOWEST_PRICE, baseVersion)) {
+            data.put("lowestPrice", snapshot.getLowestPrice());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_UPPER_LIMIT_PRICE, baseVersion)) {
+            data.put("upperLimitPrice", snapshot.getUpperLimitPrice());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_LOWER_LIMIT_PRICE, baseVersion)) {
+            data.put("lowerLimitPrice", snapshot.getLowerLimitPrice());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_VOLUME, baseVersion)) {
+            data.put("volume", snapshot.getVolume());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_TURNOVER, baseVersion)) {
+            data.put("turnover", snapshot.getTurnover());
+        }
+        if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_OPEN_INTEREST, baseVersion)) {
+            data.put("openInterest", snapshot.getOpenInterest());
+        }
+
+        // 涨跌额和涨跌幅由最新价和昨收价派生
+        if (data.containsKey("lastPrice") || data.containsKey("preClosePrice")) {
+            data.put("priceChange", snapshot.getPriceChange());
+            data.put("priceChangePercent", snapshot.getPriceChangePercent());
+        }
+
+        // 五档买卖盘只包含变化的档位
+        Map<String, Object> bid = new HashMap<>();
+        Map<String, Object> ask = new HashMap<>();
+        for (int level = 1; level <= 5; level++) {
+            if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_BID_PRICE_1 + level - 1, baseVersion)) {
+                bid.put("price" + level, snapshot.getBidPrice(level));
+            }
+            if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_BID_VOLUME_1 + level - 1, baseVersion)) {
+                bid.put("volume" + level, snapshot.getBidVolume(level));
+            }
+            if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_ASK_PRICE_1 + level - 1, baseVersion)) {
+                ask.put("price" + level, snapshot.getAskPrice(level));
+            }
+            if (snapshot.isFieldChangedSince(MarketDataSnapshot.FIELD_ASK_VOLUME_1 + level - 1, baseVersion)) {
+                ask.put("volume" + level, snapshot.getAskVolume(level));
+            }
+        }
+        if (!bid.isEmpty()) {
+            data.put("bid", bid);
+        }
+        if (!ask.isEmpty()) {
+            data.put("ask", ask);
+        }
+
+        return data;
+    }
+
+    /**
+     * 获取或创建会话推送状态
+     */
+    private SessionPushState getPushState(UserSession session) {
+        return pushStates.computeIfAbsent(session.getSessionId(),
+                k -> new SessionPushState(session, tradingConfig.getPush().getDefaultIntervalMs(),
+                        new OutboundQueue(queuedFrames, queuedBytes, outboundLagTimer)));
+    }
+
+    /**
+     * 注册推送指标，指标读取已有计数器，不遍历会话
+     */
+    private void bindMetrics() {
+        FunctionCounter.builder("market.push.frames", successPushCount, AtomicLong::get)
+                .tag("result", "success").description("推送帧数").register(meterRegistry);
+        FunctionCounter.builder("market.push.frames", failedPushCount, AtomicLong::get)
+                .tag("result", "failed").description("推送帧数").register(meterRegistry);
+        FunctionCounter.builder("market.push.records", fullRecordCount, AtomicLong::get)
+                .tag("type", PUSH_TYPE_FULL).description("推送的合约记录数").register(meterRegistry);
+        FunctionCounter.builder("market.push.records", deltaRecordCount, AtomicLong::get)
+                .tag("type", PUSH_TYPE_DELTA).description("推送的合约记录数").register(meterRegistry);
+        FunctionCounter.builder("market.push.encoded.records", encodedRecordCount, AtomicLong::get)
+                .description("编码的合约记录数，同一推送周期内各会话共享").register(meterRegistry);
+        FunctionCounter.builder("market.push.bytes", pushedBytes, AtomicLong::get)
+                .baseUnit("bytes").description("推送字节数").register(meterRegistry);
+        FunctionCounter.builder("market.push.dispatch.rounds", dispatchRounds, AtomicLong::get)
+                .description("推送线程处理轮数").register(meterRegistry);
+        Gauge.builder("market.push.sessions", pushStates, Map::size)
+                .description("有推送状态的会话数").register(meterRegistry);
+        Gauge.builder("market.push.direct.connections", directConnections, AtomicInteger::get)
+                .description("连接行情原生端点的会话数").register(meterRegistry);
+        Gauge.builder("market.push.queue.depth", this, service -> service.dirtyCount)
+                .tag("stage", "dirty").description("等待分发的合约数").register(meterRegistry);
+        Gauge.builder("market.push.queue.depth", pendingRecords, AtomicLong::get)
+                .tag("stage", "pending").description("各会话等待推送的合约总数").register(meterRegistry);
+        // 按会话的积压和延迟见 getSessionPushStats，不以会话为标签注册指标，避免指标数随会话增长
+        Gauge.builder("market.push.queue.depth", queuedFrames, AtomicLong::get)
+                .tag("stage", "outbound").description("各会话出站通道中尚未写入连接的推送帧总数").register(meterRegistry);
+        Gauge.builder("market.push.outbound.bytes", queuedBytes, AtomicLong::get)
+                .baseUnit("bytes").description("各会话出站通道中尚未写入连接的推送字节总数").register(meterRegistry);
+        FunctionCounter.builder("market.push.backpressure", skippedPushCount, AtomicLong::get)
+                .tag("action", "skipped").description("因会话积压跳过的推送次数").register(meterRegistry);
+        FunctionCounter.builder("market.push.backpressure", downgradeCount, AtomicLong::get)
+                .tag("action", "downgraded").description("因会话积压加大推送间隔的次数").register(meterRegistry);
+        FunctionCounter.builder("market.push.backpressure", recoverCount, AtomicLong::get)
+                .tag("action", "recovered").description("积压消除后缩短推送间隔的次数").register(meterRegistry);
+    }
+
     /**
      * 获取推送统计信息
      */
@@ -337,7 +972,25 @@ public class MarketDataPushService {
         stats.put("totalPushCount", totalPushCount.get());
         stats.put("successPushCount", successPushCount.get());
         stats.put("failedPushCount", failedPushCount.get());
-        stats.put("pushInterval", PUSH_INTERVAL_MS + "ms");
+        stats.put("fullRecordCount", fullRecordCount.get());
+        stats.put("deltaRecordCount", deltaRecordCount.get());
+        stats.put("encodedRecordCount", encodedRecordCount.get());
+        stats.put("pushedBytes", pushedBytes.get());
+        stats.put("trackedSessions", pushStates.size());
+        stats.put("directConnections", directConnections.get());
+        stats.put("dirtyInstruments", dirtyCount);
+        stats.put("pendingRecords", pendingRecords.get());
+        stats.put("dispatchRounds", dispatchRounds.get());
+        stats.put("queuedFrames", queuedFrames.get());
+        stats.put("queuedBytes", queuedBytes.get());
+        stats.put("skippedPushCount", skippedPushCount.get());
+        stats.put("downgradeCount", downgradeCount.get());
+        stats.put("recoverCount", recoverCount.get());
+        stats.put("meanOutboundLagMicros", (long) outboundLagTimer.mean(TimeUnit.MICROSECONDS));
+        stats.put("maxOutboundLagMicros", (long) outboundLagTimer.max(TimeUnit.MICROSECONDS));
+        stats.put("slowSessions", getSlowSessions());
+        stats.put("defaultPushInterval", tradingConfig.getPush().getDefaultIntervalMs() + "ms");
+        stats.put("fullSnapshotInterval", tradingConfig.getPush().getFullSnapshotIntervalMs() + "ms");
 
         // 计算成功率
         long total = totalPushCount.get();
@@ -346,4 +999,355 @@ public class MarketDataPushService {
 
         return stats;
     }
+
+    /**
+     * 当前积压或推送间隔被加大的会话
+     */
+    private List<Map<String, Object>> getSlowSessions() {
+        List<Map<String, Object>> sessions = new ArrayList<>();
+        for (SessionPushState state : pushStates.values()) {
+            synchronized (state) {
+                if (isBackedUp(state) || state.intervalMs > state.requestedIntervalMs) {
+                    sessions.add(sessionPushStats(state));
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * 获取会话的推送统计，包括出站积压和写入延迟
+     * @return 会话没有推送状态时返回null
+     */
+    public Map<String, Object> getSessionPushStats(String sessionId) {
+        SessionPushState state = pushStates.get(sessionId);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return sessionPushStats(state);
+        }
+    }
+
+    private Map<String, Object> sessionPushStats(SessionPushState state) {
+        OutboundQueue outbound = state.outbound;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessionId", state.session.getSessionId());
+        stats.put("format", state.binary ? PUSH_FORMAT_BINARY : PUSH_FORMAT_JSON);
+        stats.put("transport", state.direct != null ? "direct" : "stomp");
+        stats.put("sequence", state.sequence);
+        stats.put("intervalMs", state.intervalMs);
+        stats.put("requestedIntervalMs", state.requestedIntervalMs);
+        stats.put("pendingRecords", state.pending.cardinality());
+        stats.put("queuedFrames", outbound.frames.get());
+        stats.put("queuedBytes", outbound.bytes.get());
+        stats.put("writtenFrames", outbound.writtenFrames.get());
+        stats.put("lastLagMicros", TimeUnit.NANOSECONDS.toMicros(outbound.lastLagNanos));
+        stats.put("maxLagMicros", TimeUnit.NANOSECONDS.toMicros(outbound.maxLagNanos.get()));
+        stats.put("skippedPushes", state.skippedPushes);
+        stats.put("downgrades", state.downgrades);
+        return stats;
+    }
+
+    /**
+     * 会话推送状态
+     * 记录会话已收到的每个合约的版本，所有访问都在对象锁内进行
+     */
+    private static final class SessionPushState {
+
+        private final UserSession session;
+
+        // 合约索引 -> 已推送的版本
+        private long[] sentVersions = new long[256];
+
+        // 已成功推送的帧序号
+        private long sequence;
+
+        // 上次全量快照时间
+        private long lastFullPushMillis;
+
+        // 上次推送时间与推送间隔；积压时推送间隔会被加大，requestedIntervalMs 为会话设置的间隔
+        private long lastPushMillis;
+        private long intervalMs;
+        private long requestedIntervalMs;
+
+        // 出站通道积压统计
+        private final OutboundQueue outbound;
+
+        // 连续因积压跳过的推送次数、降频后连续正常的推送次数
+        private int backedUpPushes;
+        private int healthyPushes;
+        private long skippedPushes;
+        private long downgrades;
+
+        // 已标记为脏、尚未推送的合约
+        private final BitSet pending = new BitSet();
+
+        // 是否使用二进制格式
+        private boolean binary;
+
+        // 行情原生端点的连接，为null时经STOMP推送
+        private DirectConnection direct;
+
+        SessionPushState(UserSession session, long intervalMs, OutboundQueue outbound) {
+            this.session = session;
+            this.intervalMs = intervalMs;
+            this.requestedIntervalMs = intervalMs;
+            this.outbound = outbound;
+        }
+
+        long getSentVersion(int index) {
+            return index < sentVersions.length ? sentVersions[index] : 0L;
+        }
+
+        void setSentVersion(int index, long version) {
+            if (index >= sentVersions.length) {
+                sentVersions = Arrays.copyOf(sentVersions, Math.max(index + 1, sentVersions.length << 1));
+            }
+            sentVersions[index] = version;
+        }
+    }
+
+    /**
+     * 会话出站队列统计
+     * 推送帧进入 clientOutboundChannel 时计入，真正写入WebSocket连接、写入失败或连接关闭时扣除
+     * （STOMP连接由 WebSocketConfig 在发送装饰器之下的会话包装中扣除，原生端点在异步写入完成时扣除）。
+     * 慢连接正在写入时，其他出站线程交给发送装饰器的帧只进入缓冲区，这些帧仍计入积压，
+     * 因此积压反映的是出站通道排队、发送缓冲和正在写入的帧之和。
+     */
+    public static final class OutboundQueue {
+
+        private final AtomicInteger frames = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong writtenFrames = new AtomicLong();
+        private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+        private volatile long lastLagNanos;
+
+        // 全部会话的合计与写入延迟
+        private final AtomicLong totalFrames;
+        private final AtomicLong totalBytes;
+        private final Timer lagTimer;
+
+        OutboundQueue(AtomicLong totalFrames, AtomicLong totalBytes, Timer lagTimer) {
+            this.totalFrames = totalFrames;
+            this.totalBytes = totalBytes;
+            this.lagTimer = lagTimer;
+        }
+    }
+
+    /**
+     * 推送帧的出站统计，作为消息头 {@link #OUTBOUND_HEADER} 随消息进入出站通道
+     */
+    public static final class OutboundFrame {
+
+        private final OutboundQueue queue;
+        private final int bytes;
+        private long enqueuedNanos;
+        private final AtomicBoolean dequeued = new AtomicBoolean();
+
+        OutboundFrame(OutboundQueue queue, int bytes) {
+            this.queue = queue;
+            this.bytes = bytes;
+        }
+
+        /**
+         * 进入出站通道，在发送线程上调用
+         */
+        public void enqueued() {
+            enqueuedNanos = System.nanoTime();
+            queue.frames.incrementAndGet();
+            queue.bytes.addAndGet(bytes);
+            queue.totalFrames.incrementAndGet();
+            queue.totalBytes.addAndGet(bytes);
+        }
+
+        /**
+         * 已写入WebSocket连接，或未能进入出站通道、写入失败、连接已关闭，只有第一次调用有效
+         */
+        public void dequeued(boolean written) {
+            if (!dequeued.compareAndSet(false, true)) {
+                return;
+            }
+            queue.frames.decrementAndGet();
+            queue.bytes.addAndGet(-bytes);
+            queue.totalFrames.decrementAndGet();
+            queue.totalBytes.addAndGet(-bytes);
+            if (written) {
+                long lag = System.nanoTime() - enqueuedNanos;
+                queue.lastLagNanos = lag;
+                queue.maxLagNanos.accumulate(lag);
+                queue.writtenFrames.incrementAndGet();
+                queue.lagTimer.record(lag, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * 行情原生端点的一个连接
+     * 推送帧以二进制WebSocket消息经容器的异步写入发送，推送线程不会阻塞在慢连接上；
+     * 容器不支持异步写入时退回到阻塞写入。同时只有一帧在写入，写入失败或超时后不再写入并关闭连接。
+     */
+    private final class DirectConnection {
+
+        private final WebSocketSession session;
+        private final RemoteEndpoint.Async async;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean failed;
+
+        DirectConnection(WebSocketSession session) {
+            this.session = session;
+            Session nativeSession = session instanceof NativeWebSocketSession
+                    ? ((NativeWebSocketSession) session).getNativeSession(Session.class) : null;
+            this.async = nativeSession != null ? nativeSession.getAsyncRemote() : null;
+        }
+
+        /**
+         * 上一帧仍在写入，或写入已失败、等待连接关闭
+         */
+        boolean isSending() {
+            return sending.get() || failed;
+        }
+
+        /**
+         * 开始写入一帧
+         * @return 连接不可写或上一帧仍在写入时返回false
+         */
+        boolean send(byte[] payload, OutboundFrame outbound, MarketDataLatencyService.Trace trace) {
+            if (failed || !session.isOpen() || !sending.compareAndSet(false, true)) {
+                return false;
+            }
+            outbound.enqueued();
+            // 容器在写入失败时可能既回调又抛出异常，每帧只完成一次
+            AtomicBoolean done = new AtomicBoolean();
+            if (async == null) {
+                try {
+                    session.sendMessage(new BinaryMessage(payload));
+                    completed(done, outbound, trace, null);
+                    return true;
+                } catch (IOException e) {
+                    completed(done, outbound, trace, e);
+                    return false;
+                }
+            }
+            try {
+                async.sendBinary(ByteBuffer.wrap(payload),
+                        result -> completed(done, outbound, trace, result.isOK() ? null : result.getException()));
+                return true;
+            } catch (RuntimeException e) {
+                completed(done, outbound, trace, e);
+                return false;
+            }
+        }
+
+        private void completed(AtomicBoolean done, OutboundFrame outbound, MarketDataLatencyService.Trace trace,
+                               Throwable error) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            outbound.dequeued(error == null);
+            if (error == null) {
+                sending.set(false);
+                if (trace != null) {
+                    marketDataLatencyService.recordWritten(trace);
+                }
+                return;
+            }
+            failed = true;
+            sending.set(false);
+            if (session.isOpen()) {
+                logger.warn("行情原生端点写入失败，关闭连接: remote={}, error={}",
+                        session.getRemoteAddress(), error.getMessage());
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+
+        void close(CloseStatus status) {
+            try {
+                session.close(status);
+            } catch (IOException e) {
+                logger.debug("关闭行情原生端点连接失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 单个合约的推送记录
+     */
+    private static final class PushRecord {
+
+        private final long version;
+        private final byte[] encoded;
+
+        // 延迟统计：该版本行情的回调时间、写入缓存时间及交易所
+        private final long receiveNanos;
+        private final long applyNanos;
+        private final String exchangeId;
+
+        PushRecord(long version, byte[] encoded, MarketDataSnapshot snapshot) {
+            this.version = version;
+            this.encoded = encoded;
+            this.receiveNanos = snapshot.getReceiveNanos();
+            this.applyNanos = snapshot.getApplyNanos();
+            this.exchangeId = snapshot.getExchangeId();
+        }
+    }
+
+    /**
+     * 一次推送周期内共享的记录缓存
+     * 键为 推送格式 + 基准版本 + 合约索引，基准版本0表示完整记录；记录在首次使用时编码为字节
+     */
+    private final class PushCycle {
+
+        private final MarketDataSnapshot holder;
+        private final Map<Long, Map<Integer, PushRecord>> jsonRecords = new HashMap<>();
+        private final Map<Long, Map<Integer, PushRecord>> binaryRecords = new HashMap<>();
+
+        PushCycle(MarketDataSnapshot holder) {
+            this.holder = holder;
+        }
+
+        PushRecord getRecord(int index, long baseVersion, boolean binary) throws JsonProcessingException {
+            Map<Integer, PushRecord> records = (binary ? binaryRecords : jsonRecords)
+                    .computeIfAbsent(baseVersion, k -> new HashMap<>());
+
+            PushRecord record = records.get(index);
+            if (record == null) {
+                if (!marketDataCacheService.readMarketData(index, holder)) {
+                    return null;
+                }
+                byte[] encoded;
+                if (binary) {
+                    encoded = MarketDataBinaryEncoder.encodeRecord(holder, baseVersion);
+                } else {
+                    Map<String, Object> data = baseVersion == 0
+                            ? convertSnapshotToMap(holder)
+                            : convertDeltaToMap(holder, baseVersion);
+                    encoded = objectMapper.writeValueAsBytes(data);
+                }
+                record = new PushRecord(holder.getUpdateCount(), encoded, holder);
+                records.put(index, record);
+                encodedRecordCount.incrementAndGet();
+            }
+            return record;
+        }
+    }
+
+    /**
+     * 单个会话的一帧推送内容
+     */
+    private static final class PushFrame {
+
+        private final List<PushRecord> records = new ArrayList<>();
+        private final BitSet included = new BitSet();
+        private int[] indexes = new int[16];
+
+        void add(int index, PushRecord record) {
+            if (records.size() == indexes.length) {
+                indexes = Arrays.copyOf(indexes, indexes.length << 1);
+            }
+            indexes[records.size()] = index;
+            records.add(record);
+            included.set(index);
+        }
+    }
 }
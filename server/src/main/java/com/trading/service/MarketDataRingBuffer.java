@@ -0,0 +1,260 @@
+package com.trading.service;
+
+import com.trading.model.DepthMarketDataEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 行情环形缓冲区
+ * 位于行情回调线程与行情缓存之间。槽位在创建时全部预分配，回调线程只需领取序号、填写槽位、发布，
+ * 不分配对象、不加锁；缓冲区满时直接丢弃并计数，绝不阻塞行情API的接收线程。
+ * 单独的消费线程按序号顺序处理已发布的槽位。
+ *
+ * 飞马行情API只有一个回调线程，但模拟实现使用线程池回调，因此领取序号使用CAS，单生产者时CAS不会失败。
+ *
+ * 用法:
+ * <pre>
+ * long sequence = ringBuffer.tryNext();
+ * if (sequence >= 0) {
+ *     ringBuffer.get(sequence).set(...);
+ *     ringBuffer.publish(sequence);
+ * }
+ * </pre>
+ */
+public class MarketDataRingBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataRingBuffer.class);
+
+    // 消费线程进入休眠前的自旋与让出次数
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 10;
+
+    /**
+     * 行情事件处理器，在消费线程中调用
+     */
+    public interface EventHandler {
+        void onEvent(DepthMarketDataEvent event);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final DepthMarketDataEvent[] slots;
+
+    // 每个槽位最近一次发布的序号，消费线程据此判断槽位是否可读
+    private final AtomicLongArray published;
+
+    // 已领取的最大序号
+    private final AtomicLong claimSequence = new AtomicLong(-1);
+
+    // 已处理的最大序号，生产者据此判断缓冲区是否已满
+    private final AtomicLong consumerSequence = new AtomicLong(-1);
+
+    private final EventHandler handler;
+    private final String threadName;
+
+    private volatile Thread consumerThread;
+    private volatile boolean running;
+    private volatile boolean consumerWaiting;
+
+    // 统计
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong failedCount = new AtomicLong(0);
+    private volatile long maxDepth;
+    private volatile long maxQueueNanos;
+
+    /**
+     * @param capacity 槽位数量，必须为2的幂
+     * @param handler 事件处理器
+     * @param threadName 消费线程名称
+     */
+    public MarketDataRingBuffer(int capacity, EventHandler handler, String threadName) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("环形缓冲区大小必须为2的幂: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.handler = handler;
+        this.threadName = threadName;
+        this.slots = new DepthMarketDataEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new DepthMarketDataEvent();
+        }
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * 启动消费线程
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::consume, threadName);
+        thread.setDaemon(true);
+        consumerThread = thread;
+        thread.start();
+    }
+
+    /**
+     * 停止消费线程，已发布但未处理的事件会在停止前处理完
+     */
+    public synchronized void stop() {
+        running = false;
+        Thread thread = consumerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 领取下一个槽位序号
+     * @return 序号，缓冲区已满时返回-1并计入丢弃数
+     */
+    public long tryNext() {
+        long current;
+        long next;
+        do {
+            current = claimSequence.get();
+            next = current + 1;
+            if (next - capacity > consumerSequence.get()) {
+                droppedCount.incrementAndGet();
+                return -1;
+            }
+        } while (!claimSequence.compareAndSet(current, next));
+        return next;
+    }
+
+    /**
+     * 获取序号对应的槽位
+     */
+    public DepthMarketDataEvent get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * 发布槽位，之后消费线程可见
+     */
+    public void publish(long sequence) {
+        // volatile写与随后对等待标志的读不能重排，否则消费线程可能在休眠前错过本次发布
+        published.set((int) sequence & mask, sequence);
+        if (consumerWaiting) {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    /**
+     * 消费线程主循环
+     */
+    private void consume() {
+        long next = consumerSequence.get() + 1;
+        int idle = 0;
+        while (true) {
+            int index = (int) next & mask;
+            if (published.get(index) == next) {
+                long depth = claimSequence.get() - next + 1;
+                if (depth > maxDepth) {
+                    maxDepth = depth;
+                }
+
+                DepthMarketDataEvent event = slots[index];
+                long queueNanos = System.nanoTime() - event.getReceiveNanos();
+                if (queueNanos > maxQueueNanos) {
+                    maxQueueNanos = queueNanos;
+                }
+                try {
+                    handler.onEvent(event);
+                } catch (Exception e) {
+                    failedCount.incrementAndGet();
+                    logger.error("处理行情事件失败: sequence={}", next, e);
+                } finally {
+                    event.clear();
+                }
+                consumerSequence.lazySet(next);
+                next++;
+                idle = 0;
+                continue;
+            }
+
+            if (!running) {
+                return;
+            }
+            idle = waitForEvent(index, next, idle);
+        }
+    }
+
+    /**
+     * 等待策略：先自旋，再让出CPU，最后休眠直到生产者发布时唤醒
+     */
+    private int waitForEvent(int index, long sequence, int idle) {
+        if (idle < SPIN_TRIES) {
+            return idle + 1;
+        }
+        if (idle < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+            return idle + 1;
+        }
+
+        consumerWaiting = true;
+        // 设置等待标志后再检查一次，避免错过休眠前刚发布的事件
+        if (published.get(index) != sequence && running) {
+            LockSupport.park(this);
+        }
+        consumerWaiting = false;
+        return 0;
+    }
+
+    /**
+     * 待处理的事件数量
+     */
+    public long getDepth() {
+        return claimSequence.get() - consumerSequence.get();
+    }
+
+    public long getPublishedCount() {
+        return claimSequence.get() + 1;
+    }
+
+    public long getConsumedCount() {
+        return consumerSequence.get() + 1;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("capacity", capacity);
+        stats.put("publishedCount", getPublishedCount());
+        stats.put("consumedCount", getConsumedCount());
+        stats.put("depth", getDepth());
+        stats.put("maxDepth", maxDepth);
+        stats.put("droppedCount", droppedCount.get());
+        stats.put("failedCount", failedCount.get());
+        stats.put("maxQueueMicros", TimeUnit.NANOSECONDS.toMicros(maxQueueNanos));
+        return stats;
+    }
+}
@@ -1,8 +1,13 @@
 package com.trading.service;
 
 import com.trading.config.TradingConfig;
-import com.trading.jni.FemasMarketApiMock;
+import com.trading.jni.FemasMarketApiReplay;
 import com.trading.model.ApiResponse;
+import com.trading.model.DepthMarketDataEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +16,9 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -19,9 +27,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * 行情服务类 - Java 8兼容
  * 封装飞马行情API，提供行情推送服务
+ * 配置 trading.replay 后回放历史行情，配置 trading.load 后生成压测行情，否则使用模拟行情
  */
 @Service
-public class MarketService extends FemasMarketApiMock {
+public class MarketService extends FemasMarketApiReplay {
 
     private static final Logger logger = LoggerFactory.getLogger(MarketService.class);
 
@@ -34,10 +43,40 @@ public class MarketService extends FemasMarketApiMock {
     @Autowired
     private MarketDataCacheService marketDataCacheService;
 
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    @Autowired
+    private MarketDataPushService marketDataPushService;
+
+    @Autowired
+    private ExchangeResolver exchangeResolver;
+
+    @Autowired
+    private TickJournalService tickJournalService;
+
+    @Autowired
+    private TickStoreService tickStoreService;
+
+    @Autowired
+    private MarketDataLatencyService marketDataLatencyService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RequestTimeoutService requestTimeoutService;
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private MarketBarService marketBarService;
+
     // 请求ID生成器
     private final AtomicInteger requestIdGenerator = new AtomicInteger(1);
 
-    // 存储异步请求的Future
+    // 存储异步请求的Future，请求完成（含超时）时移除
     private final ConcurrentHashMap<Integer, CompletableFuture<ApiResponse<Object>>> pendingRequests =
             new ConcurrentHashMap<>();
 
@@ -48,9 +87,32 @@ public class MarketService extends FemasMarketApiMock {
     private volatile boolean isConnected = false;
     private volatile boolean isLoggedIn = false;
 
+    // 行情回调线程与行情缓存之间的环形缓冲区
+    private MarketDataRingBuffer ringBuffer;
+
+    // 交易所 -> 行情计数器，只在行情消费线程中访问
+    private final Map<String, Counter> exchangeTickCounters = new HashMap<>();
+
     @PostConstruct
     public void initialize() {
         logger.info("初始化行情服务...");
+
+        // 先启动行情消费线程，再连接行情前置
+        ringBuffer = new MarketDataRingBuffer(
+            tradingConfig.getIngest().getRingBufferSize(), this::applyMarketData, "MarketDataIngest");
+        ringBuffer.start();
+        bindMetrics();
+
+        TradingConfig.Replay replay = tradingConfig.getReplay();
+        if (replay.isEnabled()) {
+            configureReplay(replay.getSource(), replay.getSpeed(), replay.isLoop(), replay.getStartTime());
+            // 回放的行情不再写入行情日志，避免回放行情日志时写回同一目录
+            tickJournalService.disable("行情回放模式");
+            tickStoreService.disable("行情回放模式");
+        } else if (tradingConfig.getLoad().isEnabled()) {
+            configureLoad(tradingConfig.getLoad());
+        }
+
         try {
             // 创建API实例
             if (createMarketApi(tradingConfig.getFlowPath() + "md/")) {
@@ -78,6 +140,9 @@ public class MarketService extends FemasMarketApiMock {
         } catch (Exception e) {
             logger.error("清理行情服务资源失败", e);
         }
+        if (ringBuffer != null) {
+            ringBuffer.stop();
+        }
     }
 
     /**
@@ -92,8 +157,7 @@ public class MarketService extends FemasMarketApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            registerPendingRequest("login", future);
 
             reqUserLogin(
                 tradingConfig.getBrokerId(),
@@ -116,8 +180,7 @@ public class MarketService extends FemasMarketApiMock {
         CompletableFuture<ApiResponse<Object>> future = new CompletableFuture<>();
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            registerPendingRequest("logout", future);
 
             reqUserLogout(tradingConfig.getBrokerId(), tradingConfig.getUserId());
 
@@ -141,16 +204,23 @@ public class MarketService extends FemasMarketApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            // 先分配合约索引，保证首个tick到达时索引已就绪
+            for (String instrumentId : instrumentIds) {
+                registerInstrument(instrumentId);
+            }
 
-            // 调用父类的方法
-            super.subscribeMarketData(instrumentIds);
+            // 订阅响应按合约逐个返回且不带请求ID，请求发送成功即完成
+            int result = super.subscribeMarketData(instrumentIds);
+            if (result != 0) {
+                future.complete(ApiResponse.error("订阅行情请求发送失败: " + result));
+                return future;
+            }
 
             // 添加到已订阅列表
             for (String instrumentId : instrumentIds) {
                 subscribedInstruments.add(instrumentId);
             }
+            future.complete(ApiResponse.success("订阅行情请求已发送", null));
 
         } catch (Exception e) {
             logger.error("订阅行情请求失败", e);
@@ -172,16 +242,18 @@ public class MarketService extends FemasMarketApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
-
-            // 调用父类的方法
-            super.unsubscribeMarketData(instrumentIds);
+            // 退订响应按合约逐个返回且不带请求ID，请求发送成功即完成
+            int result = super.unsubscribeMarketData(instrumentIds);
+            if (result != 0) {
+                future.complete(ApiResponse.error("退订行情请求发送失败: " + result));
+                return future;
+            }
 
             // 从已订阅列表移除
             for (String instrumentId : instrumentIds) {
                 subscribedInstruments.remove(instrumentId);
             }
+            future.complete(ApiResponse.success("退订行情请求已发送", null));
 
         } catch (Exception e) {
             logger.error("退订行情请求失败", e);
@@ -203,8 +275,7 @@ public class MarketService extends FemasMarketApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            registerPendingRequest("qry_instrument", future);
 
             reqQryInstrument(instrumentId);
 
@@ -253,6 +324,9 @@ public class MarketService extends FemasMarketApiMock {
         if (errorId == 0) {
             logger.info("行情登录成功 - 交易日: {}, 登录时间: {}", tradingDay, loginTime);
             isLoggedIn = true;
+            tickJournalService.setTradingDay(tradingDay);
+            tickStoreService.setTradingDay(tradingDay);
+            marketBarService.setTradingDay(tradingDay);
 
             // 完成登录请求
             completeAllPendingRequests(ApiResponse.success("行情登录成功", null));
@@ -287,14 +361,20 @@ public class MarketService extends FemasMarketApiMock {
                                    double preClosePrice, double openPrice,
                                    double highestPrice, double lowestPrice) {
 
-        logger.debug("收到行情数据: {} - {}", instrumentId, lastPrice);
-
-        // 获取交易所ID（从合约代码推断）
-        String exchangeId = getExchangeIdFromInstrument(instrumentId);
+        // 行情API回调线程上只做索引查找和写入环形缓冲区，缓存更新在消费线程中进行
+        int index = instrumentRegistry.indexOf(instrumentId);
+        if (index == InstrumentRegistry.NOT_REGISTERED) {
+            // 订阅时已分配索引，未经订阅流程推送的合约在此补注册
+            index = registerInstrument(instrumentId);
+        }
 
-        // 更新缓存
-        marketDataCacheService.updateMarketData(
-            instrumentId, exchangeId, updateTime, lastPrice, volume, turnover, openInterest,
+        long sequence = ringBuffer.tryNext();
+        if (sequence < 0) {
+            // 缓冲区已满，丢弃本笔行情，丢弃数在环形缓冲区统计中体现
+            return;
+        }
+        ringBuffer.get(sequence).set(
+            index, updateTime, lastPrice, volume, turnover, openInterest,
             bidPrice1, bidVolume1, askPrice1, askVolume1,
             bidPrice2, bidVolume2, askPrice2, askVolume2,
             bidPrice3, bidVolume3, askPrice3, askVolume3,
@@ -303,9 +383,88 @@ public class MarketService extends FemasMarketApiMock {
             upperLimitPrice, lowerLimitPrice,
             preClosePrice, openPrice, highestPrice, lowestPrice
         );
+        ringBuffer.publish(sequence);
+    }
+
+    /**
+     * 把环形缓冲区中的行情写入缓存，在行情消费线程中调用
+     */
+    private void applyMarketData(DepthMarketDataEvent event) {
+        int index = event.getInstrumentIndex();
+        if (logger.isDebugEnabled()) {
+            logger.debug("收到行情数据: {} - {}", instrumentRegistry.getInstrumentId(index), event.getLastPrice());
+        }
+
+        // 更新缓存
+        marketDataCacheService.updateMarketData(event);
+        marketDataLatencyService.record(MarketDataLatencyService.STAGE_INGEST,
+                instrumentRegistry.getExchangeId(index), System.nanoTime() - event.getReceiveNanos());
+
+        exchangeTickCounter(instrumentRegistry.getExchangeId(index)).increment();
+
+        // 更新K线
+        marketBarService.onTick(event);
 
-        // 注意：不再直接推送到前端，由MarketDataPushService统一推送
-        logger.debug("行情数据已更新到缓存: {}", instrumentId);
+        // 标记为脏，由MarketDataPushService按会话推送间隔合并推送
+        marketDataPushService.markDirty(index);
+
+        // 写入行情日志和列式历史行情
+        tickJournalService.append(event);
+        tickStoreService.append(event);
+    }
+
+    private Counter exchangeTickCounter(String exchangeId) {
+        Counter counter = exchangeTickCounters.get(exchangeId);
+        if (counter == null) {
+            counter = Counter.builder("market.ticks").tag("exchange", exchangeId)
+                    .description("写入缓存的行情笔数").register(meterRegistry);
+            exchangeTickCounters.put(exchangeId, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * 注册行情接收指标
+     */
+    private void bindMetrics() {
+        FunctionCounter.builder("market.ingest.received", ringBuffer, MarketDataRingBuffer::getPublishedCount)
+                .description("行情回调收到的行情笔数").register(meterRegistry);
+        FunctionCounter.builder("market.ingest.dropped", ringBuffer, MarketDataRingBuffer::getDroppedCount)
+                .description("环形缓冲区已满时丢弃的行情笔数").register(meterRegistry);
+        Gauge.builder("market.ingest.queue.depth", ringBuffer, MarketDataRingBuffer::getDepth)
+                .description("环形缓冲区中等待处理的行情笔数").register(meterRegistry);
+        Gauge.builder("market.subscribed.instruments", subscribedInstruments, Set::size)
+                .description("已订阅合约数").register(meterRegistry);
+    }
+
+    @Override
+    public void onRspQryInstrument(String instrumentId, String instrumentName,
+                                 String exchangeId, String productId,
+                                 double priceTick, int volumeMultiple,
+                                 double minMarginRatio, boolean isLast,
+                                 int errorId, String errorMsg) {
+        super.onRspQryInstrument(instrumentId, instrumentName, exchangeId, productId,
+                priceTick, volumeMultiple, minMarginRatio, isLast, errorId, errorMsg);
+        if (errorId != 0 || instrumentId == null || productId == null || exchangeId == null) {
+            return;
+        }
+
+        // 只登记与合约代码前缀一致的品种，避免错误的响应污染品种表
+        if (!ExchangeResolver.productOf(instrumentId).equalsIgnoreCase(productId)) {
+            logger.warn("合约查询响应的品种与合约代码不一致，忽略: {} {}", instrumentId, productId);
+            return;
+        }
+        exchangeResolver.register(productId, exchangeId);
+        positionService.registerVolumeMultiple(instrumentId, volumeMultiple);
+
+        // 已注册合约的交易所以查询结果为准，之后的按交易所订阅和推送按新交易所进行
+        int index = instrumentRegistry.indexOf(instrumentId);
+        if (index != InstrumentRegistry.NOT_REGISTERED) {
+            String previous = instrumentRegistry.getExchangeId(index);
+            if (marketDataCacheService.updateExchange(index, exchangeId)) {
+                logger.info("合约交易所按查询结果更正: {} {} -> {}", instrumentId, previous, exchangeId);
+            }
+        }
     }
 
     /**
@@ -328,6 +487,11 @@ public class MarketService extends FemasMarketApiMock {
             "IH2405", "IH2406", "IH2409"   // 上证50
         };
 
+        // 先分配合约索引，保证首个tick到达时索引已就绪
+        for (String instrument : mainInstruments) {
+            registerInstrument(instrument);
+        }
+
         // 订阅主要合约
         super.subscribeMarketData(mainInstruments);
 
@@ -340,81 +504,27 @@ public class MarketService extends FemasMarketApiMock {
     }
 
     /**
-     * 从合约代码推断交易所ID
+     * 注册合约并分配索引，交易所在注册时推断一次
      */
-    private String getExchangeIdFromInstrument(String instrumentId) {
-        if (instrumentId == null || instrumentId.isEmpty()) {
-            return "UNKNOWN";
-        }
-
-        String upperInstrument = instrumentId.toUpperCase();
-
-        // 上海期货交易所 (SHFE)
-        if (upperInstrument.startsWith("CU") || upperInstrument.startsWith("AL") ||
-            upperInstrument.startsWith("ZN") || upperInstrument.startsWith("PB") ||
-            upperInstrument.startsWith("NI") || upperInstrument.startsWith("SN") ||
-            upperInstrument.startsWith("AU") || upperInstrument.startsWith("AG") ||
-            upperInstrument.startsWith("RB") || upperInstrument.startsWith("WR") ||
-            upperInstrument.startsWith("HC") || upperInstrument.startsWith("FU") ||
-            upperInstrument.startsWith("BU") || upperInstrument.startsWith("RU")) {
-            return "SHFE";
-        }
-
-        // 中国金融期货交易所 (CFFEX)
-        if (upperInstrument.startsWith("IF") || upperInstrument.startsWith("IC") ||
-            upperInstrument.startsWith("IH") || upperInstrument.startsWith("T") ||
-            upperInstrument.startsWith("TF") || upperInstrument.startsWith("TS")) {
-            return "CFFEX";
-        }
-
-        // 大连商品交易所 (DCE)
-        if (upperInstrument.startsWith("A") || upperInstrument.startsWith("B") ||
-            upperInstrument.startsWith("C") || upperInstrument.startsWith("CS") ||
-            upperInstrument.startsWith("I") || upperInstrument.startsWith("J") ||
-            upperInstrument.startsWith("JM") || upperInstrument.startsWith("L") ||
-            upperInstrument.startsWith("M") || upperInstrument.startsWith("P") ||
-            upperInstrument.startsWith("PP") || upperInstrument.startsWith("V") ||
-            upperInstrument.startsWith("Y") || upperInstrument.startsWith("JD") ||
-            upperInstrument.startsWith("LH") || upperInstrument.startsWith("EB") ||
-            upperInstrument.startsWith("EG") || upperInstrument.startsWith("RR") ||
-            upperInstrument.startsWith("PG")) {
-            return "DCE";
-        }
-
-        // 郑州商品交易所 (CZCE)
-        if (upperInstrument.startsWith("CF") || upperInstrument.startsWith("CY") ||
-            upperInstrument.startsWith("FG") || upperInstrument.startsWith("JR") ||
-            upperInstrument.startsWith("LR") || upperInstrument.startsWith("MA") ||
-            upperInstrument.startsWith("OI") || upperInstrument.startsWith("PM") ||
-            upperInstrument.startsWith("RI") || upperInstrument.startsWith("RM") ||
-            upperInstrument.startsWith("RS") || upperInstrument.startsWith("SF") ||
-            upperInstrument.startsWith("SM") || upperInstrument.startsWith("SR") ||
-            upperInstrument.startsWith("TA") || upperInstrument.startsWith("WH") ||
-            upperInstrument.startsWith("ZC") || upperInstrument.startsWith("AP") ||
-            upperInstrument.startsWith("CJ") || upperInstrument.startsWith("UR") ||
-            upperInstrument.startsWith("SA") || upperInstrument.startsWith("PF")) {
-            return "CZCE";
-        }
-
-        // 上海国际能源交易中心 (INE)
-        if (upperInstrument.startsWith("SC") || upperInstrument.startsWith("NR") ||
-            upperInstrument.startsWith("LU") || upperInstrument.startsWith("BC")) {
-            return "INE";
-        }
+    private int registerInstrument(String instrumentId) {
+        return instrumentRegistry.register(instrumentId, exchangeResolver.resolve(instrumentId));
+    }
 
-        return "UNKNOWN";
+    /**
+     * 登记等待响应的请求并按请求类型登记超时
+     */
+    private void registerPendingRequest(String type, CompletableFuture<ApiResponse<Object>> future) {
+        int requestId = requestIdGenerator.getAndIncrement();
+        pendingRequests.put(requestId, future);
+        future.whenComplete((response, e) -> pendingRequests.remove(requestId, future));
+        requestTimeoutService.watch("market", type, future);
     }
 
     /**
      * 完成所有等待的请求
      */
     private void completeAllPendingRequests(ApiResponse<Object> response) {
-        pendingRequests.values().forEach(future -> {
-            if (!future.isDone()) {
-                future.complete(response);
-            }
-        });
-        pendingRequests.clear();
+        pendingRequests.values().forEach(future -> future.complete(response));
     }
 
     // Getters
@@ -426,6 +536,13 @@ public class MarketService extends FemasMarketApiMock {
         return isLoggedIn;
     }
 
+    /**
+     * 获取行情接入统计（环形缓冲区深度、丢弃数等）
+     */
+    public Map<String, Object> getIngestStats() {
+        return ringBuffer.getStats();
+    }
+
     public CopyOnWriteArraySet<String> getSubscribedInstruments() {
         return new CopyOnWriteArraySet<>(subscribedInstruments);
     }
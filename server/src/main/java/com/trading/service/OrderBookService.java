@@ -0,0 +1,429 @@
+package com.trading.service;
+
+import com.trading.model.Order;
+import com.trading.model.Trade;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地报单簿
+ * 由报单、成交回报驱动，保存当前交易日的报单状态和成交，按报单键（前置编号:会话编号:报单引用）、
+ * 报单编号和合约索引，报单、成交查询直接从内存返回，只有对账时才向柜台查询。
+ * 报单引用只在同一前置、会话内唯一，其他会话和重启前的报单可能有相同的报单引用，因此不单独按报单引用索引；
+ * 成交回报没有前置编号和会话编号，按报单编号找报单，报单编号尚未回报时才按本会话的报单引用找。
+ *
+ * 报单状态机：未知(a) -> 未成交在队列中(3) -> 部分成交在队列中(1) -> 终态（全部成交、不在队列中、撤单）。
+ * 回报可能乱序到达（如成交先于报单回报），因此状态只前进不后退，终态后的回报忽略并计数；
+ * 已成交数量由成交累加，成交按成交编号和买卖方向去重。
+ * 回报频率远低于行情，所有修改和查询在同一把锁内进行，查询返回副本。
+ */
+@Service
+public class OrderBookService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderBookService.class);
+
+    private static final char DIRECTION_BUY = '0';
+    private static final char OFFSET_OPEN = '0';
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 全部报单，按录入顺序
+    private final List<Order> orders = new ArrayList<>();
+
+    // 报单键 -> 报单
+    private final Map<String, Order> ordersByKey = new HashMap<>();
+
+    // 报单编号 -> 报单
+    private final Map<String, Order> ordersBySysId = new HashMap<>();
+
+    // 合约 -> 报单
+    private final Map<String, List<Order>> ordersByInstrument = new HashMap<>();
+
+    // 成交编号:买卖方向 -> 成交，按到达顺序
+    private final Map<String, Trade> tradesByKey = new LinkedHashMap<>();
+
+    // 合约 -> 成交
+    private final Map<String, List<Trade>> tradesByInstrument = new HashMap<>();
+
+    // 报单键 -> 成交
+    private final Map<String, List<Trade>> tradesByOrderKey = new HashMap<>();
+
+    // 报单编号 -> 尚未找到报单的成交，成交早于报单回报到达时用于补算已成交数量
+    private final Map<String, List<Trade>> pendingTradesBySysId = new HashMap<>();
+
+    // 合约 -> 开仓报单尚未计入持仓的数量，[0]为买开，[1]为卖开，供风控计算持仓上限
+    private final Map<String, int[]> workingOpenVolumes = new HashMap<>();
+
+    private String tradingDay;
+
+    // 当前登录会话，本地发出的报单属于该会话
+    private int frontId;
+    private int sessionId;
+
+    // 统计
+    private volatile int orderCount;
+    private volatile int workingOrderCount;
+    private volatile int tradeCount;
+    private volatile long staleUpdates;
+    private volatile long duplicateTrades;
+
+    @PostConstruct
+    public void initialize() {
+        Gauge.builder("trading.order.book.orders", this, OrderBookService::getOrderCount)
+                .description("报单簿中的报单数").register(meterRegistry);
+        Gauge.builder("trading.order.book.working.orders", this, OrderBookService::getWorkingOrderCount)
+                .description("报单簿中未到终态的报单数").register(meterRegistry);
+        Gauge.builder("trading.order.book.trades", this, OrderBookService::getTradeCount)
+                .description("报单簿中的成交数").register(meterRegistry);
+        FunctionCounter.builder("trading.order.book.stale.updates", this, OrderBookService::getStaleUpdates)
+                .description("因乱序或终态被忽略的报单状态更新数").register(meterRegistry);
+        FunctionCounter.builder("trading.order.book.duplicate.trades", this, OrderBookService::getDuplicateTrades)
+                .description("重复的成交回报数").register(meterRegistry);
+    }
+
+    /**
+     * 设置交易日，交易日变化时清空报单簿
+     */
+    public synchronized void setTradingDay(String tradingDay) {
+        if (tradingDay == null || tradingDay.equals(this.tradingDay)) {
+            return;
+        }
+        if (this.tradingDay != null) {
+            logger.info("交易日切换 {} -> {}，清空报单簿: {} 笔报单, {} 笔成交",
+                    this.tradingDay, tradingDay, orderCount, tradeCount);
+            orders.clear();
+            ordersByKey.clear();
+            ordersBySysId.clear();
+            ordersByInstrument.clear();
+            tradesByKey.clear();
+            tradesByInstrument.clear();
+            tradesByOrderKey.clear();
+            pendingTradesBySysId.clear();
+            workingOpenVolumes.clear();
+            orderCount = 0;
+            workingOrderCount = 0;
+            tradeCount = 0;
+        }
+        this.tradingDay = tradingDay;
+    }
+
+    /**
+     * 设置当前登录会话，之后本地发出的报单按该会话登记
+     */
+    public synchronized void setSession(int frontId, int sessionId) {
+        this.frontId = frontId;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * 报单键，同一交易日内唯一标识一笔报单
+     */
+    public static String orderKey(int frontId, int sessionId, String orderRef) {
+        return frontId + ":" + sessionId + ":" + orderRef;
+    }
+
+    private static String orderKey(Order order) {
+        return orderKey(order.getFrontId(), order.getSessionId(), order.getOrderRef());
+    }
+
+    /**
+     * 本地报单发出时按当前会话登记，状态为未知
+     */
+    public synchronized Order onOrderInsert(String orderRef, String instrumentId, char direction,
+                                            char offsetFlag, double price, int volume) {
+        Order order = new Order(frontId, sessionId, orderRef, instrumentId, direction, offsetFlag,
+                price, volume, Order.STATUS_UNKNOWN);
+        addOrder(order);
+        return new Order(order);
+    }
+
+    /**
+     * 本会话的报单录入被拒绝，报单直接进入撤单状态
+     * @return 报单副本，报单不存在时返回null
+     */
+    public synchronized Order onOrderRejected(String orderRef, String errorMsg) {
+        Order order = ordersByKey.get(orderKey(frontId, sessionId, orderRef));
+        if (order == null) {
+            return null;
+        }
+        int openRemaining = openRemaining(order);
+        order.setStatusMsg(errorMsg);
+        applyStatus(order, Order.STATUS_CANCELED);
+        updateWorkingOpen(order, openRemaining);
+        return new Order(order);
+    }
+
+    /**
+     * 报单回报或报单查询响应
+     * @param volumeTraded 已成交数量，回报中没有时传-1，由成交累加
+     * @return 报单簿中的报单副本
+     */
+    public synchronized Order onOrder(String orderSysId, int frontId, int sessionId, String orderRef,
+                                      String instrumentId, char direction, char offsetFlag, double price,
+                                      int volume, int volumeTraded, char orderStatus) {
+        Order order = orderRef != null ? ordersByKey.get(orderKey(frontId, sessionId, orderRef)) : null;
+        if (order == null && orderSysId != null) {
+            order = ordersBySysId.get(orderSysId);
+        }
+        if (order == null) {
+            // 其他终端的报单或重启前的报单
+            order = new Order(frontId, sessionId, orderRef, instrumentId, direction, offsetFlag,
+                    price, volume, Order.STATUS_UNKNOWN);
+            addOrder(order);
+        }
+
+        int openRemaining = openRemaining(order);
+        if (orderSysId != null && order.getOrderSysId() == null) {
+            order.setOrderSysId(orderSysId);
+            ordersBySysId.put(orderSysId, order);
+            List<Trade> earlyTrades = pendingTradesBySysId.remove(orderSysId);
+            if (earlyTrades != null) {
+                for (Trade trade : earlyTrades) {
+                    order.setVolumeTraded(Math.min(order.getVolume(), order.getVolumeTraded() + trade.getVolume()));
+                    indexOf(tradesByOrderKey, orderKey(order)).add(trade);
+                }
+            }
+        }
+        if (volumeTraded > order.getVolumeTraded()) {
+            order.setVolumeTraded(volumeTraded);
+        }
+        applyStatus(order, orderStatus);
+        updateWorkingOpen(order, openRemaining);
+        return new Order(order);
+    }
+
+    /**
+     * 成交回报或成交查询响应
+     * @return 新成交，重复的成交返回null
+     */
+    public synchronized Trade onTrade(String tradeId, String orderSysId, String orderRef, String instrumentId,
+                                      char direction, char offsetFlag, double price,
+                                      int volume, String tradeTime) {
+        String key = tradeId + ':' + direction;
+        if (tradesByKey.containsKey(key)) {
+            duplicateTrades++;
+            return null;
+        }
+
+        Order order = orderSysId != null ? ordersBySysId.get(orderSysId) : null;
+        if (order == null && orderRef != null) {
+            // 报单编号尚未回报的本会话报单；报单编号不一致说明是其他会话相同报单引用的报单
+            Order own = ordersByKey.get(orderKey(frontId, sessionId, orderRef));
+            if (own != null && (own.getOrderSysId() == null || own.getOrderSysId().equals(orderSysId))) {
+                order = own;
+            }
+        }
+        Trade trade = new Trade(tradeId, orderRef,
+                orderSysId != null ? orderSysId : (order != null ? order.getOrderSysId() : null),
+                instrumentId, direction, offsetFlag, price, volume, tradeTime);
+        tradesByKey.put(key, trade);
+        indexOf(tradesByInstrument, instrumentId).add(trade);
+        if (order != null) {
+            indexOf(tradesByOrderKey, orderKey(order)).add(trade);
+        } else if (orderSysId != null) {
+            indexOf(pendingTradesBySysId, orderSysId).add(trade);
+        }
+        tradeCount = tradesByKey.size();
+
+        if (order != null) {
+            int openRemaining = openRemaining(order);
+            order.setVolumeTraded(Math.min(order.getVolume(), order.getVolumeTraded() + volume));
+            if (order.getVolumeTraded() >= order.getVolume()) {
+                applyStatus(order, Order.STATUS_ALL_TRADED);
+            } else {
+                applyStatus(order, Order.STATUS_PART_TRADED_QUEUEING);
+            }
+            updateWorkingOpen(order, openRemaining);
+        }
+        return trade;
+    }
+
+    /**
+     * 状态只前进不后退，终态不再变化
+     */
+    private void applyStatus(Order order, char orderStatus) {
+        char current = order.getOrderStatus();
+        if (current == orderStatus) {
+            return;
+        }
+        if (order.isTerminal() || (!Order.isTerminal(orderStatus) && rank(orderStatus) < rank(current))) {
+            staleUpdates++;
+            if (logger.isDebugEnabled()) {
+                logger.debug("忽略报单状态更新: {} {} -> {}", order.getOrderRef(), current, orderStatus);
+            }
+            return;
+        }
+        order.setOrderStatus(orderStatus);
+        order.setUpdateTime(System.currentTimeMillis());
+        if (Order.isTerminal(orderStatus)) {
+            workingOrderCount--;
+        }
+    }
+
+    /**
+     * 未到终态的报单状态先后次序
+     */
+    private static int rank(char orderStatus) {
+        switch (orderStatus) {
+            case Order.STATUS_NO_TRADE_QUEUEING:
+                return 1;
+            case Order.STATUS_PART_TRADED_QUEUEING:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 开仓报单尚未计入持仓的数量：未到终态的剩余数量，以及全部成交但成交回报尚未到达的数量；其他报单为0
+     */
+    private static int openRemaining(Order order) {
+        if (order.getOffsetFlag() != OFFSET_OPEN
+                || (order.isTerminal() && order.getOrderStatus() != Order.STATUS_ALL_TRADED)) {
+            return 0;
+        }
+        return Math.max(0, order.getVolume() - order.getVolumeTraded());
+    }
+
+    /**
+     * 按报单修改前后的开仓剩余数量调整合约的未成交开仓数量
+     */
+    private void updateWorkingOpen(Order order, int previousRemaining) {
+        int delta = openRemaining(order) - previousRemaining;
+        if (delta != 0) {
+            int[] volumes = workingOpenVolumes.get(order.getInstrumentId());
+            if (volumes == null) {
+                volumes = new int[2];
+                workingOpenVolumes.put(order.getInstrumentId(), volumes);
+            }
+            volumes[order.getDirection() == DIRECTION_BUY ? 0 : 1] += delta;
+        }
+    }
+
+    private void addOrder(Order order) {
+        if (order.getOrderRef() != null) {
+            ordersByKey.put(orderKey(order), order);
+        }
+        orders.add(order);
+        indexOf(ordersByInstrument, order.getInstrumentId()).add(order);
+        orderCount = orders.size();
+        workingOrderCount++;
+        updateWorkingOpen(order, 0);
+    }
+
+    private static <T> List<T> indexOf(Map<String, List<T>> index, String key) {
+        List<T> list = index.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            index.put(key, list);
+        }
+        return list;
+    }
+
+    /**
+     * 查询合约单方向开仓报单尚未计入持仓的数量，不复制报单，供报单风控使用
+     * @param direction 买卖方向
+     */
+    public synchronized int getWorkingOpenVolume(String instrumentId, char direction) {
+        int[] volumes = workingOpenVolumes.get(instrumentId);
+        return volumes != null ? volumes[direction == DIRECTION_BUY ? 0 : 1] : 0;
+    }
+
+    /**
+     * 按前置编号、会话编号和报单引用查询报单
+     */
+    public synchronized Order getOrder(int frontId, int sessionId, String orderRef) {
+        Order order = ordersByKey.get(orderKey(frontId, sessionId, orderRef));
+        return order != null ? new Order(order) : null;
+    }
+
+    /**
+     * 按报单编号查询报单
+     */
+    public synchronized Order getOrderBySysId(String orderSysId) {
+        Order order = ordersBySysId.get(orderSysId);
+        return order != null ? new Order(order) : null;
+    }
+
+    /**
+     * 查询报单
+     * @param instrumentId 合约代码，为空时返回全部报单
+     */
+    public synchronized List<Order> getOrders(String instrumentId) {
+        List<Order> source = instrumentId == null || instrumentId.isEmpty()
+                ? orders : ordersByInstrument.getOrDefault(instrumentId, Collections.emptyList());
+        List<Order> result = new ArrayList<>(source.size());
+        for (Order order : source) {
+            result.add(new Order(order));
+        }
+        return result;
+    }
+
+    /**
+     * 查询成交
+     * @param instrumentId 合约代码，为空时返回全部成交
+     */
+    public synchronized List<Trade> getTrades(String instrumentId) {
+        if (instrumentId == null || instrumentId.isEmpty()) {
+            return new ArrayList<>(tradesByKey.values());
+        }
+        List<Trade> trades = tradesByInstrument.get(instrumentId);
+        return trades != null ? new ArrayList<>(trades) : new ArrayList<>();
+    }
+
+    /**
+     * 按前置编号、会话编号和报单引用查询报单的成交
+     */
+    public synchronized List<Trade> getOrderTrades(int frontId, int sessionId, String orderRef) {
+        List<Trade> trades = tradesByOrderKey.get(orderKey(frontId, sessionId, orderRef));
+        return trades != null ? new ArrayList<>(trades) : new ArrayList<>();
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public int getWorkingOrderCount() {
+        return workingOrderCount;
+    }
+
+    public int getTradeCount() {
+        return tradeCount;
+    }
+
+    public long getStaleUpdates() {
+        return staleUpdates;
+    }
+
+    public long getDuplicateTrades() {
+        return duplicateTrades;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tradingDay", tradingDay);
+        stats.put("orders", orderCount);
+        stats.put("workingOrders", workingOrderCount);
+        stats.put("trades", tradeCount);
+        stats.put("staleUpdates", staleUpdates);
+        stats.put("duplicateTrades", duplicateTrades);
+        return stats;
+    }
+}
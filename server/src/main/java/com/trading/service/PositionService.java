@@ -0,0 +1,561 @@
+package com.trading.service;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.ApiResponse;
+import com.trading.model.MarketDataSnapshot;
+import com.trading.model.Position;
+import com.trading.model.Trade;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持仓盈亏服务
+ * 成交回报到达时增量更新持仓（开平、今昨仓、开仓成本、平仓盈亏），
+ * 盯市线程按 trading.position.mark-interval-ms 从行情缓存读取持仓合约的最新价重算浮动盈亏，
+ * 合约行情版本未变时不读取。有变化的持仓与账户汇总一起推送到 /topic/positions，
+ * 持仓和盈亏查询直接从内存返回，只有对账时才向柜台查询。
+ *
+ * 对账以柜台持仓查询结果为准，结果可重复应用：收到第一条持仓响应即为对账点，柜台在此之前的成交都已计入结果，
+ * 响应期间到达的、属于对账范围的成交回报先暂存，整批响应覆盖本地持仓后再增量应用。
+ * 全量对账（合约为空）时柜台未返回的本地持仓清零。查询成交响应是对账点之前的历史成交，不更新持仓。
+ *
+ * 平仓按开仓均价计算平仓盈亏；平仓（'1'）和强平先平昨仓再平今仓，平今、平昨只平对应部分。
+ * 成交回报频率远低于行情，持仓修改、盯市和查询在同一把锁内进行，查询返回副本。
+ */
+@Service
+public class PositionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PositionService.class);
+
+    private static final char DIRECTION_BUY = '0';
+    private static final char OFFSET_OPEN = '0';
+    private static final char OFFSET_CLOSE_TODAY = '3';
+    private static final char OFFSET_CLOSE_YESTERDAY = '4';
+
+    // 内置品种合约乘数
+    private static final Object[][] DEFAULT_VOLUME_MULTIPLES = {
+        {"CU", 5}, {"AL", 5}, {"ZN", 5}, {"PB", 5}, {"NI", 1}, {"SN", 1}, {"AU", 1000}, {"AG", 15},
+        {"RB", 10}, {"WR", 10}, {"HC", 10}, {"FU", 10}, {"BU", 10}, {"RU", 10}, {"SS", 5}, {"SP", 10},
+        {"IF", 300}, {"IC", 200}, {"IH", 300}, {"IM", 200}, {"T", 10000}, {"TF", 10000}, {"TS", 20000},
+        {"TL", 10000},
+        {"A", 10}, {"B", 10}, {"C", 10}, {"CS", 10}, {"I", 100}, {"J", 100}, {"JM", 60}, {"L", 5}, {"M", 10},
+        {"P", 10}, {"PP", 5}, {"V", 5}, {"Y", 10}, {"JD", 10}, {"LH", 16}, {"EB", 5}, {"EG", 10}, {"PG", 20},
+        {"CF", 5}, {"FG", 20}, {"MA", 10}, {"OI", 10}, {"RM", 10}, {"SR", 10}, {"TA", 5}, {"AP", 10},
+        {"UR", 20}, {"SA", 20}, {"PF", 5}, {"SF", 5}, {"SM", 5},
+        {"SC", 1000}, {"NR", 10}, {"LU", 10}, {"BC", 5}, {"EC", 50}
+    };
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private MarketDataCacheService marketDataCacheService;
+
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 合约:持仓方向 -> 持仓，按建仓顺序
+    private final Map<String, Position> positions = new LinkedHashMap<>();
+
+    // 合约 -> 多头、空头持仓，供风控按合约查询持仓时不拼接键
+    private final Map<String, Position[]> positionsByInstrument = new HashMap<>();
+
+    // 请求编号 -> 进行中的持仓对账
+    private final Map<Integer, Reconciliation> reconciliations = new HashMap<>();
+
+    // 有变化、待推送的持仓
+    private final Set<Position> changedPositions = new LinkedHashSet<>();
+
+    // 品种（大写） -> 合约乘数
+    private final Map<String, Integer> productVolumeMultiples = new HashMap<>();
+
+    // 合约 -> 合约乘数，来自合约查询响应或按品种解析的结果
+    private final ConcurrentHashMap<String, Integer> instrumentVolumeMultiples = new ConcurrentHashMap<>();
+
+    // 盯市线程复用的行情持有对象
+    private final MarketDataSnapshot markHolder = new MarketDataSnapshot();
+
+    private ScheduledExecutorService markExecutor;
+
+    private String tradingDay;
+
+    // 当日已平仓位的平仓盈亏，持仓归零移除后仍计入账户
+    private double realizedCloseProfit;
+
+    // 统计
+    private volatile int positionCount;
+    private volatile double totalPositionProfit;
+    private volatile double totalCloseProfit;
+    private volatile long unmatchedCloses;
+
+    @PostConstruct
+    public void initialize() {
+        for (Object[] entry : DEFAULT_VOLUME_MULTIPLES) {
+            productVolumeMultiples.put((String) entry[0], (Integer) entry[1]);
+        }
+        TradingConfig.Position config = tradingConfig.getPosition();
+        for (Map.Entry<String, Integer> entry : config.getVolumeMultiples().entrySet()) {
+            productVolumeMultiples.put(entry.getKey().toUpperCase(Locale.ROOT), entry.getValue());
+        }
+
+        markExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PositionMark");
+            t.setDaemon(true);
+            return t;
+        });
+        markExecutor.scheduleAtFixedRate(this::markAndPush, config.getMarkIntervalMs(),
+                config.getMarkIntervalMs(), TimeUnit.MILLISECONDS);
+
+        Gauge.builder("trading.positions", this, PositionService::getPositionCount)
+                .description("持仓记录数").register(meterRegistry);
+        Gauge.builder("trading.pnl", this, PositionService::getTotalPositionProfit)
+                .tag("type", "position").description("浮动盈亏").register(meterRegistry);
+        Gauge.builder("trading.pnl", this, PositionService::getTotalCloseProfit)
+                .tag("type", "close").description("平仓盈亏").register(meterRegistry);
+
+        logger.info("持仓盈亏服务初始化完成 - 盯市间隔: {}ms", config.getMarkIntervalMs());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (markExecutor != null) {
+            markExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 登记合约乘数，来自合约查询响应
+     */
+    public void registerVolumeMultiple(String instrumentId, int volumeMultiple) {
+        if (volumeMultiple > 0) {
+            instrumentVolumeMultiples.put(instrumentId, volumeMultiple);
+        }
+    }
+
+    /**
+     * 获取合约乘数，按品种得到的结果登记到合约上，之后的查询不再解析品种
+     */
+    public int getVolumeMultiple(String instrumentId) {
+        Integer multiple = instrumentVolumeMultiples.get(instrumentId);
+        if (multiple != null) {
+            return multiple;
+        }
+        multiple = productVolumeMultiples.get(ExchangeResolver.productOf(instrumentId).toUpperCase(Locale.ROOT));
+        if (multiple == null) {
+            logger.warn("未知合约乘数，按1计算盈亏: {}", instrumentId);
+            multiple = 1;
+        }
+        instrumentVolumeMultiples.putIfAbsent(instrumentId, multiple);
+        return multiple;
+    }
+
+    /**
+     * 设置交易日，交易日变化时今仓转为昨仓，平仓盈亏清零
+     */
+    public synchronized void setTradingDay(String tradingDay) {
+        if (tradingDay == null || tradingDay.equals(this.tradingDay)) {
+            return;
+        }
+        if (this.tradingDay != null) {
+            Iterator<Position> iterator = positions.values().iterator();
+            while (iterator.hasNext()) {
+                Position position = iterator.next();
+                if (position.getPosition() == 0) {
+                    iterator.remove();
+                    Position[] pair = positionsByInstrument.get(position.getInstrumentId());
+                    pair[slotOf(position.getPosiDirection())] = null;
+                    if (pair[0] == null && pair[1] == null) {
+                        positionsByInstrument.remove(position.getInstrumentId());
+                    }
+                    continue;
+                }
+                position.setYdPosition(position.getPosition());
+                position.setTodayPosition(0);
+                position.setCloseProfit(0);
+                changedPositions.add(position);
+            }
+            realizedCloseProfit = 0;
+            logger.info("交易日切换 {} -> {}，今仓转为昨仓: {} 笔持仓", this.tradingDay, tradingDay, positions.size());
+            updateTotals();
+        }
+        this.tradingDay = tradingDay;
+    }
+
+    /**
+     * 成交回报，只应对对账点之后的实时成交调用（由报单簿去重）
+     */
+    public synchronized void onTrade(Trade trade) {
+        for (Reconciliation reconciliation : reconciliations.values()) {
+            if (reconciliation.covers(trade.getInstrumentId())) {
+                reconciliation.laterTrades.add(trade);
+                return;
+            }
+        }
+        applyTrade(trade);
+    }
+
+    private void applyTrade(Trade trade) {
+        String instrumentId = trade.getInstrumentId();
+        boolean buy = trade.getDirection() == DIRECTION_BUY;
+        int volume = trade.getVolume();
+        double price = trade.getPrice();
+
+        Position position;
+        if (trade.getOffsetFlag() == OFFSET_OPEN) {
+            position = getOrCreate(instrumentId, buy ? Position.DIRECTION_LONG : Position.DIRECTION_SHORT);
+            position.setPosition(position.getPosition() + volume);
+            position.setTodayPosition(position.getTodayPosition() + volume);
+            position.setOpenCost(position.getOpenCost() + price * volume * position.getVolumeMultiple());
+        } else {
+            // 买平空头，卖平多头
+            position = positions.get(keyOf(instrumentId, buy ? Position.DIRECTION_SHORT : Position.DIRECTION_LONG));
+            if (position == null || position.getPosition() == 0) {
+                unmatchedCloses++;
+                logger.warn("平仓成交没有对应持仓，需对账: {} {}", trade.getTradeId(), instrumentId);
+                return;
+            }
+            int closeVolume = Math.min(volume, position.getPosition());
+            if (closeVolume < volume) {
+                unmatchedCloses++;
+                logger.warn("平仓数量超过持仓，需对账: {} {} 平仓 {} 持仓 {}",
+                        trade.getTradeId(), instrumentId, volume, position.getPosition());
+            }
+            close(position, trade.getOffsetFlag(), closeVolume, price);
+        }
+
+        if (position.getLastPrice() == 0) {
+            position.setLastPrice(price);
+        }
+        position.markToMarket();
+        position.setUpdateTime(System.currentTimeMillis());
+        changedPositions.add(position);
+        updateTotals();
+    }
+
+    private void close(Position position, char offsetFlag, int volume, double price) {
+        int multiple = position.getVolumeMultiple();
+        double avgOpenPrice = position.getAvgOpenPrice();
+        double profit = (price - avgOpenPrice) * volume * multiple;
+        if (position.getPosiDirection() == Position.DIRECTION_SHORT) {
+            profit = -profit;
+        }
+        position.setCloseProfit(position.getCloseProfit() + profit);
+        realizedCloseProfit += profit;
+        position.setOpenCost(position.getOpenCost() - avgOpenPrice * volume * multiple);
+        position.setPosition(position.getPosition() - volume);
+
+        int fromToday;
+        if (offsetFlag == OFFSET_CLOSE_TODAY) {
+            fromToday = volume;
+        } else if (offsetFlag == OFFSET_CLOSE_YESTERDAY) {
+            fromToday = 0;
+        } else {
+            // 平仓和强平先平昨仓
+            fromToday = Math.max(0, volume - position.getYdPosition());
+        }
+        fromToday = Math.min(fromToday, position.getTodayPosition());
+        position.setTodayPosition(position.getTodayPosition() - fromToday);
+        position.setYdPosition(Math.max(0, position.getYdPosition() - (volume - fromToday)));
+        if (position.getPosition() == 0) {
+            position.setOpenCost(0);
+        }
+    }
+
+    /**
+     * 持仓查询响应的一条持仓，暂存到对账结束时整批覆盖
+     * @param instrumentFilter 查询的合约代码，空串为全量对账，null表示请求已结束、范围未知
+     */
+    public synchronized void reconcile(int requestId, String instrumentFilter, String instrumentId,
+                                       char posiDirection, int position, int todayPosition, int ydPosition,
+                                       double openCost) {
+        Reconciliation reconciliation = reconciliations.get(requestId);
+        if (reconciliation == null) {
+            reconciliation = new Reconciliation(instrumentFilter);
+            reconciliations.put(requestId, reconciliation);
+        }
+        reconciliation.rows.add(new Object[] {instrumentId, posiDirection, position, todayPosition, ydPosition, openCost});
+    }
+
+    /**
+     * 持仓查询响应结束，以柜台的持仓为准覆盖本地持仓，再应用对账期间暂存的成交
+     * 全量对账时柜台未返回的持仓清零
+     */
+    public synchronized void finishReconcile(int requestId, String instrumentFilter) {
+        Reconciliation reconciliation = reconciliations.remove(requestId);
+        if (reconciliation == null) {
+            // 空结果：没有收到持仓，对账点即为此刻
+            reconciliation = new Reconciliation(instrumentFilter);
+        } else if (instrumentFilter == null) {
+            instrumentFilter = reconciliation.instrumentFilter;
+        }
+
+        Set<String> reported = new HashSet<>();
+        for (Object[] row : reconciliation.rows) {
+            String instrumentId = (String) row[0];
+            char posiDirection = (Character) row[1];
+            reported.add(keyOf(instrumentId, posiDirection));
+            overwrite(getOrCreate(instrumentId, posiDirection),
+                    (Integer) row[2], (Integer) row[3], (Integer) row[4], (Double) row[5]);
+        }
+        if (instrumentFilter != null) {
+            for (Map.Entry<String, Position> entry : positions.entrySet()) {
+                Position local = entry.getValue();
+                if (!reported.contains(entry.getKey()) && local.getPosition() != 0
+                        && (instrumentFilter.isEmpty() || instrumentFilter.equals(local.getInstrumentId()))) {
+                    overwrite(local, 0, 0, 0, 0);
+                }
+            }
+        }
+        for (Trade trade : reconciliation.laterTrades) {
+            applyTrade(trade);
+        }
+        updateTotals();
+    }
+
+    /**
+     * 持仓查询失败，放弃对账并应用暂存的成交
+     */
+    public synchronized void abortReconcile(int requestId) {
+        Reconciliation reconciliation = reconciliations.remove(requestId);
+        if (reconciliation == null) {
+            return;
+        }
+        for (Trade trade : reconciliation.laterTrades) {
+            applyTrade(trade);
+        }
+        updateTotals();
+    }
+
+    /**
+     * 连接断开，不会再收到持仓响应，放弃全部进行中的对账
+     */
+    public synchronized void abortReconciles() {
+        for (Integer requestId : new ArrayList<>(reconciliations.keySet())) {
+            abortReconcile(requestId);
+        }
+    }
+
+    private void overwrite(Position local, int position, int todayPosition, int ydPosition, double openCost) {
+        if (local.getPosition() != position || local.getTodayPosition() != todayPosition
+                || local.getYdPosition() != ydPosition) {
+            logger.info("持仓对账调整: {} {} 本地 {}/{}/{} 柜台 {}/{}/{}", local.getInstrumentId(),
+                    local.getPosiDirection(), local.getPosition(), local.getTodayPosition(), local.getYdPosition(),
+                    position, todayPosition, ydPosition);
+        }
+        local.setPosition(position);
+        local.setTodayPosition(todayPosition);
+        local.setYdPosition(ydPosition);
+        local.setOpenCost(openCost);
+        local.markToMarket();
+        local.setUpdateTime(System.currentTimeMillis());
+        changedPositions.add(local);
+    }
+
+    private Position getOrCreate(String instrumentId, char posiDirection) {
+        String key = keyOf(instrumentId, posiDirection);
+        Position position = positions.get(key);
+        if (position == null) {
+            position = new Position(instrumentId, posiDirection, getVolumeMultiple(instrumentId));
+            positions.put(key, position);
+            Position[] pair = positionsByInstrument.get(instrumentId);
+            if (pair == null) {
+                pair = new Position[2];
+                positionsByInstrument.put(instrumentId, pair);
+            }
+            pair[slotOf(posiDirection)] = position;
+        }
+        return position;
+    }
+
+    /**
+     * 一次持仓查询的响应和响应期间到达的成交
+     */
+    private static final class Reconciliation {
+        // 空串为全量对账，null表示范围未知、不清理未返回的持仓
+        final String instrumentFilter;
+        // 合约、持仓方向、总持仓、今仓、昨仓、开仓成本
+        final List<Object[]> rows = new ArrayList<>();
+        final List<Trade> laterTrades = new ArrayList<>();
+
+        Reconciliation(String instrumentFilter) {
+            this.instrumentFilter = instrumentFilter;
+        }
+
+        boolean covers(String instrumentId) {
+            return instrumentFilter == null || instrumentFilter.isEmpty() || instrumentFilter.equals(instrumentId);
+        }
+    }
+
+    private static int slotOf(char posiDirection) {
+        return posiDirection == Position.DIRECTION_LONG ? 0 : 1;
+    }
+
+    private static String keyOf(String instrumentId, char posiDirection) {
+        return instrumentId + ':' + posiDirection;
+    }
+
+    /**
+     * 盯市并推送有变化的持仓，在盯市线程中调用
+     */
+    private void markAndPush() {
+        try {
+            List<Position> changed;
+            Map<String, Object> account;
+            synchronized (this) {
+                mark();
+                if (changedPositions.isEmpty()) {
+                    return;
+                }
+                changed = new ArrayList<>(changedPositions.size());
+                for (Position position : changedPositions) {
+                    changed.add(new Position(position));
+                }
+                changedPositions.clear();
+                account = getAccountSummary();
+            }
+
+            Map<String, Object> update = new HashMap<>();
+            update.put("positions", changed);
+            update.put("account", account);
+            messagingTemplate.convertAndSend("/topic/positions", ApiResponse.success("持仓更新", update));
+        } catch (Exception e) {
+            logger.error("持仓盯市失败", e);
+        }
+    }
+
+    private void mark() {
+        boolean marked = false;
+        for (Position position : positions.values()) {
+            if (position.getPosition() == 0) {
+                continue;
+            }
+            int index = instrumentRegistry.indexOf(position.getInstrumentId());
+            if (index == InstrumentRegistry.NOT_REGISTERED) {
+                // 未订阅行情的合约按最近成交价计算
+                continue;
+            }
+            long version = marketDataCacheService.getUpdateCount(index);
+            if (version == position.getMarkedVersion()
+                    || !marketDataCacheService.readMarketData(index, markHolder)) {
+                continue;
+            }
+            position.setMarkedVersion(version);
+            double lastPrice = markHolder.getLastPrice();
+            if (lastPrice > 0 && lastPrice != position.getLastPrice()) {
+                position.setLastPrice(lastPrice);
+                position.markToMarket();
+                position.setUpdateTime(System.currentTimeMillis());
+                changedPositions.add(position);
+                marked = true;
+            }
+        }
+        if (marked) {
+            updateTotals();
+        }
+    }
+
+    private void updateTotals() {
+        double positionProfit = 0;
+        int count = 0;
+        for (Position position : positions.values()) {
+            positionProfit += position.getPositionProfit();
+            if (position.getPosition() != 0) {
+                count++;
+            }
+        }
+        totalPositionProfit = positionProfit;
+        totalCloseProfit = realizedCloseProfit;
+        positionCount = count;
+    }
+
+    /**
+     * 查询持仓
+     * @param instrumentId 合约代码，为空时返回全部持仓
+     */
+    public synchronized List<Position> getPositions(String instrumentId) {
+        List<Position> result = new ArrayList<>();
+        for (Position position : positions.values()) {
+            if (instrumentId == null || instrumentId.isEmpty() || instrumentId.equals(position.getInstrumentId())) {
+                result.add(new Position(position));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询合约单方向的持仓数量，不复制持仓，供报单风控使用
+     */
+    public synchronized int getPosition(String instrumentId, char posiDirection) {
+        Position[] pair = positionsByInstrument.get(instrumentId);
+        if (pair == null) {
+            return 0;
+        }
+        Position position = pair[slotOf(posiDirection)];
+        return position != null ? position.getPosition() : 0;
+    }
+
+    /**
+     * 账户盈亏汇总
+     */
+    public synchronized Map<String, Object> getAccountSummary() {
+        int longVolume = 0;
+        int shortVolume = 0;
+        for (Position position : positions.values()) {
+            if (position.getPosiDirection() == Position.DIRECTION_LONG) {
+                longVolume += position.getPosition();
+            } else {
+                shortVolume += position.getPosition();
+            }
+        }
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("tradingDay", tradingDay);
+        summary.put("positionProfit", totalPositionProfit);
+        summary.put("closeProfit", totalCloseProfit);
+        summary.put("totalProfit", totalPositionProfit + totalCloseProfit);
+        summary.put("positions", positionCount);
+        summary.put("longVolume", longVolume);
+        summary.put("shortVolume", shortVolume);
+        summary.put("unmatchedCloses", unmatchedCloses);
+        return summary;
+    }
+
+    public int getPositionCount() {
+        return positionCount;
+    }
+
+    public double getTotalPositionProfit() {
+        return totalPositionProfit;
+    }
+
+    public double getTotalCloseProfit() {
+        return totalCloseProfit;
+    }
+}
@@ -0,0 +1,169 @@
+package com.trading.service;
+
+import com.trading.config.TradingConfig;
+import com.trading.service.risk.RiskCheck;
+import com.trading.service.risk.RiskContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 事前风控服务
+ * 报单发往柜台前在下单线程上依次执行风控链（com.trading.service.risk 中的 {@link RiskCheck} 组件），
+ * 任一项拒绝即不发送。检查只读本地持仓、报单簿和行情缓存，行情每笔报单读取一次到线程复用的上下文中，
+ * 通过时不分配对象；新增检查项只需实现 RiskCheck 并注册为组件。
+ *
+ * 检查项可以在通过时占用额度（如持仓上限检查预留本笔开仓数量），下单线程在报单登记到报单簿或放弃发送后
+ * 调用 {@link #release()} 释放；报单被后续检查项拒绝时由本服务释放前面检查项占用的额度。
+ */
+@Service
+public class PreTradeRiskService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PreTradeRiskService.class);
+
+    // 风控拒绝的错误码
+    public static final int REJECT_CODE = 403;
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private MarketDataCacheService marketDataCacheService;
+
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 按 @Order 排序的检查项
+    @Autowired
+    private List<RiskCheck> riskChecks;
+
+    // 下单线程复用的检查上下文
+    private final ThreadLocal<RiskContext> contexts = ThreadLocal.withInitial(RiskContext::new);
+
+    private RiskCheck[] checks;
+    private Counter[] rejectCounters;
+    private Counter noMarketDataRejects;
+    private Timer checkTimer;
+
+    private final AtomicLong checkedCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void initialize() {
+        checks = riskChecks.toArray(new RiskCheck[0]);
+        rejectCounters = new Counter[checks.length];
+        for (int i = 0; i < checks.length; i++) {
+            rejectCounters[i] = rejectCounter(checks[i].getName());
+        }
+        noMarketDataRejects = rejectCounter("market_data");
+        checkTimer = Timer.builder("trading.risk.check")
+                .description("报单事前风控检查耗时").register(meterRegistry);
+
+        TradingConfig.Risk config = tradingConfig.getRisk();
+        logger.info("事前风控服务初始化完成 - 启用: {}, 检查项: {}, 单笔上限: {}, 持仓上限: {}, 每秒报单上限: {}/{}",
+                config.isEnabled(), getCheckNames(), config.getMaxOrderVolume(), config.getMaxPosition(),
+                config.getMaxOrdersPerSecond(), config.getMaxInstrumentOrdersPerSecond());
+    }
+
+    private Counter rejectCounter(String check) {
+        return Counter.builder("trading.risk.rejects").tag("check", check)
+                .description("被事前风控拒绝的报单数").register(meterRegistry);
+    }
+
+    /**
+     * 检查报单，在下单线程上调用
+     * @return 通过时返回null，拒绝时返回拒绝原因
+     */
+    public String check(String instrumentId, char direction, char offsetFlag, double price, int volume) {
+        TradingConfig.Risk config = tradingConfig.getRisk();
+        if (!config.isEnabled()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        checkedCount.incrementAndGet();
+
+        RiskContext context = contexts.get();
+        int index = instrumentRegistry.indexOf(instrumentId);
+        context.reset(instrumentId, index, direction, offsetFlag, price, volume,
+                positionService.getVolumeMultiple(instrumentId));
+        context.setHasMarketData(index != InstrumentRegistry.NOT_REGISTERED
+                && marketDataCacheService.readMarketData(index, context.getMarketData()));
+
+        String reason = null;
+        if (!context.hasMarketData() && config.isRequireMarketData()) {
+            noMarketDataRejects.increment();
+            reason = "合约没有行情: " + instrumentId;
+        } else {
+            for (int i = 0; i < checks.length; i++) {
+                reason = checks[i].check(context);
+                if (reason != null) {
+                    rejectCounters[i].increment();
+                    break;
+                }
+                context.setPassedChecks(i + 1);
+            }
+            if (reason != null) {
+                release();
+            }
+        }
+
+        checkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return reason;
+    }
+
+    /**
+     * 释放当前下单线程上一次检查占用的额度，可重复调用
+     */
+    public void release() {
+        RiskContext context = contexts.get();
+        for (int i = context.getPassedChecks() - 1; i >= 0; i--) {
+            checks[i].release(context);
+        }
+        context.setPassedChecks(0);
+    }
+
+    private List<String> getCheckNames() {
+        List<String> names = new ArrayList<>(checks.length);
+        for (RiskCheck check : checks) {
+            names.add(check.getName());
+        }
+        return names;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> rejects = new HashMap<>();
+        for (int i = 0; i < checks.length; i++) {
+            rejects.put(checks[i].getName(), (long) rejectCounters[i].count());
+        }
+        rejects.put("market_data", (long) noMarketDataRejects.count());
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", tradingConfig.getRisk().isEnabled());
+        stats.put("checks", getCheckNames());
+        stats.put("checked", checkedCount.get());
+        stats.put("rejects", rejects);
+        stats.put("meanCheckNanos", (long) checkTimer.mean(TimeUnit.NANOSECONDS));
+        stats.put("maxCheckNanos", (long) checkTimer.max(TimeUnit.NANOSECONDS));
+        return stats;
+    }
+}
@@ -0,0 +1,94 @@
+package com.trading.service;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.ApiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求超时服务
+ * 交易和行情服务中等待API响应的请求在此登记超时，到期未收到响应时以超时错误完成，
+ * 请求的 whenComplete 随之把请求从等待表中移除；请求先完成时撤销超时。
+ * 所有超时由一个时间轮线程管理，超时时长按请求类型配置（trading.request-timeout）。
+ */
+@Service
+public class RequestTimeoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTimeoutService.class);
+
+    // 请求超时的错误码
+    public static final int TIMEOUT_CODE = 504;
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private RequestTimeoutWheel wheel;
+
+    // 服务:请求类型 -> 超时计数
+    private final ConcurrentHashMap<String, Counter> timeoutCounters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        TradingConfig.RequestTimeout config = tradingConfig.getRequestTimeout();
+        wheel = new RequestTimeoutWheel(config.getTickMs(), config.getWheelSize(), "RequestTimeout");
+        wheel.start();
+
+        Gauge.builder("trading.request.timeout.pending", wheel, RequestTimeoutWheel::getPendingCount)
+                .description("已登记超时的在途请求数").register(meterRegistry);
+        FunctionCounter.builder("trading.request.timeout.expired", wheel, RequestTimeoutWheel::getExpiredCount)
+                .description("到期的超时数").register(meterRegistry);
+
+        logger.info("请求超时服务初始化完成 - 精度: {}ms, 槽数量: {}, 默认超时: {}ms, 按类型: {}",
+                config.getTickMs(), config.getWheelSize(), config.getDefaultMs(), config.getTypes());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        wheel.stop();
+    }
+
+    /**
+     * 为等待响应的请求登记超时
+     * @param service 服务名称，trading 或 market
+     * @param type 请求类型，决定超时时长
+     */
+    public void watch(String service, String type, CompletableFuture<ApiResponse<Object>> future) {
+        long timeoutMs = getTimeoutMs(type);
+        RequestTimeoutWheel.Timeout timeout = wheel.newTimeout(() -> {
+            if (future.complete(ApiResponse.error(TIMEOUT_CODE, "请求超时: " + type + " " + timeoutMs + "ms"))) {
+                timeoutCounter(service, type).increment();
+                logger.warn("请求超时 - 服务: {}, 类型: {}, 超时: {}ms", service, type, timeoutMs);
+            }
+        }, timeoutMs);
+        future.whenComplete((response, e) -> timeout.cancel());
+    }
+
+    /**
+     * 获取请求类型的超时时长（毫秒）
+     */
+    public long getTimeoutMs(String type) {
+        TradingConfig.RequestTimeout config = tradingConfig.getRequestTimeout();
+        Long timeoutMs = config.getTypes().get(type);
+        return timeoutMs != null ? timeoutMs : config.getDefaultMs();
+    }
+
+    private Counter timeoutCounter(String service, String type) {
+        return timeoutCounters.computeIfAbsent(service + ":" + type, k -> Counter.builder("trading.request.timeouts")
+                .tag("service", service).tag("type", type).description("超时未收到响应的请求数")
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,292 @@
+package com.trading.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮
+ * 时间轮有 wheelSize 个槽，每 tick 前进一格；超时按到期 tick 落入对应槽，超过一圈的记录剩余圈数。
+ * 登记和撤销只是入队和一次CAS，为O(1)，与在途超时数无关；槽内链表只由单独的时间轮线程访问，不加锁。
+ * 到期时间精度为一个 tick，超时任务在时间轮线程上执行，应当很快返回。
+ *
+ * 用法:
+ * <pre>
+ * RequestTimeoutWheel.Timeout timeout = wheel.newTimeout(() -> future.complete(...), 5000);
+ * future.whenComplete((r, e) -> timeout.cancel());
+ * </pre>
+ */
+public class RequestTimeoutWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTimeoutWheel.class);
+
+    // 每个 tick 最多从登记队列转入槽中的超时数，避免登记过快时时间轮线程迟迟不处理到期
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private final long tickNanos;
+    private final int mask;
+    private final Bucket[] wheel;
+    private final String threadName;
+
+    // 新登记和已撤销的超时，由时间轮线程在每个 tick 开始时处理
+    private final Queue<Timeout> addedTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    // 已登记且未到期、未撤销的超时数
+    private final AtomicLong pendingCount = new AtomicLong(0);
+    private final AtomicLong expiredCount = new AtomicLong(0);
+
+    private volatile Thread workerThread;
+    private volatile boolean running;
+    private volatile long startNanos;
+
+    // 下一个要处理的 tick，只在时间轮线程中访问
+    private long tick;
+
+    /**
+     * @param tickMillis 每格时长（毫秒），即超时精度
+     * @param wheelSize 槽数量，必须为2的幂
+     * @param threadName 时间轮线程名称
+     */
+    public RequestTimeoutWheel(long tickMillis, int wheelSize, String threadName) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("时间轮每格时长必须大于0: " + tickMillis);
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("时间轮槽数量必须为2的幂: " + wheelSize);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = wheelSize - 1;
+        this.threadName = threadName;
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+    }
+
+    /**
+     * 启动时间轮线程
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        running = true;
+        Thread thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        workerThread = thread;
+        thread.start();
+    }
+
+    /**
+     * 停止时间轮线程，未到期的超时不再执行
+     */
+    public synchronized void stop() {
+        running = false;
+        Thread thread = workerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 登记超时，可在任意线程调用
+     * @param task 到期时在时间轮线程上执行的任务
+     * @param delayMillis 超时时长（毫秒）
+     */
+    public Timeout newTimeout(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        pendingCount.incrementAndGet();
+        addedTimeouts.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * 时间轮线程主循环
+     */
+    private void run() {
+        while (running) {
+            waitForNextTick();
+            if (!running) {
+                return;
+            }
+            processCancelled();
+            transferAdded();
+            expire(wheel[(int) tick & mask]);
+            tick++;
+        }
+    }
+
+    /**
+     * 等待到当前 tick 结束，之后当前槽中剩余圈数为0的超时都已到期
+     */
+    private void waitForNextTick() {
+        long deadline = startNanos + (tick + 1) * tickNanos;
+        long now;
+        while (running && (now = System.nanoTime()) < deadline) {
+            LockSupport.parkNanos(this, deadline - now);
+        }
+    }
+
+    private void processCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            // 尚未转入槽中的超时没有所属的槽，转入时会被跳过
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferAdded() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = addedTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state != Timeout.ST_INIT) {
+                continue;
+            }
+            long expireTick = (timeout.deadlineNanos - startNanos) / tickNanos;
+            timeout.remainingRounds = (expireTick - tick) / wheel.length;
+            // 已过期的放到当前槽，本 tick 即到期
+            long ticks = Math.max(expireTick, tick);
+            wheel[(int) ticks & mask].add(timeout);
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                timeout.expire();
+            } else if (timeout.state == Timeout.ST_CANCELLED) {
+                bucket.remove(timeout);
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    public long getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * 已登记的超时
+     */
+    public static final class Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final RequestTimeoutWheel wheel;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private volatile int state = ST_INIT;
+
+        // 以下字段只在时间轮线程中访问
+        private long remainingRounds;
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+
+        private Timeout(RequestTimeoutWheel wheel, Runnable task, long deadlineNanos) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * 撤销超时，可在任意线程调用
+         * @return 是否撤销成功，已到期或已撤销时返回false
+         */
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            wheel.pendingCount.decrementAndGet();
+            wheel.cancelledTimeouts.offer(this);
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            wheel.pendingCount.decrementAndGet();
+            wheel.expiredCount.incrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("执行超时任务失败", e);
+            }
+        }
+    }
+
+    /**
+     * 时间轮的槽，超时的双向链表
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.trading.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * 行情日志读取器
+ * 按分段顺序读取单个交易所、单个交易日的行情日志，遇到校验失败的记录视为当前有效数据的末尾。
+ * 可以读取正在写入的日志：next 返回false后，写入器追加的新记录在下一次调用时可见。
+ * 非线程安全。
+ *
+ * 用法:
+ * <pre>
+ * TickJournalRecord record = new TickJournalRecord();
+ * try (TickJournalReader reader = tickJournalService.openReader("20240101", "SHFE")) {
+ *     while (reader.next(record)) {
+ *         record.getInstrumentId();
+ *     }
+ * }
+ * </pre>
+ */
+public class TickJournalReader implements Closeable {
+
+    private final Path directory;
+    private final String exchangeId;
+    private final CRC32 crc = new CRC32();
+
+    private List<Path> segments;
+    private int segmentIndex = -1;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private String tradingDay;
+    private int position;
+    private long readCount;
+
+    /**
+     * @param directory 交易日目录
+     * @param exchangeId 交易所代码
+     */
+    public TickJournalReader(Path directory, String exchangeId) throws IOException {
+        this.directory = directory;
+        this.exchangeId = exchangeId;
+        this.segments = listSegments(directory, exchangeId);
+        if (!segments.isEmpty()) {
+            openSegment(0);
+        }
+    }
+
+    /**
+     * 读取下一笔记录
+     * @param record 接收记录的对象，内容在下一次调用前有效
+     * @return 没有更多有效记录时返回false
+     */
+    public boolean next(TickJournalRecord record) throws IOException {
+        if (mapped == null) {
+            segments = listSegments(directory, exchangeId);
+            if (segments.isEmpty()) {
+                return false;
+            }
+            openSegment(0);
+        }
+
+        while (true) {
+            if (readAt(record)) {
+                return true;
+            }
+            // 当前分段没有更多记录，只有存在下一个分段时才切换（写入器已切换分段）
+            if (segmentIndex + 1 >= segments.size()) {
+                segments = listSegments(directory, exchangeId);
+                if (segmentIndex + 1 >= segments.size()) {
+                    return false;
+                }
+            }
+            // 发现下一个分段后重读一次，避免漏掉切换前刚写完的记录
+            if (readAt(record)) {
+                return true;
+            }
+            openSegment(segmentIndex + 1);
+        }
+    }
+
+    private boolean readAt(TickJournalRecord record) {
+        if (position + TickJournalRecord.RECORD_SIZE > mapped.capacity()) {
+            return false;
+        }
+        ((Buffer) mapped).position(position);
+        mapped.get(record.array());
+        if (!record.isValid(crc)) {
+            return false;
+        }
+        record.setSource(exchangeId, tradingDay);
+        position += TickJournalRecord.RECORD_SIZE;
+        readCount++;
+        return true;
+    }
+
+    private void openSegment(int index) throws IOException {
+        closeSegment();
+        Path path = segments.get(index);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped.capacity() < TickJournalWriter.HEADER_SIZE
+                || mapped.getInt(0) != TickJournalWriter.FILE_MAGIC
+                || mapped.getInt(8) != TickJournalRecord.RECORD_SIZE) {
+            closeSegment();
+            throw new IOException("行情日志文件格式不匹配: " + path);
+        }
+
+        byte[] day = new byte[8];
+        ((Buffer) mapped).position(16);
+        mapped.get(day);
+        tradingDay = new String(day, StandardCharsets.US_ASCII).trim();
+        segmentIndex = index;
+        position = TickJournalWriter.HEADER_SIZE;
+    }
+
+    private void closeSegment() throws IOException {
+        mapped = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * 已读取的记录数
+     */
+    public long getReadCount() {
+        return readCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+
+    /**
+     * 列出交易日目录下某交易所的全部分段文件，按分段号排序
+     */
+    public static List<Path> listSegments(Path directory, String exchangeId) throws IOException {
+        List<Path> result = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return result;
+        }
+        String glob = exchangeId + "-[0-9][0-9][0-9]*" + TickJournalWriter.FILE_SUFFIX;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                result.add(path);
+            }
+        }
+        result.sort(Comparator.comparingInt(TickJournalWriter::segmentNumber));
+        return result;
+    }
+
+    /**
+     * 列出交易日目录下有日志的交易所
+     */
+    public static List<String> listExchanges(Path directory) throws IOException {
+        Set<String> exchanges = new TreeSet<>();
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>(exchanges);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + TickJournalWriter.FILE_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                int dash = name.lastIndexOf('-');
+                if (dash > 0) {
+                    exchanges.add(name.substring(0, dash));
+                }
+            }
+        }
+        return new ArrayList<>(exchanges);
+    }
+}
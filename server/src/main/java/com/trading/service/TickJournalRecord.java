@@ -0,0 +1,184 @@
+package com.trading.service;
+
+import com.trading.model.DepthMarketDataEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/**
+ * 行情日志记录
+ * 定义日志中单笔行情的定长二进制格式（小端序，256字节），并作为读取时的享元对象：
+ * 读取器把记录复制到内部缓冲区后由本对象解码，对象在下一次读取前有效。
+ *
+ * 记录格式:
+ * <pre>
+ * 0    int     魔数 0x4B434954
+ * 4    int     CRC32（覆盖偏移8至记录末尾）
+ * 8    long    接收时间（纪元纳秒）
+ * 16   char24  合约代码（ASCII，不足补0）
+ * 40   char16  行情更新时间（ASCII，不足补0）
+ * 56   long    成交量
+ * 64   double  最新价、成交额、持仓量、涨停价、跌停价、昨收、今开、最高、最低
+ * 136  double  买一至买五价
+ * 176  double  卖一至卖五价
+ * 216  int     买一至买五量
+ * 236  int     卖一至卖五量
+ * </pre>
+ * 进程崩溃时最后一笔记录可能只写了一部分，读取和恢复时以魔数和CRC校验失败作为有效数据的结束位置。
+ */
+public class TickJournalRecord {
+
+    public static final int RECORD_SIZE = 256;
+    public static final int MAGIC = 0x4B434954;
+
+    public static final int MAX_INSTRUMENT_ID_LENGTH = 24;
+    public static final int MAX_UPDATE_TIME_LENGTH = 16;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_CRC = 4;
+    private static final int OFFSET_TIMESTAMP = 8;
+    private static final int OFFSET_INSTRUMENT_ID = 16;
+    private static final int OFFSET_UPDATE_TIME = 40;
+    private static final int OFFSET_VOLUME = 56;
+    private static final int OFFSET_LAST_PRICE = 64;
+    private static final int OFFSET_TURNOVER = 72;
+    private static final int OFFSET_OPEN_INTEREST = 80;
+    private static final int OFFSET_UPPER_LIMIT_PRICE = 88;
+    private static final int OFFSET_LOWER_LIMIT_PRICE = 96;
+    private static final int OFFSET_PRE_CLOSE_PRICE = 104;
+    private static final int OFFSET_OPEN_PRICE = 112;
+    private static final int OFFSET_HIGHEST_PRICE = 120;
+    private static final int OFFSET_LOWEST_PRICE = 128;
+    private static final int OFFSET_BID_PRICES = 136;
+    private static final int OFFSET_ASK_PRICES = 176;
+    private static final int OFFSET_BID_VOLUMES = 216;
+    private static final int OFFSET_ASK_VOLUMES = 236;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private String exchangeId;
+    private String tradingDay;
+
+    /**
+     * 记录所在缓冲区，读取器把记录内容复制到这里
+     */
+    byte[] array() {
+        return buffer.array();
+    }
+
+    void setSource(String exchangeId, String tradingDay) {
+        this.exchangeId = exchangeId;
+        this.tradingDay = tradingDay;
+    }
+
+    /**
+     * 把行情事件编码到定长记录中
+     * @param target 长度至少为 RECORD_SIZE 的小端序缓冲区，从偏移0开始写入
+     * @return 合约代码或更新时间超长时返回false，此时不写入
+     */
+    static boolean encode(ByteBuffer target, CRC32 crc, long timestampNanos, String instrumentId,
+                          DepthMarketDataEvent event) {
+        String updateTime = event.getUpdateTime();
+        if (instrumentId.length() > MAX_INSTRUMENT_ID_LENGTH
+                || (updateTime != null && updateTime.length() > MAX_UPDATE_TIME_LENGTH)) {
+            return false;
+        }
+
+        target.putInt(OFFSET_MAGIC, MAGIC);
+        target.putLong(OFFSET_TIMESTAMP, timestampNanos);
+        putAscii(target, OFFSET_INSTRUMENT_ID, MAX_INSTRUMENT_ID_LENGTH, instrumentId);
+        putAscii(target, OFFSET_UPDATE_TIME, MAX_UPDATE_TIME_LENGTH, updateTime);
+        target.putLong(OFFSET_VOLUME, event.getVolume());
+        target.putDouble(OFFSET_LAST_PRICE, event.getLastPrice());
+        target.putDouble(OFFSET_TURNOVER, event.getTurnover());
+        target.putDouble(OFFSET_OPEN_INTEREST, event.getOpenInterest());
+        target.putDouble(OFFSET_UPPER_LIMIT_PRICE, event.getUpperLimitPrice());
+        target.putDouble(OFFSET_LOWER_LIMIT_PRICE, event.getLowerLimitPrice());
+        target.putDouble(OFFSET_PRE_CLOSE_PRICE, event.getPreClosePrice());
+        target.putDouble(OFFSET_OPEN_PRICE, event.getOpenPrice());
+        target.putDouble(OFFSET_HIGHEST_PRICE, event.getHighestPrice());
+        target.putDouble(OFFSET_LOWEST_PRICE, event.getLowestPrice());
+
+        target.putDouble(OFFSET_BID_PRICES, event.getBidPrice1());
+        target.putDouble(OFFSET_BID_PRICES + 8, event.getBidPrice2());
+        target.putDouble(OFFSET_BID_PRICES + 16, event.getBidPrice3());
+        target.putDouble(OFFSET_BID_PRICES + 24, event.getBidPrice4());
+        target.putDouble(OFFSET_BID_PRICES + 32, event.getBidPrice5());
+        target.putDouble(OFFSET_ASK_PRICES, event.getAskPrice1());
+        target.putDouble(OFFSET_ASK_PRICES + 8, event.getAskPrice2());
+        target.putDouble(OFFSET_ASK_PRICES + 16, event.getAskPrice3());
+        target.putDouble(OFFSET_ASK_PRICES + 24, event.getAskPrice4());
+        target.putDouble(OFFSET_ASK_PRICES + 32, event.getAskPrice5());
+        target.putInt(OFFSET_BID_VOLUMES, event.getBidVolume1());
+        target.putInt(OFFSET_BID_VOLUMES + 4, event.getBidVolume2());
+        target.putInt(OFFSET_BID_VOLUMES + 8, event.getBidVolume3());
+        target.putInt(OFFSET_BID_VOLUMES + 12, event.getBidVolume4());
+        target.putInt(OFFSET_BID_VOLUMES + 16, event.getBidVolume5());
+        target.putInt(OFFSET_ASK_VOLUMES, event.getAskVolume1());
+        target.putInt(OFFSET_ASK_VOLUMES + 4, event.getAskVolume2());
+        target.putInt(OFFSET_ASK_VOLUMES + 8, event.getAskVolume3());
+        target.putInt(OFFSET_ASK_VOLUMES + 12, event.getAskVolume4());
+        target.putInt(OFFSET_ASK_VOLUMES + 16, event.getAskVolume5());
+
+        target.putInt(OFFSET_CRC, checksum(target.array(), crc));
+        return true;
+    }
+
+    /**
+     * 校验缓冲区中的记录是否完整
+     */
+    boolean isValid(CRC32 crc) {
+        return buffer.getInt(OFFSET_MAGIC) == MAGIC && buffer.getInt(OFFSET_CRC) == checksum(buffer.array(), crc);
+    }
+
+    private static int checksum(byte[] record, CRC32 crc) {
+        crc.reset();
+        crc.update(record, OFFSET_TIMESTAMP, RECORD_SIZE - OFFSET_TIMESTAMP);
+        return (int) crc.getValue();
+    }
+
+    private static void putAscii(ByteBuffer target, int offset, int length, String value) {
+        int count = value != null ? value.length() : 0;
+        for (int i = 0; i < length; i++) {
+            target.put(offset + i, i < count ? (byte) value.charAt(i) : 0);
+        }
+    }
+
+    private String getAscii(int offset, int length) {
+        byte[] bytes = buffer.array();
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        char[] chars = new char[end - offset];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) bytes[offset + i];
+        }
+        return new String(chars);
+    }
+
+    // Getters
+    public String getExchangeId() { return exchangeId; }
+    public String getTradingDay() { return tradingDay; }
+    public long getTimestampNanos() { return buffer.getLong(OFFSET_TIMESTAMP); }
+    public String getInstrumentId() { return getAscii(OFFSET_INSTRUMENT_ID, MAX_INSTRUMENT_ID_LENGTH); }
+    public String getUpdateTime() { return getAscii(OFFSET_UPDATE_TIME, MAX_UPDATE_TIME_LENGTH); }
+    public long getVolume() { return buffer.getLong(OFFSET_VOLUME); }
+    public double getLastPrice() { return buffer.getDouble(OFFSET_LAST_PRICE); }
+    public double getTurnover() { return buffer.getDouble(OFFSET_TURNOVER); }
+    public double getOpenInterest() { return buffer.getDouble(OFFSET_OPEN_INTEREST); }
+    public double getUpperLimitPrice() { return buffer.getDouble(OFFSET_UPPER_LIMIT_PRICE); }
+    public double getLowerLimitPrice() { return buffer.getDouble(OFFSET_LOWER_LIMIT_PRICE); }
+    public double getPreClosePrice() { return buffer.getDouble(OFFSET_PRE_CLOSE_PRICE); }
+    public double getOpenPrice() { return buffer.getDouble(OFFSET_OPEN_PRICE); }
+    public double getHighestPrice() { return buffer.getDouble(OFFSET_HIGHEST_PRICE); }
+    public double getLowestPrice() { return buffer.getDouble(OFFSET_LOWEST_PRICE); }
+
+    /**
+     * @param level 档位，1至5
+     */
+    public double getBidPrice(int level) { return buffer.getDouble(OFFSET_BID_PRICES + (level - 1) * 8); }
+    public double getAskPrice(int level) { return buffer.getDouble(OFFSET_ASK_PRICES + (level - 1) * 8); }
+    public int getBidVolume(int level) { return buffer.getInt(OFFSET_BID_VOLUMES + (level - 1) * 4); }
+    public int getAskVolume(int level) { return buffer.getInt(OFFSET_ASK_VOLUMES + (level - 1) * 4); }
+}
@@ -0,0 +1,186 @@
+package com.trading.service;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.DepthMarketDataEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 行情日志服务
+ * 把每一笔深度行情追加到内存映射的定长记录文件中，供回放、审计和研究使用。
+ * 日志按交易日和交易所滚动：{directory}/{交易日}/{交易所}-{分段号}.tick
+ *
+ * 写入在行情消费线程（环形缓冲区之后）中进行，行情API回调线程不受影响；
+ * 写入只是对映射内存的拷贝，进程崩溃后已写入的记录由操作系统落盘，写了一半的记录在恢复时被覆盖。
+ */
+@Service
+public class TickJournalService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TickJournalService.class);
+
+    private static final DateTimeFormatter TRADING_DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    // 交易所 -> 写入器，只在行情消费线程中访问
+    private final Map<String, TickJournalWriter> writers = new HashMap<>();
+
+    private volatile boolean enabled;
+    private Path directory;
+    private int segmentSize;
+
+    // 当前交易日，由行情登录响应设置；写入器所属交易日变化时整体切换
+    private volatile String tradingDay = LocalDate.now().format(TRADING_DAY_FORMAT);
+    private String writersTradingDay;
+
+    // System.nanoTime 与纪元纳秒的差值，用于把接收时间换算为纪元时间
+    private final long epochOffsetNanos = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+    // 统计
+    private final AtomicLong appendedCount = new AtomicLong(0);
+    private final AtomicLong skippedCount = new AtomicLong(0);
+    private final AtomicLong recoveredCount = new AtomicLong(0);
+    private final AtomicLong segmentsOpened = new AtomicLong(0);
+
+    @PostConstruct
+    public void initialize() {
+        TradingConfig.Journal config = tradingConfig.getJournal();
+        enabled = config.isEnabled();
+        directory = Paths.get(config.getDirectory());
+        segmentSize = (int) Math.min((long) config.getSegmentSizeMb() * 1024 * 1024, Integer.MAX_VALUE);
+        if (segmentSize < TickJournalWriter.HEADER_SIZE + TickJournalRecord.RECORD_SIZE) {
+            throw new IllegalArgumentException("行情日志分段大小过小: " + config.getSegmentSizeMb() + "MB");
+        }
+        logger.info("行情日志: enabled={}, directory={}, segmentSize={}MB",
+                enabled, directory.toAbsolutePath(), config.getSegmentSizeMb());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        closeWriters();
+    }
+
+    /**
+     * 停止记录行情日志
+     */
+    public void disable(String reason) {
+        if (enabled) {
+            enabled = false;
+            logger.info("行情日志已停用: {}", reason);
+        }
+    }
+
+    /**
+     * 设置当前交易日，格式 yyyyMMdd
+     */
+    public void setTradingDay(String tradingDay) {
+        if (tradingDay != null && !tradingDay.isEmpty()) {
+            this.tradingDay = tradingDay;
+        }
+    }
+
+    public String getTradingDay() {
+        return tradingDay;
+    }
+
+    /**
+     * 追加一笔行情，只能在行情消费线程中调用
+     */
+    public void append(DepthMarketDataEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        String day = tradingDay;
+        if (!day.equals(writersTradingDay)) {
+            closeWriters();
+            writersTradingDay = day;
+        }
+
+        int index = event.getInstrumentIndex();
+        String exchangeId = instrumentRegistry.getExchangeId(index);
+        try {
+            TickJournalWriter writer = writers.get(exchangeId);
+            if (writer == null) {
+                writer = openWriter(day, exchangeId);
+            }
+            int segment = writer.getSegment();
+            if (writer.append(epochOffsetNanos + event.getReceiveNanos(),
+                    instrumentRegistry.getInstrumentId(index), event)) {
+                appendedCount.incrementAndGet();
+            } else {
+                skippedCount.incrementAndGet();
+            }
+            if (writer.getSegment() != segment) {
+                segmentsOpened.incrementAndGet();
+            }
+        } catch (IOException e) {
+            // 磁盘异常时停止写日志，不影响行情处理
+            enabled = false;
+            logger.error("写入行情日志失败，行情日志已停用: exchange={}", exchangeId, e);
+        }
+    }
+
+    private TickJournalWriter openWriter(String day, String exchangeId) throws IOException {
+        TickJournalWriter writer = new TickJournalWriter(directory.resolve(day), day, exchangeId, segmentSize);
+        recoveredCount.addAndGet(writer.open());
+        segmentsOpened.incrementAndGet();
+        writers.put(exchangeId, writer);
+        return writer;
+    }
+
+    private void closeWriters() {
+        for (Map.Entry<String, TickJournalWriter> entry : writers.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                logger.error("关闭行情日志失败: exchange={}", entry.getKey(), e);
+            }
+        }
+        writers.clear();
+    }
+
+    /**
+     * 打开某交易日、某交易所的行情日志读取器
+     */
+    public TickJournalReader openReader(String tradingDay, String exchangeId) throws IOException {
+        return new TickJournalReader(directory.resolve(tradingDay), exchangeId);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("directory", directory.toAbsolutePath().toString());
+        stats.put("tradingDay", tradingDay);
+        stats.put("appendedCount", appendedCount.get());
+        stats.put("appendedBytes", appendedCount.get() * TickJournalRecord.RECORD_SIZE);
+        stats.put("skippedCount", skippedCount.get());
+        stats.put("recoveredCount", recoveredCount.get());
+        stats.put("segmentsOpened", segmentsOpened.get());
+        return stats;
+    }
+}
@@ -0,0 +1,176 @@
+package com.trading.service;
+
+import com.trading.model.DepthMarketDataEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 单个交易所、单个交易日的行情日志写入器
+ * 日志由若干定长分段文件组成，分段文件在创建时按分段大小整体映射，写入只是对映射内存的拷贝，
+ * 除分段切换外不产生系统调用。非线程安全，只能由一个线程写入。
+ *
+ * 分段文件头（64字节，小端序）:
+ * <pre>
+ * 0    int     魔数 0x4C4E4A54
+ * 4    int     格式版本
+ * 8    int     记录大小
+ * 12   int     保留
+ * 16   char8   交易日
+ * 24   char16  交易所代码
+ * </pre>
+ */
+class TickJournalWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TickJournalWriter.class);
+
+    static final int HEADER_SIZE = 64;
+    static final int FILE_MAGIC = 0x4C4E4A54;
+    static final int VERSION = 1;
+    static final String FILE_SUFFIX = ".tick";
+
+    private final Path directory;
+    private final String tradingDay;
+    private final String exchangeId;
+    private final int segmentSize;
+
+    private final ByteBuffer scratch =
+            ByteBuffer.allocate(TickJournalRecord.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private int segment;
+    private int position;
+
+    TickJournalWriter(Path directory, String tradingDay, String exchangeId, int segmentSize) {
+        this.directory = directory;
+        this.tradingDay = tradingDay;
+        this.exchangeId = exchangeId;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * 打开日志，已有分段时从最后一个分段的有效数据末尾继续写入
+     * @return 恢复的记录数
+     */
+    long open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = TickJournalReader.listSegments(directory, exchangeId);
+        if (segments.isEmpty()) {
+            openSegment(0, true);
+            return 0;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        openSegment(segmentNumber(last), false);
+        long recovered = recover();
+        logger.info("行情日志恢复: {} 分段={} 有效记录={}", last, segment, recovered);
+        return recovered;
+    }
+
+    /**
+     * 追加一笔记录
+     * @return 合约代码或更新时间超长无法写入时返回false
+     */
+    boolean append(long timestampNanos, String instrumentId, DepthMarketDataEvent event)
+            throws IOException {
+        if (!TickJournalRecord.encode(scratch, crc, timestampNanos, instrumentId, event)) {
+            return false;
+        }
+        if (position + TickJournalRecord.RECORD_SIZE > segmentSize) {
+            closeSegment();
+            openSegment(segment + 1, true);
+        }
+        ((Buffer) mapped).position(position);
+        mapped.put(scratch.array());
+        position += TickJournalRecord.RECORD_SIZE;
+        return true;
+    }
+
+    void close() throws IOException {
+        closeSegment();
+    }
+
+    int getSegment() {
+        return segment;
+    }
+
+    private void openSegment(int number, boolean create) throws IOException {
+        Path path = directory.resolve(segmentFileName(exchangeId, number));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        segment = number;
+        position = HEADER_SIZE;
+
+        if (create) {
+            mapped.putInt(0, FILE_MAGIC);
+            mapped.putInt(4, VERSION);
+            mapped.putInt(8, TickJournalRecord.RECORD_SIZE);
+            mapped.putInt(12, 0);
+            putAscii(16, 8, tradingDay);
+            putAscii(24, 16, exchangeId);
+        } else if (mapped.getInt(0) != FILE_MAGIC
+                || mapped.getInt(8) != TickJournalRecord.RECORD_SIZE) {
+            throw new IOException("行情日志文件格式不匹配: " + path);
+        }
+    }
+
+    /**
+     * 扫描到第一笔不完整的记录，之后从该位置继续写入，覆盖崩溃时写了一半的记录
+     */
+    private long recover() {
+        TickJournalRecord record = new TickJournalRecord();
+        long count = 0;
+        while (position + TickJournalRecord.RECORD_SIZE <= segmentSize) {
+            ((Buffer) mapped).position(position);
+            mapped.get(record.array());
+            if (!record.isValid(crc)) {
+                break;
+            }
+            position += TickJournalRecord.RECORD_SIZE;
+            count++;
+        }
+        return count;
+    }
+
+    private void closeSegment() throws IOException {
+        if (mapped != null) {
+            mapped.force();
+            mapped = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void putAscii(int offset, int length, String value) {
+        for (int i = 0; i < length; i++) {
+            mapped.put(offset + i, i < value.length() ? (byte) value.charAt(i) : 0);
+        }
+    }
+
+    static String segmentFileName(String exchangeId, int number) {
+        return String.format("%s-%03d%s", exchangeId, number, FILE_SUFFIX);
+    }
+
+    static int segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        int dash = name.lastIndexOf('-');
+        return Integer.parseInt(name.substring(dash + 1, name.length() - FILE_SUFFIX.length()));
+    }
+}
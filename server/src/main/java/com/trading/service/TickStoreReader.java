@@ -0,0 +1,182 @@
+package com.trading.service;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+import static com.trading.service.TickStoreWriter.*;
+
+/**
+ * 列式行情读取器
+ * 以游标方式读取单个合约、单个交易日的列式行情文件：{@link #seek} 先用文件头的稀疏时间索引定位到块，
+ * 再在块内时间列上二分查找；{@link #next} 逐行前进，取值方法直接读取映射内存中对应的列，
+ * 不把文件读入堆内存，也不为每行创建对象，只有访问到的列所在的页会被读入。
+ * 文件的只读映射由 {@link TickStoreService} 在查询之间共享，读取器只持有它的一个视图。
+ * 非线程安全。
+ *
+ * 用法:
+ * <pre>
+ * try (TickStoreReader reader = tickStoreService.openReader("rb2405", "20240101")) {
+ *     reader.seek(fromNanos);
+ *     while (reader.next() &amp;&amp; reader.getTimestampNanos() &lt; toNanos) {
+ *         reader.getLastPrice();
+ *     }
+ * }
+ * </pre>
+ */
+public class TickStoreReader implements Closeable {
+
+    private final Path file;
+    private final long rowCount;
+
+    private ByteBuffer data;
+    private long row = -1;
+    private int blockBase;
+    private int offset8;
+    private int offset4;
+
+    /**
+     * @param file 列式行情文件
+     * @param mapped 文件的只读映射，至少包含可读的各行所在的块
+     * @param rowCount 可读行数
+     */
+    TickStoreReader(Path file, ByteBuffer mapped, long rowCount) {
+        this.file = file;
+        this.data = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.rowCount = rowCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 第一行的接收时间（纪元纳秒），没有数据时返回-1
+     */
+    public long getFirstTimestampNanos() {
+        return rowCount > 0 ? data.getLong(INDEX_OFFSET) : -1;
+    }
+
+    /**
+     * 定位到接收时间不早于给定时间的第一行之前，之后调用 next 读取该行
+     * @return 之后是否还有行
+     */
+    public boolean seek(long timestampNanos) {
+        int blocks = blockCount(rowCount);
+        if (blocks == 0) {
+            row = -1;
+            return false;
+        }
+
+        // 稀疏索引：最后一个第一行时间不晚于目标时间的块
+        int low = 0;
+        int high = blocks - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (data.getLong(INDEX_OFFSET + mid * 8) <= timestampNanos) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        // 块内时间列二分查找
+        int base = (int) blockOffset(low);
+        long first = (long) low * BLOCK_ROWS;
+        int lo = 0;
+        int hi = (int) Math.min(BLOCK_ROWS, rowCount - first);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (data.getLong(base + COL_TIMESTAMP * BLOCK_ROWS + mid * 8) < timestampNanos) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        row = first + lo - 1;
+        return row + 1 < rowCount;
+    }
+
+    /**
+     * 前进到下一行
+     * @return 没有更多行时返回false
+     */
+    public boolean next() {
+        if (row + 1 >= rowCount) {
+            return false;
+        }
+        row++;
+        int number = (int) (row / BLOCK_ROWS);
+        int r = (int) (row - (long) number * BLOCK_ROWS);
+        blockBase = (int) blockOffset(number);
+        offset8 = r * 8;
+        offset4 = r * 4;
+        return true;
+    }
+
+    /**
+     * 当前行号，从0开始
+     */
+    public long getRow() {
+        return row;
+    }
+
+    public long getTimestampNanos() {
+        return data.getLong(blockBase + COL_TIMESTAMP * BLOCK_ROWS + offset8);
+    }
+
+    /**
+     * 交易所更新时间（当日毫秒），无法解析时为-1
+     */
+    public int getUpdateTimeMillis() {
+        return data.getInt(blockBase + COL_UPDATE_TIME * BLOCK_ROWS + offset4);
+    }
+
+    public double getLastPrice() {
+        return data.getDouble(blockBase + COL_LAST_PRICE * BLOCK_ROWS + offset8);
+    }
+
+    public long getVolume() {
+        return data.getLong(blockBase + COL_VOLUME * BLOCK_ROWS + offset8);
+    }
+
+    public double getTurnover() {
+        return data.getDouble(blockBase + COL_TURNOVER * BLOCK_ROWS + offset8);
+    }
+
+    public double getOpenInterest() {
+        return data.getDouble(blockBase + COL_OPEN_INTEREST * BLOCK_ROWS + offset8);
+    }
+
+    /**
+     * @param level 档位，1~5
+     */
+    public double getBidPrice(int level) {
+        return data.getDouble(blockBase + (COL_BID_PRICE + (level - 1) * 8) * BLOCK_ROWS + offset8);
+    }
+
+    public int getBidVolume(int level) {
+        return data.getInt(blockBase + (COL_BID_VOLUME + (level - 1) * 4) * BLOCK_ROWS + offset4);
+    }
+
+    public double getAskPrice(int level) {
+        return data.getDouble(blockBase + (COL_ASK_PRICE + (level - 1) * 8) * BLOCK_ROWS + offset8);
+    }
+
+    public int getAskVolume(int level) {
+        return data.getInt(blockBase + (COL_ASK_VOLUME + (level - 1) * 4) * BLOCK_ROWS + offset4);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 释放对映射的引用，映射本身由 TickStoreService 缓存
+     */
+    @Override
+    public void close() {
+        data = null;
+    }
+}
@@ -0,0 +1,285 @@
+package com.trading.service;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.DepthMarketDataEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 列式历史行情服务
+ * 与行情日志（按交易所顺序追加整条记录，用于回放）互补，按合约、交易日把每笔行情拆成列存储，
+ * 供按时间段查询：{directory}/{交易日}/{合约代码}.col，文件格式见 {@link TickStoreWriter}。
+ *
+ * 写入在行情消费线程中进行，只是对映射内存的拷贝；查询在请求线程上通过 {@link TickStoreReader}
+ * 直接读取映射文件，可以读取正在写入的当天文件。
+ */
+@Service
+public class TickStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TickStoreService.class);
+
+    private static final DateTimeFormatter TRADING_DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // 缓存只读映射的文件数
+    private static final int MAX_MAPPED_FILES = 256;
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private InstrumentRegistry instrumentRegistry;
+
+    // 按合约索引的写入器，只在行情消费线程中访问
+    private TickStoreWriter[] writers = new TickStoreWriter[64];
+    // 合约代码 -> 当前交易日的写入器，查询当天数据时以写入器已提交的行数为界
+    private final Map<String, TickStoreWriter> openWriters = new ConcurrentHashMap<>();
+
+    // 文件 -> 只读映射，按访问顺序淘汰。映射在缓冲区被回收前不会解除，
+    // 每次查询都新建映射会很快耗尽进程的映射数上限（vm.max_map_count），因此在查询之间共享
+    private final Map<Path, MappedByteBuffer> mappings = new LinkedHashMap<Path, MappedByteBuffer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, MappedByteBuffer> eldest) {
+            return size() > MAX_MAPPED_FILES;
+        }
+    };
+
+    private volatile boolean enabled;
+    private Path directory;
+
+    // 当前交易日，由行情登录响应设置；写入器所属交易日变化时整体切换
+    private volatile String tradingDay = LocalDate.now().format(TRADING_DAY_FORMAT);
+    private volatile String writersTradingDay;
+
+    // System.nanoTime 与纪元纳秒的差值，用于把接收时间换算为纪元时间
+    private final long epochOffsetNanos = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+    // 统计
+    private final AtomicLong appendedCount = new AtomicLong(0);
+    private final AtomicLong skippedCount = new AtomicLong(0);
+    private final AtomicLong recoveredCount = new AtomicLong(0);
+    private final AtomicLong queryCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void initialize() {
+        TradingConfig.TickStore config = tradingConfig.getTickStore();
+        enabled = config.isEnabled();
+        directory = Paths.get(config.getDirectory());
+        logger.info("列式行情存储: enabled={}, directory={}", enabled, directory.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        closeWriters();
+    }
+
+    /**
+     * 停止写入列式行情
+     */
+    public void disable(String reason) {
+        if (enabled) {
+            enabled = false;
+            logger.info("列式行情存储已停用: {}", reason);
+        }
+    }
+
+    /**
+     * 设置当前交易日，格式 yyyyMMdd
+     */
+    public void setTradingDay(String tradingDay) {
+        if (tradingDay != null && !tradingDay.isEmpty()) {
+            this.tradingDay = tradingDay;
+        }
+    }
+
+    public String getTradingDay() {
+        return tradingDay;
+    }
+
+    /**
+     * 追加一笔行情，只能在行情消费线程中调用
+     */
+    public void append(DepthMarketDataEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        String day = tradingDay;
+        if (!day.equals(writersTradingDay)) {
+            closeWriters();
+            writersTradingDay = day;
+        }
+
+        int index = event.getInstrumentIndex();
+        TickStoreWriter writer = index < writers.length ? writers[index] : null;
+        try {
+            if (writer == null) {
+                writer = openWriter(day, index);
+            }
+            if (writer.append(epochOffsetNanos + event.getReceiveNanos(),
+                    (int) MarketBarService.parseTimeOfDay(event.getUpdateTime()), event)) {
+                appendedCount.incrementAndGet();
+            } else {
+                skippedCount.incrementAndGet();
+            }
+        } catch (IOException e) {
+            // 磁盘异常时停止写入，不影响行情处理
+            enabled = false;
+            logger.error("写入列式行情失败，列式行情存储已停用: instrument={}",
+                    instrumentRegistry.getInstrumentId(index), e);
+        }
+    }
+
+    private TickStoreWriter openWriter(String day, int index) throws IOException {
+        String instrumentId = instrumentRegistry.getInstrumentId(index);
+        TickStoreWriter writer = new TickStoreWriter(
+                directory.resolve(day).resolve(TickStoreWriter.fileName(instrumentId)), day, instrumentId);
+        recoveredCount.addAndGet(writer.open());
+        if (index >= writers.length) {
+            writers = Arrays.copyOf(writers, Math.max(writers.length * 2, index + 1));
+        }
+        writers[index] = writer;
+        openWriters.put(instrumentId, writer);
+        return writer;
+    }
+
+    private void closeWriters() {
+        for (int i = 0; i < writers.length; i++) {
+            if (writers[i] != null) {
+                writers[i].close();
+                writers[i] = null;
+            }
+        }
+        openWriters.clear();
+    }
+
+    /**
+     * 打开某合约某交易日的列式行情读取器
+     * @return 没有该合约该交易日的数据时返回null
+     */
+    public TickStoreReader openReader(String instrumentId, String tradingDay) throws IOException {
+        Path file = directory.resolve(tradingDay).resolve(TickStoreWriter.fileName(instrumentId));
+        if (!file.normalize().startsWith(directory.normalize()) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        queryCount.incrementAndGet();
+        TickStoreWriter writer = tradingDay.equals(writersTradingDay) ? openWriters.get(instrumentId) : null;
+        long rowCount = writer != null ? writer.getRowCount() : -1;
+
+        MappedByteBuffer mapped = mapping(file, rowCount);
+        if (rowCount < 0) {
+            rowCount = mapped.getLong(TickStoreWriter.ROW_COUNT_OFFSET);
+        }
+        // 不读取映射之后才追加的块
+        long mappedRows = (long) (mapped.capacity() - TickStoreWriter.DATA_OFFSET)
+                / TickStoreWriter.BLOCK_SIZE * TickStoreWriter.BLOCK_ROWS;
+        return new TickStoreReader(file, mapped, Math.min(rowCount, mappedRows));
+    }
+
+    /**
+     * 获取文件的只读映射，已有映射覆盖不到给定行数（小于0时为文件头记录的行数）时按当前文件大小重新映射
+     */
+    private synchronized MappedByteBuffer mapping(Path file, long rowCount) throws IOException {
+        MappedByteBuffer mapped = mappings.get(file);
+        if (mapped != null) {
+            long rows = rowCount < 0 ? mapped.getLong(TickStoreWriter.ROW_COUNT_OFFSET) : rowCount;
+            if (mapped.capacity() >= TickStoreWriter.blockOffset(TickStoreWriter.blockCount(rows))) {
+                return mapped;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TickStoreWriter.DATA_OFFSET) {
+                throw new IOException("列式行情文件不完整: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped.getInt(0) != TickStoreWriter.FILE_MAGIC || mapped.getInt(8) != TickStoreWriter.BLOCK_ROWS
+                || mapped.getInt(12) != TickStoreWriter.ROW_SIZE) {
+            throw new IOException("列式行情文件格式不匹配: " + file);
+        }
+        mappings.put(file, mapped);
+        return mapped;
+    }
+
+    /**
+     * 解析查询时间，返回纪元纳秒
+     * 支持纪元毫秒，或 HH:mm[:ss[.SSS]]：后者以文件第一笔行情（夜盘开盘）的自然日为基准，
+     * 比第一笔行情时刻早一小时以上的时间视为次日，因此夜盘 21:00 与日盘 09:00 都落在同一交易日内。
+     * @return 格式不符时返回-1
+     */
+    public long parseTime(String value, TickStoreReader reader) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        if (value.indexOf(':') < 0) {
+            try {
+                return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        long timeOfDay = MarketBarService.parseTimeOfDay(value.length() == 5 ? value + ":00" : value);
+        long first = reader.getFirstTimestampNanos();
+        if (timeOfDay < 0 || first < 0) {
+            return timeOfDay < 0 ? -1 : 0;
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate date = Instant.ofEpochSecond(0, first).atZone(zone).toLocalDate();
+        long dayStartMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+        long firstTimeOfDay = TimeUnit.NANOSECONDS.toMillis(first) - dayStartMillis;
+        // 留出一小时余量，开盘前几分钟的时间仍按当天处理
+        if (timeOfDay < firstTimeOfDay - TimeUnit.HOURS.toMillis(1)) {
+            dayStartMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        long millis = dayStartMillis + timeOfDay;
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("directory", directory.toAbsolutePath().toString());
+        stats.put("tradingDay", tradingDay);
+        stats.put("appendedCount", appendedCount.get());
+        stats.put("skippedCount", skippedCount.get());
+        stats.put("recoveredCount", recoveredCount.get());
+        stats.put("openFiles", openWriters.size());
+        synchronized (this) {
+            stats.put("mappedFiles", mappings.size());
+        }
+        stats.put("queryCount", queryCount.get());
+        return stats;
+    }
+}
@@ -0,0 +1,240 @@
+package com.trading.service;
+
+import com.trading.model.DepthMarketDataEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 单个合约、单个交易日的列式行情写入器
+ * 文件按块组织，每块 {@link #BLOCK_ROWS} 行，块内每个字段连续存放为一列原始类型数组，
+ * 扫描某一列只读取该列所在的页。文件头中保存每块第一行的时间戳，作为稀疏时间索引。
+ * 写入时只映射文件头和当前块，写入是对映射内存的拷贝，行数在一行的各列写完后才更新。
+ * 非线程安全，只能由一个线程写入。
+ *
+ * 文件头（{@link #DATA_OFFSET} 字节，小端序）:
+ * <pre>
+ * 0    int     魔数 0x4C4F4354
+ * 4    int     格式版本
+ * 8    int     每块行数
+ * 12   int     每行字节数
+ * 16   long    已写入行数
+ * 24   char8   交易日
+ * 32   char32  合约代码
+ * 64   long[]  每块第一行的接收时间（纪元纳秒），最多 {@link #MAX_BLOCKS} 块
+ * </pre>
+ *
+ * 块内各列（列起始偏移 = 该列之前每行字节数 × 每块行数）:
+ * <pre>
+ * long    接收时间（纪元纳秒）
+ * double  最新价
+ * long    成交量
+ * double  成交额、持仓量
+ * double  买一~买五价、卖一~卖五价
+ * int     更新时间（当日毫秒）、买一~买五量、卖一~卖五量
+ * </pre>
+ */
+class TickStoreWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TickStoreWriter.class);
+
+    static final int FILE_MAGIC = 0x4C4F4354;
+    static final int VERSION = 1;
+    static final String FILE_SUFFIX = ".col";
+
+    static final int BLOCK_ROWS = 4096;
+    // 整个文件不超过2GB，读取时可以整体映射为一个缓冲区
+    static final int MAX_BLOCKS = 3072;
+    static final int ROW_COUNT_OFFSET = 16;
+    static final int INDEX_OFFSET = 64;
+    // 文件头按页对齐，块的起始位置也都是页对齐的
+    static final int DATA_OFFSET = 36864;
+
+    // 各列在一行中的字节偏移，乘以每块行数即为块内的列起始偏移
+    static final int COL_TIMESTAMP = 0;
+    static final int COL_LAST_PRICE = 8;
+    static final int COL_VOLUME = 16;
+    static final int COL_TURNOVER = 24;
+    static final int COL_OPEN_INTEREST = 32;
+    static final int COL_BID_PRICE = 40;
+    static final int COL_ASK_PRICE = 80;
+    static final int COL_UPDATE_TIME = 120;
+    static final int COL_BID_VOLUME = 124;
+    static final int COL_ASK_VOLUME = 144;
+    static final int ROW_SIZE = 164;
+
+    static final int BLOCK_SIZE = ROW_SIZE * BLOCK_ROWS;
+
+    private final Path file;
+    private final String tradingDay;
+    private final String instrumentId;
+
+    private MappedByteBuffer header;
+    private MappedByteBuffer block;
+    private int blockNumber = -1;
+    private int row;
+
+    // 已提交的行数，读取方以此为界，不会读到写了一半的行
+    private volatile long rowCount;
+
+    TickStoreWriter(Path file, String tradingDay, String instrumentId) {
+        this.file = file;
+        this.tradingDay = tradingDay;
+        this.instrumentId = instrumentId;
+    }
+
+    /**
+     * 打开文件，已有数据时从文件头记录的行数之后继续写入
+     * @return 已有的行数
+     */
+    long open() throws IOException {
+        Files.createDirectories(file.getParent());
+        boolean create = !Files.exists(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET);
+        }
+        header.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (create || header.getInt(0) == 0) {
+            header.putInt(0, FILE_MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, BLOCK_ROWS);
+            header.putInt(12, ROW_SIZE);
+            header.putLong(ROW_COUNT_OFFSET, 0);
+            putAscii(24, 8, tradingDay);
+            putAscii(32, 32, instrumentId);
+            return 0;
+        }
+        if (header.getInt(0) != FILE_MAGIC || header.getInt(8) != BLOCK_ROWS
+                || header.getInt(12) != ROW_SIZE) {
+            throw new IOException("列式行情文件格式不匹配: " + file);
+        }
+        rowCount = header.getLong(ROW_COUNT_OFFSET);
+        if (rowCount > 0) {
+            logger.info("列式行情恢复: {} 行数={}", file, rowCount);
+        }
+        return rowCount;
+    }
+
+    /**
+     * 追加一行
+     * @param timestampNanos 接收时间（纪元纳秒），同一文件内应递增
+     * @param updateTimeMillis 交易所更新时间（当日毫秒），无法解析时为-1
+     * @return 达到文件最大行数时返回false
+     */
+    boolean append(long timestampNanos, int updateTimeMillis, DepthMarketDataEvent event) throws IOException {
+        long count = rowCount;
+        int number = (int) (count / BLOCK_ROWS);
+        if (number >= MAX_BLOCKS) {
+            return false;
+        }
+        if (number != blockNumber) {
+            mapBlock(number);
+        }
+        if (row == 0) {
+            header.putLong(INDEX_OFFSET + number * 8, timestampNanos);
+        }
+
+        MappedByteBuffer b = block;
+        int r = row;
+        b.putLong(COL_TIMESTAMP * BLOCK_ROWS + r * 8, timestampNanos);
+        b.putDouble(COL_LAST_PRICE * BLOCK_ROWS + r * 8, event.getLastPrice());
+        b.putLong(COL_VOLUME * BLOCK_ROWS + r * 8, event.getVolume());
+        b.putDouble(COL_TURNOVER * BLOCK_ROWS + r * 8, event.getTurnover());
+        b.putDouble(COL_OPEN_INTEREST * BLOCK_ROWS + r * 8, event.getOpenInterest());
+        b.putInt(COL_UPDATE_TIME * BLOCK_ROWS + r * 4, updateTimeMillis);
+
+        putPrice(b, COL_BID_PRICE, 0, r, event.getBidPrice1());
+        putPrice(b, COL_BID_PRICE, 1, r, event.getBidPrice2());
+        putPrice(b, COL_BID_PRICE, 2, r, event.getBidPrice3());
+        putPrice(b, COL_BID_PRICE, 3, r, event.getBidPrice4());
+        putPrice(b, COL_BID_PRICE, 4, r, event.getBidPrice5());
+        putPrice(b, COL_ASK_PRICE, 0, r, event.getAskPrice1());
+        putPrice(b, COL_ASK_PRICE, 1, r, event.getAskPrice2());
+        putPrice(b, COL_ASK_PRICE, 2, r, event.getAskPrice3());
+        putPrice(b, COL_ASK_PRICE, 3, r, event.getAskPrice4());
+        putPrice(b, COL_ASK_PRICE, 4, r, event.getAskPrice5());
+        putVolume(b, COL_BID_VOLUME, 0, r, event.getBidVolume1());
+        putVolume(b, COL_BID_VOLUME, 1, r, event.getBidVolume2());
+        putVolume(b, COL_BID_VOLUME, 2, r, event.getBidVolume3());
+        putVolume(b, COL_BID_VOLUME, 3, r, event.getBidVolume4());
+        putVolume(b, COL_BID_VOLUME, 4, r, event.getBidVolume5());
+        putVolume(b, COL_ASK_VOLUME, 0, r, event.getAskVolume1());
+        putVolume(b, COL_ASK_VOLUME, 1, r, event.getAskVolume2());
+        putVolume(b, COL_ASK_VOLUME, 2, r, event.getAskVolume3());
+        putVolume(b, COL_ASK_VOLUME, 3, r, event.getAskVolume4());
+        putVolume(b, COL_ASK_VOLUME, 4, r, event.getAskVolume5());
+
+        // 各列写完后再提交行数
+        row = r + 1;
+        header.putLong(ROW_COUNT_OFFSET, count + 1);
+        rowCount = count + 1;
+        return true;
+    }
+
+    private static void putPrice(MappedByteBuffer b, int column, int level, int row, double value) {
+        b.putDouble((column + level * 8) * BLOCK_ROWS + row * 8, value);
+    }
+
+    private static void putVolume(MappedByteBuffer b, int column, int level, int row, int value) {
+        b.putInt((column + level * 4) * BLOCK_ROWS + row * 4, value);
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    void close() {
+        if (block != null) {
+            block.force();
+            block = null;
+        }
+        if (header != null) {
+            header.force();
+            header = null;
+        }
+    }
+
+    /**
+     * 映射一个块，映射超出文件长度时文件随之扩展（未写入的页不占磁盘空间）。
+     * 写满的块不主动刷盘，避免行情消费线程阻塞在同步写上，由操作系统回写
+     */
+    private void mapBlock(int number) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            block = channel.map(FileChannel.MapMode.READ_WRITE, blockOffset(number), BLOCK_SIZE);
+        }
+        block.order(ByteOrder.LITTLE_ENDIAN);
+        blockNumber = number;
+        row = (int) (rowCount - (long) number * BLOCK_ROWS);
+    }
+
+    private void putAscii(int offset, int length, String value) {
+        for (int i = 0; i < length; i++) {
+            header.put(offset + i, i < value.length() ? (byte) value.charAt(i) : 0);
+        }
+    }
+
+    static long blockOffset(int number) {
+        return DATA_OFFSET + (long) number * BLOCK_SIZE;
+    }
+
+    static int blockCount(long rowCount) {
+        return (int) ((rowCount + BLOCK_ROWS - 1) / BLOCK_ROWS);
+    }
+
+    static String fileName(String instrumentId) {
+        return instrumentId + FILE_SUFFIX;
+    }
+}
@@ -3,6 +3,11 @@ package com.trading.service;
 import com.trading.config.TradingConfig;
 import com.trading.jni.FemasTraderApiMock;
 import com.trading.model.ApiResponse;
+import com.trading.model.Order;
+import com.trading.model.Trade;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,39 +16,94 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 交易服务类 - Java 8兼容
  * 封装飞马交易API，提供业务接口
+ * 每个请求生成请求ID随请求发出，响应回调按请求ID完成对应的Future；
+ * 报单另外生成报单引用，报单请求在收到本会话该报单引用的第一笔报单回报（或报单录入错误响应）时完成，
+ * 撤单请求在收到报单操作响应或该报单的撤单回报时完成。
+ * 报单引用只在同一前置、会话内唯一：生成器初值按当日时间取，登录后提高到柜台返回的最大报单引用之上，
+ * 等待回报的报单和撤单按前置编号、会话编号和报单引用匹配。
+ * 报单、成交回报写入本地报单簿（OrderBookService），报单和成交查询从报单簿返回，对账时才查询柜台
  */
 @Service
 public class TradingService extends FemasTraderApiMock {
 
     private static final Logger logger = LoggerFactory.getLogger(TradingService.class);
 
+    // 报单状态：已撤单
+    private static final char ORDER_STATUS_CANCELED = '5';
+
     @Autowired
     private TradingConfig tradingConfig;
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RequestTimeoutService requestTimeoutService;
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private PreTradeRiskService preTradeRiskService;
+
     // 请求ID生成器
     private final AtomicInteger requestIdGenerator = new AtomicInteger(1);
 
-    // 存储异步请求的Future
+    // 报单引用生成器，初值为当日已过秒数×10000，重启后不会从1开始，登录后再提高到柜台最大报单引用之上
+    private final AtomicInteger orderRefGenerator = new AtomicInteger(LocalTime.now().toSecondOfDay() * 10000);
+
+    // 存储异步请求的Future，请求完成时移除
     private final ConcurrentHashMap<Integer, CompletableFuture<ApiResponse<Object>>> pendingRequests =
             new ConcurrentHashMap<>();
 
+    // 报单键 -> 等待报单回报的下单请求ID
+    private final ConcurrentHashMap<String, Integer> orderRequests = new ConcurrentHashMap<>();
+
+    // 报单键 -> 等待响应的撤单请求ID
+    private final ConcurrentHashMap<String, Integer> actionRequests = new ConcurrentHashMap<>();
+
+    // 对账查询请求ID -> 合约代码（空字符串表示全部合约），查询结束时按合约从报单簿或持仓返回
+    private final ConcurrentHashMap<Integer, String> reconcileInstruments = new ConcurrentHashMap<>();
+
+    // 资金账户和合约查询请求ID -> 已收到的记录，最后一笔到达时整体返回
+    private final ConcurrentHashMap<Integer, List<Map<String, Object>>> queryRows = new ConcurrentHashMap<>();
+
+    // 请求类型 -> 请求往返耗时
+    private final ConcurrentHashMap<String, Timer> roundTripTimers = new ConcurrentHashMap<>();
+
     // 连接状态
     private volatile boolean isConnected = false;
     private volatile boolean isLoggedIn = false;
 
+    // 当前登录会话的前置编号和会话编号
+    private volatile int frontId;
+    private volatile int sessionId;
+
     @PostConstruct
     public void initialize() {
         logger.info("初始化交易服务...");
+        Gauge.builder("trading.pending.requests", pendingRequests, Map::size)
+                .description("等待响应的交易请求数").register(meterRegistry);
         try {
             // 创建API实例
             if (createTraderApi(tradingConfig.getFlowPath())) {
@@ -85,16 +145,16 @@ public class TradingService extends FemasTraderApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            int requestId = registerPendingRequest("login", future);
 
-            // 先进行认证
-            reqAuthenticate(
+            // 先进行认证，认证成功后以同一请求ID登录
+            completeIfNotSent(requestId, reqAuthenticate(
                 tradingConfig.getBrokerId(),
                 tradingConfig.getUserId(),
                 tradingConfig.getUserProductInfo(),
-                tradingConfig.getAuthCode()
-            );
+                tradingConfig.getAuthCode(),
+                requestId
+            ), "认证");
 
         } catch (Exception e) {
             logger.error("登录请求失败", e);
@@ -111,10 +171,10 @@ public class TradingService extends FemasTraderApiMock {
         CompletableFuture<ApiResponse<Object>> future = new CompletableFuture<>();
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            int requestId = registerPendingRequest("logout", future);
 
-            reqUserLogout(tradingConfig.getBrokerId(), tradingConfig.getUserId());
+            completeIfNotSent(requestId,
+                    reqUserLogout(tradingConfig.getBrokerId(), tradingConfig.getUserId(), requestId), "登出");
 
         } catch (Exception e) {
             logger.error("登出请求失败", e);
@@ -125,7 +185,7 @@ public class TradingService extends FemasTraderApiMock {
     }
 
     /**
-     * 下单
+     * 下单，先经过事前风控
      */
     public CompletableFuture<ApiResponse<Object>> placeOrder(String instrumentId,
                                                            char direction,
@@ -139,16 +199,40 @@ public class TradingService extends FemasTraderApiMock {
             return future;
         }
 
-        try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+        // 事前风控，拒绝的报单不发往柜台，也不进入报单簿
+        String rejectReason = preTradeRiskService.check(instrumentId, direction, offsetFlag, price, volume);
+        if (rejectReason != null) {
+            logger.warn("报单未通过风控: {} - {}", instrumentId, rejectReason);
+            future.complete(ApiResponse.error(PreTradeRiskService.REJECT_CODE, "风控拒绝: " + rejectReason));
+            return future;
+        }
 
-            reqOrderInsert(instrumentId, direction, offsetFlag, price, volume,
-                          '2', '3', '1'); // 限价单，当日有效，任何数量
+        String orderRef = null;
+        try {
+            int requestId = registerPendingRequest("order_insert", future);
+            orderRef = String.format("%012d", orderRefGenerator.getAndIncrement());
+            String orderKey = OrderBookService.orderKey(frontId, sessionId, orderRef);
+            orderBookService.onOrderInsert(orderRef, instrumentId, direction, offsetFlag, price, volume);
+            // 报单已计入报单簿的未成交开仓，释放风控预留的额度
+            preTradeRiskService.release();
+            orderRequests.put(orderKey, requestId);
+            future.whenComplete((response, e) -> orderRequests.remove(orderKey, requestId));
+
+            int result = reqOrderInsert(instrumentId, direction, offsetFlag, price, volume,
+                          '2', '3', '1', orderRef, requestId); // 限价单，当日有效，任何数量
+            if (result != 0) {
+                orderBookService.onOrderRejected(orderRef, "报单发送失败: " + result);
+            }
+            completeIfNotSent(requestId, result, "下单");
 
         } catch (Exception e) {
             logger.error("下单请求失败", e);
+            if (orderRef != null) {
+                orderBookService.onOrderRejected(orderRef, "下单请求失败: " + e.getMessage());
+            }
             future.complete(ApiResponse.error("下单请求失败: " + e.getMessage()));
+        } finally {
+            preTradeRiskService.release();
         }
 
         return future;
@@ -168,10 +252,15 @@ public class TradingService extends FemasTraderApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            int requestId = registerPendingRequest("order_action", future);
+            String orderKey = OrderBookService.orderKey(frontId, sessionId, orderRef);
+            if (actionRequests.putIfAbsent(orderKey, requestId) != null) {
+                completePendingRequest(requestId, ApiResponse.error("该报单的撤单请求正在处理中"));
+                return future;
+            }
+            future.whenComplete((response, e) -> actionRequests.remove(orderKey, requestId));
 
-            reqOrderAction(orderRef, frontId, sessionId, '0'); // 撤单
+            completeIfNotSent(requestId, reqOrderAction(orderRef, frontId, sessionId, '0', requestId), "撤单"); // 撤单
 
         } catch (Exception e) {
             logger.error("撤单请求失败", e);
@@ -198,94 +287,286 @@ public class TradingService extends FemasTraderApiMock {
         isConnected = false;
         isLoggedIn = false;
 
+        // 连接断开后不会再收到响应
+        positionService.abortReconciles();
+        completeAllPendingRequests(ApiResponse.error("交易前置机连接断开"));
+
         // 通知前端连接状态
         messagingTemplate.convertAndSend("/topic/connection",
             ApiResponse.error("交易前置机连接断开"));
     }
 
     @Override
-    public void onRspAuthenticate(String authCode, int errorId, String errorMsg) {
+    public void onRspAuthenticate(String authCode, int errorId, String errorMsg, int requestId) {
         if (errorId == 0) {
             logger.info("认证成功，开始登录");
             // 认证成功后进行登录
-            reqUserLogin(
+            completeIfNotSent(requestId, reqUserLogin(
                 tradingConfig.getBrokerId(),
                 tradingConfig.getUserId(),
-                tradingConfig.getPassword()
-            );
+                tradingConfig.getPassword(),
+                requestId
+            ), "登录");
         } else {
             logger.error("认证失败: {} - {}", errorId, errorMsg);
-            // 完成所有等待认证的请求
-            completeAllPendingRequests(ApiResponse.error(errorId, "认证失败: " + errorMsg));
+            completePendingRequest(requestId, ApiResponse.error(errorId, "认证失败: " + errorMsg));
         }
     }
 
     @Override
     public void onRspUserLogin(String tradingDay, String loginTime,
                               String brokerId, String userId,
-                              int errorId, String errorMsg) {
+                              int frontId, int sessionId, String maxOrderRef,
+                              int errorId, String errorMsg, int requestId) {
         if (errorId == 0) {
-            logger.info("登录成功 - 交易日: {}, 登录时间: {}", tradingDay, loginTime);
+            logger.info("登录成功 - 交易日: {}, 登录时间: {}, 前置编号: {}, 会话编号: {}, 最大报单引用: {}",
+                    tradingDay, loginTime, frontId, sessionId, maxOrderRef);
+            orderBookService.setTradingDay(tradingDay);
+            positionService.setTradingDay(tradingDay);
+            this.frontId = frontId;
+            this.sessionId = sessionId;
+            orderBookService.setSession(frontId, sessionId);
+            advanceOrderRef(maxOrderRef);
             isLoggedIn = true;
 
             // 完成登录请求
-            completeAllPendingRequests(ApiResponse.success("登录成功", null));
+            completePendingRequest(requestId, ApiResponse.success("登录成功", null));
 
             // 通知前端登录状态
             messagingTemplate.convertAndSend("/topic/login",
                 ApiResponse.success("登录成功", null));
         } else {
             logger.error("登录失败: {} - {}", errorId, errorMsg);
-            completeAllPendingRequests(ApiResponse.error(errorId, "登录失败: " + errorMsg));
+            completePendingRequest(requestId, ApiResponse.error(errorId, "登录失败: " + errorMsg));
+        }
+    }
+
+    @Override
+    public void onRspUserLogout(String brokerId, String userId,
+                               int errorId, String errorMsg, int requestId) {
+        if (errorId == 0) {
+            logger.info("登出成功 - 用户: {}", userId);
+            isLoggedIn = false;
+            completePendingRequest(requestId, ApiResponse.success("登出成功", null));
+        } else {
+            logger.error("登出失败: {} - {}", errorId, errorMsg);
+            completePendingRequest(requestId, ApiResponse.error(errorId, "登出失败: " + errorMsg));
         }
     }
 
     @Override
-    public void onRtnOrder(String orderSysId, String orderRef, String instrumentId,
+    public void onRspOrderInsert(String orderRef, int errorId, String errorMsg, int requestId) {
+        if (errorId != 0) {
+            logger.error("报单被拒绝: {} - {} - {}", orderRef, errorId, errorMsg);
+            Order order = orderBookService.onOrderRejected(orderRef, errorMsg);
+            completePendingRequest(requestId, ApiResponse.error(errorId, "报单被拒绝: " + errorMsg));
+            if (order != null) {
+                messagingTemplate.convertAndSend("/topic/orders", ApiResponse.success("报单回报", order));
+            }
+        }
+    }
+
+    @Override
+    public void onRspOrderAction(String orderRef, int errorId, String errorMsg, int requestId) {
+        if (errorId == 0) {
+            completePendingRequest(requestId, ApiResponse.success("撤单成功", null));
+        } else {
+            logger.error("撤单失败: {} - {} - {}", orderRef, errorId, errorMsg);
+            completePendingRequest(requestId, ApiResponse.error(errorId, "撤单失败: " + errorMsg));
+        }
+    }
+
+    @Override
+    public void onRspQryInvestorPosition(String instrumentId, char posiDirection, int position,
+                                        int todayPosition, int ydPosition, double openCost,
+                                        int errorId, String errorMsg, int requestId, boolean isLast) {
+        if (errorId != 0) {
+            logger.error("对账查询持仓失败: {} - {}", errorId, errorMsg);
+            positionService.abortReconcile(requestId);
+            completePendingRequest(requestId, ApiResponse.error(errorId, "查询持仓失败: " + errorMsg));
+            return;
+        }
+        String filter = reconcileInstruments.get(requestId);
+        if (instrumentId != null) {
+            positionService.reconcile(requestId, filter, instrumentId, posiDirection, position,
+                    todayPosition, ydPosition, openCost);
+        }
+        if (isLast) {
+            positionService.finishReconcile(requestId, filter);
+            if (filter != null) {
+                completePendingRequest(requestId, ApiResponse.success("查询持仓成功", positionService.getPositions(filter)));
+            }
+        }
+    }
+
+    @Override
+    public void onRspQryTradingAccount(String accountId, double preBalance, double available,
+                                      double margin, double frozenMargin, double fee,
+                                      double closeProfit, double positionProfit, double dynamicRights,
+                                      int errorId, String errorMsg, int requestId, boolean isLast) {
+        if (errorId != 0) {
+            logger.error("查询资金账户失败: {} - {}", errorId, errorMsg);
+            completePendingRequest(requestId, ApiResponse.error(errorId, "查询资金账户失败: " + errorMsg));
+            return;
+        }
+        List<Map<String, Object>> rows = queryRows.get(requestId);
+        if (rows != null && accountId != null) {
+            Map<String, Object> account = new LinkedHashMap<>();
+            account.put("accountId", accountId);
+            account.put("preBalance", preBalance);
+            account.put("available", available);
+            account.put("margin", margin);
+            account.put("frozenMargin", frozenMargin);
+            account.put("fee", fee);
+            account.put("closeProfit", closeProfit);
+            account.put("positionProfit", positionProfit);
+            account.put("dynamicRights", dynamicRights);
+            rows.add(account);
+        }
+        if (isLast && rows != null) {
+            if (rows.isEmpty()) {
+                completePendingRequest(requestId, ApiResponse.error("查询资金账户失败: 柜台未返回资金账户"));
+            } else {
+                completePendingRequest(requestId, ApiResponse.success("查询资金账户成功", rows.get(0)));
+            }
+        }
+    }
+
+    @Override
+    public void onRspQryInstrument(String instrumentId, String instrumentName, String exchangeId,
+                                  String productId, double priceTick, int volumeMultiple,
+                                  int errorId, String errorMsg, int requestId, boolean isLast) {
+        if (errorId != 0) {
+            logger.error("查询合约失败: {} - {}", errorId, errorMsg);
+            completePendingRequest(requestId, ApiResponse.error(errorId, "查询合约失败: " + errorMsg));
+            return;
+        }
+        if (instrumentId != null && volumeMultiple > 0) {
+            positionService.registerVolumeMultiple(instrumentId, volumeMultiple);
+        }
+        List<Map<String, Object>> rows = queryRows.get(requestId);
+        if (rows != null && instrumentId != null) {
+            Map<String, Object> instrument = new LinkedHashMap<>();
+            instrument.put("instrumentId", instrumentId);
+            instrument.put("instrumentName", instrumentName);
+            instrument.put("exchangeId", exchangeId);
+            instrument.put("productId", productId);
+            instrument.put("priceTick", priceTick);
+            instrument.put("volumeMultiple", volumeMultiple);
+            rows.add(instrument);
+        }
+        if (isLast && rows != null) {
+            completePendingRequest(requestId, ApiResponse.success("查询合约成功", new ArrayList<>(rows)));
+        }
+    }
+
+    @Override
+    public void onRspQryOrder(String orderSysId, int frontId, int sessionId, String orderRef, String instrumentId,
+                             char direction, char offsetFlag, double price,
+                             int volume, int volumeTraded, char orderStatus,
+                             int errorId, String errorMsg, int requestId, boolean isLast) {
+        if (errorId != 0) {
+            logger.error("对账查询报单失败: {} - {}", errorId, errorMsg);
+            completePendingRequest(requestId, ApiResponse.error(errorId, "查询报单失败: " + errorMsg));
+            return;
+        }
+        if (orderRef != null || orderSysId != null) {
+            orderBookService.onOrder(orderSysId, frontId, sessionId, orderRef, instrumentId, direction, offsetFlag,
+                    price, volume, volumeTraded, orderStatus);
+        }
+        if (isLast) {
+            String filter = reconcileInstruments.get(requestId);
+            if (filter != null) {
+                completePendingRequest(requestId, ApiResponse.success("查询报单成功", orderBookService.getOrders(filter)));
+            }
+        }
+    }
+
+    @Override
+    public void onRspQryTrade(String tradeId, String orderSysId, String orderRef, String instrumentId,
+                             char direction, char offsetFlag, double price,
+                             int volume, String tradeTime,
+                             int errorId, String errorMsg, int requestId, boolean isLast) {
+        if (errorId != 0) {
+            logger.error("对账查询成交失败: {} - {}", errorId, errorMsg);
+            completePendingRequest(requestId, ApiResponse.error(errorId, "查询成交失败: " + errorMsg));
+            return;
+        }
+        // 历史成交只写入报单簿，持仓以持仓查询结果为准
+        if (tradeId != null) {
+            orderBookService.onTrade(tradeId, orderSysId, orderRef, instrumentId, direction, offsetFlag,
+                    price, volume, tradeTime);
+        }
+        if (isLast) {
+            String filter = reconcileInstruments.get(requestId);
+            if (filter != null) {
+                completePendingRequest(requestId, ApiResponse.success("查询成交成功", orderBookService.getTrades(filter)));
+            }
+        }
+    }
+
+    @Override
+    public void onRspError(int errorId, String errorMsg, int requestId) {
+        logger.error("请求错误: {} - {} - {}", requestId, errorId, errorMsg);
+        completePendingRequest(requestId, ApiResponse.error(errorId, errorMsg));
+    }
+
+    @Override
+    public void onRtnOrder(String orderSysId, int frontId, int sessionId, String orderRef, String instrumentId,
                           char direction, char offsetFlag, double price,
                           int volume, char orderStatus) {
         logger.info("报单回报: {} - {} - 状态: {}", orderSysId, instrumentId, orderStatus);
 
-        // 构造报单数据并推送给前端
-        ConcurrentHashMap<String, Object> orderData = new ConcurrentHashMap<>();
-        orderData.put("orderSysId", orderSysId);
-        orderData.put("orderRef", orderRef);
-        orderData.put("instrumentId", instrumentId);
-        orderData.put("direction", direction);
-        orderData.put("offsetFlag", offsetFlag);
-        orderData.put("price", price);
-        orderData.put("volume", volume);
-        orderData.put("orderStatus", orderStatus);
+        // 写入报单簿，推送报单簿中的报单状态
+        Order order = orderBookService.onOrder(orderSysId, frontId, sessionId, orderRef, instrumentId,
+                direction, offsetFlag, price, volume, -1, orderStatus);
+
+        // 第一笔报单回报说明报单已被受理
+        String orderKey = OrderBookService.orderKey(frontId, sessionId, orderRef);
+        Integer requestId = orderRequests.remove(orderKey);
+        if (requestId != null) {
+            completePendingRequest(requestId, ApiResponse.success("报单已受理", order));
+        }
+        if (orderStatus == ORDER_STATUS_CANCELED) {
+            requestId = actionRequests.remove(orderKey);
+            if (requestId != null) {
+                completePendingRequest(requestId, ApiResponse.success("撤单成功", order));
+            }
+        }
 
         messagingTemplate.convertAndSend("/topic/orders",
-            ApiResponse.success("报单回报", orderData));
+            ApiResponse.success("报单回报", order));
     }
 
     @Override
-    public void onRtnTrade(String tradeId, String orderRef, String instrumentId,
+    public void onRtnTrade(String tradeId, String orderSysId, String orderRef, String instrumentId,
                           char direction, char offsetFlag, double price,
                           int volume, String tradeTime) {
         logger.info("成交回报: {} - {} - 价格: {} - 数量: {}", tradeId, instrumentId, price, volume);
 
-        // 构造成交数据并推送给前端
-        ConcurrentHashMap<String, Object> tradeData = new ConcurrentHashMap<>();
-        tradeData.put("tradeId", tradeId);
-        tradeData.put("orderRef", orderRef);
-        tradeData.put("instrumentId", instrumentId);
-        tradeData.put("direction", direction);
-        tradeData.put("offsetFlag", offsetFlag);
-        tradeData.put("price", price);
-        tradeData.put("volume", volume);
-        tradeData.put("tradeTime", tradeTime);
+        // 写入报单簿，重复的成交回报不再推送
+        Trade trade = orderBookService.onTrade(tradeId, orderSysId, orderRef, instrumentId, direction, offsetFlag,
+                price, volume, tradeTime);
+        if (trade == null) {
+            logger.debug("忽略重复的成交回报: {}", tradeId);
+            return;
+        }
+        positionService.onTrade(trade);
 
         messagingTemplate.convertAndSend("/topic/trades",
-            ApiResponse.success("成交回报", tradeData));
+            ApiResponse.success("成交回报", trade));
     }
 
     /**
-     * 查询持仓
+     * 查询持仓，从持仓盈亏服务返回
+     * @param reconcile 是否向柜台对账，对账时以柜台的持仓覆盖本地持仓，再从本地返回
      */
-    public CompletableFuture<ApiResponse<Object>> queryPosition(String instrumentId) {
+    public CompletableFuture<ApiResponse<Object>> queryPosition(String instrumentId, boolean reconcile) {
+        if (!reconcile) {
+            return CompletableFuture.completedFuture(
+                ApiResponse.success("查询持仓成功", positionService.getPositions(instrumentId)));
+        }
+
         CompletableFuture<ApiResponse<Object>> future = new CompletableFuture<>();
 
         if (!isLoggedIn) {
@@ -294,14 +575,16 @@ public class TradingService extends FemasTraderApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            int requestId = registerPendingRequest("qry_position", future);
+            reconcileInstruments.put(requestId, instrumentId != null ? instrumentId : "");
+            future.whenComplete((response, e) -> reconcileInstruments.remove(requestId));
 
-            reqQryInvestorPosition(
+            completeIfNotSent(requestId, reqQryInvestorPosition(
                 tradingConfig.getBrokerId(),
                 tradingConfig.getInvestorId(),
-                instrumentId != null ? instrumentId : ""
-            );
+                instrumentId != null ? instrumentId : "",
+                requestId
+            ), "查询持仓");
 
         } catch (Exception e) {
             logger.error("查询持仓请求失败", e);
@@ -323,13 +606,15 @@ public class TradingService extends FemasTraderApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            int requestId = registerPendingRequest("qry_account", future);
+            queryRows.put(requestId, Collections.synchronizedList(new ArrayList<>()));
+            future.whenComplete((response, e) -> queryRows.remove(requestId));
 
-            reqQryTradingAccount(
+            completeIfNotSent(requestId, reqQryTradingAccount(
                 tradingConfig.getBrokerId(),
-                tradingConfig.getInvestorId()
-            );
+                tradingConfig.getInvestorId(),
+                requestId
+            ), "查询资金账户");
 
         } catch (Exception e) {
             logger.error("查询资金账户请求失败", e);
@@ -340,9 +625,15 @@ public class TradingService extends FemasTraderApiMock {
     }
 
     /**
-     * 查询报单
+     * 查询报单，从报单簿返回
+     * @param reconcile 是否向柜台对账，对账时柜台的报单先合并到报单簿，再从报单簿返回
      */
-    public CompletableFuture<ApiResponse<Object>> queryOrders(String instrumentId) {
+    public CompletableFuture<ApiResponse<Object>> queryOrders(String instrumentId, boolean reconcile) {
+        if (!reconcile) {
+            return CompletableFuture.completedFuture(
+                ApiResponse.success("查询报单成功", orderBookService.getOrders(instrumentId)));
+        }
+
         CompletableFuture<ApiResponse<Object>> future = new CompletableFuture<>();
 
         if (!isLoggedIn) {
@@ -351,14 +642,16 @@ public class TradingService extends FemasTraderApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            int requestId = registerPendingRequest("qry_order", future);
+            reconcileInstruments.put(requestId, instrumentId != null ? instrumentId : "");
+            future.whenComplete((response, e) -> reconcileInstruments.remove(requestId));
 
-            reqQryOrder(
+            completeIfNotSent(requestId, reqQryOrder(
                 tradingConfig.getBrokerId(),
                 tradingConfig.getInvestorId(),
-                instrumentId != null ? instrumentId : ""
-            );
+                instrumentId != null ? instrumentId : "",
+                requestId
+            ), "查询报单");
 
         } catch (Exception e) {
             logger.error("查询报单请求失败", e);
@@ -369,9 +662,15 @@ public class TradingService extends FemasTraderApiMock {
     }
 
     /**
-     * 查询成交
+     * 查询成交，从报单簿返回
+     * @param reconcile 是否向柜台对账，对账时柜台的成交先合并到报单簿，再从报单簿返回
      */
-    public CompletableFuture<ApiResponse<Object>> queryTrades(String instrumentId) {
+    public CompletableFuture<ApiResponse<Object>> queryTrades(String instrumentId, boolean reconcile) {
+        if (!reconcile) {
+            return CompletableFuture.completedFuture(
+                ApiResponse.success("查询成交成功", orderBookService.getTrades(instrumentId)));
+        }
+
         CompletableFuture<ApiResponse<Object>> future = new CompletableFuture<>();
 
         if (!isLoggedIn) {
@@ -380,14 +679,16 @@ public class TradingService extends FemasTraderApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            int requestId = registerPendingRequest("qry_trade", future);
+            reconcileInstruments.put(requestId, instrumentId != null ? instrumentId : "");
+            future.whenComplete((response, e) -> reconcileInstruments.remove(requestId));
 
-            reqQryTrade(
+            completeIfNotSent(requestId, reqQryTrade(
                 tradingConfig.getBrokerId(),
                 tradingConfig.getInvestorId(),
-                instrumentId != null ? instrumentId : ""
-            );
+                instrumentId != null ? instrumentId : "",
+                requestId
+            ), "查询成交");
 
         } catch (Exception e) {
             logger.error("查询成交请求失败", e);
@@ -409,10 +710,11 @@ public class TradingService extends FemasTraderApiMock {
         }
 
         try {
-            int requestId = requestIdGenerator.getAndIncrement();
-            pendingRequests.put(requestId, future);
+            int requestId = registerPendingRequest("qry_instrument", future);
+            queryRows.put(requestId, Collections.synchronizedList(new ArrayList<>()));
+            future.whenComplete((response, e) -> queryRows.remove(requestId));
 
-            reqQryInstrument(instrumentId);
+            completeIfNotSent(requestId, reqQryInstrument(instrumentId, requestId), "查询合约");
 
         } catch (Exception e) {
             logger.error("查询合约请求失败", e);
@@ -423,15 +725,75 @@ public class TradingService extends FemasTraderApiMock {
     }
 
     /**
-     * 完成所有等待的请求
+     * 登记等待响应的请求并按请求类型登记超时，请求完成（含超时）时记录往返耗时
+     * @param type 请求类型，作为往返耗时指标的标签
+     * @return 请求ID
      */
-    private void completeAllPendingRequests(ApiResponse<Object> response) {
-        pendingRequests.values().forEach(future -> {
-            if (!future.isDone()) {
-                future.complete(response);
-            }
+    private int registerPendingRequest(String type, CompletableFuture<ApiResponse<Object>> future) {
+        int requestId = requestIdGenerator.getAndIncrement();
+        long start = System.nanoTime();
+        Timer timer = roundTripTimers.computeIfAbsent(type, k -> Timer.builder("trading.request.round.trip")
+                .tag("type", k).description("交易请求从发出到收到响应的耗时").register(meterRegistry));
+        pendingRequests.put(requestId, future);
+        future.whenComplete((response, e) -> {
+            pendingRequests.remove(requestId, future);
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         });
-        pendingRequests.clear();
+        requestTimeoutService.watch("trading", type, future);
+        return requestId;
+    }
+
+    /**
+     * 按请求ID完成等待的请求，请求已完成或不存在时忽略
+     */
+    private void completePendingRequest(int requestId, ApiResponse<Object> response) {
+        CompletableFuture<ApiResponse<Object>> future = pendingRequests.get(requestId);
+        if (future != null) {
+            future.complete(response);
+        } else {
+            logger.debug("收到未知请求的响应: {}", requestId);
+        }
+    }
+
+    /**
+     * 请求发送失败时（API返回非0）直接完成请求，不会再有响应
+     */
+    private void completeIfNotSent(int requestId, int result, String action) {
+        if (result != 0) {
+            logger.error("{}请求发送失败: {} - 返回值 {}", action, requestId, result);
+            completePendingRequest(requestId, ApiResponse.error(action + "请求发送失败: " + result));
+        }
+    }
+
+    /**
+     * 报单引用生成器提高到登录响应的最大报单引用之上，避免与重启前或其他终端当日的报单引用重复
+     */
+    private void advanceOrderRef(String maxOrderRef) {
+        if (maxOrderRef == null || maxOrderRef.trim().isEmpty()) {
+            return;
+        }
+        long next;
+        try {
+            next = Long.parseLong(maxOrderRef.trim()) + 1;
+        } catch (NumberFormatException e) {
+            logger.warn("最大报单引用不是数字，按当日时间生成报单引用: {}", maxOrderRef);
+            return;
+        }
+        if (next > Integer.MAX_VALUE) {
+            logger.error("最大报单引用超出范围: {}", maxOrderRef);
+            return;
+        }
+        int previous = orderRefGenerator.getAndAccumulate((int) next, Math::max);
+        if (previous < next) {
+            logger.info("报单引用从 {} 提高到 {}", previous, next);
+        }
+    }
+
+    /**
+     * 完成所有等待的请求，用于连接断开
+     */
+    private void completeAllPendingRequests(ApiResponse<Object> response) {
+        pendingRequests.values().forEach(future -> future.complete(response));
     }
 
     // Getters
@@ -442,4 +804,12 @@ public class TradingService extends FemasTraderApiMock {
     public boolean isLoggedIn() {
         return isLoggedIn;
     }
+
+    public int getFrontId() {
+        return frontId;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
 }
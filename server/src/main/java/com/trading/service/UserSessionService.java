@@ -1,8 +1,11 @@
 package com.trading.service;
 
 import com.trading.model.UserSession;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
@@ -10,6 +13,7 @@ import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -18,11 +22,23 @@ import java.util.stream.Collectors;
 /**
  * 用户会话管理服务
  * 管理前端用户的登录状态、权限和订阅信息
+ *
+ * 维护交易所/合约到订阅会话的倒排索引，由订阅更新和会话移除增量维护，
+ * 推送时按交易所或合约查找订阅者无需扫描全部会话。
  */
 @Service
 public class UserSessionService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserSessionService.class);
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ExchangeResolver exchangeResolver;
+
+    // 交易所订阅指标中未登记交易所的标签值
+    private static final String OTHER_EXCHANGE_TAG = "other";
 
     // 会话存储 - sessionId -> UserSession
     private final ConcurrentHashMap<String, UserSession> sessions = new ConcurrentHashMap<>();
@@ -33,6 +49,16 @@ public class UserSessionService {
     // 客户端ID到会话ID的映射 - clientId -> sessionId
     private final ConcurrentHashMap<String, String> clientSessions = new ConcurrentHashMap<>();
     
+    // 订阅倒排索引 - exchangeId / instrumentId -> 订阅会话，订阅变更少、查找频繁，使用写时复制集合
+    private final ConcurrentHashMap<String, Set<UserSession>> exchangeSubscribers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<UserSession>> instrumentSubscribers = new ConcurrentHashMap<>();
+    
+    // 订阅索引更新锁，保证会话订阅与倒排索引一致
+    private final Object subscriptionLock = new Object();
+
+    // 已注册订阅会话数指标的交易所
+    private final Set<String> gaugedExchanges = ConcurrentHashMap.newKeySet();
+    
     // 会话清理任务
     private ScheduledExecutorService cleanupExecutor;
     
@@ -58,6 +84,17 @@ public class UserSessionService {
             TimeUnit.MINUTES
         );
         
+        Gauge.builder("sessions.active", sessions, Map::size)
+                .description("活跃会话数").register(meterRegistry);
+        Gauge.builder("sessions.users", userSessions, Map::size)
+                .description("在线用户数").register(meterRegistry);
+        Gauge.builder("sessions.clients", clientSessions, Map::size)
+                .description("在线客户端数").register(meterRegistry);
+        Gauge.builder("sessions.subscribed.instruments", instrumentSubscribers, Map::size)
+                .description("被订阅的合约数").register(meterRegistry);
+        Gauge.builder("sessions.exchange.subscribers", exchangeSubscribers, this::countOtherExchangeSubscribers)
+                .tag("exchange", OTHER_EXCHANGE_TAG).description("订阅交易所行情的会话数").register(meterRegistry);
+        
         logger.info("用户会话管理服务初始化完成");
     }
     
@@ -142,6 +179,19 @@ public class UserSessionService {
             return false;
         }
         
+        // 已移除的会话不再参与推送
+        session.setActive(false);
+        
+        // 从订阅索引中移除
+        synchronized (subscriptionLock) {
+            for (String exchange : session.getSubscribedExchanges()) {
+                unindex(exchangeSubscribers, exchange, session);
+            }
+            for (String instrument : session.getSubscribedInstruments()) {
+                unindex(instrumentSubscribers, instrument, session);
+            }
+        }
+        
         // 从用户会话映射中移除
         Set<String> userSessionIds = userSessions.get(session.getUsername());
         if (userSessionIds != null) {
@@ -197,16 +247,41 @@ public class UserSessionService {
             return false;
         }
         
-        // 清空现有订阅
-        session.getSubscribedExchanges().clear();
-        session.getSubscribedInstruments().clear();
+        Set<String> newExchanges = exchanges != null ? exchanges : Collections.emptySet();
+        Set<String> newInstruments = instruments != null ? instruments : Collections.emptySet();
         
-        // 添加新订阅
-        if (exchanges != null) {
-            exchanges.forEach(session::addSubscribedExchange);
-        }
-        if (instruments != null) {
-            instruments.forEach(session::addSubscribedInstrument);
+        // 只对增减的订阅更新会话和倒排索引
+        synchronized (subscriptionLock) {
+            if (!sessions.containsKey(sessionId)) {
+                return false;
+            }
+            for (String exchange : session.getSubscribedExchanges()) {
+                if (!newExchanges.contains(exchange)) {
+                    session.removeSubscribedExchange(exchange);
+                    unindex(exchangeSubscribers, exchange, session);
+                }
+            }
+            for (String exchange : newExchanges) {
+                if (!session.isSubscribedToExchange(exchange)) {
+                    session.addSubscribedExchange(exchange);
+                    if (exchangeResolver.isKnownExchange(exchange) && gaugedExchanges.add(exchange)) {
+                        bindExchangeGauge(exchange);
+                    }
+                    index(exchangeSubscribers, exchange, session);
+                }
+            }
+            for (String instrument : session.getSubscribedInstruments()) {
+                if (!newInstruments.contains(instrument)) {
+                    session.removeSubscribedInstrument(instrument);
+                    unindex(instrumentSubscribers, instrument, session);
+                }
+            }
+            for (String instrument : newInstruments) {
+                if (!session.isSubscribedToInstrument(instrument)) {
+                    session.addSubscribedInstrument(instrument);
+                    index(instrumentSubscribers, instrument, session);
+                }
+            }
         }
         
         logger.info("更新会话订阅: sessionId={}, exchanges={}, instruments={}", 
@@ -219,18 +294,32 @@ public class UserSessionService {
      * 获取订阅了指定交易所的所有会话
      */
     public List<UserSession> getSessionsByExchange(String exchange) {
-        return sessions.values().stream()
-                .filter(session -> session.isActive() && session.isSubscribedToExchange(exchange))
-                .collect(Collectors.toList());
+        return activeOf(exchangeSubscribers.get(exchange));
     }
     
     /**
      * 获取订阅了指定合约的所有会话
      */
     public List<UserSession> getSessionsByInstrument(String instrument) {
-        return sessions.values().stream()
-                .filter(session -> session.isActive() && session.isSubscribedToInstrument(instrument))
-                .collect(Collectors.toList());
+        return activeOf(instrumentSubscribers.get(instrument));
+    }
+    
+    /**
+     * 订阅了指定交易所的会话（只读视图，不复制）
+     * 推送热路径使用，调用方需自行检查会话是否活跃
+     */
+    public Collection<UserSession> getExchangeSubscribers(String exchange) {
+        Set<UserSession> subscribers = exchange != null ? exchangeSubscribers.get(exchange) : null;
+        return subscribers != null ? Collections.unmodifiableSet(subscribers) : Collections.emptySet();
+    }
+    
+    /**
+     * 订阅了指定合约的会话（只读视图，不复制）
+     * 推送热路径使用，调用方需自行检查会话是否活跃
+     */
+    public Collection<UserSession> getInstrumentSubscribers(String instrument) {
+        Set<UserSession> subscribers = instrument != null ? instrumentSubscribers.get(instrument) : null;
+        return subscribers != null ? Collections.unmodifiableSet(subscribers) : Collections.emptySet();
     }
     
     /**
@@ -248,16 +337,16 @@ public class UserSessionService {
     public Map<String, Object> getSessionStats() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalSessions", sessions.size());
-        stats.put("activeSessions", getActiveSessions().size());
+        // 会话在移除时才置为非活跃，会话表中的会话都是活跃的
+        stats.put("activeSessions", sessions.size());
         stats.put("uniqueUsers", userSessions.size());
         stats.put("connectedClients", clientSessions.size());
         
-        // 按交易所统计订阅数
-        Map<String, Long> exchangeStats = sessions.values().stream()
-                .filter(UserSession::isActive)
-                .flatMap(session -> session.getSubscribedExchanges().stream())
-                .collect(Collectors.groupingBy(exchange -> exchange, Collectors.counting()));
+        // 按交易所统计订阅数，倒排索引中只有未移除的会话
+        Map<String, Integer> exchangeStats = new HashMap<>();
+        exchangeSubscribers.forEach((exchange, subscribers) -> exchangeStats.put(exchange, subscribers.size()));
         stats.put("exchangeSubscriptions", exchangeStats);
+        stats.put("subscribedInstruments", instrumentSubscribers.size());
         
         return stats;
     }
@@ -281,6 +370,56 @@ public class UserSessionService {
         }
     }
     
+    /**
+     * 注册交易所订阅会话数指标，已登记的交易所首次被订阅时调用；
+     * 交易所代码来自客户端，未登记的交易所不单独注册，统一计入 other，指标数不随客户端输入增长
+     */
+    private void bindExchangeGauge(String exchange) {
+        Gauge.builder("sessions.exchange.subscribers", exchangeSubscribers,
+                        subscribers -> {
+                            Set<UserSession> keySubscribers = subscribers.get(exchange);
+                            return keySubscribers != null ? keySubscribers.size() : 0;
+                        })
+                .tag("exchange", exchange).description("订阅交易所行情的会话数").register(meterRegistry);
+    }
+    
+    private double countOtherExchangeSubscribers(Map<String, Set<UserSession>> subscribers) {
+        int count = 0;
+        for (Map.Entry<String, Set<UserSession>> entry : subscribers.entrySet()) {
+            if (!gaugedExchanges.contains(entry.getKey())) {
+                count += entry.getValue().size();
+            }
+        }
+        return count;
+    }
+
+    private static void index(ConcurrentHashMap<String, Set<UserSession>> subscribers, String key, UserSession session) {
+        subscribers.computeIfAbsent(key, k -> new CopyOnWriteArraySet<>()).add(session);
+    }
+    
+    private static void unindex(ConcurrentHashMap<String, Set<UserSession>> subscribers, String key, UserSession session) {
+        Set<UserSession> keySubscribers = subscribers.get(key);
+        if (keySubscribers != null) {
+            keySubscribers.remove(session);
+            if (keySubscribers.isEmpty()) {
+                subscribers.remove(key, keySubscribers);
+            }
+        }
+    }
+    
+    private static List<UserSession> activeOf(Set<UserSession> subscribers) {
+        if (subscribers == null) {
+            return Collections.emptyList();
+        }
+        List<UserSession> result = new ArrayList<>(subscribers.size());
+        for (UserSession session : subscribers) {
+            if (session.isActive()) {
+                result.add(session);
+            }
+        }
+        return result;
+    }
+    
     /**
      * 生成会话ID
      */
@@ -0,0 +1,39 @@
+package com.trading.service.risk;
+
+import com.trading.config.TradingConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 误操作检查，报单价格偏离最新价超过 trading.risk.max-price-deviation 时拒绝，没有行情时跳过
+ */
+@Component
+@Order(30)
+public class FatFingerCheck implements RiskCheck {
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Override
+    public String getName() {
+        return "fat_finger";
+    }
+
+    @Override
+    public String check(RiskContext context) {
+        double maxDeviation = tradingConfig.getRisk().getMaxPriceDeviation();
+        if (maxDeviation <= 0 || !context.hasMarketData()) {
+            return null;
+        }
+        double lastPrice = context.getMarketData().getLastPrice();
+        if (lastPrice <= 0) {
+            return null;
+        }
+        double deviation = Math.abs(context.getPrice() - lastPrice) / lastPrice;
+        if (deviation > maxDeviation) {
+            return "报单价格 " + context.getPrice() + " 偏离最新价 " + lastPrice + " 超过 " + (maxDeviation * 100) + "%";
+        }
+        return null;
+    }
+}
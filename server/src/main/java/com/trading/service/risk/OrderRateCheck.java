@@ -0,0 +1,97 @@
+package com.trading.service.risk;
+
+import com.trading.config.TradingConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 报单频率检查，总报单数和单合约报单数分别按令牌桶限流，桶容量为每秒上限，即最多允许一秒的突发。
+ * 放在风控链最后，被其他检查项拒绝的报单不占用令牌；合约令牌取得后总报单数被拒绝时退回合约令牌。
+ */
+@Component
+@Order(100)
+public class OrderRateCheck implements RiskCheck {
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    private TokenBucket globalBucket;
+
+    // 合约 -> 令牌桶
+    private final ConcurrentHashMap<String, TokenBucket> instrumentBuckets = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        int maxOrdersPerSecond = tradingConfig.getRisk().getMaxOrdersPerSecond();
+        globalBucket = maxOrdersPerSecond > 0 ? new TokenBucket(maxOrdersPerSecond) : null;
+    }
+
+    @Override
+    public String getName() {
+        return "order_rate";
+    }
+
+    @Override
+    public String check(RiskContext context) {
+        long now = System.nanoTime();
+        int instrumentRate = tradingConfig.getRisk().getMaxInstrumentOrdersPerSecond();
+        if (instrumentRate > 0) {
+            TokenBucket bucket = instrumentBuckets.get(context.getInstrumentId());
+            if (bucket == null) {
+                bucket = instrumentBuckets.computeIfAbsent(context.getInstrumentId(), k -> new TokenBucket(instrumentRate));
+            }
+            if (!bucket.tryAcquire(now)) {
+                return "合约 " + context.getInstrumentId() + " 报单频率超过每秒 " + instrumentRate + " 笔";
+            }
+        }
+        if (globalBucket != null && !globalBucket.tryAcquire(now)) {
+            if (instrumentRate > 0) {
+                instrumentBuckets.get(context.getInstrumentId()).refund();
+            }
+            return "报单频率超过每秒 " + tradingConfig.getRisk().getMaxOrdersPerSecond() + " 笔";
+        }
+        return null;
+    }
+
+    /**
+     * 令牌桶，令牌按速率连续补充，不超过桶容量
+     */
+    static final class TokenBucket {
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(int perSecond) {
+            this.capacity = perSecond;
+            this.tokensPerNano = perSecond / 1e9;
+            this.tokens = perSecond;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized boolean tryAcquire(long nowNanos) {
+            long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+                lastRefillNanos = nowNanos;
+            }
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        /**
+         * 退回一个令牌
+         */
+        synchronized void refund() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.trading.service.risk;
+
+import com.trading.config.TradingConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 单笔报单数量和金额上限
+ */
+@Component
+@Order(10)
+public class OrderSizeCheck implements RiskCheck {
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Override
+    public String getName() {
+        return "order_size";
+    }
+
+    @Override
+    public String check(RiskContext context) {
+        TradingConfig.Risk config = tradingConfig.getRisk();
+        int maxVolume = config.getMaxOrderVolume();
+        if (maxVolume > 0 && context.getVolume() > maxVolume) {
+            return "报单数量 " + context.getVolume() + " 超过单笔上限 " + maxVolume;
+        }
+        double maxNotional = config.getMaxOrderNotional();
+        if (maxNotional > 0) {
+            double notional = context.getPrice() * context.getVolume() * context.getVolumeMultiple();
+            if (notional > maxNotional) {
+                return "报单金额 " + notional + " 超过单笔上限 " + maxNotional;
+            }
+        }
+        return null;
+    }
+}
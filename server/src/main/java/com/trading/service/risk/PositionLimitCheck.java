@@ -0,0 +1,91 @@
+package com.trading.service.risk;
+
+import com.trading.config.TradingConfig;
+import com.trading.model.Position;
+import com.trading.service.OrderBookService;
+import com.trading.service.PositionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 持仓上限检查，开仓后的持仓（现有持仓 + 未成交的开仓报单 + 预留 + 本笔数量）不能超过单合约单方向上限，平仓不检查
+ * 检查通过时在合约的预留计数上占用本笔数量，判断和占用在同一把锁内，并发下单不会同时通过；
+ * 报单登记到报单簿后（已计入未成交开仓）或放弃发送时释放预留。
+ */
+@Component
+@Order(40)
+public class PositionLimitCheck implements RiskCheck {
+
+    private static final char DIRECTION_BUY = '0';
+    private static final char OFFSET_OPEN = '0';
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private PositionService positionService;
+
+    @Autowired
+    private OrderBookService orderBookService;
+
+    @Override
+    public String getName() {
+        return "position_limit";
+    }
+
+    // 合约 -> 已通过检查、尚未登记到报单簿的开仓数量
+    private final ConcurrentHashMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    @Override
+    public String check(RiskContext context) {
+        int maxPosition = tradingConfig.getRisk().getMaxPosition();
+        if (maxPosition <= 0 || context.getOffsetFlag() != OFFSET_OPEN) {
+            return null;
+        }
+        String instrumentId = context.getInstrumentId();
+        char direction = context.getDirection();
+        int slot = direction == DIRECTION_BUY ? 0 : 1;
+        char posiDirection = direction == DIRECTION_BUY ? Position.DIRECTION_LONG : Position.DIRECTION_SHORT;
+        Reservation reservation = reservations.get(instrumentId);
+        if (reservation == null) {
+            reservation = reservations.computeIfAbsent(instrumentId, k -> new Reservation());
+        }
+        synchronized (reservation) {
+            int position = positionService.getPosition(instrumentId, posiDirection);
+            int working = orderBookService.getWorkingOpenVolume(instrumentId, direction);
+            int reserved = reservation.volumes[slot];
+            int total = position + working + reserved + context.getVolume();
+            if (total > maxPosition) {
+                return "开仓后持仓 " + total + "（持仓 " + position + "，未成交开仓 " + working
+                        + "，预留 " + reserved + "）超过上限 " + maxPosition;
+            }
+            reservation.volumes[slot] += context.getVolume();
+        }
+        context.setReservedOpenVolume(context.getVolume());
+        return null;
+    }
+
+    @Override
+    public void release(RiskContext context) {
+        int reserved = context.getReservedOpenVolume();
+        if (reserved == 0) {
+            return;
+        }
+        Reservation reservation = reservations.get(context.getInstrumentId());
+        int slot = context.getDirection() == DIRECTION_BUY ? 0 : 1;
+        synchronized (reservation) {
+            reservation.volumes[slot] -= reserved;
+        }
+        context.setReservedOpenVolume(0);
+    }
+
+    /**
+     * 合约买、卖方向的预留开仓数量
+     */
+    private static final class Reservation {
+        final int[] volumes = new int[2];
+    }
+}
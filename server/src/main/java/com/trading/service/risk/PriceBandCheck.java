@@ -0,0 +1,36 @@
+package com.trading.service.risk;
+
+import com.trading.model.MarketDataSnapshot;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 涨跌停价格检查，报单价格必须在行情缓存的跌停价和涨停价之间，没有行情或行情中没有涨跌停价时跳过
+ */
+@Component
+@Order(20)
+public class PriceBandCheck implements RiskCheck {
+
+    @Override
+    public String getName() {
+        return "price_band";
+    }
+
+    @Override
+    public String check(RiskContext context) {
+        if (!context.hasMarketData()) {
+            return null;
+        }
+        MarketDataSnapshot marketData = context.getMarketData();
+        double price = context.getPrice();
+        double upper = marketData.getUpperLimitPrice();
+        if (upper > 0 && price > upper) {
+            return "报单价格 " + price + " 高于涨停价 " + upper;
+        }
+        double lower = marketData.getLowerLimitPrice();
+        if (lower > 0 && price < lower) {
+            return "报单价格 " + price + " 低于跌停价 " + lower;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.trading.service.risk;
+
+/**
+ * 事前风控检查项
+ * 实现类注册为Spring组件即加入风控链，按 {@link org.springframework.core.annotation.Order} 的顺序执行，
+ * 任一项拒绝即停止。检查在下单线程上同步执行，通过时不应分配对象或访问柜台。
+ */
+public interface RiskCheck {
+
+    /**
+     * 检查项名称，用作拒绝计数的标签
+     */
+    String getName();
+
+    /**
+     * 检查报单
+     * @param context 报单和行情，调用线程复用，不能在检查之外保存
+     * @return 通过时返回null，拒绝时返回拒绝原因
+     */
+    String check(RiskContext context);
+
+    /**
+     * 释放检查通过时占用的额度，报单登记到报单簿、被后续检查项拒绝或发送前失败时调用
+     * @param context 与检查时相同的上下文
+     */
+    default void release(RiskContext context) {
+    }
+}
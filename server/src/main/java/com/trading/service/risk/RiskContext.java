@@ -0,0 +1,104 @@
+package com.trading.service.risk;
+
+import com.trading.model.MarketDataSnapshot;
+
+/**
+ * 风控检查上下文
+ * 每个下单线程复用一个实例，行情在检查开始时从行情缓存读取一次，供各检查项共用
+ */
+public class RiskContext {
+
+    private String instrumentId;
+    private int instrumentIndex;
+    private char direction;
+    private char offsetFlag;
+    private double price;
+    private int volume;
+    private int volumeMultiple;
+
+    // 行情缓存中没有该合约时为false，此时 marketData 中是上一笔报单的数据，不能使用
+    private boolean hasMarketData;
+    private final MarketDataSnapshot marketData = new MarketDataSnapshot();
+
+    // 已通过、占用的额度尚未释放的检查项数
+    private int passedChecks;
+
+    // 持仓上限检查预留的开仓数量
+    private int reservedOpenVolume;
+
+    /**
+     * 设置本次检查的报单
+     */
+    public void reset(String instrumentId, int instrumentIndex, char direction, char offsetFlag,
+                      double price, int volume, int volumeMultiple) {
+        this.instrumentId = instrumentId;
+        this.instrumentIndex = instrumentIndex;
+        this.direction = direction;
+        this.offsetFlag = offsetFlag;
+        this.price = price;
+        this.volume = volume;
+        this.volumeMultiple = volumeMultiple;
+        this.hasMarketData = false;
+        this.passedChecks = 0;
+        this.reservedOpenVolume = 0;
+    }
+
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    public int getInstrumentIndex() {
+        return instrumentIndex;
+    }
+
+    public char getDirection() {
+        return direction;
+    }
+
+    public char getOffsetFlag() {
+        return offsetFlag;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public int getVolume() {
+        return volume;
+    }
+
+    public int getVolumeMultiple() {
+        return volumeMultiple;
+    }
+
+    public boolean hasMarketData() {
+        return hasMarketData;
+    }
+
+    public void setHasMarketData(boolean hasMarketData) {
+        this.hasMarketData = hasMarketData;
+    }
+
+    public int getPassedChecks() {
+        return passedChecks;
+    }
+
+    public void setPassedChecks(int passedChecks) {
+        this.passedChecks = passedChecks;
+    }
+
+    public int getReservedOpenVolume() {
+        return reservedOpenVolume;
+    }
+
+    public void setReservedOpenVolume(int reservedOpenVolume) {
+        this.reservedOpenVolume = reservedOpenVolume;
+    }
+
+    /**
+     * 行情持有对象，只有 {@link #hasMarketData()} 为true时内容有效
+     */
+    public MarketDataSnapshot getMarketData() {
+        return marketData;
+    }
+}
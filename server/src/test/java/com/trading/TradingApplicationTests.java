@@ -17,7 +17,7 @@ import static org.junit.Assert.assertNotNull;
  * 交易应用测试类 - Java 8兼容
  */
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class TradingApplicationTests {
 
     @Autowired
@@ -0,0 +1,146 @@
+package com.trading.service;
+
+import com.trading.model.Order;
+import com.trading.model.Trade;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 报单簿测试：状态机、乱序回报、成交去重和未成交开仓数量
+ */
+public class OrderBookServiceTest {
+
+    private static final String INSTRUMENT = "rb2410";
+    private static final char BUY = '0';
+    private static final char SELL = '1';
+    private static final char OPEN = '0';
+    private static final char CLOSE = '1';
+
+    private OrderBookService orderBook;
+
+    @Before
+    public void setUp() {
+        orderBook = new OrderBookService();
+        orderBook.setTradingDay("20240102");
+        orderBook.setSession(1, 100);
+    }
+
+    @Test
+    public void statusOnlyMovesForward() {
+        orderBook.onOrderInsert("1", INSTRUMENT, BUY, OPEN, 3500, 5);
+        orderBook.onOrder("S1", 1, 100, "1", INSTRUMENT, BUY, OPEN, 3500, 5, -1,
+                Order.STATUS_PART_TRADED_QUEUEING);
+
+        // 迟到的未成交回报不能把部分成交改回去
+        Order order = orderBook.onOrder("S1", 1, 100, "1", INSTRUMENT, BUY, OPEN, 3500, 5, -1,
+                Order.STATUS_NO_TRADE_QUEUEING);
+        assertEquals(Order.STATUS_PART_TRADED_QUEUEING, order.getOrderStatus());
+        assertEquals(1, orderBook.getStaleUpdates());
+        assertEquals(1, orderBook.getWorkingOrderCount());
+    }
+
+    @Test
+    public void terminalStatusIgnoresLaterReports() {
+        orderBook.onOrderInsert("1", INSTRUMENT, BUY, OPEN, 3500, 5);
+        orderBook.onOrder("S1", 1, 100, "1", INSTRUMENT, BUY, OPEN, 3500, 5, -1, Order.STATUS_CANCELED);
+        assertEquals(0, orderBook.getWorkingOrderCount());
+
+        Order order = orderBook.onOrder("S1", 1, 100, "1", INSTRUMENT, BUY, OPEN, 3500, 5, -1,
+                Order.STATUS_NO_TRADE_QUEUEING);
+        assertEquals(Order.STATUS_CANCELED, order.getOrderStatus());
+        assertEquals(1, orderBook.getStaleUpdates());
+        // 终态只扣减一次未到终态的报单数
+        assertEquals(0, orderBook.getWorkingOrderCount());
+    }
+
+    @Test
+    public void tradeBeforeOrderReportIsAppliedBySysId() {
+        // 其他会话的报单，成交先于报单回报到达
+        Trade trade = orderBook.onTrade("T1", "S9", "7", INSTRUMENT, BUY, OPEN, 3500, 2, "09:00:01");
+        assertNotNull(trade);
+        assertEquals(0, orderBook.getOrders(null).size());
+
+        Order order = orderBook.onOrder("S9", 9, 900, "7", INSTRUMENT, BUY, OPEN, 3500, 5, -1,
+                Order.STATUS_PART_TRADED_QUEUEING);
+        assertEquals(2, order.getVolumeTraded());
+        assertEquals(1, orderBook.getOrderTrades(9, 900, "7").size());
+    }
+
+    @Test
+    public void tradeWithOtherSessionSysIdDoesNotMatchOwnOrderRef() {
+        orderBook.onOrderInsert("7", INSTRUMENT, BUY, OPEN, 3500, 5);
+        orderBook.onOrder("S1", 1, 100, "7", INSTRUMENT, BUY, OPEN, 3500, 5, -1, Order.STATUS_NO_TRADE_QUEUEING);
+
+        // 报单引用相同但报单编号不同，是其他会话的报单
+        orderBook.onTrade("T1", "S9", "7", INSTRUMENT, BUY, OPEN, 3500, 2, "09:00:01");
+        assertEquals(0, orderBook.getOrder(1, 100, "7").getVolumeTraded());
+    }
+
+    @Test
+    public void duplicateTradeIsCountedOnce() {
+        orderBook.onOrderInsert("1", INSTRUMENT, BUY, OPEN, 3500, 5);
+        orderBook.onOrder("S1", 1, 100, "1", INSTRUMENT, BUY, OPEN, 3500, 5, -1, Order.STATUS_NO_TRADE_QUEUEING);
+
+        assertNotNull(orderBook.onTrade("T1", "S1", "1", INSTRUMENT, BUY, OPEN, 3500, 2, "09:00:01"));
+        assertNull(orderBook.onTrade("T1", "S1", "1", INSTRUMENT, BUY, OPEN, 3500, 2, "09:00:01"));
+
+        assertEquals(1, orderBook.getDuplicateTrades());
+        assertEquals(1, orderBook.getTradeCount());
+        assertEquals(2, orderBook.getOrder(1, 100, "1").getVolumeTraded());
+    }
+
+    @Test
+    public void sameTradeIdWithOtherDirectionIsNotDuplicate() {
+        // 自成交时买卖双方的成交编号相同
+        orderBook.onTrade("T1", "S1", null, INSTRUMENT, BUY, OPEN, 3500, 1, "09:00:01");
+        assertNotNull(orderBook.onTrade("T1", "S2", null, INSTRUMENT, SELL, OPEN, 3500, 1, "09:00:01"));
+        assertEquals(0, orderBook.getDuplicateTrades());
+        assertEquals(2, orderBook.getTradeCount());
+    }
+
+    @Test
+    public void workingOpenVolumeFollowsTradesAndCancel() {
+        orderBook.onOrderInsert("1", INSTRUMENT, BUY, OPEN, 3500, 5);
+        assertEquals(5, orderBook.getWorkingOpenVolume(INSTRUMENT, BUY));
+        assertEquals(0, orderBook.getWorkingOpenVolume(INSTRUMENT, SELL));
+
+        orderBook.onOrder("S1", 1, 100, "1", INSTRUMENT, BUY, OPEN, 3500, 5, -1, Order.STATUS_NO_TRADE_QUEUEING);
+        orderBook.onTrade("T1", "S1", "1", INSTRUMENT, BUY, OPEN, 3500, 2, "09:00:01");
+        assertEquals(3, orderBook.getWorkingOpenVolume(INSTRUMENT, BUY));
+
+        orderBook.onOrder("S1", 1, 100, "1", INSTRUMENT, BUY, OPEN, 3500, 5, -1, Order.STATUS_CANCELED);
+        assertEquals(0, orderBook.getWorkingOpenVolume(INSTRUMENT, BUY));
+    }
+
+    @Test
+    public void allTradedReportKeepsOpenVolumeUntilTradesArrive() {
+        orderBook.onOrderInsert("1", INSTRUMENT, SELL, OPEN, 3500, 5);
+        orderBook.onOrder("S1", 1, 100, "1", INSTRUMENT, SELL, OPEN, 3500, 5, -1, Order.STATUS_ALL_TRADED);
+        // 成交回报尚未到达，持仓还没有增加
+        assertEquals(5, orderBook.getWorkingOpenVolume(INSTRUMENT, SELL));
+
+        orderBook.onTrade("T1", "S1", "1", INSTRUMENT, SELL, OPEN, 3500, 3, "09:00:01");
+        assertEquals(2, orderBook.getWorkingOpenVolume(INSTRUMENT, SELL));
+        orderBook.onTrade("T2", "S1", "1", INSTRUMENT, SELL, OPEN, 3500, 2, "09:00:02");
+        assertEquals(0, orderBook.getWorkingOpenVolume(INSTRUMENT, SELL));
+    }
+
+    @Test
+    public void closeOrderDoesNotCountAsWorkingOpen() {
+        orderBook.onOrderInsert("1", INSTRUMENT, BUY, CLOSE, 3500, 5);
+        assertEquals(0, orderBook.getWorkingOpenVolume(INSTRUMENT, BUY));
+    }
+
+    @Test
+    public void rejectedOrderReleasesWorkingOpen() {
+        orderBook.onOrderInsert("1", INSTRUMENT, BUY, OPEN, 3500, 5);
+        Order order = orderBook.onOrderRejected("1", "资金不足");
+        assertEquals(Order.STATUS_CANCELED, order.getOrderStatus());
+        assertEquals(0, orderBook.getWorkingOpenVolume(INSTRUMENT, BUY));
+        assertNull(orderBook.onOrderRejected("2", "资金不足"));
+    }
+}
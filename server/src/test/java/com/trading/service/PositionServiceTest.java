@@ -0,0 +1,120 @@
+package com.trading.service;
+
+import com.trading.model.Position;
+import com.trading.model.Trade;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 持仓服务测试：平仓先平昨仓、对账期间的成交暂存和全量对账清零
+ */
+public class PositionServiceTest {
+
+    private static final String INSTRUMENT = "rb2410";
+    private static final char BUY = '0';
+    private static final char SELL = '1';
+    private static final char OPEN = '0';
+    private static final char CLOSE = '1';
+    private static final char CLOSE_TODAY = '3';
+    private static final double DELTA = 1e-6;
+
+    private PositionService positionService;
+
+    @Before
+    public void setUp() {
+        positionService = new PositionService();
+        positionService.registerVolumeMultiple(INSTRUMENT, 10);
+        positionService.setTradingDay("20240102");
+    }
+
+    private static Trade trade(String tradeId, char direction, char offsetFlag, double price, int volume) {
+        return new Trade(tradeId, "1", "S" + tradeId, INSTRUMENT, direction, offsetFlag, price, volume, "09:00:00");
+    }
+
+    private Position longPosition() {
+        List<Position> positions = positionService.getPositions(INSTRUMENT);
+        for (Position position : positions) {
+            if (position.getPosiDirection() == Position.DIRECTION_LONG) {
+                return position;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 以柜台结果建立5手多头昨仓，开仓均价3500
+     */
+    private void holdYesterdayLong() {
+        positionService.reconcile(1, "", INSTRUMENT, Position.DIRECTION_LONG, 5, 0, 5, 3500 * 5 * 10);
+        positionService.finishReconcile(1, "");
+    }
+
+    @Test
+    public void closeTakesYesterdayPositionFirst() {
+        holdYesterdayLong();
+        positionService.onTrade(trade("T1", BUY, OPEN, 3500, 2));
+
+        positionService.onTrade(trade("T2", SELL, CLOSE, 3600, 6));
+        Position position = longPosition();
+        assertEquals(1, position.getPosition());
+        assertEquals(0, position.getYdPosition());
+        assertEquals(1, position.getTodayPosition());
+        assertEquals((3600 - 3500) * 6 * 10, position.getCloseProfit(), DELTA);
+    }
+
+    @Test
+    public void closeTodayTakesOnlyTodayPosition() {
+        holdYesterdayLong();
+        positionService.onTrade(trade("T1", BUY, OPEN, 3500, 2));
+
+        positionService.onTrade(trade("T2", SELL, CLOSE_TODAY, 3500, 2));
+        Position position = longPosition();
+        assertEquals(5, position.getPosition());
+        assertEquals(5, position.getYdPosition());
+        assertEquals(0, position.getTodayPosition());
+    }
+
+    @Test
+    public void tradesDuringReconcileAreAppliedOnTopOfCounterPosition() {
+        positionService.onTrade(trade("T1", BUY, OPEN, 3500, 1));
+
+        // 第一条持仓响应即为对账点，之后的成交先暂存
+        positionService.reconcile(2, "", INSTRUMENT, Position.DIRECTION_LONG, 4, 4, 0, 3500 * 4 * 10);
+        positionService.onTrade(trade("T2", BUY, OPEN, 3510, 2));
+        assertEquals(1, positionService.getPosition(INSTRUMENT, Position.DIRECTION_LONG));
+
+        positionService.finishReconcile(2, "");
+        assertEquals(6, positionService.getPosition(INSTRUMENT, Position.DIRECTION_LONG));
+        assertEquals(6, longPosition().getTodayPosition());
+    }
+
+    @Test
+    public void abortedReconcileAppliesHeldTrades() {
+        positionService.reconcile(3, "", INSTRUMENT, Position.DIRECTION_LONG, 4, 4, 0, 3500 * 4 * 10);
+        positionService.onTrade(trade("T1", BUY, OPEN, 3500, 2));
+
+        positionService.abortReconcile(3);
+        assertEquals(2, positionService.getPosition(INSTRUMENT, Position.DIRECTION_LONG));
+    }
+
+    @Test
+    public void emptyFullReconcileClearsLocalPositions() {
+        positionService.onTrade(trade("T1", BUY, OPEN, 3500, 3));
+        assertEquals(3, positionService.getPosition(INSTRUMENT, Position.DIRECTION_LONG));
+
+        positionService.finishReconcile(4, "");
+        assertEquals(0, positionService.getPosition(INSTRUMENT, Position.DIRECTION_LONG));
+    }
+
+    @Test
+    public void instrumentReconcileKeepsOtherInstruments() {
+        positionService.onTrade(trade("T1", BUY, OPEN, 3500, 3));
+
+        positionService.finishReconcile(5, "hc2410");
+        assertEquals(3, positionService.getPosition(INSTRUMENT, Position.DIRECTION_LONG));
+    }
+}
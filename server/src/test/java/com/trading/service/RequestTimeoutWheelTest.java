@@ -0,0 +1,103 @@
+package com.trading.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 时间轮测试：超过一圈的超时按圈数到期，撤销的超时不执行
+ */
+public class RequestTimeoutWheelTest {
+
+    // 每格10ms，4个槽，一圈40ms
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 4;
+
+    private RequestTimeoutWheel wheel;
+
+    @Before
+    public void setUp() {
+        wheel = new RequestTimeoutWheel(TICK_MILLIS, WHEEL_SIZE, "TestTimeoutWheel");
+    }
+
+    @After
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWheelSizeThatIsNotPowerOfTwo() {
+        new RequestTimeoutWheel(TICK_MILLIS, 3, "TestTimeoutWheel");
+    }
+
+    @Test
+    public void timeoutLongerThanOneRoundWaitsForRemainingRounds() throws InterruptedException {
+        wheel.start();
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        RequestTimeoutWheel.Timeout timeout = wheel.newTimeout(expired::countDown, 100);
+
+        assertTrue(expired.await(2, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 100ms 跨过两圈，落在同一槽上的前两次经过不能到期
+        assertTrue("超时提前执行: " + elapsedMillis + "ms", elapsedMillis >= 100);
+        assertTrue(timeout.isExpired());
+        assertEquals(1, wheel.getExpiredCount());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    public void timeoutCancelledBeforeTransferNeverRuns() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        // 时间轮尚未启动，超时还在登记队列中
+        RequestTimeoutWheel.Timeout timeout = wheel.newTimeout(runs::incrementAndGet, 20);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.getPendingCount());
+
+        wheel.start();
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.newTimeout(later::countDown, 60);
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+
+        assertEquals(0, runs.get());
+        assertFalse(timeout.isExpired());
+        assertEquals(1, wheel.getExpiredCount());
+    }
+
+    @Test
+    public void timeoutCancelledInBucketNeverRuns() throws InterruptedException {
+        wheel.start();
+        AtomicInteger runs = new AtomicInteger();
+        RequestTimeoutWheel.Timeout timeout = wheel.newTimeout(runs::incrementAndGet, 80);
+        // 等待超时转入槽中再撤销
+        Thread.sleep(3 * TICK_MILLIS);
+        assertTrue(timeout.cancel());
+
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.newTimeout(later::countDown, 120);
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+
+        assertEquals(0, runs.get());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    public void expiredTimeoutCannotBeCancelled() throws InterruptedException {
+        wheel.start();
+        CountDownLatch expired = new CountDownLatch(1);
+        RequestTimeoutWheel.Timeout timeout = wheel.newTimeout(expired::countDown, 0);
+
+        assertTrue(expired.await(2, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.getPendingCount());
+    }
+}